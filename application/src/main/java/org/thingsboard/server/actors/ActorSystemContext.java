@@ -34,6 +34,7 @@ import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.MailService;
 import org.thingsboard.rule.engine.api.NotificationCenter;
 import org.thingsboard.rule.engine.api.RuleEngineDeviceStateManager;
+import org.thingsboard.rule.engine.api.RuleNodeMsgStore;
 import org.thingsboard.rule.engine.api.SmsService;
 import org.thingsboard.rule.engine.api.notification.SlackService;
 import org.thingsboard.rule.engine.api.sms.SmsSenderFactory;
@@ -337,6 +338,10 @@ public class ActorSystemContext {
     @Getter
     private TbelInvokeService tbelInvokeService;
 
+    @Autowired(required = false)
+    @Getter
+    private RuleNodeMsgStore ruleNodeMsgStore;
+
     @Autowired
     @Getter
     private MailExecutorService mailExecutor;
@@ -561,6 +566,10 @@ public class ActorSystemContext {
     @Getter
     private long ruleChainErrorPersistFrequency;
 
+    @Value("${actors.rule.chain.direct_routing_enabled:false}")
+    @Getter
+    private boolean ruleChainDirectRoutingEnabled;
+
     @Value("${actors.rule.node.error_persist_frequency:3000}")
     @Getter
     private long ruleNodeErrorPersistFrequency;
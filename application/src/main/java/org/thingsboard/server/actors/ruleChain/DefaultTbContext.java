@@ -32,6 +32,7 @@ import org.thingsboard.rule.engine.api.RuleEngineDeviceProfileCache;
 import org.thingsboard.rule.engine.api.RuleEngineDeviceStateManager;
 import org.thingsboard.rule.engine.api.RuleEngineRpcService;
 import org.thingsboard.rule.engine.api.RuleEngineTelemetryService;
+import org.thingsboard.rule.engine.api.RuleNodeMsgStore;
 import org.thingsboard.rule.engine.api.ScriptEngine;
 import org.thingsboard.rule.engine.api.SmsService;
 import org.thingsboard.rule.engine.api.TbContext;
@@ -138,11 +139,17 @@ public class DefaultTbContext implements TbContext {
     private final ActorSystemContext mainCtx;
     private final String ruleChainName;
     private final RuleNodeCtx nodeCtx;
+    private final RuleChainRoutes routes;
 
     public DefaultTbContext(ActorSystemContext mainCtx, String ruleChainName, RuleNodeCtx nodeCtx) {
+        this(mainCtx, ruleChainName, nodeCtx, null);
+    }
+
+    DefaultTbContext(ActorSystemContext mainCtx, String ruleChainName, RuleNodeCtx nodeCtx, RuleChainRoutes routes) {
         this.mainCtx = mainCtx;
         this.ruleChainName = ruleChainName;
         this.nodeCtx = nodeCtx;
+        this.routes = routes;
     }
 
     @Override
@@ -160,7 +167,31 @@ public class DefaultTbContext implements TbContext {
         RuleNode ruleNode = nodeCtx.getSelf();
         persistDebugOutput(msg, relationTypes);
         msg.getCallback().onProcessingEnd(ruleNode.getId());
-        nodeCtx.getChainActor().tell(new RuleNodeToRuleChainTellNextMsg(ruleNode.getRuleChainId(), ruleNode.getId(), relationTypes, msg, null));
+        if (!tellNextRuleNode(msg, relationTypes)) {
+            nodeCtx.getChainActor().tell(new RuleNodeToRuleChainTellNextMsg(ruleNode.getRuleChainId(), ruleNode.getId(), relationTypes, msg, null));
+        }
+    }
+
+    /**
+     * Passes the message directly to the actor of the next rule node, skipping the hop through the rule chain actor,
+     * if that rule node is the only target of the relations and the message belongs to the partition of this service.
+     * The other cases, as well as the messages in flight once the rule chain is updated or stopped, are routed
+     * by the rule chain actor. The state of the next rule node is checked by its own actor.
+     */
+    private boolean tellNextRuleNode(TbMsg msg, Set<String> relationTypes) {
+        if (routes == null || !routes.isValid() || !msg.isValid()) {
+            return false;
+        }
+        RuleNodeRelation relation = routes.getSingleRuleNodeRelation(nodeCtx.getSelf().getId(), relationTypes);
+        if (relation == null) {
+            return false;
+        }
+        RuleNodeCtx targetCtx = routes.getNode(new RuleNodeId(relation.getOut().getId()));
+        if (targetCtx == null || !mainCtx.resolve(getTenantId(), msg.getOriginator(), msg).isMyPartition()) {
+            return false;
+        }
+        targetCtx.getSelfActor().tell(new RuleChainToRuleNodeMsg(new DefaultTbContext(mainCtx, ruleChainName, targetCtx, routes), msg, relation.getType()));
+        return true;
     }
 
     @Override
@@ -1010,6 +1041,11 @@ public class DefaultTbContext implements TbContext {
         return mainCtx.getApiUsageStateService();
     }
 
+    @Override
+    public RuleNodeMsgStore getRuleNodeMsgStore() {
+        return mainCtx.getRuleNodeMsgStore();
+    }
+
     @Override
     public EntityService getEntityService() {
         return mainCtx.getEntityService();
@@ -17,6 +17,7 @@ package org.thingsboard.server.actors.ruleChain;
 
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.DebugModeUtil;
+import org.thingsboard.rule.engine.api.RuleNodeMsgStore;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.TbActorCtx;
 import org.thingsboard.server.actors.TbActorRef;
@@ -69,10 +70,12 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
     private final TbActorRef parent;
     private final TbActorRef self;
     private final Map<RuleNodeId, RuleNodeCtx> nodeActors;
-    private final Map<RuleNodeId, List<RuleNodeRelation>> nodeRoutes;
     private final RuleChainService service;
     private final TbClusterService clusterService;
     private String ruleChainName;
+    private RuleChainRoutes routes;
+    // passed to the rule nodes to route the messages with a single target without the rule chain actor
+    private RuleChainRoutes directRoutes;
 
     private RuleNodeId firstId;
     private RuleNodeCtx firstNode;
@@ -84,7 +87,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         this.parent = parent;
         this.self = self;
         this.nodeActors = new HashMap<>();
-        this.nodeRoutes = new HashMap<>();
+        this.routes = RuleChainRoutes.EMPTY;
         this.service = systemContext.getRuleChainService();
         this.clusterService = systemContext.getClusterService();
     }
@@ -147,12 +150,24 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         }
     }
 
+    @Override
+    public void onStop(TbActorCtx context) throws Exception {
+        List<RuleNodeId> ruleNodeIds = new ArrayList<>(nodeActors.keySet());
+        super.onStop(context);
+        RuleNodeMsgStore msgStore = systemContext.getRuleNodeMsgStore();
+        if (msgStore != null) {
+            // the rule chain is deleted, and its rule nodes are stopped without the lifecycle event
+            ruleNodeIds.forEach(msgStore::removeAll);
+        }
+    }
+
     @Override
     public void stop(TbActorCtx ctx) {
         log.trace("[{}][{}] Stopping rule chain with {} nodes", tenantId, entityId, nodeActors.size());
         nodeActors.values().stream().map(RuleNodeCtx::getSelfActor).map(TbActorRef::getActorId).forEach(ctx::stop);
         nodeActors.clear();
-        nodeRoutes.clear();
+        invalidateDirectRoutes();
+        routes = RuleChainRoutes.EMPTY;
         started = false;
     }
 
@@ -169,8 +184,15 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
                 () -> true);
     }
 
+    private void invalidateDirectRoutes() {
+        if (directRoutes != null) {
+            directRoutes.invalidate();
+            directRoutes = null;
+        }
+    }
+
     private void initRoutes(RuleChain ruleChain, List<RuleNode> ruleNodeList) {
-        nodeRoutes.clear();
+        Map<RuleNodeId, List<RuleNodeRelation>> nodeRoutes = new HashMap<>();
         // Populating the routes map;
         for (RuleNode ruleNode : ruleNodeList) {
             List<EntityRelation> relations = service.getRuleNodeRelations(TenantId.SYS_TENANT_ID, ruleNode.getId());
@@ -192,6 +214,10 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             }
         }
 
+        invalidateDirectRoutes();
+        routes = new RuleChainRoutes(nodeActors, nodeRoutes);
+        directRoutes = systemContext.isRuleChainDirectRoutingEnabled() ? routes : null;
+
         firstId = ruleChain.getFirstRuleNodeId();
         firstNode = nodeActors.get(firstId);
         state = ComponentLifecycleState.ACTIVE;
@@ -297,17 +323,12 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         try {
             checkComponentStateActive(msg);
             EntityId entityId = msg.getOriginator();
-            TopicPartitionInfo tpi = systemContext.resolve(tenantId, entityId, msg);
 
-            List<RuleNodeRelation> ruleNodeRelations = nodeRoutes.get(originatorNodeId);
-            if (ruleNodeRelations == null) { // When unchecked, this will cause NullPointerException when rule node doesn't exist anymore
+            List<RuleNodeRelation> relationsByTypes = routes.getRelations(originatorNodeId, relationTypes);
+            if (relationsByTypes == null) { // When unchecked, this will cause NullPointerException when rule node doesn't exist anymore
                 log.warn("[{}][{}][{}] No outbound relations (null). Probably rule node does not exist. Probably old message.", tenantId, entityId, msg.getId());
-                ruleNodeRelations = Collections.emptyList();
+                relationsByTypes = Collections.emptyList();
             }
-
-            List<RuleNodeRelation> relationsByTypes = ruleNodeRelations.stream()
-                    .filter(r -> contains(relationTypes, r.getType()))
-                    .collect(Collectors.toList());
             int relationsCount = relationsByTypes.size();
             if (relationsCount == 0) {
                 log.trace("[{}][{}][{}] No outbound relations to process", tenantId, entityId, msg.getId());
@@ -323,11 +344,13 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
                     msg.getCallback().onSuccess();
                 }
             } else if (relationsCount == 1) {
+                TopicPartitionInfo tpi = systemContext.resolve(tenantId, entityId, msg);
                 for (RuleNodeRelation relation : relationsByTypes) {
                     log.trace("[{}][{}][{}] Pushing message to single target: [{}]", tenantId, entityId, msg.getId(), relation.getOut());
                     pushToTarget(tpi, msg, relation.getOut(), relation.getType());
                 }
             } else {
+                TopicPartitionInfo tpi = systemContext.resolve(tenantId, entityId, msg);
                 MultipleTbQueueTbMsgCallbackWrapper callbackWrapper = new MultipleTbQueueTbMsgCallbackWrapper(relationsCount, msg.getCallback());
                 log.trace("[{}][{}][{}] Pushing message to multiple targets: [{}]", tenantId, entityId, msg.getId(), relationsByTypes);
                 for (RuleNodeRelation relation : relationsByTypes) {
@@ -386,21 +409,9 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         clusterService.pushMsgToRuleEngine(tpi, newMsg.getId(), toQueueMsg, callbackWrapper);
     }
 
-    private boolean contains(Set<String> relationTypes, String type) {
-        if (relationTypes == null) {
-            return true;
-        }
-        for (String relationType : relationTypes) {
-            if (relationType.equalsIgnoreCase(type)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private void pushMsgToNode(RuleNodeCtx nodeCtx, TbMsg msg, String fromRelationType) {
         if (nodeCtx != null) {
-            var tbCtx = new DefaultTbContext(systemContext, ruleChainName, nodeCtx);
+            var tbCtx = new DefaultTbContext(systemContext, ruleChainName, nodeCtx, directRoutes);
             nodeCtx.getSelfActor().tell(new RuleChainToRuleNodeMsg(tbCtx, msg, fromRelationType));
         } else {
             log.error("[{}][{}] RuleNodeCtx is empty", entityId, ruleChainName);
@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outbound relations of the rule nodes grouped by the relation type. Built once the rule chain is started or updated,
+ * so the messages are routed by a map lookup instead of filtering all relations of the rule node on every hop.
+ * Immutable, so it is safe to share with the rule node actors, except for the validity flag that is cleared once
+ * the routes are replaced by a rule chain update or the rule chain is stopped.
+ */
+final class RuleChainRoutes {
+
+    static final RuleChainRoutes EMPTY = new RuleChainRoutes(Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<RuleNodeId, RuleNodeCtx> nodes;
+    private final Map<RuleNodeId, List<RuleNodeRelation>> routes;
+    private final Map<RuleNodeId, Map<String, List<RuleNodeRelation>>> routesByType;
+    private volatile boolean valid = true;
+
+    RuleChainRoutes(Map<RuleNodeId, RuleNodeCtx> nodes, Map<RuleNodeId, List<RuleNodeRelation>> routes) {
+        this.nodes = Map.copyOf(nodes);
+        this.routes = new HashMap<>();
+        this.routesByType = new HashMap<>();
+        routes.forEach((ruleNodeId, relations) -> {
+            this.routes.put(ruleNodeId, List.copyOf(relations));
+            Map<String, List<RuleNodeRelation>> byType = new HashMap<>();
+            for (RuleNodeRelation relation : relations) {
+                byType.computeIfAbsent(toKey(relation.getType()), k -> new ArrayList<>()).add(relation);
+            }
+            byType.replaceAll((type, typeRelations) -> List.copyOf(typeRelations));
+            this.routesByType.put(ruleNodeId, byType);
+        });
+    }
+
+    /**
+     * Marks the routes as outdated, so the messages that are still in flight are routed by the rule chain actor
+     * using the current routes and the current state of the rule chain.
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    RuleNodeCtx getNode(RuleNodeId ruleNodeId) {
+        return nodes.get(ruleNodeId);
+    }
+
+    /**
+     * @return relations of the rule node of any of the given types (case-insensitive),
+     * or null if the rule node does not exist
+     */
+    List<RuleNodeRelation> getRelations(RuleNodeId ruleNodeId, Set<String> relationTypes) {
+        List<RuleNodeRelation> relations = routes.get(ruleNodeId);
+        if (relations == null || relationTypes == null) {
+            return relations;
+        }
+        if (relationTypes.size() == 1) {
+            return routesByType.get(ruleNodeId).getOrDefault(toKey(relationTypes.iterator().next()), Collections.emptyList());
+        }
+        List<RuleNodeRelation> result = new ArrayList<>();
+        for (RuleNodeRelation relation : relations) {
+            if (contains(relationTypes, relation.getType())) {
+                result.add(relation);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the relation if it is the only one of the given types and points to a rule node of this rule chain
+     */
+    RuleNodeRelation getSingleRuleNodeRelation(RuleNodeId ruleNodeId, Set<String> relationTypes) {
+        List<RuleNodeRelation> relations = getRelations(ruleNodeId, relationTypes);
+        if (relations == null || relations.size() != 1) {
+            return null;
+        }
+        RuleNodeRelation relation = relations.get(0);
+        return relation.getOut().getEntityType() == EntityType.RULE_NODE ? relation : null;
+    }
+
+    private static boolean contains(Set<String> relationTypes, String type) {
+        for (String relationType : relationTypes) {
+            if (relationType.equalsIgnoreCase(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String toKey(String relationType) {
+        return relationType.toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -17,6 +17,7 @@ package org.thingsboard.server.actors.ruleChain;
 
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.DebugModeUtil;
+import org.thingsboard.rule.engine.api.RuleNodeMsgStore;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.server.actors.ActorSystemContext;
@@ -107,6 +108,16 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
         }
     }
 
+    @Override
+    public void onStop(TbActorCtx context) throws Exception {
+        super.onStop(context);
+        RuleNodeMsgStore msgStore = systemContext.getRuleNodeMsgStore();
+        if (msgStore != null) {
+            // the rule node is deleted, so its buffered messages are not going to be processed anymore
+            msgStore.removeAll(entityId);
+        }
+    }
+
     @Override
     public void onPartitionChangeMsg(PartitionChangeMsg msg) throws Exception {
         log.debug("[{}][{}] onPartitionChangeMsg: [{}]", tenantId, entityId, msg);
@@ -27,6 +27,7 @@ import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.DefaultTbActorSystem;
 import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbActorRunQueueExecutor;
 import org.thingsboard.server.actors.TbActorSystem;
 import org.thingsboard.server.actors.TbActorSystemSettings;
 import org.thingsboard.server.actors.app.AppActor;
@@ -86,6 +87,9 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Value("${actors.system.cfe_dispatcher_pool_size:8}")
     private int calculatedFieldEntityDispatcherSize;
 
+    @Value("${actors.system.dispatcher_executor_type:work_stealing}")
+    private String dispatcherExecutorType;
+
 
     @PostConstruct
     public void initActorSystem() {
@@ -119,6 +123,8 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
         }
         if (poolSize == 1) {
             return Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(dispatcherName));
+        } else if ("run_queue".equalsIgnoreCase(dispatcherExecutorType)) {
+            return new TbActorRunQueueExecutor(poolSize, dispatcherName);
         } else {
             return ThingsBoardExecutors.newWorkStealingPool(poolSize, dispatcherName);
         }
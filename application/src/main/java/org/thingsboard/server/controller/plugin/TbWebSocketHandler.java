@@ -35,6 +35,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.adapter.NativeWebSocketSession;
@@ -63,11 +64,15 @@ import org.thingsboard.server.service.ws.WebSocketService;
 import org.thingsboard.server.service.ws.WebSocketSessionRef;
 import org.thingsboard.server.service.ws.WebSocketSessionType;
 import org.thingsboard.server.service.ws.WsCommandsWrapper;
+import org.thingsboard.server.service.ws.WsProtoUpdateEncoder;
 import org.thingsboard.server.service.ws.notification.cmd.NotificationCmdsWrapper;
 import org.thingsboard.server.service.ws.telemetry.cmd.TelemetryCmdsWrapper;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.InvalidParameterException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
@@ -87,7 +92,7 @@ import static org.thingsboard.server.service.ws.DefaultWebSocketService.NUMBER_O
 @TbCoreComponent
 @Slf4j
 @RequiredArgsConstructor
-public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocketMsgEndpoint {
+public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocketMsgEndpoint, SubProtocolCapable {
 
     private final ConcurrentMap<String, SessionMetaData> internalSessionMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, String> externalSessionMap = new ConcurrentHashMap<>();
@@ -109,6 +114,8 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
     private int wsMaxQueueMessagesPerSession;
     @Value("${server.ws.auth_timeout_ms:10000}")
     private int authTimeoutMs;
+    @Value("${server.ws.proto_updates_enabled:false}")
+    private boolean protoUpdatesEnabled;
 
     private final ConcurrentMap<String, WebSocketSessionRef> blacklistedSessions = new ConcurrentHashMap<>();
 
@@ -140,6 +147,12 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         internalSessionMap.clear();
     }
 
+    @Override
+    public List<String> getSubProtocols() {
+        // the sessions that don't request the sub-protocol receive JSON text frames as before
+        return protoUpdatesEnabled ? List.of(WsProtoUpdateEncoder.SUB_PROTOCOL) : Collections.emptyList();
+    }
+
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) {
         try {
@@ -338,6 +351,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                 .localAddress(session.getLocalAddress())
                 .remoteAddress(session.getRemoteAddress())
                 .sessionType(sessionType)
+                .subProtocol(session.getAcceptedProtocol())
                 .build();
     }
 
@@ -360,6 +374,8 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         @Setter
         private int maxMsgQueueSize = wsMaxQueueMessagesPerSession;
 
+        private final WsProtoUpdateEncoder protoEncoder;
+
         private final Queue<String> inboundMsgQueue = new ConcurrentLinkedQueue<>();
         private final Lock inboundMsgQueueProcessorLock = new ReentrantLock();
 
@@ -371,6 +387,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
             Session nativeSession = ((NativeWebSocketSession) session).getNativeSession(Session.class);
             this.asyncRemote = nativeSession.getAsyncRemote();
             this.sessionRef = sessionRef;
+            this.protoEncoder = sessionRef.isProtoUpdates() ? new WsProtoUpdateEncoder() : null;
             this.lastActivityTime = System.currentTimeMillis();
         }
 
@@ -424,6 +441,10 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                     TbWebSocketTextMsg textMsg = (TbWebSocketTextMsg) msg;
                     this.asyncRemote.sendText(textMsg.getMsg(), this);
                     // isSending status will be reset in the onResult method by call back
+                } else if (TbWebSocketMsgType.BINARY.equals(msg.getType())) {
+                    // the messages are sent one by one, so the frames are encoded in the order the client receives them
+                    ByteBuffer frame = ByteBuffer.wrap(protoEncoder.encode(msg.getMsg()));
+                    this.asyncRemote.sendBinary(frame, this);
                 } else {
                     TbWebSocketPingMsg pingMsg = (TbWebSocketPingMsg) msg;
                     this.asyncRemote.sendPing(pingMsg.getMsg()); // blocking call
@@ -487,6 +508,19 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
     @Override
     public void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException {
         log.debug("{} Sending {}", sessionRef, msg);
+        send(sessionRef, subscriptionId, new TbWebSocketTextMsg(msg));
+    }
+
+    @Override
+    public void sendProto(WebSocketSessionRef sessionRef, int subscriptionId, Object update) throws IOException {
+        log.debug("{} Sending binary {}", sessionRef, update);
+        if (!sessionRef.isProtoUpdates()) {
+            throw new IllegalArgumentException("Session " + sessionRef.getSessionId() + " did not negotiate the binary updates");
+        }
+        send(sessionRef, subscriptionId, new TbWebSocketProtoMsg(update));
+    }
+
+    private void send(WebSocketSessionRef sessionRef, int subscriptionId, TbWebSocketMsg<?> msg) {
         String externalId = sessionRef.getSessionId();
         String internalId = externalSessionMap.get(externalId);
         if (internalId != null) {
@@ -557,6 +591,18 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         return false;
     }
 
+    @Override
+    public int getPendingMsgCount(WebSocketSessionRef sessionRef) {
+        String internalId = externalSessionMap.get(sessionRef.getSessionId());
+        if (internalId != null) {
+            SessionMetaData sessionMd = getSessionMd(internalId);
+            if (sessionMd != null) {
+                return sessionMd.outboundMsgQueueSize.get();
+            }
+        }
+        return 0;
+    }
+
     private boolean checkLimits(WebSocketSession session, WebSocketSessionRef sessionRef) throws IOException {
         var tenantProfileConfiguration = getTenantProfileConfiguration(sessionRef);
         if (tenantProfileConfiguration == null) {
@@ -16,6 +16,7 @@
 package org.thingsboard.server.service.cf;
 
 import jakarta.annotation.PreDestroy;
+import lombok.Getter;
 import org.rocksdb.Options;
 import org.rocksdb.WriteOptions;
 import org.springframework.beans.factory.annotation.Value;
@@ -27,14 +28,47 @@ import org.thingsboard.server.utils.TbRocksDb;
 @ConditionalOnExpression("'${queue.type:null}'=='in-memory'")
 public class CfRocksDb extends TbRocksDb {
 
-    public CfRocksDb(@Value("${queue.calculated_fields.rocks_db_path:${user.home}/.rocksdb/cf_states}") String path) throws Exception {
-        super(path, new Options().setCreateIfMissing(true), new WriteOptions().setSync(true));
+    @Getter
+    private final Durability durability;
+
+    public CfRocksDb(@Value("${queue.calculated_fields.rocks_db_path:${user.home}/.rocksdb/cf_states}") String path,
+                     @Value("${queue.calculated_fields.rocks_db_durability:SYNC}") Durability durability) throws Exception {
+        super(path, new Options().setCreateIfMissing(true), new WriteOptions()
+                .setSync(durability == Durability.SYNC)
+                .setDisableWAL(durability == Durability.CHECKPOINT));
+        this.durability = durability;
+    }
+
+    /**
+     * Makes the writes done since the previous call durable, if they are not durable already.
+     */
+    public void sync() {
+        switch (durability) {
+            case WAL_SYNC -> syncWal();
+            case CHECKPOINT -> flush();
+        }
     }
 
     @PreDestroy
     @Override
     public void close() {
+        sync();
         super.close();
     }
 
+    public enum Durability {
+        /**
+         * Each batch of writes is flushed to the disk before it is acknowledged
+         */
+        SYNC,
+        /**
+         * The write-ahead log is flushed to the disk periodically
+         */
+        WAL_SYNC,
+        /**
+         * The write-ahead log is not written, the memtables are flushed to the disk periodically
+         */
+        CHECKPOINT
+    }
+
 }
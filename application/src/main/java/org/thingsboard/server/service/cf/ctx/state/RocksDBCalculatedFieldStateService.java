@@ -16,10 +16,13 @@
 package org.thingsboard.server.service.cf.ctx.state;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.server.common.msg.queue.TbCallback;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.gen.transport.TransportProtos.CalculatedFieldStateProto;
@@ -27,47 +30,175 @@ import org.thingsboard.server.service.cf.AbstractCalculatedFieldStateService;
 import org.thingsboard.server.service.cf.CfRocksDb;
 import org.thingsboard.server.service.cf.ctx.CalculatedFieldEntityCtxId;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Accumulates the state updates and writes them to RocksDB in batches, once per batch interval or once the batch
+ * reaches the maximum size, so the cost of the write and of the flush to the disk is shared by the whole batch.
+ * Only the latest update of the state is kept in the batch. The callbacks are completed after the batch is written,
+ * so with the SYNC durability the update is acknowledged only once it is on the disk.
+ * The updates that come after the service is stopped are rejected.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 @ConditionalOnExpression("'${queue.type:null}'=='in-memory'")
 public class RocksDBCalculatedFieldStateService extends AbstractCalculatedFieldStateService {
 
+    // the keys start with the calculated field id, so the ranges of its first hex digit split the states evenly
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
     private final CfRocksDb cfRocksDb;
 
+    @Value("${queue.calculated_fields.rocks_db_batch_interval_ms:10}")
+    private long batchIntervalMs;
+
+    @Value("${queue.calculated_fields.rocks_db_batch_max_size:1000}")
+    private int batchMaxSize;
+
+    @Value("${queue.calculated_fields.rocks_db_sync_interval_ms:1000}")
+    private long syncIntervalMs;
+
+    @Value("${queue.calculated_fields.rocks_db_restore_threads:4}")
+    private int restoreThreads;
+
+    private final Object batchLock = new Object();
+    private Map<String, byte[]> batch = new LinkedHashMap<>();
+    private List<TbCallback> batchCallbacks = new ArrayList<>();
+    private boolean batchFlushRequested;
+    private boolean stopped;
+
+    private ScheduledExecutorService scheduler;
+
     private boolean initialized;
 
+    @PostConstruct
+    private void initScheduler() {
+        scheduler = ThingsBoardExecutors.newSingleThreadScheduledExecutor("cf-rocksdb-writer");
+        scheduler.scheduleWithFixedDelay(this::flushBatch, batchIntervalMs, batchIntervalMs, TimeUnit.MILLISECONDS);
+        if (cfRocksDb.getDurability() != CfRocksDb.Durability.SYNC) {
+            scheduler.scheduleWithFixedDelay(this::sync, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
     @Override
     protected void doPersist(CalculatedFieldEntityCtxId stateId, CalculatedFieldStateProto stateMsgProto, TbCallback callback) {
-        cfRocksDb.put(stateId.toKey(), stateMsgProto.toByteArray());
-        callback.onSuccess();
+        addToBatch(stateId.toKey(), stateMsgProto.toByteArray(), callback);
     }
 
     @Override
     protected void doRemove(CalculatedFieldEntityCtxId stateId, TbCallback callback) {
-        cfRocksDb.delete(stateId.toKey());
-        callback.onSuccess();
+        addToBatch(stateId.toKey(), null, callback);
+    }
+
+    private void addToBatch(String key, byte[] value, TbCallback callback) {
+        boolean flush = false;
+        synchronized (batchLock) {
+            if (stopped) {
+                callback.onFailure(new IllegalStateException("Calculated field state service is stopped"));
+                return;
+            }
+            batch.put(key, value);
+            batchCallbacks.add(callback);
+            if (batch.size() >= batchMaxSize && !batchFlushRequested) {
+                batchFlushRequested = true;
+                flush = true;
+            }
+        }
+        if (flush) {
+            try {
+                scheduler.execute(this::flushBatch);
+            } catch (RejectedExecutionException e) {
+                // the service is being stopped, and the batch is written by stop()
+            }
+        }
+    }
+
+    void flushBatch() {
+        Map<String, byte[]> updates;
+        List<TbCallback> callbacks;
+        synchronized (batchLock) {
+            batchFlushRequested = false;
+            if (batchCallbacks.isEmpty()) {
+                return;
+            }
+            updates = batch;
+            callbacks = batchCallbacks;
+            batch = new LinkedHashMap<>();
+            batchCallbacks = new ArrayList<>();
+        }
+        try {
+            cfRocksDb.write(updates);
+        } catch (Throwable t) {
+            log.warn("Failed to write {} calculated field states", updates.size(), t);
+            callbacks.forEach(callback -> callback.onFailure(t));
+            return;
+        }
+        callbacks.forEach(TbCallback::onSuccess);
+    }
+
+    private void sync() {
+        try {
+            cfRocksDb.sync();
+        } catch (Throwable t) {
+            log.warn("Failed to sync calculated field states", t);
+        }
     }
 
     @Override
     public void restore(Set<TopicPartitionInfo> partitions) {
         if (!this.initialized) {
-            cfRocksDb.forEach((key, value) -> {
-                try {
-                    processRestoredState(CalculatedFieldStateProto.parseFrom(value));
-                } catch (InvalidProtocolBufferException e) {
-                    log.error("[{}] Failed to process restored state", key, e);
-                }
-            });
+            restoreStates();
             this.initialized = true;
         }
         eventConsumer.update(partitions);
     }
 
+    private void restoreStates() {
+        ExecutorService executor = ThingsBoardExecutors.newWorkStealingPool(restoreThreads, "cf-state-restore");
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(HEX_DIGITS.length());
+            for (int i = 0; i < HEX_DIGITS.length(); i++) {
+                // the first and the last ranges are open, so the keys of any other format are restored as well
+                String startKey = i > 0 ? String.valueOf(HEX_DIGITS.charAt(i)) : null;
+                String endKey = i < HEX_DIGITS.length() - 1 ? String.valueOf(HEX_DIGITS.charAt(i + 1)) : null;
+                futures.add(CompletableFuture.runAsync(() -> cfRocksDb.forEach(startKey, endKey, this::restoreState), executor));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void restoreState(String key, byte[] value) {
+        try {
+            processRestoredState(CalculatedFieldStateProto.parseFrom(value));
+        } catch (InvalidProtocolBufferException e) {
+            log.error("[{}] Failed to process restored state", key, e);
+        }
+    }
+
     @Override
     public void stop() {
+        synchronized (batchLock) {
+            stopped = true;
+        }
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushBatch();
     }
 
 }
@@ -16,30 +16,27 @@
 package org.thingsboard.server.service.cf.ctx.state;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.script.api.tbel.TbelCfArg;
-import org.thingsboard.script.api.tbel.TbelCfTsDoubleVal;
 import org.thingsboard.script.api.tbel.TbelCfTsRollingArg;
 import org.thingsboard.server.common.data.kv.KvEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @Slf4j
 public class TsRollingArgumentEntry implements ArgumentEntry {
 
     private Integer limit;
     private Long timeWindow;
-    private TreeMap<Long, Double> tsRecords = new TreeMap<>();
+    @JsonIgnore
+    private TsRollingWindow window = new TsRollingWindow();
 
     private boolean forceResetPrevious;
 
@@ -50,13 +47,11 @@ public class TsRollingArgumentEntry implements ArgumentEntry {
     }
 
     public TsRollingArgumentEntry(TreeMap<Long, Double> tsRecords, int limit, long timeWindow) {
-        this.tsRecords = tsRecords;
-        this.limit = limit;
-        this.timeWindow = timeWindow;
+        this(limit, timeWindow);
+        setTsRecords(tsRecords);
     }
 
     public TsRollingArgumentEntry(int limit, long timeWindow) {
-        this.tsRecords = new TreeMap<>();
         this.limit = limit;
         this.timeWindow = timeWindow;
     }
@@ -64,7 +59,13 @@ public class TsRollingArgumentEntry implements ArgumentEntry {
     public TsRollingArgumentEntry(Integer limit, Long timeWindow, TreeMap<Long, Double> tsRecords) {
         this.limit = limit;
         this.timeWindow = timeWindow;
-        this.tsRecords = tsRecords;
+        setTsRecords(tsRecords);
+    }
+
+    public TsRollingArgumentEntry(TsRollingWindow window, int limit, long timeWindow) {
+        this.window = window;
+        this.limit = limit;
+        this.timeWindow = timeWindow;
     }
 
     @Override
@@ -74,22 +75,34 @@ public class TsRollingArgumentEntry implements ArgumentEntry {
 
     @Override
     public boolean isEmpty() {
-        return tsRecords.isEmpty();
+        return window.isEmpty();
     }
 
     @JsonIgnore
     @Override
     public Object getValue() {
+        return getTsRecords();
+    }
+
+    /**
+     * @return copy of the values by timestamp
+     */
+    public TreeMap<Long, Double> getTsRecords() {
+        TreeMap<Long, Double> tsRecords = new TreeMap<>();
+        for (int i = 0; i < window.size(); i++) {
+            tsRecords.put(window.getTs(i), window.getValue(i));
+        }
         return tsRecords;
     }
 
+    public void setTsRecords(Map<Long, Double> tsRecords) {
+        window = new TsRollingWindow(tsRecords.size());
+        tsRecords.forEach(window::put);
+    }
+
     @Override
     public TbelCfArg toTbelCfArg() {
-        List<TbelCfTsDoubleVal> values = new ArrayList<>(tsRecords.size());
-        for (var e : tsRecords.entrySet()) {
-            values.add(new TbelCfTsDoubleVal(e.getKey(), e.getValue()));
-        }
-        return new TbelCfTsRollingArg(timeWindow, values);
+        return new TbelCfTsRollingArg(timeWindow, window.copyTimestamps(), window.copyValues(), window.getSum(), window.getNanCount());
     }
 
     @Override
@@ -105,8 +118,9 @@ public class TsRollingArgumentEntry implements ArgumentEntry {
     }
 
     private void updateTsRollingEntry(TsRollingArgumentEntry tsRollingEntry) {
-        for (Map.Entry<Long, Double> tsRecordEntry : tsRollingEntry.getTsRecords().entrySet()) {
-            addTsRecord(tsRecordEntry.getKey(), tsRecordEntry.getValue());
+        TsRollingWindow records = tsRollingEntry.getWindow();
+        for (int i = 0; i < records.size(); i++) {
+            addTsRecord(records.getTs(i), records.getValue(i));
         }
     }
 
@@ -114,33 +128,33 @@ public class TsRollingArgumentEntry implements ArgumentEntry {
         addTsRecord(singleValueEntry.getTs(), singleValueEntry.getKvEntryValue());
     }
 
-    private void addTsRecord(Long ts, KvEntry value) {
+    private void addTsRecord(long ts, KvEntry value) {
         try {
             switch (value.getDataType()) {
-                case LONG -> value.getLongValue().ifPresent(aLong -> tsRecords.put(ts, aLong.doubleValue()));
-                case DOUBLE -> value.getDoubleValue().ifPresent(aDouble -> tsRecords.put(ts, aDouble));
-                case BOOLEAN -> value.getBooleanValue().ifPresent(aBoolean -> tsRecords.put(ts, aBoolean ? 1.0 : 0.0));
-                case STRING -> value.getStrValue().ifPresent(aString -> tsRecords.put(ts, Double.parseDouble(aString)));
-                case JSON -> value.getJsonValue().ifPresent(aString -> tsRecords.put(ts, Double.parseDouble(aString)));
+                case LONG -> value.getLongValue().ifPresent(aLong -> window.put(ts, aLong.doubleValue()));
+                case DOUBLE -> value.getDoubleValue().ifPresent(aDouble -> window.put(ts, aDouble));
+                case BOOLEAN -> value.getBooleanValue().ifPresent(aBoolean -> window.put(ts, aBoolean ? 1.0 : 0.0));
+                case STRING -> value.getStrValue().ifPresent(aString -> window.put(ts, Double.parseDouble(aString)));
+                case JSON -> value.getJsonValue().ifPresent(aString -> window.put(ts, Double.parseDouble(aString)));
             }
         } catch (Exception e) {
-            tsRecords.put(ts, Double.NaN);
+            window.put(ts, Double.NaN);
             log.debug("Invalid value '{}' for time series rolling arguments. Only numeric values are supported.", value.getValue());
         } finally {
             cleanupExpiredRecords();
         }
     }
 
-    private void addTsRecord(Long ts, double value) {
-        tsRecords.put(ts, value);
+    private void addTsRecord(long ts, double value) {
+        window.put(ts, value);
         cleanupExpiredRecords();
     }
 
     private void cleanupExpiredRecords() {
-        if (tsRecords.size() > limit) {
-            tsRecords.pollFirstEntry();
+        if (window.size() > limit) {
+            window.removeFirst();
         }
-        tsRecords.entrySet().removeIf(tsRecord -> tsRecord.getKey() < System.currentTimeMillis() - timeWindow);
+        window.removeOlderThan(System.currentTimeMillis() - timeWindow);
     }
 
 }
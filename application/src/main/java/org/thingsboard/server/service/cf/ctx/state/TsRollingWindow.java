@@ -0,0 +1,264 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cf.ctx.state;
+
+import java.util.Arrays;
+
+/**
+ * Time series values ordered by timestamp, kept in the ring buffer of primitive arrays.
+ * Adding a value that is newer than the latest one and removing the oldest value take constant time,
+ * an older value is inserted with a shift of the newer ones.
+ * <p>
+ * The number of NaN values and the sum of non-NaN values are maintained on each change. The sum is compensated
+ * (Kahan-Babuska-Neumaier), so it does not drift after many removals and stays within a rounding error
+ * of the exact sum of the values, while an infinite value is kept out of the running sum and counted separately.
+ */
+public class TsRollingWindow {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] timestamps;
+    private double[] values;
+    private int head;
+    private int size;
+
+    private double sum;
+    private double sumCompensation;
+    private int nanCount;
+    private int positiveInfinityCount;
+    private int negativeInfinityCount;
+
+    public TsRollingWindow() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public TsRollingWindow(int capacity) {
+        timestamps = new long[Math.max(capacity, 1)];
+        values = new double[timestamps.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getTs(int i) {
+        return timestamps[index(i)];
+    }
+
+    public double getValue(int i) {
+        return values[index(i)];
+    }
+
+    /**
+     * Adds the value or replaces the value with the same timestamp.
+     */
+    public void put(long ts, double value) {
+        if (size == 0 || ts > getTs(size - 1)) {
+            ensureCapacity();
+            int i = index(size);
+            timestamps[i] = ts;
+            values[i] = value;
+            size++;
+            onAdded(value);
+            return;
+        }
+        int pos = search(ts);
+        if (pos >= 0) {
+            int i = index(pos);
+            onRemoved(values[i]);
+            values[i] = value;
+            onAdded(value);
+        } else {
+            insert(-pos - 1, ts, value);
+        }
+    }
+
+    public void removeFirst() {
+        if (size == 0) {
+            return;
+        }
+        onRemoved(values[head]);
+        head = (head + 1) % timestamps.length;
+        size--;
+        if (size == 0) {
+            head = 0;
+            reset();
+        }
+    }
+
+    /**
+     * Removes the values with the timestamp less than the given one.
+     */
+    public void removeOlderThan(long ts) {
+        while (size > 0 && timestamps[head] < ts) {
+            removeFirst();
+        }
+    }
+
+    /**
+     * @return sum of the non-NaN values
+     */
+    public double getSum() {
+        if (positiveInfinityCount > 0) {
+            return negativeInfinityCount > 0 ? Double.NaN : Double.POSITIVE_INFINITY;
+        }
+        if (negativeInfinityCount > 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return sum + sumCompensation;
+    }
+
+    public int getNanCount() {
+        return nanCount;
+    }
+
+    public long[] copyTimestamps() {
+        long[] result = new long[size];
+        int firstPart = Math.min(size, timestamps.length - head);
+        System.arraycopy(timestamps, head, result, 0, firstPart);
+        System.arraycopy(timestamps, 0, result, firstPart, size - firstPart);
+        return result;
+    }
+
+    public double[] copyValues() {
+        double[] result = new double[size];
+        int firstPart = Math.min(size, values.length - head);
+        System.arraycopy(values, head, result, 0, firstPart);
+        System.arraycopy(values, 0, result, firstPart, size - firstPart);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TsRollingWindow that) || size != that.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (getTs(i) != that.getTs(i) || Double.compare(getValue(i), that.getValue(i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Long.hashCode(getTs(i));
+            result = 31 * result + Double.hashCode(getValue(i));
+        }
+        return result;
+    }
+
+    private void insert(int pos, long ts, double value) {
+        ensureCapacity();
+        for (int i = size; i > pos; i--) {
+            int to = index(i);
+            int from = index(i - 1);
+            timestamps[to] = timestamps[from];
+            values[to] = values[from];
+        }
+        int i = index(pos);
+        timestamps[i] = ts;
+        values[i] = value;
+        size++;
+        onAdded(value);
+    }
+
+    private int search(long ts) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midTs = getTs(mid);
+            if (midTs < ts) {
+                low = mid + 1;
+            } else if (midTs > ts) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void ensureCapacity() {
+        if (size < timestamps.length) {
+            return;
+        }
+        long[] newTimestamps = copyTimestamps();
+        double[] newValues = copyValues();
+        timestamps = Arrays.copyOf(newTimestamps, timestamps.length * 2);
+        values = Arrays.copyOf(newValues, values.length * 2);
+        head = 0;
+    }
+
+    private int index(int i) {
+        int index = head + i;
+        return index < timestamps.length ? index : index - timestamps.length;
+    }
+
+    private void onAdded(double value) {
+        if (Double.isNaN(value)) {
+            nanCount++;
+        } else if (value == Double.POSITIVE_INFINITY) {
+            positiveInfinityCount++;
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            negativeInfinityCount++;
+        } else {
+            addToSum(value);
+        }
+    }
+
+    private void onRemoved(double value) {
+        if (Double.isNaN(value)) {
+            nanCount--;
+        } else if (value == Double.POSITIVE_INFINITY) {
+            positiveInfinityCount--;
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            negativeInfinityCount--;
+        } else {
+            addToSum(-value);
+        }
+    }
+
+    private void addToSum(double value) {
+        double newSum = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            sumCompensation += (sum - newSum) + value;
+        } else {
+            sumCompensation += (value - newSum) + sum;
+        }
+        sum = newSum;
+    }
+
+    private void reset() {
+        sum = 0;
+        sumCompensation = 0;
+        nanCount = 0;
+        positiveInfinityCount = 0;
+        negativeInfinityCount = 0;
+    }
+
+}
@@ -102,6 +102,7 @@ import org.thingsboard.server.service.gateway_device.GatewayNotificationsService
 import org.thingsboard.server.service.ota.OtaPackageStateService;
 import org.thingsboard.server.service.profile.TbAssetProfileCache;
 import org.thingsboard.server.service.profile.TbDeviceProfileCache;
+import org.thingsboard.server.service.subscription.TbEntityChangeTracker;
 
 import java.util.List;
 import java.util.Objects;
@@ -122,6 +123,8 @@ public class DefaultTbClusterService implements TbClusterService {
     private boolean statsEnabled;
     @Value("${edges.enabled:true}")
     protected boolean edgesEnabled;
+    @Value("${server.ws.dynamic_page_link.incremental_refresh.enabled:false}")
+    private boolean incrementalRefreshEnabled;
 
     private final AtomicInteger toCoreMsgs = new AtomicInteger(0);
     private final AtomicInteger toCoreNfs = new AtomicInteger(0);
@@ -604,6 +607,8 @@ public class DefaultTbClusterService implements TbClusterService {
                 || (entityType.equals(EntityType.DEVICE) && msg.getEvent() == ComponentLifecycleEvent.UPDATED)
                 || entityType.equals(EntityType.ENTITY_VIEW)
                 || entityType.equals(EntityType.NOTIFICATION_RULE)
+                // the dynamic queries of the core services are refreshed on the lifecycle events of the tracked entities
+                || (incrementalRefreshEnabled && TbEntityChangeTracker.isTracked(entityType))
         ) {
             TbQueueProducer<TbProtoQueueMsg<ToCoreNotificationMsg>> toCoreNfProducer = producerProvider.getTbCoreNotificationsMsgProducer();
             Set<String> tbCoreServices = partitionService.getAllServiceIds(ServiceType.TB_CORE);
@@ -0,0 +1,166 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ruleengine;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.Options;
+import org.rocksdb.WriteOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.rule.engine.api.RuleNodeMsgStore;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.dao.rule.RuleChainService;
+import org.thingsboard.server.queue.util.AfterStartUp;
+import org.thingsboard.server.queue.util.TbRuleEngineComponent;
+import org.thingsboard.server.utils.TbRocksDb;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the messages under the "ruleNodeId/key" keys. The value is the length of the queue name, the queue name
+ * and the serialized message, since the queue name is not a part of the serialized message.
+ */
+@Slf4j
+@TbRuleEngineComponent
+@Component
+@ConditionalOnProperty(prefix = "actors.rule.node.msg_store", value = "enabled", havingValue = "true")
+public class RocksDbRuleNodeMsgStore extends TbRocksDb implements RuleNodeMsgStore {
+
+    private static final char SEPARATOR = '/';
+
+    private final ExecutorService cleanupExecutor = ThingsBoardExecutors.newSingleThreadScheduledExecutor("rule-node-msg-store-cleanup");
+
+    @Autowired
+    private RuleChainService ruleChainService;
+
+    public RocksDbRuleNodeMsgStore(@Value("${actors.rule.node.msg_store.rocks_db_path:${user.home}/.rocksdb/rule_node_msgs}") String path,
+                                   @Value("${actors.rule.node.msg_store.sync:false}") boolean sync) throws Exception {
+        super(path, new Options().setCreateIfMissing(true), new WriteOptions().setSync(sync));
+        log.info("Rule node message store is located at {}", path);
+    }
+
+    @Override
+    public void put(RuleNodeId ruleNodeId, String key, TbMsg msg) {
+        byte[] queueName = msg.getQueueName() != null ? msg.getQueueName().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] msgBytes = TbMsg.toByteArray(msg);
+        byte[] value = ByteBuffer.allocate(Integer.BYTES + queueName.length + msgBytes.length)
+                .putInt(queueName.length).put(queueName).put(msgBytes).array();
+        put(toKey(ruleNodeId, key), value);
+    }
+
+    @Override
+    public void remove(RuleNodeId ruleNodeId, String key) {
+        delete(toKey(ruleNodeId, key));
+    }
+
+    @Override
+    public void forEach(RuleNodeId ruleNodeId, String prefix, BiPredicate<String, TbMsg> processor) {
+        String nodePrefix = toKey(ruleNodeId, "");
+        forEach(nodePrefix + prefix, (key, value) -> processor.test(key.substring(nodePrefix.length()), toMsg(value)));
+    }
+
+    @Override
+    public void removeAll(RuleNodeId ruleNodeId) {
+        String nodeKey = ruleNodeId.getId().toString();
+        deleteRange(nodeKey + SEPARATOR, nodeKey + (char) (SEPARATOR + 1));
+    }
+
+    /**
+     * The rule nodes of the deleted rule chain are cleaned up by the rule chain actor. The rule nodes of the deleted
+     * tenant, as well as the ones deleted while the service was down, are stopped without the lifecycle event,
+     * so their messages are removed by the sweep over the rule nodes that no longer exist.
+     */
+    @AfterStartUp(order = AfterStartUp.REGULAR_SERVICE)
+    public void onStartUp() {
+        cleanupExecutor.submit(this::removeDeletedRuleNodes);
+    }
+
+    @EventListener
+    public void handleComponentLifecycleEvent(ComponentLifecycleMsg event) {
+        if (event.getEntityId().getEntityType() == EntityType.TENANT && event.getEvent() == ComponentLifecycleEvent.DELETED) {
+            cleanupExecutor.submit(this::removeDeletedRuleNodes);
+        }
+    }
+
+    private void removeDeletedRuleNodes() {
+        try {
+            int removed = removeAllExcept(ruleNodeId -> ruleChainService.findRuleNodeById(TenantId.SYS_TENANT_ID, ruleNodeId) != null);
+            if (removed > 0) {
+                log.info("Removed the messages of {} deleted rule nodes", removed);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to remove the messages of the deleted rule nodes", e);
+        }
+    }
+
+    /**
+     * Removes the messages of all rule nodes that do not match the filter, visiting each rule node once.
+     *
+     * @return the number of removed rule nodes
+     */
+    int removeAllExcept(Predicate<RuleNodeId> filter) {
+        int removed = 0;
+        String key = ceilingKey("");
+        while (key != null) {
+            int separatorIdx = key.indexOf(SEPARATOR);
+            String nodeKey = separatorIdx >= 0 ? key.substring(0, separatorIdx) : key;
+            if (!filter.test(new RuleNodeId(UUID.fromString(nodeKey)))) {
+                deleteRange(nodeKey + SEPARATOR, nodeKey + (char) (SEPARATOR + 1));
+                removed++;
+            }
+            key = ceilingKey(nodeKey + (char) (SEPARATOR + 1));
+        }
+        return removed;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        cleanupExecutor.shutdownNow();
+        super.close();
+    }
+
+    private static String toKey(RuleNodeId ruleNodeId, String key) {
+        return ruleNodeId.getId().toString() + SEPARATOR + key;
+    }
+
+    private static TbMsg toMsg(byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        int queueNameLength = buffer.getInt();
+        String queueName = queueNameLength > 0 ? new String(value, Integer.BYTES, queueNameLength, StandardCharsets.UTF_8) : null;
+        ByteString msgBytes = UnsafeByteOperations.unsafeWrap(value, Integer.BYTES + queueNameLength, value.length - Integer.BYTES - queueNameLength);
+        return TbMsg.fromBytes(queueName, msgBytes, TbMsgCallback.EMPTY);
+    }
+
+}
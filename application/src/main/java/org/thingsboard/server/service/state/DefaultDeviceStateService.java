@@ -48,6 +48,7 @@ import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.exception.TenantNotFoundException;
+import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -92,7 +93,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -126,6 +126,8 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     public static final String INACTIVITY_ALARM_TIME = "inactivityAlarmTime";
     public static final String INACTIVITY_TIMEOUT = "inactivityTimeout";
 
+    private static final long INACTIVITY_TIMING_WHEEL_TICK_MS = 1000;
+
     private static final List<EntityKey> PERSISTENT_TELEMETRY_KEYS = Arrays.asList(
             new EntityKey(EntityKeyType.TIME_SERIES, LAST_ACTIVITY_TIME),
             new EntityKey(EntityKeyType.TIME_SERIES, INACTIVITY_ALARM_TIME),
@@ -195,10 +197,25 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     @Getter
     private int telemetryTtl;
 
+    @Value("${state.handoff.enabled:false}")
+    @Getter
+    private boolean handoffEnabled;
+
+    @Value("${state.handoff.packSize:1000}")
+    private int handoffPackSize;
+
+    @Value("${state.handoff.initDelayInSec:30}")
+    private int handoffInitDelayInSec;
+
     private ListeningExecutorService deviceStateExecutor;
     private ListeningExecutorService deviceStateCallbackExecutor;
 
     final ConcurrentMap<DeviceId, DeviceStateData> deviceStates = new ConcurrentHashMap<>();
+    // active and inactive devices per tenant, updated on each device state change instead of iterating all device states
+    final ConcurrentMap<TenantId, Pair<AtomicInteger, AtomicInteger>> tenantDevicesActivity = new ConcurrentHashMap<>();
+    final DeviceInactivityTimingWheel inactivityTimingWheel = new DeviceInactivityTimingWheel(INACTIVITY_TIMING_WHEEL_TICK_MS, System.currentTimeMillis());
+    // states of the devices of the removed partitions to send to the new owners, accessed only from the scheduled executor
+    private final List<DeviceStateData> handoffStates = new ArrayList<>();
 
     @PostConstruct
     public void init() {
@@ -281,7 +298,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                     save(deviceId, INACTIVITY_ALARM_TIME, 0);
                 }
                 onDeviceActivityStatusChange(deviceId, true, stateData);
+                updateActivityStats(stateData);
             }
+            scheduleInactivityCheck(stateData);
         } else {
             log.debug("updateActivityState - fetched state IS NULL for device {}, lastReportedActivity {}", deviceId, lastReportedActivity);
             cleanupEntity(deviceId);
@@ -355,6 +374,10 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     @Override
     public void onQueueMsg(TransportProtos.DeviceStateServiceMsgProto proto, TbCallback callback) {
         try {
+            if (proto.getHandoffStatesCount() > 0) {
+                onDeviceStatesHandoff(proto.getHandoffStatesList(), callback);
+                return;
+            }
             TenantId tenantId = TenantId.fromUUID(new UUID(proto.getTenantIdMSB(), proto.getTenantIdLSB()));
             DeviceId deviceId = new DeviceId(new UUID(proto.getDeviceIdMSB(), proto.getDeviceIdLSB()));
             if (proto.getDeleted()) {
@@ -388,11 +411,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                         }, deviceStateCallbackExecutor);
                     } else if (proto.getUpdated()) {
                         DeviceStateData stateData = getOrFetchDeviceStateData(device.getId());
-                        TbMsgMetaData md = new TbMsgMetaData();
-                        md.putValue("deviceName", device.getName());
-                        md.putValue("deviceLabel", device.getLabel());
-                        md.putValue("deviceType", device.getType());
-                        stateData.setMetaData(md);
+                        stateData.setDeviceName(device.getName());
+                        stateData.setDeviceLabel(device.getLabel());
+                        stateData.setDeviceType(device.getType());
                         callback.onSuccess();
                     }
                 } else {
@@ -417,12 +438,32 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     private void initializeActivityState(DeviceId deviceId, DeviceStateData fetchedState) {
         DeviceStateData cachedState = deviceStates.putIfAbsent(fetchedState.getDeviceId(), fetchedState);
-        boolean activityState = Objects.requireNonNullElse(cachedState, fetchedState).getState().isActive();
-        save(deviceId, ACTIVITY_STATE, activityState);
+        DeviceStateData stateData = Objects.requireNonNullElse(cachedState, fetchedState);
+        save(deviceId, ACTIVITY_STATE, stateData.getState().isActive());
+        updateActivityStats(stateData);
+        scheduleInactivityCheck(stateData);
     }
 
     @Override
     protected Map<TopicPartitionInfo, List<ListenableFuture<?>>> onAddedPartitions(Set<TopicPartitionInfo> addedPartitions) {
+        if (handoffEnabled && handoffInitDelayInSec > 0) {
+            // the states are expected from the previous owners of the partitions, the ones that are not received
+            // by that time are loaded from the database; meanwhile the states are fetched on demand
+            scheduledExecutor.schedule(() -> {
+                Set<TopicPartitionInfo> partitions = addedPartitions.stream()
+                        .filter(partitionedEntities::containsKey)
+                        .collect(Collectors.toSet());
+                if (!partitions.isEmpty()) {
+                    initDeviceStates(partitions).forEach((tpi, futures) ->
+                            partitionedFetchTasks.computeIfAbsent(tpi, key -> new ArrayList<>()).addAll(futures));
+                }
+            }, handoffInitDelayInSec, TimeUnit.SECONDS);
+            return Collections.emptyMap();
+        }
+        return initDeviceStates(addedPartitions);
+    }
+
+    private Map<TopicPartitionInfo, List<ListenableFuture<?>>> initDeviceStates(Set<TopicPartitionInfo> addedPartitions) {
         var result = new HashMap<TopicPartitionInfo, List<ListenableFuture<?>>>();
         PageDataIterable<DeviceIdInfo> deviceIdInfos = new PageDataIterable<>(deviceService::findDeviceIdInfos, initFetchPackSize);
         Map<TopicPartitionInfo, List<DeviceIdInfo>> tpiDeviceMap = new HashMap<>();
@@ -436,7 +477,17 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                         idInfo.getDeviceId(), idInfo.getTenantId(), idInfo.getCustomerId(), e.getMessage());
                 continue;
             }
-            if (addedPartitions.contains(tpi) && !deviceStates.containsKey(idInfo.getDeviceId())) {
+            if (!addedPartitions.contains(tpi)) {
+                continue;
+            }
+            if (deviceStates.containsKey(idInfo.getDeviceId())) {
+                // the state is already fetched on demand or received from the previous owner, so it is only registered
+                // in the partition to be cleaned up or handed off on the next rebalancing
+                Set<DeviceId> deviceIds = partitionedEntities.get(tpi);
+                if (deviceIds != null) {
+                    deviceIds.add(idInfo.getDeviceId());
+                }
+            } else {
                 tpiDeviceMap.computeIfAbsent(tpi, tmp -> new ArrayList<>()).add(idInfo);
             }
         }
@@ -462,8 +513,8 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                                 boolean isMyPartition = deviceIds != null;
                                 if (isMyPartition) {
                                     deviceIds.add(state.getDeviceId());
-                                    deviceStates.putIfAbsent(state.getDeviceId(), state);
-                                    checkAndUpdateState(state.getDeviceId(), state);
+                                    DeviceStateData cachedState = deviceStates.putIfAbsent(state.getDeviceId(), state);
+                                    checkAndUpdateState(state.getDeviceId(), Objects.requireNonNullElse(cachedState, state));
                                 } else {
                                     log.debug("[{}] Device belongs to external partition {}", state.getDeviceId(), tpi.getFullTopicName());
                                 }
@@ -500,55 +551,97 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 }
             }
         }
+        updateActivityStats(state);
+        scheduleInactivityCheck(state);
     }
 
     void checkStates() {
         try {
             final long ts = getCurrentTimeMillis();
-            partitionedEntities.forEach((tpi, deviceIds) -> {
-                log.debug("Calculating state updates. tpi {} for {} devices", tpi.getFullTopicName(), deviceIds.size());
-                Set<DeviceId> idsFromRemovedTenant = new HashSet<>();
-                for (DeviceId deviceId : deviceIds) {
-                    DeviceStateData stateData;
-                    try {
-                        stateData = getOrFetchDeviceStateData(deviceId);
-                    } catch (Exception e) {
-                        log.error("[{}] Failed to get or fetch device state data", deviceId, e);
-                        continue;
+            inactivityTimingWheel.advance(ts, (deviceId, deadline) -> {
+                DeviceStateData stateData = deviceStates.get(deviceId);
+                if (stateData == null) {
+                    // device state was removed after the check was scheduled
+                    return;
+                }
+                stateData.clearInactivityCheckTs(deadline);
+                try {
+                    // the states fetched on demand are not a part of the partitioned entities and are not cleaned up
+                    // once the partition is removed, so they are evicted here
+                    if (cleanDeviceStateIfBelongsToExternalPartition(stateData.getTenantId(), deviceId)) {
+                        return;
                     }
-                    try {
-                        updateInactivityStateIfExpired(ts, deviceId, stateData);
-                    } catch (Exception e) {
-                        if (e instanceof TenantNotFoundException) {
-                            idsFromRemovedTenant.add(deviceId);
-                        } else {
-                            log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
-                        }
+                    updateInactivityStateIfExpired(ts, deviceId, stateData);
+                } catch (Exception e) {
+                    if (e instanceof TenantNotFoundException) {
+                        partitionedEntities.values().forEach(deviceIds -> deviceIds.remove(deviceId));
+                        cleanupEntity(deviceId);
+                        return;
+                    } else {
+                        log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
                     }
                 }
-                deviceIds.removeAll(idsFromRemovedTenant);
+                if (deviceStates.get(deviceId) == stateData) {
+                    updateActivityStats(stateData);
+                    scheduleInactivityCheck(stateData);
+                }
             });
         } catch (Throwable t) {
             log.warn("Failed to check devices states", t);
         }
     }
 
+    /**
+     * Schedules the check of the device state at the time the device becomes inactive,
+     * or the inactivity event should be reported for the device that was never active.
+     * Only the earliest check is kept in the timing wheel: if the device reports activity before the check,
+     * the check finds the device still active and schedules the next one.
+     */
+    void scheduleInactivityCheck(DeviceStateData stateData) {
+        DeviceState state = stateData.getState();
+        if (state.getLastInactivityAlarmTime() != 0L && state.getLastInactivityAlarmTime() > state.getLastActivityTime()) {
+            // inactivity is already reported, waiting for the device activity
+            return;
+        }
+        long deadline = Math.max(state.getLastActivityTime(), stateData.getDeviceCreationTime()) + state.getInactivityTimeout();
+        if (stateData.updateInactivityCheckTs(deadline)) {
+            inactivityTimingWheel.schedule(stateData.getDeviceId(), deadline);
+        }
+    }
+
+    void updateActivityStats(DeviceStateData stateData) {
+        updateActivityStats(stateData, stateData.getState().isActive() ? DeviceStateData.COUNTED_ACTIVE : DeviceStateData.COUNTED_INACTIVE);
+    }
+
+    private void updateActivityStats(DeviceStateData stateData, int countedActivity) {
+        int previous = stateData.updateCountedActivity(countedActivity);
+        if (previous == countedActivity || previous == DeviceStateData.REMOVED
+                || (previous == DeviceStateData.NOT_COUNTED && countedActivity == DeviceStateData.REMOVED)
+                || stateData.getTenantId() == null) {
+            return;
+        }
+        Pair<AtomicInteger, AtomicInteger> activity = tenantDevicesActivity.computeIfAbsent(stateData.getTenantId(),
+                tenantId -> Pair.of(new AtomicInteger(), new AtomicInteger()));
+        if (previous == DeviceStateData.COUNTED_ACTIVE) {
+            activity.getLeft().decrementAndGet();
+        } else if (previous == DeviceStateData.COUNTED_INACTIVE) {
+            activity.getRight().decrementAndGet();
+        }
+        if (countedActivity == DeviceStateData.COUNTED_ACTIVE) {
+            activity.getLeft().incrementAndGet();
+        } else if (countedActivity == DeviceStateData.COUNTED_INACTIVE) {
+            activity.getRight().incrementAndGet();
+        }
+    }
+
     void reportActivityStats() {
         try {
-            Map<TenantId, Pair<AtomicInteger, AtomicInteger>> stats = new HashMap<>();
-            for (DeviceStateData stateData : deviceStates.values()) {
-                Pair<AtomicInteger, AtomicInteger> tenantDevicesActivity = stats.computeIfAbsent(stateData.getTenantId(),
-                        tenantId -> Pair.of(new AtomicInteger(), new AtomicInteger()));
-                if (stateData.getState().isActive()) {
-                    tenantDevicesActivity.getLeft().incrementAndGet();
-                } else {
-                    tenantDevicesActivity.getRight().incrementAndGet();
-                }
-            }
-
-            stats.forEach((tenantId, tenantDevicesActivity) -> {
+            tenantDevicesActivity.forEach((tenantId, tenantDevicesActivity) -> {
                 int active = tenantDevicesActivity.getLeft().get();
                 int inactive = tenantDevicesActivity.getRight().get();
+                if (active == 0 && inactive == 0) {
+                    return;
+                }
                 apiUsageReportClient.report(tenantId, null, ApiUsageRecordKey.ACTIVE_DEVICES, active);
                 apiUsageReportClient.report(tenantId, null, ApiUsageRecordKey.INACTIVE_DEVICES, inactive);
                 if (active > 0) {
@@ -585,6 +678,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         state.setLastInactivityAlarmTime(ts);
         save(deviceId, INACTIVITY_ALARM_TIME, ts);
         onDeviceActivityStatusChange(deviceId, false, stateData);
+        updateActivityStats(stateData);
     }
 
     boolean isActive(long ts, DeviceState state) {
@@ -593,7 +687,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Nonnull
     DeviceStateData getOrFetchDeviceStateData(DeviceId deviceId) {
-        return deviceStates.computeIfAbsent(deviceId, this::fetchDeviceStateDataUsingSeparateRequests);
+        return deviceStates.computeIfAbsent(deviceId, id -> {
+            DeviceStateData stateData = fetchDeviceStateDataUsingSeparateRequests(id);
+            // the fetched state is checked and counted with the next states check
+            inactivityTimingWheel.schedule(id, 0L);
+            return stateData;
+        });
     }
 
     DeviceStateData fetchDeviceStateDataUsingSeparateRequests(final DeviceId deviceId) {
@@ -613,13 +712,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     private void onDeviceActivityStatusChange(DeviceId deviceId, boolean active, DeviceStateData stateData) {
         save(deviceId, ACTIVITY_STATE, active);
         pushRuleEngineMessage(stateData, active ? TbMsgType.ACTIVITY_EVENT : TbMsgType.INACTIVITY_EVENT);
-        TbMsgMetaData metaData = stateData.getMetaData();
         notificationRuleProcessor.process(DeviceActivityTrigger.builder()
                 .tenantId(stateData.getTenantId()).customerId(stateData.getCustomerId())
                 .deviceId(deviceId).active(active)
-                .deviceName(metaData.getValue("deviceName"))
-                .deviceType(metaData.getValue("deviceType"))
-                .deviceLabel(metaData.getValue("deviceLabel"))
+                .deviceName(stateData.getDeviceName())
+                .deviceType(stateData.getDeviceType())
+                .deviceLabel(stateData.getDeviceLabel())
                 .build());
     }
 
@@ -636,11 +734,151 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Override
     protected void cleanupEntityOnPartitionRemoval(DeviceId deviceId) {
-        cleanupEntity(deviceId);
+        DeviceStateData stateData = cleanupEntity(deviceId);
+        if (handoffEnabled && stateData != null) {
+            handoffStates.add(stateData);
+        }
     }
 
-    private void cleanupEntity(DeviceId deviceId) {
-        deviceStates.remove(deviceId);
+    @Override
+    protected void onRepartitionEvent() {
+        if (handoffStates.isEmpty()) {
+            return;
+        }
+        List<DeviceStateData> states = new ArrayList<>(handoffStates);
+        handoffStates.clear();
+        try {
+            sendDeviceStatesToNewOwners(states);
+        } catch (Exception e) {
+            log.warn("Failed to send {} device states to the new owners of the partitions", states.size(), e);
+        }
+    }
+
+    /*
+     * The states are pushed to the core queue partitions of the devices,
+     * so they are consumed by the service that manages the partitions after the rebalancing.
+     */
+    private void sendDeviceStatesToNewOwners(List<DeviceStateData> states) {
+        Map<TopicPartitionInfo, List<TransportProtos.DeviceStateProto>> tpiStates = new HashMap<>();
+        for (DeviceStateData state : states) {
+            TopicPartitionInfo tpi;
+            try {
+                tpi = partitionService.resolve(ServiceType.TB_CORE, state.getTenantId(), state.getDeviceId());
+            } catch (Exception e) {
+                log.debug("[{}] Failed to resolve partition of the device to send its state: {}", state.getDeviceId(), e.getMessage());
+                continue;
+            }
+            tpiStates.computeIfAbsent(tpi, key -> new ArrayList<>()).add(toProto(state));
+        }
+        tpiStates.forEach((tpi, tpiStateProtos) -> {
+            for (List<TransportProtos.DeviceStateProto> pack : Lists.partition(tpiStateProtos, handoffPackSize)) {
+                TransportProtos.ToCoreMsg msg = TransportProtos.ToCoreMsg.newBuilder()
+                        .setDeviceStateServiceMsg(TransportProtos.DeviceStateServiceMsgProto.newBuilder()
+                                .addAllHandoffStates(pack))
+                        .build();
+                clusterService.pushMsgToCore(tpi, UUID.randomUUID(), msg, null);
+            }
+            log.info("[{}] Sent {} device states to the new owner of the partition", tpi.getFullTopicName(), tpiStateProtos.size());
+        });
+    }
+
+    private void onDeviceStatesHandoff(List<TransportProtos.DeviceStateProto> protos, TbCallback callback) {
+        deviceStateExecutor.submit(() -> {
+            try {
+                int initialized = 0;
+                for (TransportProtos.DeviceStateProto proto : protos) {
+                    if (initDeviceState(fromProto(proto))) {
+                        initialized++;
+                    }
+                }
+                log.debug("Initialized {} out of {} device states received from the previous owner", initialized, protos.size());
+                callback.onSuccess();
+            } catch (Throwable t) {
+                log.warn("Failed to initialize device states received from the previous owner", t);
+                callback.onFailure(t);
+            }
+        });
+    }
+
+    private boolean initDeviceState(DeviceStateData state) {
+        TopicPartitionInfo tpi;
+        try {
+            tpi = partitionService.resolve(ServiceType.TB_CORE, state.getTenantId(), state.getDeviceId());
+        } catch (Exception e) {
+            log.debug("[{}] Failed to resolve partition of the received device state: {}", state.getDeviceId(), e.getMessage());
+            return false;
+        }
+        Set<DeviceId> deviceIds = partitionedEntities.get(tpi);
+        if (deviceIds == null) {
+            log.debug("[{}] Received state of the device that belongs to external partition {}", state.getDeviceId(), tpi.getFullTopicName());
+            return false;
+        }
+        deviceIds.add(state.getDeviceId());
+        // the state that is already fetched on demand is up to date
+        if (deviceStates.putIfAbsent(state.getDeviceId(), state) != null) {
+            return false;
+        }
+        checkAndUpdateState(state.getDeviceId(), state);
+        return true;
+    }
+
+    private static TransportProtos.DeviceStateProto toProto(DeviceStateData stateData) {
+        DeviceState state = stateData.getState();
+        var builder = TransportProtos.DeviceStateProto.newBuilder()
+                .setTenantIdMSB(stateData.getTenantId().getId().getMostSignificantBits())
+                .setTenantIdLSB(stateData.getTenantId().getId().getLeastSignificantBits())
+                .setDeviceIdMSB(stateData.getDeviceId().getId().getMostSignificantBits())
+                .setDeviceIdLSB(stateData.getDeviceId().getId().getLeastSignificantBits())
+                .setDeviceCreationTime(stateData.getDeviceCreationTime())
+                .setActive(state.isActive())
+                .setLastConnectTime(state.getLastConnectTime())
+                .setLastActivityTime(state.getLastActivityTime())
+                .setLastDisconnectTime(state.getLastDisconnectTime())
+                .setLastInactivityAlarmTime(state.getLastInactivityAlarmTime())
+                .setInactivityTimeout(state.getInactivityTimeout());
+        if (stateData.getCustomerId() != null) {
+            builder.setCustomerIdMSB(stateData.getCustomerId().getId().getMostSignificantBits())
+                    .setCustomerIdLSB(stateData.getCustomerId().getId().getLeastSignificantBits());
+        }
+        if (stateData.getDeviceName() != null) {
+            builder.setDeviceName(stateData.getDeviceName());
+        }
+        if (stateData.getDeviceLabel() != null) {
+            builder.setDeviceLabel(stateData.getDeviceLabel());
+        }
+        if (stateData.getDeviceType() != null) {
+            builder.setDeviceType(stateData.getDeviceType());
+        }
+        return builder.build();
+    }
+
+    private static DeviceStateData fromProto(TransportProtos.DeviceStateProto proto) {
+        DeviceState state = DeviceState.builder()
+                .active(proto.getActive())
+                .lastConnectTime(proto.getLastConnectTime())
+                .lastActivityTime(proto.getLastActivityTime())
+                .lastDisconnectTime(proto.getLastDisconnectTime())
+                .lastInactivityAlarmTime(proto.getLastInactivityAlarmTime())
+                .inactivityTimeout(proto.getInactivityTimeout())
+                .build();
+        return DeviceStateData.builder()
+                .tenantId(TenantId.fromUUID(new UUID(proto.getTenantIdMSB(), proto.getTenantIdLSB())))
+                .customerId(proto.hasCustomerIdMSB() ? new CustomerId(new UUID(proto.getCustomerIdMSB(), proto.getCustomerIdLSB())) : null)
+                .deviceId(new DeviceId(new UUID(proto.getDeviceIdMSB(), proto.getDeviceIdLSB())))
+                .deviceCreationTime(proto.getDeviceCreationTime())
+                .deviceName(proto.getDeviceName())
+                .deviceLabel(proto.hasDeviceLabel() ? proto.getDeviceLabel() : null)
+                .deviceType(proto.getDeviceType())
+                .state(state)
+                .build();
+    }
+
+    private DeviceStateData cleanupEntity(DeviceId deviceId) {
+        DeviceStateData stateData = deviceStates.remove(deviceId);
+        if (stateData != null) {
+            updateActivityStats(stateData, DeviceStateData.REMOVED);
+        }
+        return stateData;
     }
 
 
@@ -692,16 +930,14 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                             .lastInactivityAlarmTime(inactivityAlarmTime)
                             .inactivityTimeout(inactivityTimeout)
                             .build();
-                    TbMsgMetaData md = new TbMsgMetaData();
-                    md.putValue("deviceName", device.getName());
-                    md.putValue("deviceLabel", device.getLabel());
-                    md.putValue("deviceType", device.getType());
                     DeviceStateData deviceStateData = DeviceStateData.builder()
                             .customerId(device.getCustomerId())
                             .tenantId(device.getTenantId())
                             .deviceId(device.getId())
                             .deviceCreationTime(device.getCreatedTime())
-                            .metaData(md)
+                            .deviceName(device.getName())
+                            .deviceLabel(device.getLabel())
+                            .deviceType(device.getType())
                             .state(deviceState).build();
                     log.debug("[{}] Fetched device state from the DB {}", device.getId(), deviceStateData);
                     return deviceStateData;
@@ -777,16 +1013,14 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 .lastInactivityAlarmTime(inactivityAlarmTime)
                 .inactivityTimeout(inactivityTimeout)
                 .build();
-        TbMsgMetaData md = new TbMsgMetaData();
-        md.putValue("deviceName", getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "name", ""));
-        md.putValue("deviceLabel", getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "label", ""));
-        md.putValue("deviceType", getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "type", ""));
         return DeviceStateData.builder()
                 .customerId(deviceIdInfo.getCustomerId())
                 .tenantId(deviceIdInfo.getTenantId())
                 .deviceId(deviceIdInfo.getDeviceId())
                 .deviceCreationTime(getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "createdTime", 0L))
-                .metaData(md)
+                .deviceName(getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "name", ""))
+                .deviceLabel(getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "label", ""))
+                .deviceType(getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "type", ""))
                 .state(deviceState).build();
     }
 
@@ -856,7 +1090,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
             } else {
                 data = JacksonUtil.toString(state);
             }
-            TbMsgMetaData md = stateData.getMetaData().copy();
+            TbMsgMetaData md = stateData.getMetaData();
             if (!persistToTelemetry) {
                 md.putValue(SCOPE, SERVER_SCOPE);
             }
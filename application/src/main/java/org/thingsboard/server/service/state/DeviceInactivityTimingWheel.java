@@ -0,0 +1,145 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Hierarchical timing wheel of device inactivity deadlines.
+ * Each level has {@link #WHEEL_SIZE} slots, a slot of the next level covers a full rotation of the previous one.
+ * Entries are moved to the lower level when their slot of the upper level is reached, so advancing the wheel
+ * touches only the entries that are due, and the entries of the upper level slots once per slot.
+ * <p>
+ * Deadlines are rounded down to the tick, so an entry may be expired up to one tick earlier than its deadline.
+ * The consumer is expected to check the deadline and schedule the entry again if it is not reached yet.
+ * <p>
+ * {@link #schedule} may be called from any thread, {@link #advance} is called from a single thread at a time.
+ */
+class DeviceInactivityTimingWheel {
+
+    static final int WHEEL_BITS = 6;
+    static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    static final int LEVELS = 4;
+    private static final int MASK = WHEEL_SIZE - 1;
+    private static final long MAX_TICKS = 1L << (WHEEL_BITS * LEVELS);
+
+    private final long tickMs;
+    private final List<Entry>[][] slots;
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private List<Entry> due = new ArrayList<>();
+    private List<Entry> overflow = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    DeviceInactivityTimingWheel(long tickMs, long startTs) {
+        this.tickMs = tickMs;
+        this.slots = new List[LEVELS][WHEEL_SIZE];
+        this.currentTick = startTs / tickMs;
+    }
+
+    void schedule(DeviceId deviceId, long deadline) {
+        pending.add(new Entry(deviceId, deadline));
+    }
+
+    /**
+     * Expires all entries with the deadline tick less than or equal to the tick of the given timestamp.
+     */
+    synchronized void advance(long ts, ObjLongConsumer<DeviceId> onExpired) {
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            add(entry);
+        }
+        List<Entry> expired = due;
+        due = new ArrayList<>();
+        long targetTick = ts / tickMs;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            long tick = currentTick + 1;
+            // the slot of each upper level is moved down when the lower levels complete a rotation
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((tick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) ((tick >> (WHEEL_BITS * level)) & MASK), tick);
+                }
+            }
+            if ((tick & (MAX_TICKS - 1)) == 0 && !overflow.isEmpty()) {
+                List<Entry> entries = overflow;
+                overflow = new ArrayList<>();
+                currentTick = tick - 1;
+                size -= entries.size();
+                entries.forEach(this::add);
+            }
+            currentTick = tick;
+            List<Entry> slot = slots[0][(int) (tick & MASK)];
+            if (slot != null) {
+                slots[0][(int) (tick & MASK)] = null;
+                size -= slot.size();
+                expired.addAll(slot);
+            }
+        }
+        for (Entry e : expired) {
+            onExpired.accept(e.deviceId, e.deadline);
+        }
+    }
+
+    synchronized int size() {
+        return size + due.size() + pending.size();
+    }
+
+    private void cascade(int level, int index, long tick) {
+        List<Entry> slot = slots[level][index];
+        if (slot != null) {
+            slots[level][index] = null;
+            size -= slot.size();
+            currentTick = tick - 1;
+            slot.forEach(this::add);
+        }
+    }
+
+    private void add(Entry entry) {
+        long deadlineTick = entry.deadline / tickMs;
+        long delta = deadlineTick - currentTick;
+        if (delta <= 0) {
+            due.add(entry);
+            return;
+        }
+        size++;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta <= 1L << (WHEEL_BITS * (level + 1))) {
+                int index = (int) ((deadlineTick >> (WHEEL_BITS * level)) & MASK);
+                List<Entry> slot = slots[level][index];
+                if (slot == null) {
+                    slot = new ArrayList<>();
+                    slots[level][index] = slot;
+                }
+                slot.add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    private record Entry(DeviceId deviceId, long deadline) {}
+
+}
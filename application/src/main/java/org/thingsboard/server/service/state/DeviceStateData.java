@@ -15,25 +15,129 @@
  */
 package org.thingsboard.server.service.state;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 /**
  * Created by ashvayka on 01.05.18.
+ * <p>
+ * One instance is kept for each device of the owned partitions, so the device info used by the rule engine messages
+ * is stored as plain fields and the metadata is created only when the message is pushed.
+ * Tenant and customer ids and device types are shared between the instances.
  */
 @Data
-@Builder
 class DeviceStateData {
 
+    static final int NOT_COUNTED = 0;
+    static final int COUNTED_ACTIVE = 1;
+    static final int COUNTED_INACTIVE = 2;
+    static final int REMOVED = 3;
+
+    private static final AtomicLongFieldUpdater<DeviceStateData> INACTIVITY_CHECK_TS =
+            AtomicLongFieldUpdater.newUpdater(DeviceStateData.class, "inactivityCheckTs");
+    private static final AtomicIntegerFieldUpdater<DeviceStateData> COUNTED_ACTIVITY =
+            AtomicIntegerFieldUpdater.newUpdater(DeviceStateData.class, "countedActivity");
+
+    private static final Interner<TenantId> TENANT_IDS = Interners.newWeakInterner();
+    private static final Interner<CustomerId> CUSTOMER_IDS = Interners.newWeakInterner();
+    private static final Interner<String> DEVICE_TYPES = Interners.newWeakInterner();
+
     private final TenantId tenantId;
     private final CustomerId customerId;
     private final DeviceId deviceId;
     private final long deviceCreationTime;
-    private TbMsgMetaData metaData;
+    private String deviceName;
+    private String deviceLabel;
+    private String deviceType;
     private final DeviceState state;
-    
+
+    /**
+     * Deadline of the inactivity check scheduled in the timing wheel, 0 if not scheduled.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile long inactivityCheckTs;
+
+    /**
+     * Activity state this device is counted with in the per-tenant activity stats.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile int countedActivity;
+
+    @Builder
+    DeviceStateData(TenantId tenantId, CustomerId customerId, DeviceId deviceId, long deviceCreationTime,
+                    String deviceName, String deviceLabel, String deviceType, DeviceState state) {
+        this.tenantId = tenantId != null ? TENANT_IDS.intern(tenantId) : null;
+        this.customerId = customerId != null ? CUSTOMER_IDS.intern(customerId) : null;
+        this.deviceId = deviceId;
+        this.deviceCreationTime = deviceCreationTime;
+        this.deviceName = deviceName;
+        this.deviceLabel = deviceLabel;
+        setDeviceType(deviceType);
+        this.state = state;
+    }
+
+    void setDeviceType(String deviceType) {
+        this.deviceType = deviceType != null ? DEVICE_TYPES.intern(deviceType) : null;
+    }
+
+    TbMsgMetaData getMetaData() {
+        TbMsgMetaData md = new TbMsgMetaData();
+        md.putValue("deviceName", deviceName);
+        md.putValue("deviceLabel", deviceLabel);
+        md.putValue("deviceType", deviceType);
+        return md;
+    }
+
+    /**
+     * @return false if the check with the same or earlier deadline is already scheduled
+     */
+    boolean updateInactivityCheckTs(long deadline) {
+        long current;
+        do {
+            current = inactivityCheckTs;
+            if (current != 0 && current <= deadline) {
+                return false;
+            }
+        } while (!INACTIVITY_CHECK_TS.compareAndSet(this, current, deadline));
+        return true;
+    }
+
+    void clearInactivityCheckTs(long deadline) {
+        INACTIVITY_CHECK_TS.compareAndSet(this, deadline, 0);
+    }
+
+    /**
+     * @return previous value; {@link #REMOVED} is never changed
+     */
+    int updateCountedActivity(int countedActivity) {
+        int previous;
+        do {
+            previous = this.countedActivity;
+            if (previous == REMOVED) {
+                return previous;
+            }
+        } while (!COUNTED_ACTIVITY.compareAndSet(this, previous, countedActivity));
+        return previous;
+    }
+
 }
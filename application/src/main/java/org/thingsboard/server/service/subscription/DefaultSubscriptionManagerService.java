@@ -61,8 +61,6 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -80,7 +78,6 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     private final TbClusterService clusterService;
     private final SubscriptionSchedulerComponent scheduler;
 
-    private final Lock subsLock = new ReentrantLock();
     private final ConcurrentMap<EntityId, TbEntityRemoteSubsInfo> entitySubscriptions = new ConcurrentHashMap<>();
 
     private final ConcurrentMap<EntityId, TbEntityUpdatesInfo> entityUpdates = new ConcurrentHashMap<>();
@@ -105,16 +102,13 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
         log.trace("[{}][{}][{}] Processing subscription event {}", tenantId, entityId, serviceId, event);
         TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_CORE, tenantId, entityId);
         if (tpi.isMyPartition()) {
-            subsLock.lock();
-            try {
-                var entitySubs = entitySubscriptions.computeIfAbsent(entityId, id -> new TbEntityRemoteSubsInfo(tenantId, entityId));
-                boolean empty = entitySubs.updateAndCheckIsEmpty(serviceId, event);
-                if (empty) {
-                    entitySubscriptions.remove(entityId);
+            // the events of different entities are processed concurrently, the ones of the same entity are serialized by the map
+            entitySubscriptions.compute(entityId, (id, entitySubs) -> {
+                if (entitySubs == null) {
+                    entitySubs = new TbEntityRemoteSubsInfo(tenantId, entityId);
                 }
-            } finally {
-                subsLock.unlock();
-            }
+                return entitySubs.updateAndCheckIsEmpty(serviceId, event) ? null : entitySubs;
+            });
             callback.onSuccess();
             if (event.hasTsOrAttrSub()) {
                 sendSubEventCallback(tenantId, serviceId, entityId, event.getSeqNumber());
@@ -130,14 +124,10 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     @EventListener(OtherServiceShutdownEvent.class)
     public void onApplicationEvent(OtherServiceShutdownEvent event) {
         if (event.getServiceTypes() != null && event.getServiceTypes().contains(ServiceType.TB_CORE)) {
-            subsLock.lock();
-            try {
-                int sizeBeforeCleanup = entitySubscriptions.size();
-                entitySubscriptions.entrySet().removeIf(kv -> kv.getValue().removeAndCheckIsEmpty(event.getServiceId()));
-                log.info("[{}][{}] Removed {} entity subscription records due to server shutdown.", serviceId, event.getServiceId(), entitySubscriptions.size() - sizeBeforeCleanup);
-            } finally {
-                subsLock.unlock();
-            }
+            int sizeBeforeCleanup = entitySubscriptions.size();
+            entitySubscriptions.keySet().forEach(entityId -> entitySubscriptions.computeIfPresent(entityId,
+                    (id, entitySubs) -> entitySubs.removeAndCheckIsEmpty(event.getServiceId()) ? null : entitySubs));
+            log.info("[{}][{}] Removed {} entity subscription records due to server shutdown.", serviceId, event.getServiceId(), sizeBeforeCleanup - entitySubscriptions.size());
         }
     }
 
@@ -28,6 +28,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.CloseStatus;
@@ -46,6 +47,7 @@ import org.thingsboard.server.common.data.query.EntityDataQuery;
 import org.thingsboard.server.common.data.query.EntityKey;
 import org.thingsboard.server.common.data.query.EntityKeyType;
 import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
 import org.thingsboard.server.common.msg.tools.TbRateLimitsException;
 import org.thingsboard.server.dao.alarm.AlarmService;
 import org.thingsboard.server.dao.attributes.AttributesService;
@@ -134,6 +136,10 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private long dynamicPageLinkRefreshInterval;
     @Value("${server.ws.dynamic_page_link.refresh_pool_size:1}")
     private int dynamicPageLinkRefreshPoolSize;
+    @Value("${server.ws.dynamic_page_link.incremental_refresh.enabled:false}")
+    private boolean incrementalRefreshEnabled;
+    @Value("${server.ws.dynamic_page_link.incremental_refresh.max_skipped_refreshes:5}")
+    private int maxSkippedRefreshes;
     @Value("${server.ws.max_entities_per_data_subscription:1000}")
     private int maxEntitiesPerDataSubscription;
     @Value("${server.ws.max_entities_per_alarm_subscription:1000}")
@@ -149,6 +155,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private boolean tsInSqlDB;
     private String serviceId;
     private SubscriptionServiceStatistics stats = new SubscriptionServiceStatistics();
+    private final TbEntityChangeTracker entityChangeTracker = new TbEntityChangeTracker();
 
     @PostConstruct
     public void initExecutor() {
@@ -483,9 +490,21 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         return true;
     }
 
+    @EventListener(ComponentLifecycleMsg.class)
+    public void onComponentLifecycleEvent(ComponentLifecycleMsg event) {
+        if (incrementalRefreshEnabled) {
+            entityChangeTracker.onLifecycleEvent(event.getTenantId(), event.getEntityId(), event.getEvent());
+        }
+    }
+
     private void refreshDynamicQuery(TbAbstractEntityQuerySubCtx<?> finalCtx) {
         try {
             if (validate(finalCtx)) {
+                if (incrementalRefreshEnabled && !finalCtx.checkRefreshRequired(entityChangeTracker, maxSkippedRefreshes)) {
+                    log.trace("[{}][{}] Skipping query, the result is not changed: {}", finalCtx.getSessionId(), finalCtx.getCmdId(), finalCtx.getQuery());
+                    stats.getDynamicQuerySkippedCnt().incrementAndGet();
+                    return;
+                }
                 long start = System.currentTimeMillis();
                 finalCtx.update();
                 long end = System.currentTimeMillis();
@@ -516,13 +535,14 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         long regularQueryInvocationTimeValue = stats.getRegularQueryTimeSpent().getAndSet(0);
         int dynamicQueryInvocationCntValue = stats.getDynamicQueryInvocationCnt().getAndSet(0);
         long dynamicQueryInvocationTimeValue = stats.getDynamicQueryTimeSpent().getAndSet(0);
+        int dynamicQuerySkippedCntValue = stats.getDynamicQuerySkippedCnt().getAndSet(0);
         long dynamicQueryCnt = subscriptionsBySessionId.values().stream().mapToLong(m -> m.values().stream().filter(TbAbstractSubCtx::isDynamic).count()).sum();
         if (regularQueryInvocationCntValue > 0 || dynamicQueryInvocationCntValue > 0 || dynamicQueryCnt > 0 || alarmQueryInvocationCntValue > 0) {
             log.info("Stats: regularQueryInvocationCnt = [{}], regularQueryInvocationTime = [{}], " +
-                            "dynamicQueryCnt = [{}] dynamicQueryInvocationCnt = [{}], dynamicQueryInvocationTime = [{}], " +
+                            "dynamicQueryCnt = [{}] dynamicQueryInvocationCnt = [{}], dynamicQueryInvocationTime = [{}], dynamicQuerySkippedCnt = [{}], " +
                             "alarmQueryInvocationCnt = [{}], alarmQueryInvocationTime = [{}]",
                     regularQueryInvocationCntValue, regularQueryInvocationTimeValue,
-                    dynamicQueryCnt, dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue,
+                    dynamicQueryCnt, dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue, dynamicQuerySkippedCntValue,
                     alarmQueryInvocationCntValue, alarmQueryInvocationTimeValue);
         }
     }
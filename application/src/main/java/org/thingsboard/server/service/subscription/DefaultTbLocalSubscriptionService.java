@@ -22,7 +22,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.util.ConcurrentReferenceHashMap;
 import org.thingsboard.common.util.DeduplicationUtil;
 import org.thingsboard.common.util.DonAsynchron;
 import org.thingsboard.common.util.ThingsBoardExecutors;
@@ -61,7 +60,6 @@ import org.thingsboard.server.service.ws.telemetry.sub.AlarmSubscriptionUpdate;
 import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -85,6 +83,8 @@ import java.util.stream.Collectors;
 @Service
 public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionService {
 
+    private static final int SUBS_LOCK_STRIPES = 1024;
+
     private final ConcurrentMap<String, ConcurrentMap<Integer, TbSubscription<?>>> subscriptionsBySessionId = new ConcurrentHashMap<>();
     private final ConcurrentMap<UUID, TbEntityLocalSubsInfo> subscriptionsByEntityId = new ConcurrentHashMap<>();
     private final ConcurrentMap<UUID, TbEntityUpdatesInfo> entityUpdates = new ConcurrentHashMap<>();
@@ -118,17 +118,25 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
         this.subscriptionManagerService = subscriptionManagerService;
         this.webSocketService = webSocketService;
         this.rateLimitService = rateLimitService;
+        for (int i = 0; i < subsLocks.length; i++) {
+            subsLocks[i] = new ReentrantLock();
+        }
     }
 
     private String serviceId;
     private ExecutorService subscriptionUpdateExecutor;
 
-    private final ConcurrentReferenceHashMap<TenantId, Lock> locks = new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.SOFT);
+    /*
+     * Subscriptions of the same entity are modified under the same lock, while the subscriptions of different entities,
+     * including the ones of the same tenant, are modified concurrently. The registry maps are concurrent, so the lookups
+     * done on the telemetry updates don't take the locks at all.
+     */
+    private final Lock[] subsLocks = new Lock[SUBS_LOCK_STRIPES];
 
     @PostConstruct
     public void initExecutor() {
         subscriptionUpdateExecutor = ThingsBoardExecutors.newWorkStealingPool(20, getClass());
-        tsCallBackExecutor = Executors.newFixedThreadPool(8, ThingsBoardThreadFactory.forName("ts-sub-callback")); //since we are using locks by TenantId
+        tsCallBackExecutor = Executors.newFixedThreadPool(8, ThingsBoardThreadFactory.forName("ts-sub-callback")); //since we are using locks by EntityId
         serviceId = serviceInfoProvider.getServiceId();
         staleSessionCleanupExecutor = ThingsBoardExecutors.newSingleThreadScheduledExecutor("stale-session-cleanup");
         staleSessionCleanupExecutor.scheduleWithFixedDelay(this::cleanupStaleSessions, 60, 60, TimeUnit.SECONDS);
@@ -159,25 +167,23 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
              * Even if we cache locally the list of active subscriptions by entity id, it is still time-consuming operation to get them from cache
              * Since number of subscriptions is usually much less than number of devices that are pushing data.
              */
-            Map<TenantId, Set<UUID>> staleSubs = new HashMap<>();
+            Set<UUID> staleSubs = new HashSet<>();
             subscriptionsByEntityId.forEach((id, sub) -> {
                 try {
                     pushSubEventToManagerService(sub.getTenantId(), sub.getEntityId(), sub.toEvent(ComponentLifecycleEvent.UPDATED));
                 } catch (TenantNotFoundException e) {
-                    staleSubs.computeIfAbsent(sub.getTenantId(), key -> new HashSet<>()).add(id);
+                    staleSubs.add(id);
                     log.warn("Cleaning up stale subscription {} for tenant {} due to TenantNotFoundException", id, sub.getTenantId());
                 } catch (Exception e) {
                     log.error("Failed to push subscription {} to manager service", sub, e);
                 }
             });
-            staleSubs.forEach((tenantId, subs) -> {
-                var subsLock = getSubsLock(tenantId);
+            staleSubs.forEach(entityId -> {
+                var subsLock = getSubsLock(entityId);
                 subsLock.lock();
                 try {
-                    subs.forEach(entityId -> {
-                        subscriptionsByEntityId.remove(entityId);
-                        entityUpdates.remove(entityId);
-                    });
+                    subscriptionsByEntityId.remove(entityId);
+                    entityUpdates.remove(entityId);
                 } finally {
                     subsLock.unlock();
                 }
@@ -201,8 +207,9 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
         });
     }
 
-    Lock getSubsLock(TenantId tenantId) {
-        return locks.computeIfAbsent(tenantId, x -> new ReentrantLock());
+    Lock getSubsLock(UUID entityId) {
+        int hash = entityId.hashCode();
+        return subsLocks[(hash ^ (hash >>> 16)) & (subsLocks.length - 1)];
     }
 
     @Override
@@ -220,11 +227,17 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
 
         log.debug("[{}][{}] Register subscription: {}", tenantId, entityId, subscription);
         SubscriptionModificationResult result;
-        final Lock subsLock = getSubsLock(tenantId);
+        final Lock subsLock = getSubsLock(entityId.getId());
         subsLock.lock();
         try {
-            Map<Integer, TbSubscription<?>> sessionSubscriptions = subscriptionsBySessionId.computeIfAbsent(subscription.getSessionId(), k -> new ConcurrentHashMap<>());
-            sessionSubscriptions.put(subscription.getSubscriptionId(), subscription);
+            // the session subscriptions are modified atomically, since other entities of the session are not locked
+            subscriptionsBySessionId.compute(subscription.getSessionId(), (sessionId, sessionSubscriptions) -> {
+                if (sessionSubscriptions == null) {
+                    sessionSubscriptions = new ConcurrentHashMap<>();
+                }
+                sessionSubscriptions.put(subscription.getSubscriptionId(), subscription);
+                return sessionSubscriptions;
+            });
             result = modifySubscription(tenantId, entityId, subscription, true);
         } finally {
             subsLock.unlock();
@@ -255,7 +268,7 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
         log.debug("[{}][{}][{}] Processing sub event callback: {}.", tenantId, entityId, seqNumber, entityUpdatesInfo);
         entityUpdates.put(entityId, entityUpdatesInfo);
         Set<TbSubscription<?>> pendingSubs = null;
-        Lock subsLock = getSubsLock(tenantId);
+        Lock subsLock = getSubsLock(entityId);
         subsLock.lock();
         try {
             TbEntityLocalSubsInfo entitySubs = subscriptionsByEntityId.get(entityId);
@@ -275,25 +288,26 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
     public void cancelSubscription(TenantId tenantId, String sessionId, int subscriptionId) {
         log.debug("[{}][{}][{}] Going to remove subscription.", tenantId, sessionId, subscriptionId);
         SubscriptionModificationResult result = null;
-        Lock subsLock = getSubsLock(tenantId);
-        subsLock.lock();
-        try {
-            Map<Integer, TbSubscription<?>> sessionSubscriptions = subscriptionsBySessionId.get(sessionId);
-            if (sessionSubscriptions != null) {
-                TbSubscription<?> subscription = sessionSubscriptions.remove(subscriptionId);
-                if (subscription != null) {
-                    if (sessionSubscriptions.isEmpty()) {
-                        subscriptionsBySessionId.remove(sessionId);
+        Map<Integer, TbSubscription<?>> sessionSubscriptions = subscriptionsBySessionId.get(sessionId);
+        if (sessionSubscriptions != null) {
+            TbSubscription<?> subscription = sessionSubscriptions.get(subscriptionId);
+            if (subscription != null) {
+                Lock subsLock = getSubsLock(subscription.getEntityId().getId());
+                subsLock.lock();
+                try {
+                    // the subscription may be already removed or replaced while we were waiting for the lock
+                    if (sessionSubscriptions.remove(subscriptionId, subscription)) {
+                        subscriptionsBySessionId.computeIfPresent(sessionId, (id, subscriptions) -> subscriptions.isEmpty() ? null : subscriptions);
+                        result = modifySubscription(subscription.getTenantId(), subscription.getEntityId(), subscription, false);
                     }
-                    result = modifySubscription(subscription.getTenantId(), subscription.getEntityId(), subscription, false);
-                } else {
-                    log.debug("[{}][{}][{}] Subscription not found!", tenantId, sessionId, subscriptionId);
+                } finally {
+                    subsLock.unlock();
                 }
             } else {
-                log.debug("[{}][{}] No session subscriptions found!", tenantId, sessionId);
+                log.debug("[{}][{}][{}] Subscription not found!", tenantId, sessionId, subscriptionId);
             }
-        } finally {
-            subsLock.unlock();
+        } else {
+            log.debug("[{}][{}] No session subscriptions found!", tenantId, sessionId);
         }
         if (result != null && result.hasEvent()) {
             pushSubscriptionEvent(result);
@@ -303,25 +317,39 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
     @Override
     public void cancelAllSessionSubscriptions(TenantId tenantId, String sessionId) {
         log.debug("[{}][{}] Going to remove session subscriptions.", tenantId, sessionId);
-        Lock subsLock = getSubsLock(tenantId);
-        subsLock.lock();
-        try {
-            Map<Integer, TbSubscription<?>> sessionSubscriptions = subscriptionsBySessionId.remove(sessionId);
-            if (sessionSubscriptions != null) {
-                Map<EntityId, List<TbSubscription<?>>> entitySubscriptions =
-                        sessionSubscriptions.values().stream().collect(Collectors.groupingBy(TbSubscription::getEntityId));
-
-                entitySubscriptions.forEach((entityId, subscriptions) -> {
-                    TbEntitySubEvent event = removeAllSubscriptions(tenantId, entityId, subscriptions);
-                    if (event != null) {
-                        pushSubscriptionsEvent(tenantId, entityId, event);
-                    }
-                });
-            } else {
-                log.debug("[{}][{}] No session subscriptions found!", tenantId, sessionId);
+        Map<Integer, TbSubscription<?>> sessionSubscriptions = subscriptionsBySessionId.get(sessionId);
+        if (sessionSubscriptions == null) {
+            log.debug("[{}][{}] No session subscriptions found!", tenantId, sessionId);
+            return;
+        }
+        // the subscriptions are removed from the session under the lock of their entity, same as they are added,
+        // and the session is removed once it is empty, so the subscriptions added concurrently are removed by the next pass
+        while (sessionSubscriptions != null) {
+            Map<Integer, TbSubscription<?>> subscriptionsToRemove = sessionSubscriptions;
+            Map<EntityId, List<TbSubscription<?>>> entitySubscriptions =
+                    subscriptionsToRemove.values().stream().collect(Collectors.groupingBy(TbSubscription::getEntityId));
+            if (entitySubscriptions.isEmpty()) {
+                subscriptionsBySessionId.computeIfPresent(sessionId, (id, subscriptions) -> subscriptions.isEmpty() ? null : subscriptions);
             }
-        } finally {
-            subsLock.unlock();
+            entitySubscriptions.forEach((entityId, subscriptions) -> {
+                Lock subsLock = getSubsLock(entityId.getId());
+                subsLock.lock();
+                try {
+                    List<TbSubscription<?>> removed = subscriptions.stream()
+                            .filter(subscription -> subscriptionsToRemove.remove(subscription.getSubscriptionId(), subscription))
+                            .collect(Collectors.toList());
+                    subscriptionsBySessionId.computeIfPresent(sessionId, (id, sessionSubs) -> sessionSubs.isEmpty() ? null : sessionSubs);
+                    if (!removed.isEmpty()) {
+                        TbEntitySubEvent event = removeAllSubscriptions(tenantId, entityId, removed);
+                        if (event != null) {
+                            pushSubscriptionsEvent(tenantId, entityId, event);
+                        }
+                    }
+                } finally {
+                    subsLock.unlock();
+                }
+            });
+            sessionSubscriptions = subscriptionsBySessionId.get(sessionId);
         }
     }
 
@@ -23,6 +23,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.AttributeScope;
+import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -31,6 +32,8 @@ import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.query.ComplexFilterPredicate;
 import org.thingsboard.server.common.data.query.DynamicValue;
 import org.thingsboard.server.common.data.query.DynamicValueSourceType;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
 import org.thingsboard.server.common.data.query.EntityCountQuery;
 import org.thingsboard.server.common.data.query.FilterPredicateType;
 import org.thingsboard.server.common.data.query.KeyFilter;
@@ -44,7 +47,9 @@ import org.thingsboard.server.service.ws.WebSocketSessionRef;
 import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -66,6 +71,10 @@ public abstract class TbAbstractEntityQuerySubCtx<T extends EntityCountQuery> ex
     protected T query;
     @Setter
     protected volatile ScheduledFuture<?> refreshTask;
+    protected volatile Set<String> valueKeys = Collections.emptySet();
+    private volatile boolean refreshRequired = true;
+    private volatile long refreshedChangeSeq;
+    private int skippedRefreshes;
 
     public TbAbstractEntityQuerySubCtx(String serviceId, WebSocketService wsService, EntityService entityService, TbLocalSubscriptionService localSubscriptionService,
                                        AttributesService attributesService, SubscriptionServiceStatistics stats, WebSocketSessionRef sessionRef, int cmdId) {
@@ -98,9 +107,55 @@ public abstract class TbAbstractEntityQuerySubCtx<T extends EntityCountQuery> ex
                 registerDynamicValues(filter.getPredicate());
             }
         }
+        valueKeys = getValueKeys(query);
+        refreshRequired = true;
         resolve(getTenantId(), getCustomerId(), getUserId());
     }
 
+    /**
+     * @return names of the attributes and time series that are used to select the entities
+     */
+    protected Set<String> getValueKeys(T query) {
+        Set<String> keys = new HashSet<>();
+        if (query != null && query.getKeyFilters() != null) {
+            for (KeyFilter filter : query.getKeyFilters()) {
+                addValueKey(keys, filter.getKey());
+            }
+        }
+        return keys;
+    }
+
+    protected static void addValueKey(Set<String> keys, EntityKey key) {
+        if (key != null && key.getType() != EntityKeyType.ENTITY_FIELD) {
+            keys.add(key.getKey());
+        }
+    }
+
+    public void markRefreshRequired() {
+        refreshRequired = true;
+    }
+
+    /**
+     * Decides whether the periodic refresh has to execute the query again. The query is skipped if the entities
+     * it selects were not created, updated or deleted since the last execution and none of the values used
+     * by the query were updated for the entities on the page. Values of the entities outside the page are not
+     * observed, so the query is executed at least after the given number of skipped refreshes.
+     */
+    public boolean checkRefreshRequired(TbEntityChangeTracker changeTracker, int maxSkippedRefreshes) {
+        // taken before the query, so the changes made during the query are not lost
+        long changeSeq = changeTracker.getSeq();
+        Set<EntityType> entityTypes = query != null ? TbEntityChangeTracker.getEntityTypes(query.getEntityFilter()) : null;
+        if (entityTypes == null || refreshRequired || skippedRefreshes >= maxSkippedRefreshes
+                || changeTracker.hasChanges(getTenantId(), entityTypes, refreshedChangeSeq)) {
+            refreshRequired = false;
+            refreshedChangeSeq = changeSeq;
+            skippedRefreshes = 0;
+            return true;
+        }
+        skippedRefreshes++;
+        return false;
+    }
+
     public void resolve(TenantId tenantId, CustomerId customerId, UserId userId) {
         List<ListenableFuture<DynamicValueKeySub>> futures = new ArrayList<>();
         for (DynamicValueKey key : dynamicValues.keySet()) {
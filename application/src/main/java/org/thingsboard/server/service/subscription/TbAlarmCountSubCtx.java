@@ -108,6 +108,15 @@ public class TbAlarmCountSubCtx extends TbAbstractEntityQuerySubCtx<AlarmCountQu
         return true;
     }
 
+    /**
+     * The alarm count depends on the alarms that are not tracked by the {@link TbEntityChangeTracker}
+     * and the refresh resets the limit of the alarm queries, so it is never skipped.
+     */
+    @Override
+    public boolean checkRefreshRequired(TbEntityChangeTracker changeTracker, int maxSkippedRefreshes) {
+        return true;
+    }
+
     public void fetchAlarmCount() {
         alarmCountInvocationAttempts++;
         log.trace("[{}] Fetching alarms: {}", cmdId, alarmCountInvocationAttempts);
@@ -0,0 +1,125 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.data.query.EntityListFilter;
+import org.thingsboard.server.common.data.query.EntityNameFilter;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.SingleEntityFilter;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the sequence number of the latest create, update or delete event of the entities of each tenant and type,
+ * so the dynamic queries can tell whether their result may have changed since they were executed.
+ * When the incremental refresh is enabled, the lifecycle events of the tracked entities are broadcast to all core services
+ * (see {@link #isTracked(EntityType)}), so the changes made on the other nodes are tracked as well.
+ */
+public class TbEntityChangeTracker {
+
+    private static final Set<EntityType> TRACKED_ENTITY_TYPES = Collections.unmodifiableSet(
+            EnumSet.of(EntityType.DEVICE, EntityType.ASSET, EntityType.ENTITY_VIEW, EntityType.EDGE));
+
+    private static final Set<EntityType> LIFECYCLE_EVENT_TYPES = Collections.unmodifiableSet(
+            EnumSet.of(EntityType.DEVICE, EntityType.ASSET, EntityType.ENTITY_VIEW, EntityType.EDGE,
+                    EntityType.DEVICE_PROFILE, EntityType.ASSET_PROFILE, EntityType.CUSTOMER));
+
+    private final AtomicLong seq = new AtomicLong();
+    private final ConcurrentMap<TenantId, Map<EntityType, Long>> changes = new ConcurrentHashMap<>();
+
+    public static boolean isTracked(EntityType entityType) {
+        return LIFECYCLE_EVENT_TYPES.contains(entityType);
+    }
+
+    public long getSeq() {
+        return seq.get();
+    }
+
+    public void onLifecycleEvent(TenantId tenantId, EntityId entityId, ComponentLifecycleEvent event) {
+        switch (entityId.getEntityType()) {
+            case DEVICE, ASSET, ENTITY_VIEW, EDGE -> onChange(tenantId, Set.of(entityId.getEntityType()));
+            // the profile name is used by the type filters
+            case DEVICE_PROFILE -> onChange(tenantId, Set.of(EntityType.DEVICE));
+            case ASSET_PROFILE -> onChange(tenantId, Set.of(EntityType.ASSET));
+            // the entities of the deleted customer are unassigned without the events of their own
+            case CUSTOMER -> onChange(tenantId, TRACKED_ENTITY_TYPES);
+            case TENANT -> {
+                if (event == ComponentLifecycleEvent.DELETED) {
+                    changes.remove(tenantId);
+                }
+            }
+        }
+    }
+
+    public boolean hasChanges(TenantId tenantId, Set<EntityType> entityTypes, long sinceSeq) {
+        Map<EntityType, Long> tenantChanges = changes.get(tenantId);
+        if (tenantChanges == null) {
+            return false;
+        }
+        for (EntityType entityType : entityTypes) {
+            Long changeSeq = tenantChanges.get(entityType);
+            if (changeSeq != null && changeSeq > sinceSeq) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onChange(TenantId tenantId, Set<EntityType> entityTypes) {
+        long changeSeq = seq.incrementAndGet();
+        Map<EntityType, Long> tenantChanges = changes.computeIfAbsent(tenantId, id -> new ConcurrentHashMap<>());
+        for (EntityType entityType : entityTypes) {
+            tenantChanges.merge(entityType, changeSeq, Math::max);
+        }
+    }
+
+    /**
+     * @return types of the entities that are selected by the filter,
+     * or null if the result of the filter may change without the tracked events, e.g. on relation updates
+     */
+    public static Set<EntityType> getEntityTypes(EntityFilter filter) {
+        if (filter == null) {
+            return null;
+        }
+        EntityType entityType = switch (filter.getType()) {
+            case SINGLE_ENTITY -> {
+                EntityId entityId = ((SingleEntityFilter) filter).getSingleEntity();
+                yield entityId != null ? entityId.getEntityType() : null;
+            }
+            case ENTITY_LIST -> ((EntityListFilter) filter).getEntityType();
+            case ENTITY_NAME -> ((EntityNameFilter) filter).getEntityType();
+            case ENTITY_TYPE -> ((EntityTypeFilter) filter).getEntityType();
+            case DEVICE_TYPE -> EntityType.DEVICE;
+            case ASSET_TYPE -> EntityType.ASSET;
+            case ENTITY_VIEW_TYPE -> EntityType.ENTITY_VIEW;
+            case EDGE_TYPE -> EntityType.EDGE;
+            default -> null;
+        };
+        return entityType != null && TRACKED_ENTITY_TYPES.contains(entityType) ? Set.of(entityType) : null;
+    }
+
+}
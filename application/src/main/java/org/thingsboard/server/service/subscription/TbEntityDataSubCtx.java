@@ -77,6 +77,10 @@ public class TbEntityDataSubCtx extends TbAbstractDataSubCtx<EntityDataQuery> {
         EntityId entityId = subToEntityIdMap.get(subscriptionUpdate.getSubscriptionId());
         if (entityId != null) {
             log.trace("[{}][{}][{}][{}] Received subscription update: {}", sessionId, cmdId, subscriptionUpdate.getSubscriptionId(), keyType, subscriptionUpdate);
+            if (subscriptionUpdate.getData() != null && !Collections.disjoint(valueKeys, subscriptionUpdate.getData().keySet())) {
+                // the entity may leave the page or change its position
+                markRefreshRequired();
+            }
             if (resultToLatestValues) {
                 sendLatestWsMsg(entityId, sessionId, subscriptionUpdate, keyType);
             } else {
@@ -235,6 +239,15 @@ public class TbEntityDataSubCtx extends TbAbstractDataSubCtx<EntityDataQuery> {
         latestValueCmd = cmd.getLatestCmd();
     }
 
+    @Override
+    protected Set<String> getValueKeys(EntityDataQuery query) {
+        Set<String> keys = super.getValueKeys(query);
+        if (query != null && query.getPageLink() != null && query.getPageLink().getSortOrder() != null) {
+            addValueKey(keys, query.getPageLink().getSortOrder().getKey());
+        }
+        return keys;
+    }
+
     @Override
     protected EntityDataQuery buildEntityDataQuery() {
         return query;
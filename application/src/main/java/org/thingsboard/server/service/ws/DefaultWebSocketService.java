@@ -139,6 +139,15 @@ public class DefaultWebSocketService implements WebSocketService {
     @Value("${server.ws.ping_timeout:30000}")
     private long pingTimeout;
 
+    @Value("${server.ws.updates_coalescing.window_ms:0}")
+    private long coalescingWindowMs;
+
+    @Value("${server.ws.updates_coalescing.max_pending_messages:100}")
+    private int coalescingMaxPendingMsgs;
+
+    @Value("${server.ws.updates_coalescing.max_postponed_windows:10}")
+    private int coalescingMaxPostponedWindows;
+
     private final ConcurrentMap<TenantId, Set<String>> tenantSubscriptionsMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<CustomerId, Set<String>> customerSubscriptionsMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<UserId, Set<String>> regularUserSubscriptionsMap = new ConcurrentHashMap<>();
@@ -147,6 +156,7 @@ public class DefaultWebSocketService implements WebSocketService {
 
     private ExecutorService executor;
     private ScheduledExecutorService pingExecutor;
+    private ScheduledExecutorService coalescingExecutor;
     private String serviceId;
 
     private Map<WsCmdType, WsCmdHandler<? extends WsCmd>> cmdsHandlers;
@@ -158,6 +168,9 @@ public class DefaultWebSocketService implements WebSocketService {
 
         pingExecutor = ThingsBoardExecutors.newSingleThreadScheduledExecutor("telemetry-web-socket-ping");
         pingExecutor.scheduleWithFixedDelay(this::sendPing, pingTimeout / NUMBER_OF_PING_ATTEMPTS, pingTimeout / NUMBER_OF_PING_ATTEMPTS, TimeUnit.MILLISECONDS);
+        if (coalescingWindowMs > 0) {
+            coalescingExecutor = ThingsBoardExecutors.newSingleThreadScheduledExecutor("telemetry-web-socket-coalescing");
+        }
 
         cmdsHandlers = new EnumMap<>(WsCmdType.class);
         cmdsHandlers.put(WsCmdType.ATTRIBUTES, newCmdHandler(this::handleWsAttributesSubscriptionCmd));
@@ -186,6 +199,10 @@ public class DefaultWebSocketService implements WebSocketService {
             pingExecutor.shutdownNow();
         }
 
+        if (coalescingExecutor != null) {
+            coalescingExecutor.shutdownNow();
+        }
+
         if (executor != null) {
             executor.shutdownNow();
         }
@@ -285,10 +302,18 @@ public class DefaultWebSocketService implements WebSocketService {
         sendUpdate(sessionRef, update);
     }
 
+    private void sendUpdate(String sessionId, int cmdId, TelemetrySubscriptionUpdate update, boolean latestValues) {
+        doSendUpdate(sessionId, cmdId, update.copyWithNewSubscriptionId(cmdId), latestValues);
+    }
+
     private <T> void doSendUpdate(String sessionId, int cmdId, T update) {
+        doSendUpdate(sessionId, cmdId, update, false);
+    }
+
+    private <T> void doSendUpdate(String sessionId, int cmdId, T update, boolean latestValues) {
         WsSessionMetaData md = wsSessionsMap.get(sessionId);
         if (md != null) {
-            sendUpdate(md.getSessionRef(), cmdId, update);
+            sendUpdate(md.getSessionRef(), cmdId, update, latestValues);
         }
     }
 
@@ -468,7 +493,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update);
+                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update, true);
                             } finally {
                                 subLock.unlock();
                             }
@@ -478,7 +503,7 @@ public class DefaultWebSocketService implements WebSocketService {
                 subLock.lock();
                 try {
                     oldSubService.addSubscription(sub, sessionRef);
-                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), attributesData));
+                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), attributesData), true);
                 } finally {
                     subLock.unlock();
                 }
@@ -580,7 +605,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update);
+                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update, true);
                             } finally {
                                 subLock.unlock();
                             }
@@ -591,7 +616,7 @@ public class DefaultWebSocketService implements WebSocketService {
                 subLock.lock();
                 try {
                     oldSubService.addSubscription(sub, sessionRef);
-                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), attributesData));
+                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), attributesData), true);
                 } finally {
                     subLock.unlock();
                 }
@@ -675,7 +700,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update);
+                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update, true);
                             } finally {
                                 subLock.unlock();
                             }
@@ -688,7 +713,7 @@ public class DefaultWebSocketService implements WebSocketService {
                 subLock.lock();
                 try {
                     oldSubService.addSubscription(sub, sessionRef);
-                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data));
+                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data), true);
                 } finally {
                     subLock.unlock();
                 }
@@ -713,6 +738,7 @@ public class DefaultWebSocketService implements WebSocketService {
 
     private FutureCallback<List<TsKvEntry>> getSubscriptionCallback(final WebSocketSessionRef sessionRef, final TimeseriesSubscriptionCmd cmd,
                                                                     final String sessionId, final EntityId entityId, final long queryTs, final long startTs, final List<String> keys) {
+        boolean latestValues = cmd.getTimeWindow() <= 0;
         return new FutureCallback<>() {
             @Override
             public void onSuccess(List<TsKvEntry> data) {
@@ -730,7 +756,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update);
+                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update, latestValues);
                             } finally {
                                 subLock.unlock();
                             }
@@ -743,7 +769,7 @@ public class DefaultWebSocketService implements WebSocketService {
                 subLock.lock();
                 try {
                     oldSubService.addSubscription(sub, sessionRef);
-                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data));
+                    sendUpdate(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data), latestValues);
                 } finally {
                     subLock.unlock();
                 }
@@ -851,10 +877,71 @@ public class DefaultWebSocketService implements WebSocketService {
     }
 
     private void sendUpdate(WebSocketSessionRef sessionRef, TelemetrySubscriptionUpdate update) {
-        sendUpdate(sessionRef, update.getSubscriptionId(), update);
+        sendUpdate(sessionRef, update, false);
+    }
+
+    private void sendUpdate(WebSocketSessionRef sessionRef, TelemetrySubscriptionUpdate update, boolean latestValues) {
+        sendUpdate(sessionRef, update.getSubscriptionId(), update, latestValues);
     }
 
     private void sendUpdate(WebSocketSessionRef sessionRef, int cmdId, Object update) {
+        sendUpdate(sessionRef, cmdId, update, false);
+    }
+
+    private void sendUpdate(WebSocketSessionRef sessionRef, int cmdId, Object update, boolean latestValues) {
+        WsSessionMetaData md = coalescingExecutor != null ? wsSessionsMap.get(sessionRef.getSessionId()) : null;
+        if (md != null) {
+            if (WsPendingUpdates.isMergeable(update)) {
+                if (md.getPendingUpdates().add(cmdId, update, latestValues)) {
+                    scheduleFlush(md);
+                }
+                return;
+            }
+            Object pendingUpdate = md.getPendingUpdates().remove(cmdId);
+            if (pendingUpdate != null) {
+                sendUpdateNow(sessionRef, cmdId, pendingUpdate);
+            }
+        }
+        sendUpdateNow(sessionRef, cmdId, update);
+    }
+
+    private void scheduleFlush(WsSessionMetaData md) {
+        coalescingExecutor.schedule(() -> executor.submit(() -> flushUpdates(md)), coalescingWindowMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushUpdates(WsSessionMetaData md) {
+        WebSocketSessionRef sessionRef = md.getSessionRef();
+        if (!wsSessionsMap.containsKey(sessionRef.getSessionId())) {
+            md.getPendingUpdates().drain();
+            return;
+        }
+        if (msgEndpoint.getPendingMsgCount(sessionRef) > coalescingMaxPendingMsgs) {
+            if (md.getPendingUpdates().postpone() > coalescingMaxPostponedWindows) {
+                // the merged time series values keep growing while the client does not keep up, same as the outbound queue limit
+                log.info("{} Session closed due to updates postponed for {} windows", sessionRef, coalescingMaxPostponedWindows);
+                md.getPendingUpdates().drain();
+                close(sessionRef.getSessionId(), CloseStatus.POLICY_VIOLATION.withReason("Max pending updates limit reached!"));
+                return;
+            }
+            // the client does not keep up, the updates are merged for one more window instead of growing the outbound queue
+            scheduleFlush(md);
+            return;
+        }
+        md.getPendingUpdates().drain().forEach((cmdId, update) -> sendUpdateNow(sessionRef, cmdId, update));
+    }
+
+    private void sendUpdateNow(WebSocketSessionRef sessionRef, int cmdId, Object update) {
+        if (sessionRef.isProtoUpdates() && WsProtoUpdateEncoder.isSupported(update)) {
+            // encoded by the endpoint, the other updates of the session are still sent as JSON
+            executor.submit(() -> {
+                try {
+                    msgEndpoint.sendProto(sessionRef, cmdId, update);
+                } catch (IOException e) {
+                    log.warn("[{}] Failed to send reply: {}", sessionRef.getSessionId(), update, e);
+                }
+            });
+            return;
+        }
         try {
             String msg = JacksonUtil.OBJECT_MAPPER.writeValueAsString(update);
             executor.submit(() -> {
@@ -26,9 +26,16 @@ public interface WebSocketMsgEndpoint {
 
     void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException;
 
+    /**
+     * Sends the update as a binary frame of the negotiated sub-protocol, see {@link WsProtoUpdateEncoder#isSupported(Object)}.
+     */
+    void sendProto(WebSocketSessionRef sessionRef, int subscriptionId, Object update) throws IOException;
+
     void sendPing(WebSocketSessionRef sessionRef, long currentTime) throws IOException;
 
     void close(WebSocketSessionRef sessionRef, CloseStatus withReason) throws IOException;
 
     boolean isOpen(String sessionId);
+
+    int getPendingMsgCount(WebSocketSessionRef sessionRef);
 }
@@ -38,8 +38,13 @@ public class WebSocketSessionRef {
     private final InetSocketAddress localAddress;
     private final InetSocketAddress remoteAddress;
     private final WebSocketSessionType sessionType;
+    private final String subProtocol;
     private final AtomicInteger sessionSubIdSeq = new AtomicInteger();
 
+    public boolean isProtoUpdates() {
+        return WsProtoUpdateEncoder.SUB_PROTOCOL.equals(subProtocol);
+    }
+
     public TenantId getTenantId() {
         return securityCtx != null ? securityCtx.getTenantId() : TenantId.SYS_TENANT_ID;
     }
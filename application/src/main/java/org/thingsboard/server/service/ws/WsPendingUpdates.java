@@ -0,0 +1,201 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.query.ComparisonTsValue;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Subscription updates of one session that are waiting to be sent.
+ * <p>
+ * The updates of the same subscription are merged into one: the latest values and the attributes are replaced by the newer ones
+ * and the time series values are appended, so the session receives one message per subscription per coalescing window.
+ * Only the partial updates without errors are merged; the other messages are sent as usual.
+ * The flush is postponed while the client does not keep up, the number of the postponed windows is limited by the caller.
+ */
+public class WsPendingUpdates {
+
+    private final Map<Integer, Object> updates = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private int postponed;
+
+    /**
+     * @return true if the flush of the pending updates is to be scheduled
+     */
+    public synchronized boolean add(int cmdId, Object update) {
+        return add(cmdId, update, false);
+    }
+
+    /**
+     * @param latestValues whether the update is of the latest time series values or attributes subscription,
+     *                     so only the newest value of each key is kept
+     * @return true if the flush of the pending updates is to be scheduled
+     */
+    public synchronized boolean add(int cmdId, Object update, boolean latestValues) {
+        updates.merge(cmdId, update, (previous, newUpdate) -> merge(previous, newUpdate, latestValues));
+        if (flushScheduled) {
+            return false;
+        }
+        flushScheduled = true;
+        return true;
+    }
+
+    /**
+     * @return pending update of the subscription that has to be sent before the non-mergeable message, or null
+     */
+    public synchronized Object remove(int cmdId) {
+        return updates.remove(cmdId);
+    }
+
+    /**
+     * @return number of the windows the flush was postponed for since the last drain
+     */
+    public synchronized int postpone() {
+        return ++postponed;
+    }
+
+    public synchronized Map<Integer, Object> drain() {
+        Map<Integer, Object> result = new LinkedHashMap<>(updates);
+        updates.clear();
+        flushScheduled = false;
+        postponed = 0;
+        return result;
+    }
+
+    public static boolean isMergeable(Object update) {
+        if (update instanceof TelemetrySubscriptionUpdate telemetryUpdate) {
+            return telemetryUpdate.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode() && telemetryUpdate.getData() != null;
+        } else if (update instanceof EntityDataUpdate entityDataUpdate) {
+            return entityDataUpdate.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode() && entityDataUpdate.getData() == null
+                    && entityDataUpdate.getUpdate() != null;
+        }
+        return false;
+    }
+
+    static Object merge(Object previous, Object update, boolean latestValues) {
+        if (previous instanceof TelemetrySubscriptionUpdate previousUpdate && update instanceof TelemetrySubscriptionUpdate telemetryUpdate) {
+            return merge(previousUpdate, telemetryUpdate, latestValues);
+        } else if (previous instanceof EntityDataUpdate previousUpdate && update instanceof EntityDataUpdate entityDataUpdate) {
+            return merge(previousUpdate, entityDataUpdate);
+        }
+        throw new IllegalArgumentException("Can't merge " + previous.getClass().getSimpleName() + " with " + update.getClass().getSimpleName());
+    }
+
+    private static TelemetrySubscriptionUpdate merge(TelemetrySubscriptionUpdate previous, TelemetrySubscriptionUpdate update, boolean latestValues) {
+        Map<String, List<Object>> data = new TreeMap<>(previous.getData());
+        update.getData().forEach((key, values) -> data.merge(key, values, latestValues ? WsPendingUpdates::newest : WsPendingUpdates::append));
+        return new TelemetrySubscriptionUpdate(update.getSubscriptionId(), data);
+    }
+
+    private static List<Object> append(List<Object> previousValues, List<Object> newValues) {
+        List<Object> result = new ArrayList<>(previousValues.size() + newValues.size());
+        result.addAll(previousValues);
+        result.addAll(newValues);
+        return result;
+    }
+
+    private static List<Object> newest(List<Object> previousValues, List<Object> newValues) {
+        Object newest = null;
+        long newestTs = Long.MIN_VALUE;
+        for (List<Object> values : List.of(previousValues, newValues)) {
+            for (Object value : values) {
+                // the values are [ts, value] pairs, the later one wins on the same timestamp
+                long ts = (long) ((Object[]) value)[0];
+                if (newest == null || ts >= newestTs) {
+                    newest = value;
+                    newestTs = ts;
+                }
+            }
+        }
+        List<Object> result = new ArrayList<>(1);
+        result.add(newest);
+        return result;
+    }
+
+    private static EntityDataUpdate merge(EntityDataUpdate previous, EntityDataUpdate update) {
+        Map<EntityId, EntityData> data = new LinkedHashMap<>();
+        for (EntityData entityData : previous.getUpdate()) {
+            data.merge(entityData.getEntityId(), entityData, WsPendingUpdates::merge);
+        }
+        for (EntityData entityData : update.getUpdate()) {
+            data.merge(entityData.getEntityId(), entityData, WsPendingUpdates::merge);
+        }
+        return new EntityDataUpdate(update.getCmdId(), null, new ArrayList<>(data.values()), update.getAllowedEntities());
+    }
+
+    private static EntityData merge(EntityData previous, EntityData update) {
+        Map<EntityKeyType, Map<String, TsValue>> latest = null;
+        if (previous.getLatest() != null || update.getLatest() != null) {
+            latest = new HashMap<>();
+            mergeLatest(latest, previous.getLatest());
+            mergeLatest(latest, update.getLatest());
+        }
+        Map<String, TsValue[]> timeseries = null;
+        if (previous.getTimeseries() != null || update.getTimeseries() != null) {
+            timeseries = new HashMap<>();
+            mergeTimeseries(timeseries, previous.getTimeseries());
+            mergeTimeseries(timeseries, update.getTimeseries());
+        }
+        Map<Integer, ComparisonTsValue> aggLatest = null;
+        if (previous.getAggLatest() != null || update.getAggLatest() != null) {
+            aggLatest = new HashMap<>();
+            if (previous.getAggLatest() != null) {
+                aggLatest.putAll(previous.getAggLatest());
+            }
+            if (update.getAggLatest() != null) {
+                aggLatest.putAll(update.getAggLatest());
+            }
+        }
+        return new EntityData(update.getEntityId(), latest, timeseries, aggLatest);
+    }
+
+    private static void mergeLatest(Map<EntityKeyType, Map<String, TsValue>> result, Map<EntityKeyType, Map<String, TsValue>> latest) {
+        if (latest == null) {
+            return;
+        }
+        latest.forEach((keyType, values) -> {
+            Map<String, TsValue> resultValues = result.computeIfAbsent(keyType, type -> new HashMap<>());
+            values.forEach((key, value) -> resultValues.merge(key, value, (previousValue, newValue) ->
+                    newValue.getTs() >= previousValue.getTs() ? newValue : previousValue));
+        });
+    }
+
+    private static void mergeTimeseries(Map<String, TsValue[]> result, Map<String, TsValue[]> timeseries) {
+        if (timeseries == null) {
+            return;
+        }
+        timeseries.forEach((key, values) -> result.merge(key, values, (previousValues, newValues) -> {
+            TsValue[] merged = new TsValue[previousValues.length + newValues.length];
+            System.arraycopy(previousValues, 0, merged, 0, previousValues.length);
+            System.arraycopy(newValues, 0, merged, previousValues.length, newValues.length);
+            return merged;
+        }));
+    }
+
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.ComparisonTsValue;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.gen.ws.WsProtos;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the subscription updates of one WebSocket session to the binary frames of the "tb-protobuf" sub-protocol.
+ * <p>
+ * Not thread-safe: the frames must be encoded in the order they are sent to the client,
+ * since the dictionary entries are sent only once, in the first frame that uses them.
+ */
+public class WsProtoUpdateEncoder {
+
+    public static final String SUB_PROTOCOL = "tb-protobuf";
+
+    static final int MAX_DICTIONARY_SIZE = 65536;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final int maxDictionarySize;
+    private WsProtos.WsUpdateProto.Builder frame;
+    private boolean dictionaryOverflow;
+
+    public WsProtoUpdateEncoder() {
+        this(MAX_DICTIONARY_SIZE);
+    }
+
+    WsProtoUpdateEncoder(int maxDictionarySize) {
+        this.maxDictionarySize = maxDictionarySize;
+    }
+
+    public static boolean isSupported(Object update) {
+        return update instanceof TelemetrySubscriptionUpdate || update instanceof EntityDataUpdate;
+    }
+
+    public byte[] encode(Object update) {
+        if (!isSupported(update)) {
+            throw new IllegalArgumentException("Not supported update type: " + update.getClass().getSimpleName());
+        }
+        dictionaryOverflow = false;
+        WsProtos.WsUpdateProto result = encodeFrame(update);
+        if (dictionaryOverflow) {
+            // the dictionary is rebuilt from the names of this update only, instead of growing with every new key
+            dictionary.clear();
+            result = encodeFrame(update).toBuilder().setResetDictionary(true).build();
+        }
+        return result.toByteArray();
+    }
+
+    private WsProtos.WsUpdateProto encodeFrame(Object update) {
+        frame = WsProtos.WsUpdateProto.newBuilder();
+        try {
+            if (update instanceof TelemetrySubscriptionUpdate telemetryUpdate) {
+                frame.setTelemetryUpdate(toProto(telemetryUpdate));
+            } else {
+                frame.setEntityDataUpdate(toProto((EntityDataUpdate) update));
+            }
+            return frame.build();
+        } finally {
+            frame = null;
+        }
+    }
+
+    private WsProtos.TelemetryUpdateProto toProto(TelemetrySubscriptionUpdate update) {
+        var builder = WsProtos.TelemetryUpdateProto.newBuilder()
+                .setSubscriptionId(update.getSubscriptionId())
+                .setErrorCode(update.getErrorCode());
+        if (update.getErrorMsg() != null) {
+            builder.setErrorMsg(update.getErrorMsg());
+        }
+        if (update.getData() != null) {
+            update.getData().forEach((key, values) -> {
+                var keyValues = WsProtos.KeyTsValuesProto.newBuilder().setKeyId(getId(key));
+                for (Object value : values) {
+                    Object[] tsValue = (Object[]) value;
+                    var valueProto = WsProtos.TsValueProto.newBuilder().setTs(((Number) tsValue[0]).longValue());
+                    if (tsValue[1] != null) {
+                        valueProto.setValue(tsValue[1].toString());
+                    }
+                    keyValues.addValues(valueProto);
+                }
+                builder.addData(keyValues);
+            });
+        }
+        return builder.build();
+    }
+
+    private WsProtos.EntityDataUpdateProto toProto(EntityDataUpdate update) {
+        var builder = WsProtos.EntityDataUpdateProto.newBuilder()
+                .setCmdId(update.getCmdId())
+                .setErrorCode(update.getErrorCode())
+                .setAllowedEntities(update.getAllowedEntities());
+        if (update.getErrorMsg() != null) {
+            builder.setErrorMsg(update.getErrorMsg());
+        }
+        PageData<EntityData> data = update.getData();
+        if (data != null) {
+            var page = WsProtos.EntityDataPageProto.newBuilder()
+                    .setTotalPages(data.getTotalPages())
+                    .setTotalElements(data.getTotalElements())
+                    .setHasNext(data.hasNext());
+            data.getData().forEach(entityData -> page.addData(toProto(entityData)));
+            builder.setData(page);
+        }
+        List<EntityData> entityUpdates = update.getUpdate();
+        if (entityUpdates != null) {
+            entityUpdates.forEach(entityData -> builder.addUpdate(toProto(entityData)));
+        }
+        return builder.build();
+    }
+
+    private WsProtos.EntityDataProto toProto(EntityData entityData) {
+        var builder = WsProtos.EntityDataProto.newBuilder()
+                .setEntityTypeId(getId(entityData.getEntityId().getEntityType().name()))
+                .setEntityIdMSB(entityData.getEntityId().getId().getMostSignificantBits())
+                .setEntityIdLSB(entityData.getEntityId().getId().getLeastSignificantBits());
+        if (entityData.getLatest() != null) {
+            entityData.getLatest().forEach((keyType, values) -> {
+                var latest = WsProtos.LatestValuesProto.newBuilder().setKeyTypeId(getId(keyType.name()));
+                values.forEach((key, value) -> latest.addValues(WsProtos.KeyTsValuesProto.newBuilder()
+                        .setKeyId(getId(key))
+                        .addValues(toProto(value))));
+                builder.addLatest(latest);
+            });
+        }
+        if (entityData.getTimeseries() != null) {
+            entityData.getTimeseries().forEach((key, values) -> {
+                var keyValues = WsProtos.KeyTsValuesProto.newBuilder().setKeyId(getId(key));
+                for (TsValue value : values) {
+                    keyValues.addValues(toProto(value));
+                }
+                builder.addTimeseries(keyValues);
+            });
+        }
+        if (entityData.getAggLatest() != null) {
+            entityData.getAggLatest().forEach((id, value) -> builder.addAggLatest(toProto(id, value)));
+        }
+        return builder.build();
+    }
+
+    private static WsProtos.AggLatestValueProto toProto(int id, ComparisonTsValue value) {
+        var builder = WsProtos.AggLatestValueProto.newBuilder().setId(id);
+        if (value.getCurrent() != null) {
+            builder.setCurrent(toProto(value.getCurrent()));
+        }
+        if (value.getPrevious() != null) {
+            builder.setPrevious(toProto(value.getPrevious()));
+        }
+        return builder.build();
+    }
+
+    private static WsProtos.TsValueProto toProto(TsValue value) {
+        var builder = WsProtos.TsValueProto.newBuilder().setTs(value.getTs());
+        if (value.getValue() != null) {
+            builder.setValue(value.getValue());
+        }
+        if (value.getCount() != null) {
+            builder.setCount(value.getCount());
+        }
+        return builder.build();
+    }
+
+    private int getId(String name) {
+        Integer id = dictionary.get(name);
+        if (id == null) {
+            if (dictionary.size() >= maxDictionarySize) {
+                dictionaryOverflow = true;
+            }
+            id = dictionary.size();
+            dictionary.put(name, id);
+            frame.addNewEntries(WsProtos.WsDictionaryEntryProto.newBuilder().setId(id).setName(name));
+        }
+        return id;
+    }
+
+}
@@ -27,7 +27,6 @@ import org.thingsboard.server.gen.transport.TransportProtos.CalculatedFieldEntit
 import org.thingsboard.server.gen.transport.TransportProtos.CalculatedFieldIdProto;
 import org.thingsboard.server.gen.transport.TransportProtos.CalculatedFieldStateProto;
 import org.thingsboard.server.gen.transport.TransportProtos.SingleValueArgumentProto;
-import org.thingsboard.server.gen.transport.TransportProtos.TsDoubleValProto;
 import org.thingsboard.server.gen.transport.TransportProtos.TsRollingArgumentProto;
 import org.thingsboard.server.gen.transport.TransportProtos.TsValueProto;
 import org.thingsboard.server.service.cf.ctx.CalculatedFieldEntityCtxId;
@@ -36,9 +35,9 @@ import org.thingsboard.server.service.cf.ctx.state.ScriptCalculatedFieldState;
 import org.thingsboard.server.service.cf.ctx.state.SimpleCalculatedFieldState;
 import org.thingsboard.server.service.cf.ctx.state.SingleValueArgumentEntry;
 import org.thingsboard.server.service.cf.ctx.state.TsRollingArgumentEntry;
+import org.thingsboard.server.service.cf.ctx.state.TsRollingWindow;
 
 import java.util.Optional;
-import java.util.TreeMap;
 import java.util.UUID;
 
 public class CalculatedFieldUtils {
@@ -103,7 +102,14 @@ public class CalculatedFieldUtils {
                 .setLimit(entry.getLimit())
                 .setTimeWindow(entry.getTimeWindow());
 
-        entry.getTsRecords().forEach((ts, value) -> builder.addTsValue(TsDoubleValProto.newBuilder().setTs(ts).setValue(value).build()));
+        TsRollingWindow window = entry.getWindow();
+        long prevTs = 0;
+        for (int i = 0; i < window.size(); i++) {
+            long ts = window.getTs(i);
+            builder.addTsDelta(ts - prevTs);
+            builder.addValue(window.getValue(i));
+            prevTs = ts;
+        }
 
         return builder.build();
     }
@@ -144,9 +150,14 @@ public class CalculatedFieldUtils {
     }
 
     public static TsRollingArgumentEntry fromRollingArgumentProto(TsRollingArgumentProto proto) {
-        TreeMap<Long, Double> tsRecords = new TreeMap<>();
-        proto.getTsValueList().forEach(tsValueProto -> tsRecords.put(tsValueProto.getTs(), tsValueProto.getValue()));
-        return new TsRollingArgumentEntry(tsRecords, proto.getLimit(), proto.getTimeWindow());
+        TsRollingWindow window = new TsRollingWindow(proto.getTsValueCount() + proto.getValueCount());
+        proto.getTsValueList().forEach(tsValueProto -> window.put(tsValueProto.getTs(), tsValueProto.getValue()));
+        long ts = 0;
+        for (int i = 0; i < proto.getValueCount(); i++) {
+            ts += proto.getTsDelta(i);
+            window.put(ts, proto.getValue(i));
+        }
+        return new TsRollingArgumentEntry(window, proto.getLimit(), proto.getTimeWindow());
     }
 
 }
@@ -16,15 +16,21 @@
 package org.thingsboard.server.utils;
 
 import lombok.SneakyThrows;
+import org.rocksdb.FlushOptions;
 import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Slice;
+import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
 
 public class TbRocksDb {
 
@@ -57,15 +63,124 @@ public class TbRocksDb {
         }
     }
 
+    /**
+     * Iterates over the keys from the start key inclusive to the end key exclusive.
+     * The range is not limited from the side of the null key.
+     */
+    public void forEach(String startKey, String endKey, BiConsumer<String, byte[]> processor) {
+        try (ReadOptions readOptions = new ReadOptions();
+             Slice upperBound = endKey != null ? new Slice(endKey.getBytes(StandardCharsets.UTF_8)) : null) {
+            if (upperBound != null) {
+                readOptions.setIterateUpperBound(upperBound);
+            }
+            try (RocksIterator iterator = db.newIterator(readOptions)) {
+                if (startKey != null) {
+                    iterator.seek(startKey.getBytes(StandardCharsets.UTF_8));
+                } else {
+                    iterator.seekToFirst();
+                }
+                for (; iterator.isValid(); iterator.next()) {
+                    String key = new String(iterator.key(), StandardCharsets.UTF_8);
+                    processor.accept(key, iterator.value());
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterates over the keys starting with the prefix in the lexicographical order of the keys,
+     * until the processor returns false.
+     */
+    public void forEach(String prefix, BiPredicate<String, byte[]> processor) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        try (RocksIterator iterator = db.newIterator()) {
+            for (iterator.seek(prefixBytes); iterator.isValid(); iterator.next()) {
+                byte[] keyBytes = iterator.key();
+                if (!startsWith(keyBytes, prefixBytes)) {
+                    break;
+                }
+                if (!processor.test(new String(keyBytes, StandardCharsets.UTF_8), iterator.value())) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the first key that is equal to or greater than the start key, or null if there is no such key
+     */
+    public String ceilingKey(String startKey) {
+        try (RocksIterator iterator = db.newIterator()) {
+            iterator.seek(startKey.getBytes(StandardCharsets.UTF_8));
+            return iterator.isValid() ? new String(iterator.key(), StandardCharsets.UTF_8) : null;
+        }
+    }
+
     @SneakyThrows
     public void delete(String key) {
         db.delete(writeOptions, key.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Removes the keys in the range from the start key inclusive to the end key exclusive.
+     */
+    @SneakyThrows
+    public void deleteRange(String startKey, String endKey) {
+        db.deleteRange(writeOptions, startKey.getBytes(StandardCharsets.UTF_8), endKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Atomically applies the updates in a single write. The key with the null value is removed.
+     */
+    @SneakyThrows
+    public void write(Map<String, byte[]> updates) {
+        try (WriteBatch batch = new WriteBatch()) {
+            for (Map.Entry<String, byte[]> update : updates.entrySet()) {
+                byte[] key = update.getKey().getBytes(StandardCharsets.UTF_8);
+                if (update.getValue() != null) {
+                    batch.put(key, update.getValue());
+                } else {
+                    batch.delete(key);
+                }
+            }
+            db.write(writeOptions, batch);
+        }
+    }
+
+    /**
+     * Flushes the write-ahead log to the disk.
+     */
+    @SneakyThrows
+    public void syncWal() {
+        db.syncWal();
+    }
+
+    /**
+     * Flushes the memtables to the disk, which persists the writes done with the disabled write-ahead log.
+     */
+    @SneakyThrows
+    public void flush() {
+        try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+            db.flush(flushOptions);
+        }
+    }
+
     public void close() {
         if (db != null) {
             db.close();
         }
     }
 
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
\ No newline at end of file
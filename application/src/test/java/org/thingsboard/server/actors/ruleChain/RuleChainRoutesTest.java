@@ -0,0 +1,144 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+
+public class RuleChainRoutesTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final RuleChainId ruleChainId = new RuleChainId(UUID.randomUUID());
+    private final RuleNodeId firstId = new RuleNodeId(UUID.randomUUID());
+    private final RuleNodeId secondId = new RuleNodeId(UUID.randomUUID());
+    private final RuleNodeId thirdId = new RuleNodeId(UUID.randomUUID());
+
+    private TbActorRef chainActor;
+    private TbActorRef secondActor;
+    private RuleNodeCtx firstCtx;
+    private RuleChainRoutes routes;
+
+    @BeforeEach
+    public void setUp() {
+        chainActor = mock(TbActorRef.class);
+        secondActor = mock(TbActorRef.class);
+        firstCtx = new RuleNodeCtx(tenantId, chainActor, mock(TbActorRef.class), ruleNode(firstId));
+        RuleNodeCtx secondCtx = new RuleNodeCtx(tenantId, chainActor, secondActor, ruleNode(secondId));
+        RuleNodeCtx thirdCtx = new RuleNodeCtx(tenantId, chainActor, mock(TbActorRef.class), ruleNode(thirdId));
+        routes = new RuleChainRoutes(Map.of(firstId, firstCtx, secondId, secondCtx, thirdId, thirdCtx), Map.of(
+                firstId, List.of(
+                        new RuleNodeRelation(firstId, secondId, TbNodeConnectionType.SUCCESS),
+                        new RuleNodeRelation(firstId, thirdId, TbNodeConnectionType.FAILURE),
+                        new RuleNodeRelation(firstId, ruleChainId, TbNodeConnectionType.OTHER)),
+                secondId, List.of(
+                        new RuleNodeRelation(secondId, thirdId, TbNodeConnectionType.TRUE),
+                        new RuleNodeRelation(secondId, firstId, TbNodeConnectionType.TRUE)),
+                thirdId, List.of()));
+    }
+
+    @Test
+    public void givenRelationTypes_whenGetRelations_thenMatchedIgnoringCase() {
+        assertThat(routes.getRelations(firstId, Set.of("success"))).extracting(RuleNodeRelation::getOut).containsExactly(secondId);
+        assertThat(routes.getRelations(firstId, Set.of(TbNodeConnectionType.FAILURE, TbNodeConnectionType.OTHER)))
+                .extracting(RuleNodeRelation::getOut).containsExactly(thirdId, ruleChainId);
+        assertThat(routes.getRelations(firstId, Set.of(TbNodeConnectionType.TRUE))).isEmpty();
+        assertThat(routes.getRelations(firstId, null)).hasSize(3);
+        assertThat(routes.getRelations(new RuleNodeId(UUID.randomUUID()), Set.of(TbNodeConnectionType.SUCCESS))).isNull();
+    }
+
+    @Test
+    public void givenRelationTypes_whenGetSingleRuleNodeRelation_thenOnlySingleRuleNodeTargetIsReturned() {
+        assertThat(routes.getSingleRuleNodeRelation(firstId, Set.of(TbNodeConnectionType.SUCCESS)).getOut()).isEqualTo(secondId);
+        assertThat(routes.getSingleRuleNodeRelation(firstId, Set.of(TbNodeConnectionType.OTHER))).isNull();
+        assertThat(routes.getSingleRuleNodeRelation(secondId, Set.of(TbNodeConnectionType.TRUE))).isNull();
+        assertThat(routes.getSingleRuleNodeRelation(thirdId, Set.of(TbNodeConnectionType.SUCCESS))).isNull();
+    }
+
+    @Test
+    public void givenSingleRuleNodeTarget_whenTellNext_thenMsgIsPassedDirectlyToRuleNode() {
+        ActorSystemContext mainCtx = mock(ActorSystemContext.class);
+        given(mainCtx.resolve(any(TenantId.class), any(), any(TbMsg.class))).willReturn(new TopicPartitionInfo(DataConstants.MAIN_QUEUE_TOPIC, tenantId, 0, true));
+        TbMsg msg = TbMsg.newMsg()
+                .type(TbMsgType.POST_TELEMETRY_REQUEST)
+                .originator(tenantId)
+                .copyMetaData(TbMsgMetaData.EMPTY)
+                .data(TbMsg.EMPTY_STRING)
+                .build();
+
+        new DefaultTbContext(mainCtx, "Test rule chain", firstCtx, routes).tellSuccess(msg);
+
+        ArgumentCaptor<RuleChainToRuleNodeMsg> captor = ArgumentCaptor.forClass(RuleChainToRuleNodeMsg.class);
+        then(secondActor).should().tell(captor.capture());
+        assertThat(captor.getValue().getMsg()).isSameAs(msg);
+        assertThat(captor.getValue().getFromRelationType()).isEqualTo(TbNodeConnectionType.SUCCESS);
+        then(chainActor).should(never()).tell(any());
+
+        new DefaultTbContext(mainCtx, "Test rule chain", firstCtx, routes).tellNext(msg, TbNodeConnectionType.OTHER);
+        then(chainActor).should().tell(any(RuleNodeToRuleChainTellNextMsg.class));
+    }
+
+    @Test
+    public void givenInvalidatedRoutes_whenTellNext_thenMsgIsRoutedByRuleChain() {
+        ActorSystemContext mainCtx = mock(ActorSystemContext.class);
+        given(mainCtx.resolve(any(TenantId.class), any(), any(TbMsg.class))).willReturn(new TopicPartitionInfo(DataConstants.MAIN_QUEUE_TOPIC, tenantId, 0, true));
+        TbMsg msg = TbMsg.newMsg()
+                .type(TbMsgType.POST_TELEMETRY_REQUEST)
+                .originator(tenantId)
+                .copyMetaData(TbMsgMetaData.EMPTY)
+                .data(TbMsg.EMPTY_STRING)
+                .build();
+        DefaultTbContext ctx = new DefaultTbContext(mainCtx, "Test rule chain", firstCtx, routes);
+
+        routes.invalidate();
+        ctx.tellSuccess(msg);
+
+        assertThat(routes.isValid()).isFalse();
+        then(secondActor).should(never()).tell(any());
+        then(chainActor).should().tell(any(RuleNodeToRuleChainTellNextMsg.class));
+    }
+
+    private RuleNode ruleNode(RuleNodeId ruleNodeId) {
+        RuleNode ruleNode = new RuleNode(ruleNodeId);
+        ruleNode.setRuleChainId(ruleChainId);
+        return ruleNode;
+    }
+
+}
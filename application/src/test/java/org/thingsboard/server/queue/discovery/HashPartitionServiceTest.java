@@ -394,6 +394,73 @@ public class HashPartitionServiceTest {
         });
     }
 
+    @Test
+    public void testConsistentHashing_whenServerAddedOrRemoved_thenOnlyFewPartitionsMoved() {
+        enableConsistentHashing(partitionService);
+        int partitions = 100;
+        QueueKey queueKey = new QueueKey(ServiceType.TB_RULE_ENGINE, new TenantId(UUID.randomUUID()));
+        List<ServiceInfo> servers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            servers.add(ServiceInfo.newBuilder().setServiceId("tb-rule-engine-" + i).build());
+        }
+
+        ServiceInfo[] assignment = partitionService.assignByConsistentHash(servers, queueKey, partitions, new HashMap<>(), new HashMap<>());
+        assertThat(assignment).doesNotContainNull();
+        assertThat(Stream.of(assignment).collect(Collectors.groupingBy(ServiceInfo::getServiceId, Collectors.counting())).values())
+                .hasSize(5).allMatch(load -> load <= 25);
+
+        List<ServiceInfo> scaledOut = new ArrayList<>(servers);
+        scaledOut.add(ServiceInfo.newBuilder().setServiceId("tb-rule-engine-5").build());
+        ServiceInfo[] scaledOutAssignment = partitionService.assignByConsistentHash(scaledOut, queueKey, partitions, new HashMap<>(), new HashMap<>());
+        // ideally 1/6 of the partitions move to the new server
+        assertThat(countMoved(assignment, scaledOutAssignment)).isLessThanOrEqualTo(30);
+
+        List<ServiceInfo> scaledIn = new ArrayList<>(servers);
+        ServiceInfo removed = scaledIn.remove(2);
+        ServiceInfo[] scaledInAssignment = partitionService.assignByConsistentHash(scaledIn, queueKey, partitions, new HashMap<>(), new HashMap<>());
+        long ownedByRemoved = Stream.of(assignment).filter(removed::equals).count();
+        // ideally only the partitions of the removed server move
+        assertThat(countMoved(assignment, scaledInAssignment)).isLessThanOrEqualTo(ownedByRemoved + 10);
+    }
+
+    @Test
+    public void testConsistentHashing_partitionsAreAssignedToExactlyOneServer() {
+        List<ServiceInfo> servers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            servers.add(ServiceInfo.newBuilder()
+                    .setServiceId("tb-core-" + i)
+                    .addAllServiceTypes(List.of(ServiceType.TB_CORE.name()))
+                    .build());
+        }
+
+        List<Integer> allPartitions = new ArrayList<>();
+        for (ServiceInfo server : servers) {
+            HashPartitionService service = createPartitionService();
+            enableConsistentHashing(service);
+            service.recalculatePartitions(server, servers.stream().filter(other -> !other.equals(server)).toList());
+            List<Integer> partitions = service.getMyPartitions(new QueueKey(ServiceType.TB_CORE));
+            assertThat(partitions).isNotEmpty().hasSizeLessThanOrEqualTo(4);
+            allPartitions.addAll(partitions);
+        }
+        assertThat(allPartitions).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    private static long countMoved(ServiceInfo[] before, ServiceInfo[] after) {
+        long moved = 0;
+        for (int i = 0; i < before.length; i++) {
+            if (!before[i].equals(after[i])) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private static void enableConsistentHashing(HashPartitionService partitionService) {
+        ReflectionTestUtils.setField(partitionService, "consistentHashingEnabled", true);
+        ReflectionTestUtils.setField(partitionService, "virtualNodes", 128);
+        ReflectionTestUtils.setField(partitionService, "loadFactor", 1.25);
+    }
+
     private void verifyPartitionChangeEvent(Predicate<PartitionChangeEvent> predicate) {
         verify(applicationEventPublisher).publishEvent(argThat(event -> event instanceof PartitionChangeEvent && predicate.test((PartitionChangeEvent) event)));
     }
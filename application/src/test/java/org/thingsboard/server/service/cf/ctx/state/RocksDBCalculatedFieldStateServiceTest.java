@@ -0,0 +1,196 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cf.ctx.state;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.CalculatedFieldId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.queue.TbCallback;
+import org.thingsboard.server.gen.transport.TransportProtos.CalculatedFieldStateProto;
+import org.thingsboard.server.queue.common.consumer.PartitionedQueueConsumerManager;
+import org.thingsboard.server.service.cf.CfRocksDb;
+import org.thingsboard.server.service.cf.ctx.CalculatedFieldEntityCtxId;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.thingsboard.server.utils.CalculatedFieldUtils.fromProto;
+import static org.thingsboard.server.utils.CalculatedFieldUtils.toProto;
+
+public class RocksDBCalculatedFieldStateServiceTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+
+    private CfRocksDb cfRocksDb;
+    private RocksDBCalculatedFieldStateService stateService;
+    private final Map<CalculatedFieldEntityCtxId, CalculatedFieldStateProto> restoredStates = new ConcurrentHashMap<>();
+
+    @AfterEach
+    void tearDown() {
+        if (stateService != null) {
+            stateService.stop();
+        }
+        cfRocksDb.close();
+    }
+
+    @Test
+    void givenSeveralUpdatesOfState_whenBatchFlushed_thenLatestStateIsWrittenAndAllCallbacksCompleted() throws Exception {
+        createStateService(CfRocksDb.Durability.SYNC, 1000);
+        CalculatedFieldEntityCtxId stateId = createStateId();
+        CalculatedFieldEntityCtxId removedStateId = createStateId();
+        cfRocksDb.put(removedStateId.toKey(), createState(removedStateId, "SIMPLE").toByteArray());
+        TbCallback first = mock(TbCallback.class);
+        TbCallback second = mock(TbCallback.class);
+        TbCallback removed = mock(TbCallback.class);
+
+        stateService.doPersist(stateId, createState(stateId, "SIMPLE"), first);
+        stateService.doPersist(stateId, createState(stateId, "SCRIPT"), second);
+        stateService.doRemove(removedStateId, removed);
+
+        verify(first, never()).onSuccess();
+        assertThat(readStates()).containsOnlyKeys(removedStateId.toKey());
+
+        stateService.flushBatch();
+
+        verify(first).onSuccess();
+        verify(second).onSuccess();
+        verify(removed).onSuccess();
+        Map<String, byte[]> states = readStates();
+        assertThat(states).containsOnlyKeys(stateId.toKey());
+        assertThat(CalculatedFieldStateProto.parseFrom(states.get(stateId.toKey())).getType()).isEqualTo("SCRIPT");
+    }
+
+    @Test
+    void givenBatchMaxSizeReached_whenPersist_thenBatchIsWrittenWithoutWaitingForInterval() throws Exception {
+        createStateService(CfRocksDb.Durability.SYNC, 2);
+        TbCallback callback = mock(TbCallback.class);
+
+        CalculatedFieldEntityCtxId firstId = createStateId();
+        stateService.doPersist(firstId, createState(firstId, "SIMPLE"), callback);
+        CalculatedFieldEntityCtxId secondId = createStateId();
+        stateService.doPersist(secondId, createState(secondId, "SIMPLE"), callback);
+
+        await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> verify(callback, times(2)).onSuccess());
+        assertThat(readStates()).containsOnlyKeys(firstId.toKey(), secondId.toKey());
+    }
+
+    @Test
+    void givenStatesOfManyCalculatedFields_whenRestore_thenAllStatesAreRestored() throws Exception {
+        createStateService(CfRocksDb.Durability.SYNC, 1000);
+        Map<CalculatedFieldEntityCtxId, CalculatedFieldStateProto> states = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            CalculatedFieldEntityCtxId stateId = createStateId();
+            CalculatedFieldStateProto state = createState(stateId, "SIMPLE");
+            states.put(stateId, state);
+            cfRocksDb.put(stateId.toKey(), state.toByteArray());
+        }
+        // keys outside of the hex digit ranges
+        CalculatedFieldEntityCtxId firstStateId = createStateId();
+        states.put(firstStateId, createState(firstStateId, "SIMPLE"));
+        cfRocksDb.put("-" + firstStateId.toKey(), states.get(firstStateId).toByteArray());
+        CalculatedFieldEntityCtxId lastStateId = createStateId();
+        states.put(lastStateId, createState(lastStateId, "SIMPLE"));
+        cfRocksDb.put("~" + lastStateId.toKey(), states.get(lastStateId).toByteArray());
+
+        stateService.restore(Set.of());
+
+        assertThat(restoredStates).isEqualTo(states);
+    }
+
+    @Test
+    void givenCheckpointDurability_whenReopened_thenWrittenStatesArePresent() throws Exception {
+        createStateService(CfRocksDb.Durability.CHECKPOINT, 1000);
+        CalculatedFieldEntityCtxId stateId = createStateId();
+        TbCallback callback = mock(TbCallback.class);
+        stateService.doPersist(stateId, createState(stateId, "SIMPLE"), callback);
+
+        stateService.stop();
+        stateService = null;
+        cfRocksDb.close();
+        cfRocksDb = new CfRocksDb(tempDir.resolve("cf_states").toString(), CfRocksDb.Durability.CHECKPOINT);
+
+        verify(callback).onSuccess();
+        assertThat(readStates()).containsOnlyKeys(stateId.toKey());
+    }
+
+    @Test
+    void givenStoppedService_whenPersist_thenCallbackFailsAndStateIsNotWritten() throws Exception {
+        createStateService(CfRocksDb.Durability.SYNC, 1);
+        stateService.stop();
+        CalculatedFieldEntityCtxId stateId = createStateId();
+        TbCallback callback = mock(TbCallback.class);
+
+        stateService.doPersist(stateId, createState(stateId, "SIMPLE"), callback);
+        stateService.doRemove(stateId, callback);
+
+        verify(callback, times(2)).onFailure(any(IllegalStateException.class));
+        verify(callback, never()).onSuccess();
+        assertThat(readStates()).isEmpty();
+    }
+
+    private void createStateService(CfRocksDb.Durability durability, int batchMaxSize) throws Exception {
+        cfRocksDb = new CfRocksDb(tempDir.resolve("cf_states").toString(), durability);
+        stateService = new RocksDBCalculatedFieldStateService(cfRocksDb) {
+            @Override
+            protected void processRestoredState(CalculatedFieldStateProto stateMsg) {
+                restoredStates.put(fromProto(stateMsg.getId()), stateMsg);
+            }
+        };
+        ReflectionTestUtils.setField(stateService, "batchIntervalMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(stateService, "batchMaxSize", batchMaxSize);
+        ReflectionTestUtils.setField(stateService, "syncIntervalMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(stateService, "restoreThreads", 4);
+        ReflectionTestUtils.invokeMethod(stateService, "initScheduler");
+        stateService.init(mock(PartitionedQueueConsumerManager.class));
+    }
+
+    private CalculatedFieldEntityCtxId createStateId() {
+        return new CalculatedFieldEntityCtxId(tenantId, new CalculatedFieldId(UUID.randomUUID()), new DeviceId(UUID.randomUUID()));
+    }
+
+    private CalculatedFieldStateProto createState(CalculatedFieldEntityCtxId stateId, String type) {
+        return CalculatedFieldStateProto.newBuilder()
+                .setId(toProto(stateId))
+                .setType(type)
+                .build();
+    }
+
+    private Map<String, byte[]> readStates() {
+        Map<String, byte[]> states = new HashMap<>();
+        cfRocksDb.forEach(states::put);
+        return states;
+    }
+
+}
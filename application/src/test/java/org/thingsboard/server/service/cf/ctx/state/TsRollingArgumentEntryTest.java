@@ -17,8 +17,13 @@ package org.thingsboard.server.service.cf.ctx.state;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.thingsboard.script.api.tbel.TbelCfTsDoubleVal;
+import org.thingsboard.script.api.tbel.TbelCfTsRollingArg;
 import org.thingsboard.server.common.data.kv.DoubleDataEntry;
 import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.gen.transport.TransportProtos.TsDoubleValProto;
+import org.thingsboard.server.gen.transport.TransportProtos.TsRollingArgumentProto;
+import org.thingsboard.server.utils.CalculatedFieldUtils;
 
 import java.util.Map;
 import java.util.TreeMap;
@@ -100,6 +105,54 @@ public class TsRollingArgumentEntryTest {
         ));
     }
 
+    @Test
+    void testToTbelCfArg() {
+        entry.updateEntry(new SingleValueArgumentEntry(ts - 10, new StringDataEntry("key", "string"), 123L));
+
+        TbelCfTsRollingArg arg = (TbelCfTsRollingArg) entry.toTbelCfArg();
+
+        assertThat(arg.getValues()).containsExactly(
+                new TbelCfTsDoubleVal(ts - 40, 10.0),
+                new TbelCfTsDoubleVal(ts - 30, 12.0),
+                new TbelCfTsDoubleVal(ts - 20, 17.0),
+                new TbelCfTsDoubleVal(ts - 10, Double.NaN)
+        );
+        assertThat(arg.sum()).isEqualTo(39.0);
+        assertThat(arg.sum(false)).isNaN();
+        assertThat(arg.count()).isEqualTo(3);
+        assertThat(arg.count(false)).isEqualTo(4);
+        assertThat(arg.min()).isEqualTo(10.0);
+        assertThat(arg.max()).isEqualTo(17.0);
+        assertThat(arg.mean()).isEqualTo(13.0);
+    }
+
+    @Test
+    void testProtoRoundTrip() {
+        TsRollingArgumentProto proto = CalculatedFieldUtils.toRollingArgumentProto("key", entry);
+
+        assertThat(proto.getTsValueCount()).isZero();
+        assertThat(proto.getTsDeltaList()).containsExactly(ts - 40, 10L, 10L);
+        TsRollingArgumentEntry restored = CalculatedFieldUtils.fromRollingArgumentProto(proto);
+        assertThat(restored.getLimit()).isEqualTo(5);
+        assertThat(restored.getTimeWindow()).isEqualTo(30000L);
+        assertThat(restored.getTsRecords()).isEqualTo(entry.getTsRecords());
+    }
+
+    @Test
+    void testFromLegacyProto() {
+        TsRollingArgumentProto proto = TsRollingArgumentProto.newBuilder()
+                .setKey("key")
+                .setLimit(5)
+                .setTimeWindow(30000L)
+                .addTsValue(TsDoubleValProto.newBuilder().setTs(ts - 20).setValue(2.0).build())
+                .addTsValue(TsDoubleValProto.newBuilder().setTs(ts - 10).setValue(3.0).build())
+                .build();
+
+        TsRollingArgumentEntry restored = CalculatedFieldUtils.fromRollingArgumentProto(proto);
+
+        assertThat(restored.getTsRecords()).isEqualTo(Map.of(ts - 20, 2.0, ts - 10, 3.0));
+    }
+
     @Test
     void testPerformCalculationWhenArgumentsMoreThanLimit() {
         TsRollingArgumentEntry newEntry = new TsRollingArgumentEntry();
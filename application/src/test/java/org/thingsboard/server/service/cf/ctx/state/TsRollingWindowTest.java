@@ -0,0 +1,138 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cf.ctx.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TsRollingWindowTest {
+
+    @Test
+    void givenValuesAppendedAndRemoved_whenBufferWraps_thenOrderAndAggregatesAreKept() {
+        TsRollingWindow window = new TsRollingWindow(4);
+        for (int i = 0; i < 10; i++) {
+            window.put(i, i);
+            if (window.size() > 3) {
+                window.removeFirst();
+            }
+        }
+
+        assertThat(window.copyTimestamps()).containsExactly(7, 8, 9);
+        assertThat(window.copyValues()).containsExactly(7.0, 8.0, 9.0);
+        assertThat(window.getSum()).isEqualTo(24.0);
+    }
+
+    @Test
+    void givenOlderAndSameTsValues_whenPut_thenInsertedInOrderOrReplaced() {
+        TsRollingWindow window = new TsRollingWindow(2);
+        window.put(10, 1.0);
+        window.put(30, 3.0);
+        window.put(20, 2.0);
+        window.put(5, Double.NaN);
+        window.put(30, 4.0);
+
+        assertThat(window.copyTimestamps()).containsExactly(5, 10, 20, 30);
+        assertThat(window.copyValues()).containsExactly(Double.NaN, 1.0, 2.0, 4.0);
+        assertThat(window.getNanCount()).isEqualTo(1);
+        assertThat(window.getSum()).isEqualTo(7.0);
+
+        window.removeOlderThan(20);
+
+        assertThat(window.copyTimestamps()).containsExactly(20, 30);
+        assertThat(window.getNanCount()).isZero();
+        assertThat(window.getSum()).isEqualTo(6.0);
+    }
+
+    @Test
+    void givenRandomUpdates_whenGetAggregates_thenSameAsCalculatedFromValues() {
+        Random random = new Random(42);
+        TsRollingWindow window = new TsRollingWindow();
+        TreeMap<Long, Double> expected = new TreeMap<>();
+        for (int i = 0; i < 10000; i++) {
+            long ts = i + random.nextInt(20);
+            double value = random.nextInt(50) == 0 ? Double.NaN : random.nextDouble() * 100 - 50;
+            window.put(ts, value);
+            expected.put(ts, value);
+            if (window.size() > 100) {
+                window.removeFirst();
+                expected.pollFirstEntry();
+            }
+        }
+
+        assertThat(window.size()).isEqualTo(expected.size());
+        assertThat(window.copyTimestamps()).containsExactly(expected.keySet().stream().mapToLong(Long::longValue).toArray());
+        double[] values = expected.values().stream().filter(value -> !value.isNaN()).mapToDouble(Double::doubleValue).toArray();
+        assertThat(window.getNanCount()).isEqualTo(expected.size() - values.length);
+        // DoubleStream.sum is compensated as well
+        assertThat(window.getSum()).isCloseTo(Arrays.stream(values).sum(), within(1e-9));
+    }
+
+    @Test
+    void givenValuesRemoved_whenGetSum_thenRoundingErrorsAreCompensated() {
+        TsRollingWindow window = new TsRollingWindow();
+        window.put(1, 0.1);
+        window.put(2, 0.2);
+        window.put(3, 0.3);
+        assertThat(window.getSum()).isEqualTo(0.6);
+
+        window.removeFirst();
+
+        assertThat(window.getSum()).isEqualTo(0.5);
+        window.put(4, 0.4);
+        assertThat(window.getSum()).isEqualTo(0.9);
+        window.put(3, 0.7);
+        assertThat(window.getSum()).isEqualTo(1.3);
+    }
+
+    @Test
+    void givenLargeValueRemoved_whenGetSum_thenSmallValuesAreNotLost() {
+        TsRollingWindow window = new TsRollingWindow();
+        window.put(0, 1e16);
+        for (int i = 1; i <= 10; i++) {
+            window.put(i, 1.0);
+        }
+
+        window.removeFirst();
+
+        assertThat(window.getSum()).isEqualTo(10.0);
+    }
+
+    @Test
+    void givenInfiniteValues_whenPutAndRemoved_thenSumIsRestored() {
+        TsRollingWindow window = new TsRollingWindow();
+        window.put(1, Double.POSITIVE_INFINITY);
+        window.put(2, 1.5);
+        assertThat(window.getSum()).isEqualTo(Double.POSITIVE_INFINITY);
+
+        window.put(3, Double.NEGATIVE_INFINITY);
+        assertThat(window.getSum()).isNaN();
+
+        window.removeFirst();
+        assertThat(window.getSum()).isEqualTo(Double.NEGATIVE_INFINITY);
+
+        window.removeFirst();
+        window.removeFirst();
+        window.put(4, 2.5);
+        assertThat(window.getSum()).isEqualTo(2.5);
+    }
+
+}
@@ -24,6 +24,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.cache.TbTransactionalCache;
 import org.thingsboard.server.cluster.TbClusterService;
@@ -39,6 +40,7 @@ import org.thingsboard.server.common.data.id.EdgeId;
 import org.thingsboard.server.common.data.id.QueueId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
 import org.thingsboard.server.common.data.queue.Queue;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
@@ -410,6 +412,51 @@ public class DefaultTbClusterServiceTest {
         verify(deviceProfileCache, times(1)).get(tenantId, deviceProfileId);
     }
 
+    @Test
+    public void testDeviceCreatedAndDeletedEventsAreBroadcastToCoreWhenIncrementalRefreshEnabled() {
+        when(partitionService.getAllServiceIds(ServiceType.TB_RULE_ENGINE)).thenReturn(Sets.newHashSet(RULE_ENGINE));
+        when(partitionService.getAllServiceIds(ServiceType.TB_CORE)).thenReturn(Sets.newHashSet(CORE));
+
+        TbQueueProducer<TbProtoQueueMsg<TransportProtos.ToRuleEngineNotificationMsg>> tbREQueueProducer = mock(TbQueueProducer.class);
+        TbQueueProducer<TbProtoQueueMsg<TransportProtos.ToCoreNotificationMsg>> tbCoreQueueProducer = mock(TbQueueProducer.class);
+
+        when(producerProvider.getRuleEngineNotificationsMsgProducer()).thenReturn(tbREQueueProducer);
+        when(producerProvider.getTbCoreNotificationsMsgProducer()).thenReturn(tbCoreQueueProducer);
+
+        TenantId tenantId = new TenantId(UUID.randomUUID());
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+        ReflectionTestUtils.setField(clusterService, "incrementalRefreshEnabled", true);
+        try {
+            clusterService.broadcastEntityStateChangeEvent(tenantId, deviceId, ComponentLifecycleEvent.CREATED);
+            clusterService.broadcastEntityStateChangeEvent(tenantId, deviceId, ComponentLifecycleEvent.DELETED);
+        } finally {
+            ReflectionTestUtils.setField(clusterService, "incrementalRefreshEnabled", false);
+        }
+
+        verify(tbCoreQueueProducer, times(2))
+                .send(eq(topicService.getNotificationsTopic(ServiceType.TB_CORE, CORE)), any(TbProtoQueueMsg.class), isNull());
+        verify(tbREQueueProducer, times(2))
+                .send(eq(topicService.getNotificationsTopic(ServiceType.TB_RULE_ENGINE, RULE_ENGINE)), any(TbProtoQueueMsg.class), isNull());
+    }
+
+    @Test
+    public void testDeviceCreatedEventIsNotBroadcastToCoreWhenIncrementalRefreshDisabled() {
+        when(partitionService.getAllServiceIds(ServiceType.TB_RULE_ENGINE)).thenReturn(Sets.newHashSet(RULE_ENGINE));
+        when(partitionService.getAllServiceIds(ServiceType.TB_CORE)).thenReturn(Sets.newHashSet(CORE));
+
+        TbQueueProducer<TbProtoQueueMsg<TransportProtos.ToRuleEngineNotificationMsg>> tbREQueueProducer = mock(TbQueueProducer.class);
+
+        when(producerProvider.getRuleEngineNotificationsMsgProducer()).thenReturn(tbREQueueProducer);
+
+        clusterService.broadcastEntityStateChangeEvent(new TenantId(UUID.randomUUID()), new DeviceId(UUID.randomUUID()), ComponentLifecycleEvent.CREATED);
+
+        verify(topicService, never()).getNotificationsTopic(eq(ServiceType.TB_CORE), any());
+        verify(producerProvider, never()).getTbCoreNotificationsMsgProducer();
+        verify(tbREQueueProducer, times(1))
+                .send(eq(topicService.getNotificationsTopic(ServiceType.TB_RULE_ENGINE, RULE_ENGINE)), any(TbProtoQueueMsg.class), isNull());
+    }
+
     @Test
     public void testGetRuleEngineProfileForUpdatedAndDeletedAsset() {
         AssetId assetId = new AssetId(UUID.randomUUID());
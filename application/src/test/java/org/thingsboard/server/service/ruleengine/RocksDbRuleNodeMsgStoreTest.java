@@ -0,0 +1,146 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ruleengine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RocksDbRuleNodeMsgStoreTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private RocksDbRuleNodeMsgStore msgStore;
+
+    private final RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+    private final RuleNodeId otherRuleNodeId = new RuleNodeId(UUID.randomUUID());
+
+    @BeforeEach
+    void setUp() throws Exception {
+        msgStore = new RocksDbRuleNodeMsgStore(tempDir.resolve("rule_node_msgs").toString(), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        msgStore.close();
+    }
+
+    @Test
+    void givenStoredMsgs_whenForEachWithPrefix_thenMsgsOfRuleNodeReturnedInKeyOrder() {
+        TbMsg first = createMsg(DataConstants.HP_QUEUE_NAME, "{\"value\":1}");
+        TbMsg second = createMsg(null, "{\"value\":2}");
+        msgStore.put(ruleNodeId, "a_2", second);
+        msgStore.put(ruleNodeId, "a_1", first);
+        msgStore.put(ruleNodeId, "b_1", createMsg(null, "{}"));
+        msgStore.put(otherRuleNodeId, "a_0", createMsg(null, "{}"));
+
+        List<String> keys = new ArrayList<>();
+        List<TbMsg> msgs = new ArrayList<>();
+        msgStore.forEach(ruleNodeId, "a_", (key, msg) -> {
+            keys.add(key);
+            msgs.add(msg);
+            return true;
+        });
+
+        assertThat(keys).containsExactly("a_1", "a_2");
+        assertThat(msgs.get(0).getId()).isEqualTo(first.getId());
+        assertThat(msgs.get(0).getQueueName()).isEqualTo(DataConstants.HP_QUEUE_NAME);
+        assertThat(msgs.get(0).getData()).isEqualTo(first.getData());
+        assertThat(msgs.get(0).getMetaData().getData()).isEqualTo(first.getMetaData().getData());
+        assertThat(msgs.get(1).getQueueName()).isNull();
+        assertThat(msgs.get(1).getOriginator()).isEqualTo(second.getOriginator());
+    }
+
+    @Test
+    void givenStoredMsgs_whenRemovedDuringIteration_thenIterationStopsOnFalse() {
+        for (int i = 0; i < 5; i++) {
+            msgStore.put(ruleNodeId, "k_" + i, createMsg(null, "{}"));
+        }
+
+        msgStore.forEach(ruleNodeId, "", (key, msg) -> {
+            msgStore.remove(ruleNodeId, key);
+            return !key.equals("k_2");
+        });
+
+        List<String> keys = new ArrayList<>();
+        msgStore.forEach(ruleNodeId, "", (key, msg) -> keys.add(key));
+        assertThat(keys).containsExactly("k_3", "k_4");
+    }
+
+    @Test
+    void givenMsgsOfSeveralRuleNodes_whenRemoveAll_thenOnlyMsgsOfRuleNodeRemoved() {
+        msgStore.put(ruleNodeId, "k_1", createMsg(null, "{}"));
+        msgStore.put(otherRuleNodeId, "k_1", createMsg(null, "{}"));
+
+        msgStore.removeAll(ruleNodeId);
+
+        List<String> keys = new ArrayList<>();
+        msgStore.forEach(ruleNodeId, "", (key, msg) -> keys.add(key));
+        msgStore.forEach(otherRuleNodeId, "", (key, msg) -> keys.add(key + "@other"));
+        assertThat(keys).containsExactly("k_1@other");
+    }
+
+    @Test
+    void givenMsgsOfDeletedRuleNodes_whenRemoveAllExcept_thenOnlyMsgsOfExistingRuleNodesKept() {
+        RuleNodeId deletedRuleNodeId = new RuleNodeId(UUID.randomUUID());
+        for (int i = 0; i < 3; i++) {
+            msgStore.put(ruleNodeId, "k_" + i, createMsg(null, "{}"));
+            msgStore.put(otherRuleNodeId, "k_" + i, createMsg(null, "{}"));
+            msgStore.put(deletedRuleNodeId, "k_" + i, createMsg(null, "{}"));
+        }
+        List<RuleNodeId> visited = new ArrayList<>();
+
+        int removed = msgStore.removeAllExcept(id -> {
+            visited.add(id);
+            return id.equals(ruleNodeId);
+        });
+
+        assertThat(removed).isEqualTo(2);
+        assertThat(visited).containsExactlyInAnyOrder(ruleNodeId, otherRuleNodeId, deletedRuleNodeId);
+        List<String> keys = new ArrayList<>();
+        msgStore.forEach(ruleNodeId, "", (key, msg) -> keys.add(key));
+        msgStore.forEach(otherRuleNodeId, "", (key, msg) -> keys.add(key + "@other"));
+        msgStore.forEach(deletedRuleNodeId, "", (key, msg) -> keys.add(key + "@deleted"));
+        assertThat(keys).containsExactly("k_0", "k_1", "k_2");
+    }
+
+    private static TbMsg createMsg(String queueName, String data) {
+        return TbMsg.newMsg()
+                .queueName(queueName)
+                .type(TbMsgType.POST_TELEMETRY_REQUEST)
+                .originator(new DeviceId(UUID.randomUUID()))
+                .copyMetaData(new TbMsgMetaData(Map.of("ts", "1")))
+                .data(data)
+                .build();
+    }
+
+}
@@ -29,6 +29,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.rule.engine.api.AttributesSaveRequest;
 import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.ApiUsageRecordKey;
 import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.DeviceIdInfo;
@@ -42,7 +43,6 @@ import org.thingsboard.server.common.data.query.EntityData;
 import org.thingsboard.server.common.data.query.EntityKeyType;
 import org.thingsboard.server.common.data.query.TsValue;
 import org.thingsboard.server.common.msg.TbMsg;
-import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TbCallback;
@@ -75,14 +75,17 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -198,7 +201,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(DeviceState.builder().build())
-                .metaData(new TbMsgMetaData())
                 .build();
 
         doReturn(false).when(service).cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId);
@@ -285,7 +287,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(DeviceState.builder().build())
-                .metaData(new TbMsgMetaData())
                 .build();
 
         doReturn(false).when(service).cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId);
@@ -408,7 +409,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(DeviceState.builder().build())
-                .metaData(new TbMsgMetaData())
                 .build();
 
         doReturn(false).when(service).cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId);
@@ -455,7 +455,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(DeviceState.builder().build())
-                .metaData(new TbMsgMetaData())
                 .build();
 
         given(partitionService.resolve(ServiceType.TB_CORE, tenantId, deviceId)).willReturn(tpi);
@@ -531,6 +530,31 @@ public class DefaultDeviceStateServiceTest {
         process(latest, defaultInactivityTimeoutInSec);
     }
 
+    @Test
+    public void givenDeviceEntityFields_whenTransformingToDeviceStateData_thenMetaDataIsCreatedFromDeviceInfoAndIdsAreShared() {
+        var customerUuid = UUID.randomUUID();
+        var latest = Map.of(EntityKeyType.ENTITY_FIELD, Map.of(
+                "name", new TsValue(0, "Thermostat A"),
+                "label", new TsValue(0, "Living room"),
+                "type", new TsValue(0, "thermostat")
+        ));
+
+        DeviceStateData first = service.toDeviceStateData(new EntityData(deviceId, latest, Map.of()),
+                new DeviceIdInfo(tenantId.getId(), customerUuid, deviceId.getId()));
+        DeviceStateData second = service.toDeviceStateData(new EntityData(deviceId, latest, Map.of()),
+                new DeviceIdInfo(tenantId.getId(), customerUuid, UUID.randomUUID()));
+
+        assertThat(first.getMetaData().getData()).isEqualTo(Map.of(
+                "deviceName", "Thermostat A",
+                "deviceLabel", "Living room",
+                "deviceType", "thermostat"
+        ));
+        assertThat(first.getMetaData()).isNotSameAs(first.getMetaData());
+        assertThat(first.getTenantId()).isSameAs(second.getTenantId());
+        assertThat(first.getCustomerId()).isSameAs(second.getCustomerId());
+        assertThat(first.getDeviceType()).isSameAs(second.getDeviceType());
+    }
+
     private void process(Map<EntityKeyType, Map<String, TsValue>> latest, long defaultInactivityTimeoutInSec) {
         service.setDefaultInactivityTimeoutInSec(defaultInactivityTimeoutInSec);
         service.setDefaultInactivityTimeoutMs(defaultInactivityTimeoutInSec * 1000);
@@ -570,7 +594,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(deviceState)
-                .metaData(new TbMsgMetaData())
                 .build();
 
         service.deviceStates.put(deviceId, deviceStateData);
@@ -602,6 +625,155 @@ public class DefaultDeviceStateServiceTest {
         activityVerify(false);
     }
 
+    @Test
+    public void givenDeviceActivityChanges_whenReportActivityStats_thenReportsIncrementallyCountedDevices() throws Exception {
+        final long defaultTimeout = 1;
+        initStateService(defaultTimeout);
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(DeviceState.builder().build())
+                .build();
+
+        service.deviceStates.put(deviceId, deviceStateData);
+        service.getPartitionedEntities(tpi).add(deviceId);
+
+        service.onDeviceActivity(tenantId, deviceId, System.currentTimeMillis());
+        service.reportActivityStats();
+        then(defaultTbApiUsageReportClient).should().report(tenantId, null, ApiUsageRecordKey.ACTIVE_DEVICES, 1);
+        then(defaultTbApiUsageReportClient).should().report(tenantId, null, ApiUsageRecordKey.INACTIVE_DEVICES, 0);
+
+        reset(defaultTbApiUsageReportClient);
+        Thread.sleep(defaultTimeout);
+        service.checkStates();
+        service.reportActivityStats();
+        then(defaultTbApiUsageReportClient).should().report(tenantId, null, ApiUsageRecordKey.ACTIVE_DEVICES, 0);
+        then(defaultTbApiUsageReportClient).should().report(tenantId, null, ApiUsageRecordKey.INACTIVE_DEVICES, 1);
+
+        reset(defaultTbApiUsageReportClient);
+        TransportProtos.DeviceStateServiceMsgProto proto = TransportProtos.DeviceStateServiceMsgProto.newBuilder()
+                .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
+                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits())
+                .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits())
+                .setDeleted(true)
+                .build();
+        service.onQueueMsg(proto, TbCallback.EMPTY);
+        service.reportActivityStats();
+        then(defaultTbApiUsageReportClient).shouldHaveNoInteractions();
+    }
+
+    @Test
+    public void givenStateFetchedOnDemandAndPartitionRemoved_whenCheckStates_thenEvictsStateAndDoesNotReportInactivity() throws Exception {
+        final long defaultTimeout = 1;
+        initStateService(defaultTimeout);
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(DeviceState.builder().build())
+                .build();
+        // the state is cached, but not registered in the partitioned entities, as the one fetched on demand
+        service.deviceStates.put(deviceId, deviceStateData);
+        service.onDeviceActivity(tenantId, deviceId, System.currentTimeMillis());
+        activityVerify(true);
+        reset(telemetrySubscriptionService, clusterService);
+
+        service.onApplicationEvent(new PartitionChangeEvent(this, ServiceType.TB_CORE, Map.of(
+                new QueueKey(ServiceType.TB_CORE), Collections.emptySet()
+        )));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> service.getPartitionedEntities(tpi) == null);
+        Thread.sleep(defaultTimeout);
+        service.checkStates();
+
+        assertThat(service.deviceStates).doesNotContainKey(deviceId);
+        then(telemetrySubscriptionService).should(never()).saveAttributes(any());
+        then(clusterService).should(never()).pushMsgToRuleEngine(any(TenantId.class), any(), any(TbMsg.class), any());
+    }
+
+    @Test
+    public void givenHandoffEnabled_whenPartitionRemoved_thenSendsDeviceStatesToNewOwner() throws Exception {
+        ReflectionTestUtils.setField(service, "handoffEnabled", true);
+        ReflectionTestUtils.setField(service, "handoffPackSize", 1000);
+        initStateService(10000);
+        long lastActivityTime = System.currentTimeMillis();
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .deviceName("Device")
+                .deviceType("default")
+                .state(DeviceState.builder().active(true).lastActivityTime(lastActivityTime).inactivityTimeout(10000).build())
+                .build();
+        service.deviceStates.put(deviceId, deviceStateData);
+        service.getPartitionedEntities(tpi).add(deviceId);
+
+        service.onApplicationEvent(new PartitionChangeEvent(this, ServiceType.TB_CORE, Map.of(
+                new QueueKey(ServiceType.TB_CORE), Collections.emptySet()
+        )));
+
+        ArgumentCaptor<TransportProtos.ToCoreMsg> msgCaptor = ArgumentCaptor.forClass(TransportProtos.ToCoreMsg.class);
+        then(clusterService).should(timeout(5000)).pushMsgToCore(eq(tpi), any(UUID.class), msgCaptor.capture(), isNull());
+        List<TransportProtos.DeviceStateProto> handoffStates = msgCaptor.getValue().getDeviceStateServiceMsg().getHandoffStatesList();
+        assertThat(handoffStates).hasSize(1);
+        TransportProtos.DeviceStateProto handoffState = handoffStates.get(0);
+        assertThat(new DeviceId(new UUID(handoffState.getDeviceIdMSB(), handoffState.getDeviceIdLSB()))).isEqualTo(deviceId);
+        assertThat(handoffState.getDeviceName()).isEqualTo("Device");
+        assertThat(handoffState.getActive()).isTrue();
+        assertThat(handoffState.getLastActivityTime()).isEqualTo(lastActivityTime);
+        assertThat(service.deviceStates).doesNotContainKey(deviceId);
+    }
+
+    @Test
+    public void givenHandoffEnabledAndStateFetchedOnDemand_whenDelayedInit_thenStateIsRegisteredInPartition() throws Exception {
+        ReflectionTestUtils.setField(service, "handoffEnabled", true);
+        ReflectionTestUtils.setField(service, "handoffInitDelayInSec", 1);
+        initStateService(10000);
+        // the cached state is not expected to be fetched
+        reset(entityQueryRepository);
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(DeviceState.builder().build())
+                .build();
+        service.deviceStates.put(deviceId, deviceStateData);
+        assertThat(service.getPartitionedEntities(tpi)).doesNotContain(deviceId);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> service.getPartitionedEntities(tpi).contains(deviceId));
+        assertThat(service.deviceStates.get(deviceId)).isSameAs(deviceStateData);
+        then(entityQueryRepository).should(never()).findEntityDataByQueryInternal(any());
+    }
+
+    @Test
+    public void givenHandoffStates_whenOnQueueMsg_thenInitializesStatesWithoutFetchingFromDb() throws Exception {
+        initStateService(10000);
+        long lastActivityTime = System.currentTimeMillis();
+        TransportProtos.DeviceStateServiceMsgProto proto = TransportProtos.DeviceStateServiceMsgProto.newBuilder()
+                .addHandoffStates(TransportProtos.DeviceStateProto.newBuilder()
+                        .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
+                        .setTenantIdLSB(tenantId.getId().getLeastSignificantBits())
+                        .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                        .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits())
+                        .setDeviceName("Device")
+                        .setDeviceType("default")
+                        .setActive(true)
+                        .setLastActivityTime(lastActivityTime)
+                        .setInactivityTimeout(10000))
+                .build();
+        TbCallback callback = mock(TbCallback.class);
+
+        service.onQueueMsg(proto, callback);
+
+        then(callback).should(timeout(5000)).onSuccess();
+        DeviceStateData stateData = service.deviceStates.get(deviceId);
+        assertThat(stateData.getTenantId()).isEqualTo(tenantId);
+        assertThat(stateData.getCustomerId()).isNull();
+        assertThat(stateData.getDeviceName()).isEqualTo("Device");
+        assertThat(stateData.getDeviceLabel()).isNull();
+        assertThat(stateData.getState().isActive()).isTrue();
+        assertThat(stateData.getState().getLastActivityTime()).isEqualTo(lastActivityTime);
+        assertThat(service.getPartitionedEntities(tpi)).contains(deviceId);
+        then(deviceService).should(never()).findDeviceById(any(), any());
+    }
+
     @Test
     public void increaseInactivityForActiveDeviceTest() throws Exception {
         final long defaultTimeout = 1000;
@@ -611,7 +783,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(deviceState)
-                .metaData(new TbMsgMetaData())
                 .build();
 
         service.deviceStates.put(deviceId, deviceStateData);
@@ -651,7 +822,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(deviceState)
-                .metaData(new TbMsgMetaData())
                 .build();
 
         service.deviceStates.put(deviceId, deviceStateData);
@@ -681,7 +851,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(deviceState)
-                .metaData(new TbMsgMetaData())
                 .build();
 
         service.deviceStates.put(deviceId, deviceStateData);
@@ -713,7 +882,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(deviceState)
-                .metaData(new TbMsgMetaData())
                 .build();
 
         service.deviceStates.put(deviceId, deviceStateData);
@@ -776,7 +944,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(deviceState)
-                .metaData(new TbMsgMetaData())
                 .build();
 
         // WHEN
@@ -870,7 +1037,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .state(deviceState)
-                .metaData(new TbMsgMetaData())
                 .build();
 
         service.deviceStates.put(deviceId, deviceStateData);
@@ -967,7 +1133,6 @@ public class DefaultDeviceStateServiceTest {
                 .tenantId(tenantId)
                 .deviceId(deviceId)
                 .deviceCreationTime(deviceCreationTime)
-                .metaData(new TbMsgMetaData())
                 .state(state)
                 .build();
 
@@ -1154,7 +1319,6 @@ public class DefaultDeviceStateServiceTest {
                 .deviceId(deviceId)
                 .deviceCreationTime(currentTime - 10000)
                 .state(deviceState)
-                .metaData(TbMsgMetaData.EMPTY)
                 .build();
         service.deviceStates.put(deviceId, stateData);
 
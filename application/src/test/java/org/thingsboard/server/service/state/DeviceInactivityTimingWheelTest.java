@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeviceInactivityTimingWheelTest {
+
+    private static final long TICK_MS = 1000;
+    private static final long START_TS = 1_700_000_000_000L;
+
+    private final DeviceInactivityTimingWheel wheel = new DeviceInactivityTimingWheel(TICK_MS, START_TS);
+
+    @Test
+    public void givenDeadlinesOnAllLevels_whenAdvance_thenExpiredOnlyWhenDeadlineTickIsReached() {
+        long[] delays = {TICK_MS, 30 * TICK_MS, 100 * TICK_MS, 5_000 * TICK_MS, 300_000 * TICK_MS, 20_000_000 * TICK_MS};
+        Map<DeviceId, Long> deadlines = new HashMap<>();
+        for (long delay : delays) {
+            DeviceId deviceId = new DeviceId(UUID.randomUUID());
+            deadlines.put(deviceId, START_TS + delay);
+            wheel.schedule(deviceId, START_TS + delay);
+        }
+
+        Map<DeviceId, Long> expired = new HashMap<>();
+        long ts = START_TS;
+        for (long delay : delays) {
+            wheel.advance(START_TS + delay - TICK_MS, (deviceId, deadline) -> expired.put(deviceId, deadline));
+            assertThat(expired).hasSize((int) deadlines.values().stream().filter(deadline -> deadline < START_TS + delay).count());
+
+            wheel.advance(START_TS + delay, (deviceId, deadline) -> {
+                assertThat(deadline).isEqualTo(START_TS + delay);
+                expired.put(deviceId, deadline);
+            });
+            ts = START_TS + delay;
+        }
+
+        assertThat(expired).isEqualTo(deadlines);
+        assertThat(wheel.size()).isZero();
+        List<DeviceId> expiredAfterAll = new ArrayList<>();
+        wheel.advance(ts + 100 * TICK_MS, (deviceId, deadline) -> expiredAfterAll.add(deviceId));
+        assertThat(expiredAfterAll).isEmpty();
+    }
+
+    @Test
+    public void givenDeadlineWithinCurrentTick_whenAdvance_thenExpiredImmediately() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        wheel.schedule(deviceId, START_TS + TICK_MS / 2);
+        wheel.schedule(deviceId, 0L);
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(START_TS, (id, deadline) -> expired.add(deadline));
+
+        assertThat(expired).containsExactlyInAnyOrder(START_TS + TICK_MS / 2, 0L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void givenManyDeadlines_whenAdvanceByLargeSteps_thenAllExpiredInOrderOfTicks() {
+        List<Long> expired = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            wheel.schedule(new DeviceId(UUID.randomUUID()), START_TS + (i * 7919L) % 10_000_000L);
+        }
+
+        for (long ts = START_TS; ts <= START_TS + 10_000_000L; ts += 60 * TICK_MS) {
+            long currentTs = ts;
+            wheel.advance(ts, (deviceId, deadline) -> {
+                assertThat(deadline / TICK_MS).isLessThanOrEqualTo(currentTs / TICK_MS);
+                expired.add(deadline);
+            });
+        }
+        wheel.advance(START_TS + 10_000_000L, (deviceId, deadline) -> expired.add(deadline));
+
+        assertThat(expired).hasSize(10_000);
+        assertThat(wheel.size()).isZero();
+    }
+
+}
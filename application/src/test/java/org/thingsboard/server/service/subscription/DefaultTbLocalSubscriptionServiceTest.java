@@ -45,6 +45,7 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Executors;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -110,7 +111,73 @@ public class DefaultTbLocalSubscriptionServiceTest {
         assertFalse(exceptionLogged, "Detected ConcurrentModificationException!");
     }
 
+    @Test
+    public void givenSubscriptionsOfSameTenant_whenAddedAndCancelledConcurrently_thenRegistryIsEmpty() throws Exception {
+        ListeningExecutorService executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+        TenantId tenantId = new TenantId(UUID.randomUUID());
+        List<DeviceId> deviceIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            deviceIds.add(new DeviceId(UUID.randomUUID()));
+        }
+        WebSocketSessionRef sessionRef = mock();
+
+        try {
+            List<ListenableFuture<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String sessionId = "session" + i;
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < deviceIds.size(); j++) {
+                        subscriptionService.addSubscription(createSubscription(tenantId, deviceIds.get(j), sessionId, j), sessionRef);
+                    }
+                    subscriptionService.cancelSubscription(tenantId, sessionId, 0);
+                    subscriptionService.cancelAllSessionSubscriptions(tenantId, sessionId);
+                }));
+            }
+            Futures.allAsList(futures).get();
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(subscriptionService, "subscriptionsBySessionId")).isEmpty();
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(subscriptionService, "subscriptionsByEntityId")).isEmpty();
+    }
+
+    @Test
+    public void givenSubscriptionsOfSameSession_whenAddedWhileSessionIsCancelled_thenNoSubscriptionIsLeftWithoutSession() throws Exception {
+        ListeningExecutorService executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+        TenantId tenantId = new TenantId(UUID.randomUUID());
+        String sessionId = "session";
+        WebSocketSessionRef sessionRef = mock();
+
+        try {
+            for (int round = 0; round < 20; round++) {
+                List<ListenableFuture<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    int subscriptionId = i;
+                    futures.add(executorService.submit(() -> subscriptionService.addSubscription(
+                            createSubscription(tenantId, new DeviceId(UUID.randomUUID()), sessionId, subscriptionId), sessionRef)));
+                    futures.add(executorService.submit(() -> subscriptionService.cancelAllSessionSubscriptions(tenantId, sessionId)));
+                }
+                Futures.allAsList(futures).get();
+
+                Map<?, ?> sessionSubscriptions = (Map<?, ?>) ((Map<?, ?>) ReflectionTestUtils.getField(subscriptionService, "subscriptionsBySessionId")).get(sessionId);
+                Map<?, ?> entitySubscriptions = (Map<?, ?>) ReflectionTestUtils.getField(subscriptionService, "subscriptionsByEntityId");
+                assertThat(entitySubscriptions).hasSize(sessionSubscriptions == null ? 0 : sessionSubscriptions.size());
+                subscriptionService.cancelAllSessionSubscriptions(tenantId, sessionId);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(subscriptionService, "subscriptionsBySessionId")).isEmpty();
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(subscriptionService, "subscriptionsByEntityId")).isEmpty();
+    }
+
     private TbSubscription<?> createSubscription(TenantId tenantId, EntityId entityId) {
+        return createSubscription(tenantId, entityId, RandomStringUtils.randomAlphanumeric(5), 1);
+    }
+
+    private TbSubscription<?> createSubscription(TenantId tenantId, EntityId entityId, String sessionId, int subscriptionId) {
         Map<String, Long> keys = new HashMap<>();
         for (int i = 0; i < 50; i++) {
             keys.put(RandomStringUtils.randomAlphanumeric(5), 1L);
@@ -118,8 +185,8 @@ public class DefaultTbLocalSubscriptionServiceTest {
         return TbAttributeSubscription.builder()
                 .tenantId(tenantId)
                 .entityId(entityId)
-                .subscriptionId(1)
-                .sessionId(RandomStringUtils.randomAlphanumeric(5))
+                .subscriptionId(subscriptionId)
+                .sessionId(sessionId)
                 .keyStates(keys)
                 .build();
     }
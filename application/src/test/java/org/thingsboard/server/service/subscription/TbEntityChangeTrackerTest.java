@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
+import org.thingsboard.server.common.data.query.AlarmCountQuery;
+import org.thingsboard.server.common.data.query.DeviceTypeFilter;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.RelationsQueryFilter;
+import org.thingsboard.server.service.ws.WebSocketSessionRef;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class TbEntityChangeTrackerTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private TbEntityChangeTracker tracker;
+
+    @BeforeEach
+    public void setUp() {
+        tracker = new TbEntityChangeTracker();
+    }
+
+    @Test
+    public void givenEntityEvents_whenHasChanges_thenOnlyChangedTypesAfterSeqAreReported() {
+        long seq = tracker.getSeq();
+        tracker.onLifecycleEvent(tenantId, new DeviceId(UUID.randomUUID()), ComponentLifecycleEvent.UPDATED);
+
+        assertThat(tracker.hasChanges(tenantId, Set.of(EntityType.DEVICE), seq)).isTrue();
+        assertThat(tracker.hasChanges(tenantId, Set.of(EntityType.DEVICE), tracker.getSeq())).isFalse();
+        assertThat(tracker.hasChanges(tenantId, Set.of(EntityType.ASSET), seq)).isFalse();
+        assertThat(tracker.hasChanges(TenantId.fromUUID(UUID.randomUUID()), Set.of(EntityType.DEVICE), seq)).isFalse();
+
+        seq = tracker.getSeq();
+        tracker.onLifecycleEvent(tenantId, new DeviceProfileId(UUID.randomUUID()), ComponentLifecycleEvent.UPDATED);
+        assertThat(tracker.hasChanges(tenantId, Set.of(EntityType.DEVICE), seq)).isTrue();
+
+        tracker.onLifecycleEvent(tenantId, tenantId, ComponentLifecycleEvent.DELETED);
+        assertThat(tracker.hasChanges(tenantId, Set.of(EntityType.DEVICE), 0)).isFalse();
+    }
+
+    @Test
+    public void givenFilters_whenGetEntityTypes_thenOnlyTrackedFiltersAreSupported() {
+        EntityTypeFilter assetFilter = new EntityTypeFilter();
+        assetFilter.setEntityType(EntityType.ASSET);
+        EntityTypeFilter userFilter = new EntityTypeFilter();
+        userFilter.setEntityType(EntityType.USER);
+
+        assertThat(TbEntityChangeTracker.getEntityTypes(assetFilter)).containsExactly(EntityType.ASSET);
+        assertThat(TbEntityChangeTracker.getEntityTypes(new DeviceTypeFilter())).containsExactly(EntityType.DEVICE);
+        assertThat(TbEntityChangeTracker.getEntityTypes(userFilter)).isNull();
+        assertThat(TbEntityChangeTracker.getEntityTypes(new RelationsQueryFilter())).isNull();
+    }
+
+    @Test
+    public void givenUnchangedEntities_whenCheckRefreshRequired_thenRefreshIsSkippedUpToLimit() {
+        WebSocketSessionRef sessionRef = mock(WebSocketSessionRef.class, RETURNS_DEEP_STUBS);
+        given(sessionRef.getSecurityCtx().getTenantId()).willReturn(tenantId);
+        TbEntityCountSubCtx ctx = new TbEntityCountSubCtx("serviceId", null, null, null, null,
+                new SubscriptionServiceStatistics(), sessionRef, 1);
+        ctx.setQuery(new EntityCountQuery(new DeviceTypeFilter()));
+
+        // executed initially and after the change of the selected entities
+        assertThat(ctx.checkRefreshRequired(tracker, 2)).isTrue();
+        assertThat(ctx.checkRefreshRequired(tracker, 2)).isFalse();
+        tracker.onLifecycleEvent(tenantId, new AssetId(UUID.randomUUID()), ComponentLifecycleEvent.CREATED);
+        assertThat(ctx.checkRefreshRequired(tracker, 2)).isFalse();
+        assertThat(ctx.checkRefreshRequired(tracker, 2)).isTrue();
+
+        tracker.onLifecycleEvent(tenantId, new DeviceId(UUID.randomUUID()), ComponentLifecycleEvent.CREATED);
+        assertThat(ctx.checkRefreshRequired(tracker, 2)).isTrue();
+        assertThat(ctx.checkRefreshRequired(tracker, 2)).isFalse();
+
+        ctx.markRefreshRequired();
+        assertThat(ctx.checkRefreshRequired(tracker, 2)).isTrue();
+    }
+
+    @Test
+    public void givenAlarmCountQuery_whenCheckRefreshRequired_thenRefreshIsNeverSkipped() {
+        WebSocketSessionRef sessionRef = mock(WebSocketSessionRef.class, RETURNS_DEEP_STUBS);
+        given(sessionRef.getSecurityCtx().getTenantId()).willReturn(tenantId);
+        TbAlarmCountSubCtx ctx = new TbAlarmCountSubCtx("serviceId", null, null, null, null,
+                new SubscriptionServiceStatistics(), null, sessionRef, 1, 100, 10);
+        ctx.setQuery(new AlarmCountQuery(new DeviceTypeFilter()));
+
+        // the alarms are not tracked and the refresh resets the alarm queries limit
+        for (int i = 0; i < 5; i++) {
+            assertThat(ctx.checkRefreshRequired(tracker, 2)).isTrue();
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WsPendingUpdatesTest {
+
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    @Test
+    void givenEntityDataUpdates_whenAdded_thenLatestValuesAreReplacedAndTimeseriesAppended() {
+        WsPendingUpdates pendingUpdates = new WsPendingUpdates();
+
+        assertThat(pendingUpdates.add(1, entityDataUpdate(new TsValue(1, "10"), new TsValue(1, "a")))).isTrue();
+        assertThat(pendingUpdates.add(1, entityDataUpdate(new TsValue(2, "20"), new TsValue(2, "b")))).isFalse();
+        assertThat(pendingUpdates.add(2, entityDataUpdate(new TsValue(3, "30"), new TsValue(3, "c")))).isFalse();
+
+        Map<Integer, Object> updates = pendingUpdates.drain();
+        assertThat(updates).containsOnlyKeys(1, 2);
+        EntityData entityData = ((EntityDataUpdate) updates.get(1)).getUpdate().get(0);
+        assertThat(entityData.getLatest().get(EntityKeyType.TIME_SERIES).get("temperature")).isEqualTo(new TsValue(2, "20"));
+        assertThat(entityData.getTimeseries().get("state")).containsExactly(new TsValue(1, "a"), new TsValue(2, "b"));
+
+        assertThat(pendingUpdates.drain()).isEmpty();
+        assertThat(pendingUpdates.add(1, entityDataUpdate(new TsValue(4, "40"), new TsValue(4, "d")))).isTrue();
+    }
+
+    @Test
+    void givenTelemetryUpdates_whenAdded_thenValuesAreAppendedPerKey() {
+        WsPendingUpdates pendingUpdates = new WsPendingUpdates();
+
+        pendingUpdates.add(1, telemetryUpdate(1, "temperature", 1L, "10"));
+        pendingUpdates.add(1, telemetryUpdate(1, "temperature", 2L, "20"));
+        pendingUpdates.add(1, telemetryUpdate(1, "humidity", 2L, "50"));
+
+        TelemetrySubscriptionUpdate update = (TelemetrySubscriptionUpdate) pendingUpdates.remove(1);
+        assertThat(update.getData().get("temperature")).containsExactly(new Object[]{1L, "10"}, new Object[]{2L, "20"});
+        assertThat(update.getData().get("humidity")).hasSize(1).first().isEqualTo(new Object[]{2L, "50"});
+        assertThat(pendingUpdates.remove(1)).isNull();
+    }
+
+    @Test
+    void givenLatestValuesUpdates_whenAdded_thenOnlyNewestValuePerKeyIsKept() {
+        WsPendingUpdates pendingUpdates = new WsPendingUpdates();
+
+        pendingUpdates.add(1, telemetryUpdate(1, "temperature", 1L, "10"), true);
+        pendingUpdates.add(1, telemetryUpdate(1, "temperature", 3L, "30"), true);
+        pendingUpdates.add(1, telemetryUpdate(1, "temperature", 2L, "20"), true);
+        pendingUpdates.add(1, telemetryUpdate(1, "humidity", 2L, "50"), true);
+        pendingUpdates.add(1, telemetryUpdate(1, "humidity", 2L, "55"), true);
+
+        TelemetrySubscriptionUpdate update = (TelemetrySubscriptionUpdate) pendingUpdates.remove(1);
+        assertThat(update.getData().get("temperature")).hasSize(1).first().isEqualTo(new Object[]{3L, "30"});
+        assertThat(update.getData().get("humidity")).hasSize(1).first().isEqualTo(new Object[]{2L, "55"});
+    }
+
+    @Test
+    void givenPostponedFlush_whenDrained_thenPostponedWindowsAreReset() {
+        WsPendingUpdates pendingUpdates = new WsPendingUpdates();
+        pendingUpdates.add(1, telemetryUpdate(1, "temperature", 1L, "10"));
+
+        assertThat(pendingUpdates.postpone()).isEqualTo(1);
+        assertThat(pendingUpdates.postpone()).isEqualTo(2);
+        pendingUpdates.drain();
+
+        assertThat(pendingUpdates.postpone()).isEqualTo(1);
+    }
+
+    @Test
+    void givenErrorsAndFullPages_whenCheckMergeable_thenNotMergeable() {
+        assertThat(WsPendingUpdates.isMergeable(new TelemetrySubscriptionUpdate(1, SubscriptionErrorCode.INTERNAL_ERROR))).isFalse();
+        assertThat(WsPendingUpdates.isMergeable(new EntityDataUpdate(1, SubscriptionErrorCode.BAD_REQUEST.getCode(), "error"))).isFalse();
+        assertThat(WsPendingUpdates.isMergeable(new EntityDataUpdate(1, null, null, 100))).isFalse();
+        assertThat(WsPendingUpdates.isMergeable(telemetryUpdate(1, "temperature", 1L, "10"))).isTrue();
+        assertThat(WsPendingUpdates.isMergeable(entityDataUpdate(new TsValue(1, "10"), new TsValue(1, "a")))).isTrue();
+    }
+
+    private EntityDataUpdate entityDataUpdate(TsValue latest, TsValue timeseries) {
+        EntityData entityData = new EntityData(deviceId, Map.of(EntityKeyType.TIME_SERIES, Map.of("temperature", latest)),
+                Map.of("state", new TsValue[]{timeseries}));
+        return new EntityDataUpdate(1, null, List.of(entityData), 100);
+    }
+
+    private static TelemetrySubscriptionUpdate telemetryUpdate(int subscriptionId, String key, long ts, String value) {
+        List<Object> values = new ArrayList<>();
+        values.add(new Object[]{ts, value});
+        return new TelemetrySubscriptionUpdate(subscriptionId, Map.of(key, values));
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.ComparisonTsValue;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.gen.ws.WsProtos;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WsProtoUpdateEncoderTest {
+
+    @Test
+    public void givenTelemetryUpdates_whenEncode_thenKeyNamesAreSentOnce() throws Exception {
+        WsProtoUpdateEncoder encoder = new WsProtoUpdateEncoder();
+
+        WsProtos.WsUpdateProto first = WsProtos.WsUpdateProto.parseFrom(encoder.encode(new TelemetrySubscriptionUpdate(1,
+                List.of(new BasicTsKvEntry(10L, new DoubleDataEntry("temperature", 21.5))))));
+        WsProtos.WsUpdateProto second = WsProtos.WsUpdateProto.parseFrom(encoder.encode(new TelemetrySubscriptionUpdate(1,
+                List.of(new BasicTsKvEntry(20L, new DoubleDataEntry("temperature", 22.0)),
+                        new BasicTsKvEntry(20L, new StringDataEntry("status", "ok"))))));
+
+        assertThat(first.getNewEntriesList()).extracting(WsProtos.WsDictionaryEntryProto::getName).containsExactly("temperature");
+        WsProtos.TelemetryUpdateProto telemetry = first.getTelemetryUpdate();
+        assertThat(telemetry.getSubscriptionId()).isEqualTo(1);
+        assertThat(telemetry.getDataList()).hasSize(1);
+        assertThat(telemetry.getData(0).getKeyId()).isEqualTo(first.getNewEntries(0).getId());
+        assertThat(telemetry.getData(0).getValues(0).getTs()).isEqualTo(10L);
+        assertThat(telemetry.getData(0).getValues(0).getValue()).isEqualTo("21.5");
+
+        assertThat(second.getResetDictionary()).isFalse();
+        assertThat(second.getNewEntriesList()).extracting(WsProtos.WsDictionaryEntryProto::getName).containsExactly("status");
+        assertThat(second.getTelemetryUpdate().getDataList()).extracting(WsProtos.KeyTsValuesProto::getKeyId)
+                .containsExactlyInAnyOrder(first.getNewEntries(0).getId(), second.getNewEntries(0).getId());
+    }
+
+    @Test
+    public void givenErrorUpdate_whenEncode_thenErrorIsEncoded() throws Exception {
+        WsProtoUpdateEncoder encoder = new WsProtoUpdateEncoder();
+
+        WsProtos.WsUpdateProto frame = WsProtos.WsUpdateProto.parseFrom(encoder.encode(
+                new TelemetrySubscriptionUpdate(3, SubscriptionErrorCode.BAD_REQUEST, "Bad request")));
+
+        assertThat(frame.getTelemetryUpdate().getErrorCode()).isEqualTo(SubscriptionErrorCode.BAD_REQUEST.getCode());
+        assertThat(frame.getTelemetryUpdate().getErrorMsg()).isEqualTo("Bad request");
+        assertThat(frame.getNewEntriesList()).isEmpty();
+    }
+
+    @Test
+    public void givenEntityDataUpdate_whenEncode_thenAllValuesAreEncoded() throws Exception {
+        WsProtoUpdateEncoder encoder = new WsProtoUpdateEncoder();
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        Map<EntityKeyType, Map<String, TsValue>> latest = new HashMap<>();
+        latest.put(EntityKeyType.TIME_SERIES, Map.of("temperature", new TsValue(10L, "21.5")));
+        Map<String, TsValue[]> timeseries = Map.of("temperature", new TsValue[]{new TsValue(5L, "20.0"), new TsValue(10L, "21.5", 2L)});
+        Map<Integer, ComparisonTsValue> aggLatest = Map.of(1, new ComparisonTsValue(new TsValue(10L, "3"), null));
+        EntityData entityData = new EntityData(deviceId, latest, timeseries, aggLatest);
+
+        WsProtos.WsUpdateProto frame = WsProtos.WsUpdateProto.parseFrom(encoder.encode(
+                new EntityDataUpdate(7, new PageData<>(List.of(entityData), 1, 1, false), null, 100)));
+
+        Map<Integer, String> dictionary = new HashMap<>();
+        frame.getNewEntriesList().forEach(entry -> dictionary.put(entry.getId(), entry.getName()));
+        assertThat(dictionary.values()).containsExactlyInAnyOrder("DEVICE", "TIME_SERIES", "temperature");
+
+        WsProtos.EntityDataUpdateProto update = frame.getEntityDataUpdate();
+        assertThat(update.getCmdId()).isEqualTo(7);
+        assertThat(update.getAllowedEntities()).isEqualTo(100);
+        assertThat(update.getUpdateList()).isEmpty();
+        assertThat(update.getData().getTotalElements()).isEqualTo(1);
+        WsProtos.EntityDataProto entity = update.getData().getData(0);
+        assertThat(dictionary.get(entity.getEntityTypeId())).isEqualTo("DEVICE");
+        assertThat(new UUID(entity.getEntityIdMSB(), entity.getEntityIdLSB())).isEqualTo(deviceId.getId());
+        assertThat(dictionary.get(entity.getLatest(0).getKeyTypeId())).isEqualTo("TIME_SERIES");
+        assertThat(dictionary.get(entity.getLatest(0).getValues(0).getKeyId())).isEqualTo("temperature");
+        assertThat(entity.getLatest(0).getValues(0).getValues(0).getValue()).isEqualTo("21.5");
+        assertThat(entity.getTimeseries(0).getValuesList()).extracting(WsProtos.TsValueProto::getTs).containsExactly(5L, 10L);
+        assertThat(entity.getTimeseries(0).getValues(0).hasCount()).isFalse();
+        assertThat(entity.getTimeseries(0).getValues(1).getCount()).isEqualTo(2L);
+        assertThat(entity.getAggLatest(0).getId()).isEqualTo(1);
+        assertThat(entity.getAggLatest(0).getCurrent().getValue()).isEqualTo("3");
+        assertThat(entity.getAggLatest(0).hasPrevious()).isFalse();
+    }
+
+    @Test
+    public void givenDictionaryIsFull_whenEncode_thenDictionaryIsReset() throws Exception {
+        WsProtoUpdateEncoder encoder = new WsProtoUpdateEncoder(2);
+        encoder.encode(new TelemetrySubscriptionUpdate(1, List.of(
+                new BasicTsKvEntry(1L, new StringDataEntry("a", "1")),
+                new BasicTsKvEntry(1L, new StringDataEntry("b", "1")))));
+
+        WsProtos.WsUpdateProto frame = WsProtos.WsUpdateProto.parseFrom(encoder.encode(new TelemetrySubscriptionUpdate(1, List.of(
+                new BasicTsKvEntry(2L, new StringDataEntry("b", "2")),
+                new BasicTsKvEntry(2L, new StringDataEntry("c", "2"))))));
+
+        assertThat(frame.getResetDictionary()).isTrue();
+        assertThat(frame.getNewEntriesList()).extracting(WsProtos.WsDictionaryEntryProto::getName).containsExactly("b", "c");
+        assertThat(frame.getNewEntriesList()).extracting(WsProtos.WsDictionaryEntryProto::getId).containsExactly(0, 1);
+    }
+
+    @Test
+    public void givenNotSupportedUpdate_whenEncode_thenError() {
+        WsProtoUpdateEncoder encoder = new WsProtoUpdateEncoder();
+
+        assertThat(WsProtoUpdateEncoder.isSupported("text")).isFalse();
+        assertThatThrownBy(() -> encoder.encode("text")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
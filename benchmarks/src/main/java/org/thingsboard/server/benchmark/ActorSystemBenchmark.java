@@ -0,0 +1,152 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.actors.AbstractTbActor;
+import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.TbActor;
+import org.thingsboard.server.actors.TbActorCreator;
+import org.thingsboard.server.actors.TbActorId;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbActorRunQueueExecutor;
+import org.thingsboard.server.actors.TbActorSystem;
+import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.TbEntityActorId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message throughput of the actor system for different dispatcher executors and number of actors,
+ * and the latency of a single message delivery to an idle actor.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ActorSystemBenchmark {
+
+    private static final String DISPATCHER = "benchmark-dispatcher";
+    private static final int MSGS_PER_INVOCATION = 100_000;
+
+    @Param({"work_stealing", "run_queue"})
+    private String executorType;
+
+    @Param({"1", "100", "10000"})
+    private int actorsCount;
+
+    @Param({"5"})
+    private int throughput;
+
+    private TbActorSystem actorSystem;
+    private ExecutorService executor;
+    private TbActorRef[] actors;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int poolSize = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(throughput, 1, 10));
+        executor = "run_queue".equals(executorType) ?
+                new TbActorRunQueueExecutor(poolSize, DISPATCHER) :
+                ThingsBoardExecutors.newWorkStealingPool(poolSize, DISPATCHER);
+        actorSystem.createDispatcher(DISPATCHER, executor);
+        actors = new TbActorRef[actorsCount];
+        for (int i = 0; i < actorsCount; i++) {
+            actors[i] = actorSystem.createRootActor(DISPATCHER, new CountDownActorCreator(new TbEntityActorId(new DeviceId(UUID.randomUUID()))));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actorSystem.stop();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(MSGS_PER_INVOCATION)
+    public void tell() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(MSGS_PER_INVOCATION);
+        for (int i = 0; i < MSGS_PER_INVOCATION; i++) {
+            actors[i % actorsCount].tell(new CountDownMsg(latch));
+        }
+        latch.await();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void singleMsgLatency() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        actors[0].tell(new CountDownMsg(latch));
+        latch.await();
+    }
+
+    private record CountDownMsg(CountDownLatch latch) implements TbActorMsg {
+
+        @Override
+        public MsgType getMsgType() {
+            return MsgType.QUEUE_TO_RULE_ENGINE_MSG;
+        }
+
+    }
+
+    private static class CountDownActor extends AbstractTbActor {
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            ((CountDownMsg) msg).latch().countDown();
+            return true;
+        }
+
+    }
+
+    private record CountDownActorCreator(TbActorId actorId) implements TbActorCreator {
+
+        @Override
+        public TbActorId createActorId() {
+            return actorId;
+        }
+
+        @Override
+        public TbActor createActor() {
+            return new CountDownActor();
+        }
+
+    }
+
+}
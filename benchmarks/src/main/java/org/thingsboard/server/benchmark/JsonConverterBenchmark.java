@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.Utf8ByteBufferReader;
+import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of device JSON payloads to key-value protos as done by the transports,
+ * and plain JSON parsing/serialization with {@link JacksonUtil}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonConverterBenchmark {
+
+    @Param({"10", "100"})
+    private int keysCount;
+
+    private String telemetryJson;
+    private String telemetryWithTsJson;
+    private JsonNode telemetryNode;
+    private byte[] telemetryBytes;
+    private byte[] telemetryWithTsBytes;
+
+    @Setup
+    public void setup() {
+        StringBuilder values = new StringBuilder("{");
+        for (int i = 0; i < keysCount; i++) {
+            if (i > 0) {
+                values.append(',');
+            }
+            switch (i % 4) {
+                case 0 -> values.append("\"long").append(i).append("\":").append(i * 1000L);
+                case 1 -> values.append("\"double").append(i).append("\":").append(i + 0.5);
+                case 2 -> values.append("\"bool").append(i).append("\":").append(i % 3 == 0);
+                default -> values.append("\"str").append(i).append("\":\"value").append(i).append('"');
+            }
+        }
+        values.append('}');
+        telemetryJson = values.toString();
+        telemetryWithTsJson = "{\"ts\":" + System.currentTimeMillis() + ",\"values\":" + telemetryJson + "}";
+        telemetryNode = JacksonUtil.toJsonNode(telemetryJson);
+        telemetryBytes = telemetryJson.getBytes(StandardCharsets.UTF_8);
+        telemetryWithTsBytes = telemetryWithTsJson.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg telemetryToProto() {
+        return JsonConverter.convertToTelemetryProto(JsonParser.parseString(telemetryJson));
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg telemetryWithTsToProto() {
+        return JsonConverter.convertToTelemetryProto(JsonParser.parseString(telemetryWithTsJson));
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg telemetryBytesToProto() {
+        return JsonConverter.convertToTelemetryProto(JsonParser.parseString(new String(telemetryBytes, StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg telemetryBytesToProtoStreaming() {
+        return JsonConverter.convertToTelemetryProto(new Utf8ByteBufferReader(telemetryBytes));
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg telemetryWithTsBytesToProtoStreaming() {
+        return JsonConverter.convertToTelemetryProto(new Utf8ByteBufferReader(telemetryWithTsBytes));
+    }
+
+    @Benchmark
+    public TransportProtos.PostAttributeMsg attributesToProto() {
+        return JsonConverter.convertToAttributesProto(JsonParser.parseString(telemetryJson));
+    }
+
+    @Benchmark
+    public Set<AttributeKvEntry> attributesToKvEntries() {
+        return JsonConverter.convertToAttributes(JsonParser.parseString(telemetryJson));
+    }
+
+    @Benchmark
+    public JsonNode jacksonParse() {
+        return JacksonUtil.toJsonNode(telemetryJson);
+    }
+
+    @Benchmark
+    public String jacksonWrite() {
+        return JacksonUtil.toString(telemetryNode);
+    }
+
+}
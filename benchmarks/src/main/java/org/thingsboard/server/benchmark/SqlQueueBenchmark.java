@@ -0,0 +1,227 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlAdaptiveQueue;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueue;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+import org.thingsboard.server.dao.sql.TbSqlQueue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of the SQL batch write queues ({@link TbSqlBlockingQueueWrapper}) with concurrent writers,
+ * saving to an in-memory H2 database with JDBC batch inserts similar to the timeseries insert repositories.
+ * Set '-Djdbc.url=...' (and '-Djdbc.driver', '-Djdbc.username', '-Djdbc.password') to run against another database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SqlQueueBenchmark {
+
+    private static final int ELEMENTS_PER_INVOCATION = 1000;
+    private static final String INSERT = "INSERT INTO benchmark_ts_kv (entity_id, key_id, ts, dbl_v) VALUES (?, ?, ?, ?)";
+
+    @Param({"false", "true"})
+    private boolean adaptiveBatching;
+
+    @Param({"1000"})
+    private int batchSize;
+
+    @Param({"100"})
+    private long maxDelay;
+
+    @Param({"1", "4"})
+    private int batchThreads;
+
+    private final ThreadLocal<Connection> connections = new ThreadLocal<>();
+    private final List<Connection> allConnections = new ArrayList<>();
+    private ScheduledLogExecutorComponent logExecutor;
+    private List<TbSqlQueue<TsRecord, Void>> queues;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException, ClassNotFoundException {
+        // the driver is not discovered via ServiceLoader from the assembled jar, since META-INF/services files of different drivers overwrite each other
+        Class.forName(System.getProperty("jdbc.driver", "org.h2.Driver"));
+        try (Statement statement = newConnection().createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS benchmark_ts_kv");
+            statement.execute("CREATE TABLE benchmark_ts_kv (entity_id UUID NOT NULL, key_id INT NOT NULL, ts BIGINT NOT NULL, dbl_v DOUBLE PRECISION)");
+        }
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Benchmark")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(TimeUnit.MINUTES.toMillis(10))
+                .statsNamePrefix("benchmark")
+                .batchSortEnabled(false)
+                .withResponse(false)
+                .adaptiveBatching(adaptiveBatching)
+                .build();
+        // same as TbSqlBlockingQueueWrapper, which requires the StatsFactory bean
+        queues = new ArrayList<>(batchThreads);
+        for (int i = 0; i < batchThreads; i++) {
+            MessagesStats stats = new CountingMessagesStats();
+            TbSqlQueue<TsRecord, Void> queue = adaptiveBatching ? new TbSqlAdaptiveQueue<>(params, stats, record -> record.entityId().hashCode()) : new TbSqlBlockingQueue<>(params, stats);
+            queue.init(logExecutor, records -> {
+                save(records);
+                return null;
+            }, Comparator.comparing(TsRecord::entityId), l -> l, i);
+            queues.add(queue);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        queues.forEach(TbSqlQueue::destroy);
+        logExecutor.stop();
+        synchronized (allConnections) {
+            for (Connection connection : allConnections) {
+                connection.close();
+            }
+            allConnections.clear();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS_PER_INVOCATION)
+    public void add() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<ListenableFuture<Void>> futures = new ArrayList<>(ELEMENTS_PER_INVOCATION);
+        for (int i = 0; i < ELEMENTS_PER_INVOCATION; i++) {
+            TsRecord record = new TsRecord(new UUID(random.nextLong(16), random.nextLong()), random.nextInt(10), System.currentTimeMillis(), random.nextDouble());
+            futures.add(queues.get((record.entityId().hashCode() & 0x7FFFFFFF) % batchThreads).add(record));
+        }
+        Futures.allAsList(futures).get();
+    }
+
+    private void save(List<TsRecord> records) {
+        try {
+            Connection connection = connections.get();
+            if (connection == null) {
+                connection = newConnection();
+                connections.set(connection);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+                for (TsRecord record : records) {
+                    statement.setObject(1, record.entityId());
+                    statement.setInt(2, record.key());
+                    statement.setLong(3, record.ts());
+                    statement.setDouble(4, record.value());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Connection newConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(
+                System.getProperty("jdbc.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1"),
+                System.getProperty("jdbc.username", "sa"),
+                System.getProperty("jdbc.password", ""));
+        synchronized (allConnections) {
+            allConnections.add(connection);
+        }
+        return connection;
+    }
+
+    private record TsRecord(UUID entityId, int key, long ts, double value) {}
+
+    private static class CountingMessagesStats implements MessagesStats {
+
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger successful = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        @Override
+        public void incrementTotal(int amount) {
+            total.addAndGet(amount);
+        }
+
+        @Override
+        public void incrementSuccessful(int amount) {
+            successful.addAndGet(amount);
+        }
+
+        @Override
+        public void incrementFailed(int amount) {
+            failed.addAndGet(amount);
+        }
+
+        @Override
+        public int getTotal() {
+            return total.get();
+        }
+
+        @Override
+        public int getSuccessful() {
+            return successful.get();
+        }
+
+        @Override
+        public int getFailed() {
+            return failed.get();
+        }
+
+        @Override
+        public void reset() {
+            total.set(0);
+            successful.set(0);
+            failed.set(0);
+        }
+
+    }
+
+}
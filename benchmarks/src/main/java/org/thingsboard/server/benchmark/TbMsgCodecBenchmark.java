@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.common.util.ProtoUtils;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of {@link TbMsg} as it is passed between the queue and the rule engine,
+ * and of the telemetry conversions in {@link ProtoUtils}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TbMsgCodecBenchmark {
+
+    @Param({"10", "100"})
+    private int metaDataSize;
+
+    @Param({"128", "4096"})
+    private int dataSize;
+
+    private TbMsg msg;
+    private ByteString msgBytes;
+    private TsKvEntry doubleTsKvEntry;
+    private TsKvEntry stringTsKvEntry;
+    private TransportProtos.TsKvProto tsKvProto;
+
+    @Setup
+    public void setup() {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        for (int i = 0; i < metaDataSize; i++) {
+            metaData.putValue("key" + i, "value" + i);
+        }
+        StringBuilder data = new StringBuilder("{\"temperature\":42.5,\"payload\":\"");
+        while (data.length() < dataSize - 2) {
+            data.append('x');
+        }
+        data.append("\"}");
+        msg = TbMsg.newMsg()
+                .type(TbMsgType.POST_TELEMETRY_REQUEST)
+                .originator(new DeviceId(UUID.randomUUID()))
+                .customerId(new CustomerId(UUID.randomUUID()))
+                .metaData(metaData)
+                .data(data.toString())
+                .ruleChainId(new RuleChainId(UUID.randomUUID()))
+                .ruleNodeId(new RuleNodeId(UUID.randomUUID()))
+                .build();
+        msgBytes = TbMsg.toByteString(msg);
+        doubleTsKvEntry = new BasicTsKvEntry(System.currentTimeMillis(), new DoubleDataEntry("temperature", 42.5));
+        stringTsKvEntry = new BasicTsKvEntry(System.currentTimeMillis(), new StringDataEntry("payload", data.toString()));
+        tsKvProto = ProtoUtils.toTsKvProto(doubleTsKvEntry);
+    }
+
+    @Benchmark
+    public ByteString encode() {
+        return TbMsg.toByteString(msg);
+    }
+
+    @Benchmark
+    public TbMsg decode() {
+        return TbMsg.fromBytes("Main", msgBytes, TbMsgCallback.EMPTY);
+    }
+
+    @Benchmark
+    public void decodeAndReadFields(Blackhole bh) {
+        TbMsg decoded = TbMsg.fromBytes("Main", msgBytes, TbMsgCallback.EMPTY);
+        bh.consume(decoded.getData());
+        bh.consume(decoded.getMetaData().getValue("key0"));
+    }
+
+    /**
+     * Typical rule node hop: the message is decoded, routed to the next node and enqueued again without modifications.
+     */
+    @Benchmark
+    public ByteString decodeTransformEncode() {
+        TbMsg decoded = TbMsg.fromBytes("Main", msgBytes, TbMsgCallback.EMPTY);
+        TbMsg transformed = decoded.transform()
+                .ruleNodeId(new RuleNodeId(UUID.randomUUID()))
+                .build();
+        return TbMsg.toByteString(transformed);
+    }
+
+    @Benchmark
+    public TransportProtos.TsKvProto doubleTsKvToProto() {
+        return ProtoUtils.toTsKvProto(doubleTsKvEntry);
+    }
+
+    @Benchmark
+    public TransportProtos.TsKvProto stringTsKvToProto() {
+        return ProtoUtils.toTsKvProto(stringTsKvEntry);
+    }
+
+    @Benchmark
+    public TsKvEntry tsKvFromProto() {
+        return ProtoUtils.fromProto(tsKvProto);
+    }
+
+}
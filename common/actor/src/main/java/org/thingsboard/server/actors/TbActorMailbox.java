@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.actors;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -56,6 +57,8 @@ public final class TbActorMailbox implements TbActorCtx {
     private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
     private final AtomicBoolean destroyInProgress = new AtomicBoolean();
     private volatile TbActorStopReason stopReason;
+    @Getter(AccessLevel.NONE)
+    private final Runnable processMailboxTask = this::processMailbox;
 
     public void initActor() {
         dispatcher.getExecutor().execute(() -> tryInit(1));
@@ -132,7 +135,7 @@ public final class TbActorMailbox implements TbActorCtx {
         if (ready.get() == READY) {
             if (newMsg || !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty()) {
                 if (busy.compareAndSet(FREE, BUSY)) {
-                    dispatcher.getExecutor().execute(this::processMailbox);
+                    dispatcher.getExecutor().execute(processMailboxTask);
                 } else {
                     log.trace("[{}] MessageBox is busy, new msg: {}", selfId, newMsg);
                 }
@@ -145,36 +148,41 @@ public final class TbActorMailbox implements TbActorCtx {
     }
 
     private void processMailbox() {
-        boolean noMoreElements = false;
-        for (int i = 0; i < settings.getActorThroughput(); i++) {
+        int throughput = settings.getActorThroughput();
+        int processed = 0;
+        while (processed < throughput) {
             TbActorMsg msg = highPriorityMsgs.poll();
             if (msg == null) {
                 msg = normalPriorityMsgs.poll();
             }
             if (msg != null) {
-                try {
-                    log.trace("[{}] Going to process message: {}", selfId, msg);
-                    actor.process(msg);
-                } catch (TbRuleNodeUpdateException updateException) {
-                    stopReason = TbActorStopReason.INIT_FAILED;
-                    destroy(updateException.getCause());
-                } catch (Throwable t) {
-                    log.debug("[{}] Failed to process message: {}", selfId, msg, t);
-                    ProcessFailureStrategy strategy = actor.onProcessFailure(msg, t);
-                    if (strategy.isStop()) {
-                        system.stop(selfId);
-                    }
-                }
-            } else {
-                noMoreElements = true;
-                break;
+                processMsg(msg);
+                processed++;
+                continue;
             }
-        }
-        if (noMoreElements) {
             busy.set(FREE);
-            dispatcher.getExecutor().execute(() -> tryProcessQueue(false));
-        } else {
-            dispatcher.getExecutor().execute(this::processMailbox);
+            // Messages enqueued after the last poll could not schedule the mailbox because it was busy.
+            // Take them here instead of submitting another task to the dispatcher.
+            if (ready.get() == NOT_READY || (highPriorityMsgs.isEmpty() && normalPriorityMsgs.isEmpty()) || !busy.compareAndSet(FREE, BUSY)) {
+                return;
+            }
+        }
+        dispatcher.getExecutor().execute(processMailboxTask);
+    }
+
+    private void processMsg(TbActorMsg msg) {
+        try {
+            log.trace("[{}] Going to process message: {}", selfId, msg);
+            actor.process(msg);
+        } catch (TbRuleNodeUpdateException updateException) {
+            stopReason = TbActorStopReason.INIT_FAILED;
+            destroy(updateException.getCause());
+        } catch (Throwable t) {
+            log.debug("[{}] Failed to process message: {}", selfId, msg, t);
+            ProcessFailureStrategy strategy = actor.onProcessFailure(msg, t);
+            if (strategy.isStop()) {
+                system.stop(selfId);
+            }
         }
     }
 
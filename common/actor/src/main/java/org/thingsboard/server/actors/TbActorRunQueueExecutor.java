@@ -0,0 +1,140 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Dispatcher executor with a fixed number of threads that take mailboxes from a single shared run queue.
+ * Unlike the work-stealing pool, idle threads are parked and woken up one at a time when a mailbox is scheduled,
+ * so a burst of messages to one actor does not wake up the whole pool.
+ */
+@Slf4j
+public class TbActorRunQueueExecutor extends AbstractExecutorService {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ConcurrentLinkedQueue<Runnable> runQueue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Thread> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final List<Thread> workers;
+    private final CountDownLatch terminated;
+    private volatile boolean shutdown;
+
+    public TbActorRunQueueExecutor(int poolSize, String name) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+        }
+        ThingsBoardThreadFactory threadFactory = ThingsBoardThreadFactory.forName(name);
+        this.terminated = new CountDownLatch(poolSize);
+        this.workers = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            workers.add(threadFactory.newThread(this::runWorker));
+        }
+        workers.forEach(Thread::start);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        runQueue.add(task);
+        Thread idleWorker = idleWorkers.poll();
+        if (idleWorker != null) {
+            LockSupport.unpark(idleWorker);
+        }
+    }
+
+    private void runWorker() {
+        Thread current = Thread.currentThread();
+        try {
+            while (true) {
+                Runnable task = runQueue.poll();
+                if (task != null) {
+                    runTask(task);
+                    continue;
+                }
+                if (shutdown || current.isInterrupted()) {
+                    break;
+                }
+                idleWorkers.add(current);
+                // the task could be added before this worker became visible as idle
+                if (runQueue.isEmpty() && !shutdown) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idleWorkers.remove(current);
+            }
+        } finally {
+            terminated.countDown();
+        }
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            log.error("Failed to run task: {}", task, t);
+        }
+    }
+
+    int getQueueSize() {
+        return runQueue.size();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        workers.forEach(LockSupport::unpark);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> notExecuted = new ArrayList<>();
+        Runnable task;
+        while ((task = runQueue.poll()) != null) {
+            notExecuted.add(task);
+        }
+        workers.forEach(Thread::interrupt);
+        return notExecuted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+}
@@ -111,6 +111,20 @@ public class ActorSystemTest {
         testActorsAndMessages(1000, 1000, 10);
     }
 
+    @Test
+    public void test10actorsAnd100KMessagesRunQueueExecutor() throws InterruptedException {
+        executor = new TbActorRunQueueExecutor(parallelism, getClass().getSimpleName());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        testActorsAndMessages(10, _100K, 1);
+    }
+
+    @Test
+    public void test100KActorsAnd1Messages5timesRunQueueExecutor() throws InterruptedException {
+        executor = new TbActorRunQueueExecutor(parallelism, getClass().getSimpleName());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        testActorsAndMessages(_100K, 1, 5);
+    }
+
     @Test
     public void testNoMessagesAfterDestroy() throws InterruptedException {
         executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
@@ -17,10 +17,17 @@ package org.thingsboard.server.common.msg;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.WireFormat;
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.StringUtils;
@@ -34,7 +41,10 @@ import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.msg.gen.MsgProtos;
 import org.thingsboard.server.common.msg.queue.TbMsgCallback;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -60,14 +70,38 @@ public final class TbMsg implements Serializable {
     private final CustomerId customerId;
     private final TbMsgMetaData metaData;
     private final TbMsgDataType dataType;
-    private final String data;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile String data;
     private final RuleChainId ruleChainId;
     private final RuleNodeId ruleNodeId;
 
     private final UUID correlationId;
     private final Integer partition;
 
-    private final List<CalculatedFieldId> previousCalculatedFieldIds;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile List<CalculatedFieldId> previousCalculatedFieldIds;
+
+    /*
+     * Raw fields of the protobuf message this msg was decoded from. Used to decode data and calculated field ids lazily
+     * and to write unchanged fields back to the queue without re-encoding. Null if the field was set explicitly.
+     * */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    transient private final ByteString encodedId;
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    transient private final ByteString encodedData;
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    transient private final List<ByteString> encodedCalculatedFieldIds;
 
     @Getter(value = AccessLevel.NONE)
     @JsonIgnore
@@ -117,8 +151,10 @@ public final class TbMsg implements Serializable {
     }
 
     private TbMsg(String queueName, UUID id, long ts, TbMsgType internalType, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
-                  RuleChainId ruleChainId, RuleNodeId ruleNodeId, UUID correlationId, Integer partition, List<CalculatedFieldId> previousCalculatedFieldIds, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
+                  RuleChainId ruleChainId, RuleNodeId ruleNodeId, UUID correlationId, Integer partition, List<CalculatedFieldId> previousCalculatedFieldIds, TbMsgProcessingCtx ctx, TbMsgCallback callback,
+                  ByteString encodedId, ByteString encodedData, List<ByteString> encodedCalculatedFieldIds) {
         this.id = id != null ? id : UUID.randomUUID();
+        this.encodedId = id != null ? encodedId : null;
         this.queueName = queueName;
         if (ts > 0) {
             this.ts = ts;
@@ -140,24 +176,34 @@ public final class TbMsg implements Serializable {
         this.metaData = metaData;
         this.dataType = dataType != null ? dataType : TbMsgDataType.JSON;
         this.data = data;
+        this.encodedData = encodedData;
         this.ruleChainId = ruleChainId;
         this.ruleNodeId = ruleNodeId;
         this.correlationId = correlationId;
         this.partition = partition;
-        this.previousCalculatedFieldIds = previousCalculatedFieldIds != null
-                ? new CopyOnWriteArrayList<>(previousCalculatedFieldIds)
-                : new CopyOnWriteArrayList<>();
+        if (previousCalculatedFieldIds == null && encodedCalculatedFieldIds != null) {
+            this.encodedCalculatedFieldIds = encodedCalculatedFieldIds;
+        } else {
+            this.previousCalculatedFieldIds = previousCalculatedFieldIds != null
+                    ? new CopyOnWriteArrayList<>(previousCalculatedFieldIds)
+                    : new CopyOnWriteArrayList<>();
+            this.encodedCalculatedFieldIds = null;
+        }
         this.ctx = ctx != null ? ctx : new TbMsgProcessingCtx();
         this.callback = Objects.requireNonNullElse(callback, TbMsgCallback.EMPTY);
     }
 
     public static ByteString toByteString(TbMsg msg) {
-        return ByteString.copyFrom(toByteArray(msg));
+        return UnsafeByteOperations.unsafeWrap(toByteArray(msg));
     }
 
     public static byte[] toByteArray(TbMsg msg) {
         MsgProtos.TbMsgProto.Builder builder = MsgProtos.TbMsgProto.newBuilder();
-        builder.setId(msg.getId().toString());
+        if (msg.encodedId != null) {
+            builder.setIdBytes(msg.encodedId);
+        } else {
+            builder.setId(msg.getId().toString());
+        }
         builder.setTs(msg.getTs());
         builder.setType(msg.getType());
         builder.setEntityType(msg.getOriginator().getEntityType().name());
@@ -179,12 +225,20 @@ public final class TbMsg implements Serializable {
             builder.setRuleNodeIdLSB(msg.getRuleNodeId().getId().getLeastSignificantBits());
         }
 
+        // Fields that were not touched since the msg was received from the queue are appended as is, without re-encoding
+        ByteString encodedMetaData = null;
         if (msg.getMetaData() != null) {
-            builder.setMetaData(MsgProtos.TbMsgMetaDataProto.newBuilder().putAllData(msg.getMetaData().getData()).build());
+            encodedMetaData = msg.getMetaData().getEncodedIfNotDecoded();
+            if (encodedMetaData == null) {
+                builder.setMetaData(MsgProtos.TbMsgMetaDataProto.newBuilder().putAllData(msg.getMetaData().getData()).build());
+            }
         }
 
         builder.setDataType(msg.getDataType().ordinal());
-        builder.setData(msg.getData());
+        ByteString encodedData = msg.encodedData;
+        if (encodedData == null) {
+            builder.setData(msg.data);
+        }
 
         if (msg.getCorrelationId() != null) {
             builder.setCorrelationIdMSB(msg.getCorrelationId().getMostSignificantBits());
@@ -194,65 +248,172 @@ public final class TbMsg implements Serializable {
             builder.setPartition(msg.getPartition());
         }
 
-        if (msg.getPreviousCalculatedFieldIds() != null) {
-            for (CalculatedFieldId calculatedFieldId : msg.getPreviousCalculatedFieldIds()) {
+        List<ByteString> encodedCalculatedFieldIds = null;
+        if (msg.previousCalculatedFieldIds != null) {
+            for (CalculatedFieldId calculatedFieldId : msg.previousCalculatedFieldIds) {
                 MsgProtos.CalculatedFieldIdProto calculatedFieldIdProto = MsgProtos.CalculatedFieldIdProto.newBuilder()
                         .setCalculatedFieldIdMSB(calculatedFieldId.getId().getMostSignificantBits())
                         .setCalculatedFieldIdLSB(calculatedFieldId.getId().getLeastSignificantBits())
                         .build();
                 builder.addCalculatedFields(calculatedFieldIdProto);
             }
+        } else {
+            encodedCalculatedFieldIds = msg.encodedCalculatedFieldIds;
         }
 
         builder.setCtx(msg.ctx.toProto());
-        return builder.build().toByteArray();
+        MsgProtos.TbMsgProto proto = builder.build();
+        if (encodedMetaData == null && encodedData == null && encodedCalculatedFieldIds == null) {
+            return proto.toByteArray();
+        }
+
+        int size = proto.getSerializedSize();
+        if (encodedMetaData != null) {
+            size += CodedOutputStream.computeBytesSize(MsgProtos.TbMsgProto.METADATA_FIELD_NUMBER, encodedMetaData);
+        }
+        if (encodedData != null) {
+            size += CodedOutputStream.computeBytesSize(MsgProtos.TbMsgProto.DATA_FIELD_NUMBER, encodedData);
+        }
+        if (encodedCalculatedFieldIds != null) {
+            for (ByteString encodedCalculatedFieldId : encodedCalculatedFieldIds) {
+                size += CodedOutputStream.computeBytesSize(MsgProtos.TbMsgProto.CALCULATEDFIELDS_FIELD_NUMBER, encodedCalculatedFieldId);
+            }
+        }
+        byte[] result = new byte[size];
+        CodedOutputStream output = CodedOutputStream.newInstance(result);
+        try {
+            proto.writeTo(output);
+            if (encodedMetaData != null) {
+                output.writeBytes(MsgProtos.TbMsgProto.METADATA_FIELD_NUMBER, encodedMetaData);
+            }
+            if (encodedData != null) {
+                output.writeBytes(MsgProtos.TbMsgProto.DATA_FIELD_NUMBER, encodedData);
+            }
+            if (encodedCalculatedFieldIds != null) {
+                for (ByteString encodedCalculatedFieldId : encodedCalculatedFieldIds) {
+                    output.writeBytes(MsgProtos.TbMsgProto.CALCULATEDFIELDS_FIELD_NUMBER, encodedCalculatedFieldId);
+                }
+            }
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize TbMsg to protobuf", e);
+        }
+        return result;
     }
 
     public static TbMsg fromBytes(String queueName, byte[] data, TbMsgCallback callback) {
+        return fromBytes(queueName, UnsafeByteOperations.unsafeWrap(data), callback);
+    }
+
+    /**
+     * Decodes the msg envelope only. Metadata, data and calculated field ids reference the original bytes
+     * and are decoded on first access, so the bytes must not be modified afterwards.
+     */
+    public static TbMsg fromBytes(String queueName, ByteString data, TbMsgCallback callback) {
         try {
-            MsgProtos.TbMsgProto proto = MsgProtos.TbMsgProto.parseFrom(data);
-            TbMsgMetaData metaData = new TbMsgMetaData(proto.getMetaData().getDataMap());
-            EntityId entityId = EntityIdFactory.getByTypeAndUuid(proto.getEntityType(), new UUID(proto.getEntityIdMSB(), proto.getEntityIdLSB()));
+            CodedInputStream input = data.newCodedInput();
+            input.enableAliasing(true);
+
+            ByteString encodedId = ByteString.EMPTY;
+            String type = "";
+            String entityType = "";
+            long entityIdMSB = 0L;
+            long entityIdLSB = 0L;
+            long customerIdMSB = 0L;
+            long customerIdLSB = 0L;
+            long ruleChainIdMSB = 0L;
+            long ruleChainIdLSB = 0L;
+            long ruleNodeIdMSB = 0L;
+            long ruleNodeIdLSB = 0L;
+            long correlationIdMSB = 0L;
+            long correlationIdLSB = 0L;
+            int partitionValue = 0;
+            long ts = 0L;
+            int dataTypeValue = 0;
+            int ruleNodeExecCounter = 0;
+            ByteString encodedMetaData = null;
+            ByteString encodedData = ByteString.EMPTY;
+            List<ByteString> encodedCalculatedFieldIds = null;
+            MsgProtos.TbMsgProcessingCtxProto.Builder ctxBuilder = null;
+
+            boolean done = false;
+            while (!done) {
+                int tag = input.readTag();
+                switch (tag) {
+                    case 0 -> done = true;
+                    case MsgProtos.TbMsgProto.ID_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED -> encodedId = input.readBytes();
+                    case MsgProtos.TbMsgProto.TYPE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED -> type = input.readStringRequireUtf8();
+                    case MsgProtos.TbMsgProto.ENTITYTYPE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED -> entityType = input.readStringRequireUtf8();
+                    case MsgProtos.TbMsgProto.ENTITYIDMSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> entityIdMSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.ENTITYIDLSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> entityIdLSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.RULECHAINIDMSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> ruleChainIdMSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.RULECHAINIDLSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> ruleChainIdLSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.RULENODEIDMSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> ruleNodeIdMSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.RULENODEIDLSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> ruleNodeIdLSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.METADATA_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED -> {
+                        // repeated occurrences of an embedded message are merged, same as concatenation of their bytes
+                        ByteString bytes = input.readBytes();
+                        encodedMetaData = encodedMetaData == null ? bytes : encodedMetaData.concat(bytes);
+                    }
+                    case MsgProtos.TbMsgProto.DATATYPE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> dataTypeValue = input.readInt32();
+                    case MsgProtos.TbMsgProto.DATA_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED -> encodedData = input.readBytes();
+                    case MsgProtos.TbMsgProto.TS_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> ts = input.readInt64();
+                    case MsgProtos.TbMsgProto.RULENODEEXECCOUNTER_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> ruleNodeExecCounter = input.readInt32();
+                    case MsgProtos.TbMsgProto.CUSTOMERIDMSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> customerIdMSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.CUSTOMERIDLSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> customerIdLSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.CTX_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED -> {
+                        if (ctxBuilder == null) {
+                            ctxBuilder = MsgProtos.TbMsgProcessingCtxProto.newBuilder();
+                        }
+                        ctxBuilder.mergeFrom(input.readBytes());
+                    }
+                    case MsgProtos.TbMsgProto.CORRELATIONIDMSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> correlationIdMSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.CORRELATIONIDLSB_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> correlationIdLSB = input.readInt64();
+                    case MsgProtos.TbMsgProto.PARTITION_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT -> partitionValue = input.readInt32();
+                    case MsgProtos.TbMsgProto.CALCULATEDFIELDS_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED -> {
+                        if (encodedCalculatedFieldIds == null) {
+                            encodedCalculatedFieldIds = new ArrayList<>();
+                        }
+                        encodedCalculatedFieldIds.add(input.readBytes());
+                    }
+                    default -> done = !input.skipField(tag);
+                }
+            }
+
+            EntityId entityId = EntityIdFactory.getByTypeAndUuid(entityType, new UUID(entityIdMSB, entityIdLSB));
             CustomerId customerId = null;
             RuleChainId ruleChainId = null;
             RuleNodeId ruleNodeId = null;
             UUID correlationId = null;
             Integer partition = null;
-            List<CalculatedFieldId> calculatedFieldIds = new CopyOnWriteArrayList<>();
-            if (proto.getCustomerIdMSB() != 0L && proto.getCustomerIdLSB() != 0L) {
-                customerId = new CustomerId(new UUID(proto.getCustomerIdMSB(), proto.getCustomerIdLSB()));
+            if (customerIdMSB != 0L && customerIdLSB != 0L) {
+                customerId = new CustomerId(new UUID(customerIdMSB, customerIdLSB));
             }
-            if (proto.getRuleChainIdMSB() != 0L && proto.getRuleChainIdLSB() != 0L) {
-                ruleChainId = new RuleChainId(new UUID(proto.getRuleChainIdMSB(), proto.getRuleChainIdLSB()));
+            if (ruleChainIdMSB != 0L && ruleChainIdLSB != 0L) {
+                ruleChainId = new RuleChainId(new UUID(ruleChainIdMSB, ruleChainIdLSB));
             }
-            if (proto.getRuleNodeIdMSB() != 0L && proto.getRuleNodeIdLSB() != 0L) {
-                ruleNodeId = new RuleNodeId(new UUID(proto.getRuleNodeIdMSB(), proto.getRuleNodeIdLSB()));
+            if (ruleNodeIdMSB != 0L && ruleNodeIdLSB != 0L) {
+                ruleNodeId = new RuleNodeId(new UUID(ruleNodeIdMSB, ruleNodeIdLSB));
             }
-            if (proto.getCorrelationIdMSB() != 0L && proto.getCorrelationIdLSB() != 0L) {
-                correlationId = new UUID(proto.getCorrelationIdMSB(), proto.getCorrelationIdLSB());
-                partition = proto.getPartition();
-            }
-
-            for (MsgProtos.CalculatedFieldIdProto cfIdProto : proto.getCalculatedFieldsList()) {
-                CalculatedFieldId calculatedFieldId = new CalculatedFieldId(new UUID(
-                        cfIdProto.getCalculatedFieldIdMSB(),
-                        cfIdProto.getCalculatedFieldIdLSB()
-                ));
-                calculatedFieldIds.add(calculatedFieldId);
+            if (correlationIdMSB != 0L && correlationIdLSB != 0L) {
+                correlationId = new UUID(correlationIdMSB, correlationIdLSB);
+                partition = partitionValue;
             }
 
             TbMsgProcessingCtx ctx;
-            if (proto.hasCtx()) {
-                ctx = TbMsgProcessingCtx.fromProto(proto.getCtx());
+            if (ctxBuilder != null) {
+                ctx = TbMsgProcessingCtx.fromProto(ctxBuilder.build());
             } else {
                 // Backward compatibility with unprocessed messages fetched from queue after update.
-                ctx = new TbMsgProcessingCtx(proto.getRuleNodeExecCounter());
+                ctx = new TbMsgProcessingCtx(ruleNodeExecCounter);
             }
 
-            TbMsgDataType dataType = TbMsgDataType.values()[proto.getDataType()];
-            return new TbMsg(queueName, UUID.fromString(proto.getId()), proto.getTs(), null, proto.getType(), entityId, customerId,
-                    metaData, dataType, proto.getData(), ruleChainId, ruleNodeId, correlationId, partition, calculatedFieldIds, ctx, callback);
-        } catch (InvalidProtocolBufferException e) {
+            TbMsgMetaData metaData = encodedMetaData != null ? new TbMsgMetaData(encodedMetaData) : new TbMsgMetaData();
+            TbMsgDataType dataType = TbMsgDataType.values()[dataTypeValue];
+            return new TbMsg(queueName, UUID.fromString(encodedId.toStringUtf8()), ts, null, type, entityId, customerId,
+                    metaData, dataType, null, ruleChainId, ruleNodeId, correlationId, partition, null, ctx, callback,
+                    encodedId, encodedData, encodedCalculatedFieldIds);
+        } catch (IOException e) {
             throw new IllegalStateException("Could not parse protobuf for TbMsg", e);
         }
     }
@@ -261,6 +422,37 @@ public final class TbMsg implements Serializable {
         return ctx.getAndIncrementRuleNodeCounter();
     }
 
+    public String getData() {
+        String data = this.data;
+        if (data == null && encodedData != null) {
+            data = encodedData.toStringUtf8();
+            this.data = data;
+        }
+        return data;
+    }
+
+    public List<CalculatedFieldId> getPreviousCalculatedFieldIds() {
+        List<CalculatedFieldId> calculatedFieldIds = this.previousCalculatedFieldIds;
+        if (calculatedFieldIds == null) {
+            synchronized (this) {
+                calculatedFieldIds = this.previousCalculatedFieldIds;
+                if (calculatedFieldIds == null) {
+                    calculatedFieldIds = new CopyOnWriteArrayList<>();
+                    for (ByteString encodedCalculatedFieldId : encodedCalculatedFieldIds) {
+                        try {
+                            MsgProtos.CalculatedFieldIdProto cfIdProto = MsgProtos.CalculatedFieldIdProto.parseFrom(encodedCalculatedFieldId);
+                            calculatedFieldIds.add(new CalculatedFieldId(new UUID(cfIdProto.getCalculatedFieldIdMSB(), cfIdProto.getCalculatedFieldIdLSB())));
+                        } catch (InvalidProtocolBufferException e) {
+                            throw new IllegalStateException("Could not parse protobuf for TbMsg", e);
+                        }
+                    }
+                    this.previousCalculatedFieldIds = calculatedFieldIds;
+                }
+            }
+        }
+        return calculatedFieldIds;
+    }
+
     public TbMsgCallback getCallback() {
         // May be null in case of deserialization;
         return Objects.requireNonNullElse(callback, TbMsgCallback.EMPTY);
@@ -294,6 +486,12 @@ public final class TbMsg implements Serializable {
         return ts;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getData();
+        getPreviousCalculatedFieldIds();
+        out.defaultWriteObject();
+    }
+
     private TbMsgType getInternalType(String type) {
         if (type != null) {
             try {
@@ -374,6 +572,9 @@ public final class TbMsg implements Serializable {
         protected List<CalculatedFieldId> previousCalculatedFieldIds;
         protected TbMsgProcessingCtx ctx;
         protected TbMsgCallback callback;
+        protected ByteString encodedId;
+        protected ByteString encodedData;
+        protected List<ByteString> encodedCalculatedFieldIds;
 
         TbMsgBuilder() {
         }
@@ -396,6 +597,9 @@ public final class TbMsg implements Serializable {
             this.previousCalculatedFieldIds = tbMsg.previousCalculatedFieldIds;
             this.ctx = tbMsg.ctx;
             this.callback = tbMsg.callback;
+            this.encodedId = tbMsg.encodedId;
+            this.encodedData = tbMsg.encodedData;
+            this.encodedCalculatedFieldIds = tbMsg.encodedCalculatedFieldIds;
         }
 
         public TbMsgBuilder queueName(String queueName) {
@@ -405,6 +609,7 @@ public final class TbMsg implements Serializable {
 
         public TbMsgBuilder id(UUID id) {
             this.id = id;
+            this.encodedId = null;
             return this;
         }
 
@@ -457,6 +662,7 @@ public final class TbMsg implements Serializable {
 
         public TbMsgBuilder data(String data) {
             this.data = data;
+            this.encodedData = null;
             return this;
         }
 
@@ -486,6 +692,7 @@ public final class TbMsg implements Serializable {
 
         public TbMsgBuilder previousCalculatedFieldIds(List<CalculatedFieldId> previousCalculatedFieldIds) {
             this.previousCalculatedFieldIds = new CopyOnWriteArrayList<>(previousCalculatedFieldIds);
+            this.encodedCalculatedFieldIds = null;
             return this;
         }
 
@@ -500,7 +707,8 @@ public final class TbMsg implements Serializable {
         }
 
         public TbMsg build() {
-            return new TbMsg(queueName, id, ts, internalType, type, originator, customerId, metaData, dataType, data, ruleChainId, ruleNodeId, correlationId, partition, previousCalculatedFieldIds, ctx, callback);
+            return new TbMsg(queueName, id, ts, internalType, type, originator, customerId, metaData, dataType, data, ruleChainId, ruleNodeId, correlationId, partition, previousCalculatedFieldIds, ctx, callback,
+                    encodedId, encodedData, encodedCalculatedFieldIds);
         }
 
         public String toString() {
@@ -15,8 +15,18 @@
  */
 package org.thingsboard.server.common.msg;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
@@ -33,6 +43,16 @@ public final class TbMsgMetaData implements Serializable {
 
     private final Map<String, String> data;
 
+    /**
+     * Encoded {@link MsgProtos.TbMsgMetaDataProto} received from the queue.
+     * Decoded into {@link #data} on first access, until then it is written back to the queue as is.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient volatile ByteString encoded;
+
     public TbMsgMetaData() {
         this.data = new ConcurrentHashMap<>();
     }
@@ -49,21 +69,63 @@ public final class TbMsgMetaData implements Serializable {
         this.data = Collections.emptyMap();
     }
 
+    TbMsgMetaData(ByteString encoded) {
+        this.data = new ConcurrentHashMap<>();
+        this.encoded = encoded;
+    }
+
+    public Map<String, String> getData() {
+        decodeIfNeeded();
+        return this.data;
+    }
+
     public String getValue(String key) {
-        return this.data.get(key);
+        return getData().get(key);
     }
 
     public void putValue(String key, String value) {
         if (key != null && value != null) {
-            this.data.put(key, value);
+            getData().put(key, value);
         }
     }
 
     public Map<String, String> values() {
-        return new HashMap<>(this.data);
+        return new HashMap<>(getData());
     }
 
     public TbMsgMetaData copy() {
+        ByteString encoded = this.encoded;
+        if (encoded != null) {
+            return new TbMsgMetaData(encoded);
+        }
         return new TbMsgMetaData(this.data);
     }
+
+    /**
+     * @return encoded metadata if it was not decoded (and thus not modified) since it was received from the queue, null otherwise.
+     */
+    ByteString getEncodedIfNotDecoded() {
+        return this.encoded;
+    }
+
+    private void decodeIfNeeded() {
+        if (this.encoded != null) {
+            synchronized (this) {
+                ByteString encoded = this.encoded;
+                if (encoded != null) {
+                    try {
+                        this.data.putAll(MsgProtos.TbMsgMetaDataProto.parseFrom(encoded).getDataMap());
+                    } catch (InvalidProtocolBufferException e) {
+                        throw new IllegalStateException("Could not parse protobuf for TbMsgMetaData", e);
+                    }
+                    this.encoded = null;
+                }
+            }
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        decodeIfNeeded();
+        out.defaultWriteObject();
+    }
 }
@@ -0,0 +1,189 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.CalculatedFieldId;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TbMsgTest {
+
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+    private final CustomerId customerId = new CustomerId(UUID.randomUUID());
+    private final RuleChainId ruleChainId = new RuleChainId(UUID.randomUUID());
+    private final RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+    private final CalculatedFieldId calculatedFieldId = new CalculatedFieldId(UUID.randomUUID());
+
+    @Test
+    void givenMsg_whenToByteStringAndFromBytes_thenAllFieldsPreserved() {
+        TbMsg msg = newMsg();
+
+        TbMsg decoded = TbMsg.fromBytes("Main", TbMsg.toByteString(msg), TbMsgCallback.EMPTY);
+
+        assertMsgEquals(decoded, msg);
+        assertThat(decoded.getQueueName()).isEqualTo("Main");
+    }
+
+    @Test
+    void givenDecodedMsg_whenNotTouched_thenReEncodedBytesAreEquivalentToOriginal() throws Exception {
+        TbMsg msg = newMsg();
+        byte[] bytes = TbMsg.toByteArray(msg);
+
+        TbMsg decoded = TbMsg.fromBytes("Main", bytes, TbMsgCallback.EMPTY);
+        TbMsg transformed = decoded.transform()
+                .ruleNodeId(new RuleNodeId(UUID.randomUUID()))
+                .build();
+
+        assertThat(decoded.getMetaData().getEncodedIfNotDecoded()).isNotNull();
+        MsgProtos.TbMsgProto original = MsgProtos.TbMsgProto.parseFrom(bytes);
+        MsgProtos.TbMsgProto reEncoded = MsgProtos.TbMsgProto.parseFrom(TbMsg.toByteArray(transformed));
+        assertThat(reEncoded.getId()).isEqualTo(original.getId());
+        assertThat(reEncoded.getData()).isEqualTo(original.getData());
+        assertThat(reEncoded.getMetaData()).isEqualTo(original.getMetaData());
+        assertThat(reEncoded.getCalculatedFieldsList()).isEqualTo(original.getCalculatedFieldsList());
+        assertThat(reEncoded.getRuleNodeIdMSB()).isEqualTo(transformed.getRuleNodeId().getId().getMostSignificantBits());
+        assertThat(decoded.getMetaData().getEncodedIfNotDecoded()).isNotNull();
+    }
+
+    @Test
+    void givenDecodedMsg_whenMetaDataModifiedInPlace_thenModificationIsEncoded() {
+        TbMsg decoded = TbMsg.fromBytes("Main", TbMsg.toByteString(newMsg()), TbMsgCallback.EMPTY);
+
+        decoded.getMetaData().putValue("newKey", "newValue");
+
+        TbMsg reDecoded = TbMsg.fromBytes("Main", TbMsg.toByteString(decoded), TbMsgCallback.EMPTY);
+        assertThat(reDecoded.getMetaData().getData()).containsEntry("deviceName", "Test Device").containsEntry("newKey", "newValue");
+    }
+
+    @Test
+    void givenDecodedMsg_whenDataAndCalculatedFieldsReplaced_thenNewValuesAreEncoded() {
+        TbMsg decoded = TbMsg.fromBytes("Main", TbMsg.toByteString(newMsg()), TbMsgCallback.EMPTY);
+        CalculatedFieldId newCalculatedFieldId = new CalculatedFieldId(UUID.randomUUID());
+
+        TbMsg transformed = decoded.transform()
+                .data("{\"humidity\":50}")
+                .previousCalculatedFieldIds(List.of(newCalculatedFieldId))
+                .build();
+
+        TbMsg reDecoded = TbMsg.fromBytes("Main", TbMsg.toByteString(transformed), TbMsgCallback.EMPTY);
+        assertThat(reDecoded.getData()).isEqualTo("{\"humidity\":50}");
+        assertThat(reDecoded.getPreviousCalculatedFieldIds()).containsExactly(newCalculatedFieldId);
+        assertThat(reDecoded.getMetaData().getData()).containsEntry("deviceName", "Test Device");
+    }
+
+    @Test
+    void givenDecodedMsg_whenCopiedWithNewId_thenNewIdIsEncoded() {
+        TbMsg decoded = TbMsg.fromBytes("Main", TbMsg.toByteString(newMsg()), TbMsgCallback.EMPTY);
+        TbMsg newMsg = TbMsg.newMsg(decoded, "HighPriority", ruleChainId, ruleNodeId);
+
+        TbMsg reDecoded = TbMsg.fromBytes("HighPriority", TbMsg.toByteString(newMsg), TbMsgCallback.EMPTY);
+
+        assertThat(reDecoded.getId()).isEqualTo(newMsg.getId()).isNotEqualTo(decoded.getId());
+        assertThat(reDecoded.getData()).isEqualTo(decoded.getData());
+    }
+
+    @Test
+    void givenMsgWithoutOptionalFields_whenToByteStringAndFromBytes_thenDefaultsApplied() {
+        TbMsg msg = TbMsg.newMsg()
+                .type(TbMsgType.POST_ATTRIBUTES_REQUEST)
+                .originator(deviceId)
+                .metaData(TbMsgMetaData.EMPTY)
+                .data(TbMsg.EMPTY_JSON_OBJECT)
+                .build();
+
+        TbMsg decoded = TbMsg.fromBytes(null, TbMsg.toByteString(msg), TbMsgCallback.EMPTY);
+
+        assertMsgEquals(decoded, msg);
+        assertThat(decoded.getCustomerId()).isNull();
+        assertThat(decoded.getRuleChainId()).isNull();
+        assertThat(decoded.getCorrelationId()).isNull();
+        assertThat(decoded.getPreviousCalculatedFieldIds()).isEmpty();
+    }
+
+    @Test
+    void givenProtoEncodedByGeneratedCode_whenFromBytes_thenDecoded() {
+        UUID id = UUID.randomUUID();
+        byte[] bytes = MsgProtos.TbMsgProto.newBuilder()
+                .setId(id.toString())
+                .setType(TbMsgType.POST_TELEMETRY_REQUEST.name())
+                .setEntityType(deviceId.getEntityType().name())
+                .setEntityIdMSB(deviceId.getId().getMostSignificantBits())
+                .setEntityIdLSB(deviceId.getId().getLeastSignificantBits())
+                .setMetaData(MsgProtos.TbMsgMetaDataProto.newBuilder().putData("key", "value"))
+                .setData("{}")
+                .setTs(42L)
+                .setRuleNodeExecCounter(3)
+                .build().toByteArray();
+
+        TbMsg decoded = TbMsg.fromBytes("Main", ByteString.copyFrom(bytes), TbMsgCallback.EMPTY);
+
+        assertThat(decoded.getId()).isEqualTo(id);
+        assertThat(decoded.getTs()).isEqualTo(42L);
+        assertThat(decoded.getOriginator()).isEqualTo(deviceId);
+        assertThat(decoded.getMetaData().getData()).isEqualTo(Map.of("key", "value"));
+        assertThat(decoded.getData()).isEqualTo("{}");
+        assertThat(decoded.getAndIncrementRuleNodeCounter()).isEqualTo(3);
+    }
+
+    private TbMsg newMsg() {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Test Device");
+        metaData.putValue("deviceType", "default");
+        return TbMsg.newMsg()
+                .type(TbMsgType.POST_TELEMETRY_REQUEST)
+                .originator(deviceId)
+                .customerId(customerId)
+                .metaData(metaData)
+                .data("{\"temperature\":42}")
+                .ruleChainId(ruleChainId)
+                .ruleNodeId(ruleNodeId)
+                .correlationId(UUID.randomUUID())
+                .partition(5)
+                .previousCalculatedFieldIds(List.of(calculatedFieldId))
+                .build();
+    }
+
+    private void assertMsgEquals(TbMsg actual, TbMsg expected) {
+        assertThat(actual.getId()).isEqualTo(expected.getId());
+        assertThat(actual.getTs()).isEqualTo(expected.getTs());
+        assertThat(actual.getType()).isEqualTo(expected.getType());
+        assertThat(actual.getInternalType()).isEqualTo(expected.getInternalType());
+        assertThat(actual.getOriginator()).isEqualTo(expected.getOriginator());
+        assertThat(actual.getCustomerId()).isEqualTo(expected.getCustomerId());
+        assertThat(actual.getMetaData()).isEqualTo(expected.getMetaData());
+        assertThat(actual.getDataType()).isEqualTo(expected.getDataType());
+        assertThat(actual.getData()).isEqualTo(expected.getData());
+        assertThat(actual.getRuleChainId()).isEqualTo(expected.getRuleChainId());
+        assertThat(actual.getRuleNodeId()).isEqualTo(expected.getRuleNodeId());
+        assertThat(actual.getCorrelationId()).isEqualTo(expected.getCorrelationId());
+        assertThat(actual.getPartition()).isEqualTo(expected.getPartition());
+        assertThat(actual.getPreviousCalculatedFieldIds()).isEqualTo(expected.getPreviousCalculatedFieldIds());
+    }
+
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import org.thingsboard.server.common.msg.gateway.metrics.GatewayMetadata;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+
+import java.util.List;
+
+/**
+ * Telemetry of one device from the gateway telemetry payload.
+ *
+ * @param msg      converted telemetry, null if the conversion failed
+ * @param metadata gateway metadata of the telemetry, null if there is no metadata
+ * @param error    error of the conversion, null if the conversion succeeded
+ */
+public record GatewayDeviceTelemetry(PostTelemetryMsg msg, List<GatewayMetadata> metadata, RuntimeException error) {
+}
@@ -53,6 +53,7 @@ import org.thingsboard.server.gen.transport.TransportProtos.ValidateBasicMqttCre
 import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceX509CertRequestMsg;
 
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -67,7 +68,7 @@ import java.util.function.Consumer;
 public class JsonConverter {
 
     private static final Gson GSON = new Gson();
-    private static final String CAN_T_PARSE_VALUE = "Can't parse value: ";
+    static final String CAN_T_PARSE_VALUE = "Can't parse value: ";
     private static final String DEVICE_PROPERTY = "device";
 
     private static boolean isTypeCastEnabled = true;
@@ -84,6 +85,29 @@ public class JsonConverter {
         return convertToTelemetryProto(jsonElement, System.currentTimeMillis());
     }
 
+    /**
+     * Same as {@link #convertToTelemetryProto(JsonElement, long)}, but reads the JSON token by token
+     * without building the String and the tree of the whole payload.
+     */
+    public static PostTelemetryMsg convertToTelemetryProto(Reader reader, long ts) throws JsonSyntaxException {
+        return JsonStreamConverter.convertToTelemetryProto(reader, ts);
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(Reader reader) throws JsonSyntaxException {
+        return convertToTelemetryProto(reader, System.currentTimeMillis());
+    }
+
+    /**
+     * Reads the gateway telemetry payload of the {"Device A": [{...}, ...], "Device B": [...]} format.
+     * The error of the telemetry conversion of one device does not fail the whole payload and is returned
+     * for that device, while the malformed JSON fails the whole payload.
+     *
+     * @return telemetry of the devices in the order of the payload, null value for the device with telemetry that is not a JSON array
+     */
+    public static Map<String, GatewayDeviceTelemetry> convertToGatewayTelemetry(Reader reader, long systemTs) throws JsonSyntaxException {
+        return JsonStreamConverter.convertToGatewayTelemetry(reader, systemTs);
+    }
+
     public static TbPair<TransportProtos.PostTelemetryMsg, List<GatewayMetadata>> convertToGatewayTelemetry(JsonElement jsonElement, long systemTs) {
         List<GatewayMetadata> metadataResult = null;
         PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
@@ -98,15 +122,7 @@ public class JsonConverter {
                         if (metadataResult == null) {
                             metadataResult = new ArrayList<>();
                         }
-                        if (metadataElem.isJsonObject()) {
-                            JsonObject metadataObj = metadataElem.getAsJsonObject();
-                            var connector = getAndValidateMetadataElement(metadataObj, "connector").getAsString();
-                            var receivedTs = getAndValidateMetadataElement(metadataObj, "receivedTs").getAsLong();
-                            var publishedTs = getAndValidateMetadataElement(metadataObj, "publishedTs").getAsLong();
-                            metadataResult.add(new GatewayMetadata(connector, receivedTs, publishedTs));
-                        } else {
-                            throw new JsonSyntaxException("Can't parse gateway metadata: " + metadataElem);
-                        }
+                        metadataResult.add(parseGatewayMetadata(metadataElem));
                     }
                     parseObject(systemTs, null, builder, jo);
                 } else {
@@ -119,6 +135,18 @@ public class JsonConverter {
         return TbPair.of(builder.build(), metadataResult);
     }
 
+    static GatewayMetadata parseGatewayMetadata(JsonElement metadataElem) {
+        if (metadataElem.isJsonObject()) {
+            JsonObject metadataObj = metadataElem.getAsJsonObject();
+            var connector = getAndValidateMetadataElement(metadataObj, "connector").getAsString();
+            var receivedTs = getAndValidateMetadataElement(metadataObj, "receivedTs").getAsLong();
+            var publishedTs = getAndValidateMetadataElement(metadataObj, "publishedTs").getAsLong();
+            return new GatewayMetadata(connector, receivedTs, publishedTs);
+        } else {
+            throw new JsonSyntaxException("Can't parse gateway metadata: " + metadataElem);
+        }
+    }
+
     private static JsonElement getAndValidateMetadataElement(JsonObject metadata, String elementName) {
         var element = metadata.get(elementName);
         if (element == null || element.isJsonNull()) {
@@ -197,6 +225,14 @@ public class JsonConverter {
         }
     }
 
+    /**
+     * Same as {@link #convertToAttributesProto(JsonElement)}, but reads the JSON token by token
+     * without building the String and the tree of the whole payload.
+     */
+    public static PostAttributeMsg convertToAttributesProto(Reader reader) throws JsonSyntaxException {
+        return JsonStreamConverter.convertToAttributesProto(reader);
+    }
+
     public static JsonElement toJson(TransportProtos.ToDeviceRpcRequestMsg msg, boolean includeRequestId) {
         JsonObject result = new JsonObject();
         if (includeRequestId) {
@@ -229,48 +265,70 @@ public class JsonConverter {
         request.addTsKvList(builder.build());
     }
 
-    private static List<KeyValueProto> parseProtoValues(JsonObject valuesObject) {
+    static List<KeyValueProto> parseProtoValues(JsonObject valuesObject) {
         List<KeyValueProto> result = new ArrayList<>();
         for (Entry<String, JsonElement> valueEntry : valuesObject.entrySet()) {
-            JsonElement element = valueEntry.getValue();
-            if (element.isJsonPrimitive()) {
-                JsonPrimitive value = element.getAsJsonPrimitive();
-                if (value.isString()) {
-                    if (maxStringValueLength > 0 && value.getAsString().length() > maxStringValueLength) {
-                        String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.getAsString().length(), valueEntry.getKey(), maxStringValueLength);
-                        throw new JsonSyntaxException(message);
-                    }
-                    if (isTypeCastEnabled && NumberUtils.isParsable(value.getAsString())) {
-                        try {
-                            result.add(buildNumericKeyValueProto(value, valueEntry.getKey()));
-                        } catch (RuntimeException th) {
-                            result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.STRING_V)
-                                    .setStringV(value.getAsString()).build());
-                        }
-                    } else {
-                        result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.STRING_V)
-                                .setStringV(value.getAsString()).build());
-                    }
-                } else if (value.isBoolean()) {
-                    result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.BOOLEAN_V)
-                            .setBoolV(value.getAsBoolean()).build());
-                } else if (value.isNumber()) {
-                    result.add(buildNumericKeyValueProto(value, valueEntry.getKey()));
-                } else if (!value.isJsonNull()) {
-                    throw new JsonSyntaxException(CAN_T_PARSE_VALUE + value);
-                }
-            } else if (element.isJsonObject() || element.isJsonArray()) {
-                result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.JSON_V).setJsonV(element.toString()).build());
-            } else if (!element.isJsonNull()) {
-                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + element);
+            KeyValueProto kv = buildKeyValueProto(valueEntry.getValue(), valueEntry.getKey());
+            if (kv != null) {
+                result.add(kv);
             }
         }
         return result;
     }
 
-    private static KeyValueProto buildNumericKeyValueProto(JsonPrimitive value, String key) {
-        String valueAsString = value.getAsString();
+    /**
+     * @return key-value proto of the element, or null if the element is JSON null
+     */
+    static KeyValueProto buildKeyValueProto(JsonElement element, String key) {
+        if (element.isJsonPrimitive()) {
+            JsonPrimitive value = element.getAsJsonPrimitive();
+            if (value.isString()) {
+                return buildStringKeyValueProto(value.getAsString(), key);
+            } else if (value.isBoolean()) {
+                return buildBooleanKeyValueProto(value.getAsBoolean(), key);
+            } else if (value.isNumber()) {
+                return buildNumericKeyValueProto(value.getAsString(), key);
+            } else {
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + value);
+            }
+        } else if (element.isJsonObject() || element.isJsonArray()) {
+            return buildJsonKeyValueProto(element.toString(), key);
+        } else if (!element.isJsonNull()) {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + element);
+        }
+        return null;
+    }
+
+    static KeyValueProto buildStringKeyValueProto(String value, String key) {
+        if (maxStringValueLength > 0 && value.length() > maxStringValueLength) {
+            String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.length(), key, maxStringValueLength);
+            throw new JsonSyntaxException(message);
+        }
+        if (isTypeCastEnabled && NumberUtils.isParsable(value)) {
+            try {
+                return buildNumericKeyValueProto(value, key);
+            } catch (RuntimeException th) {
+                return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+            }
+        } else {
+            return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+        }
+    }
+
+    static KeyValueProto buildBooleanKeyValueProto(boolean value, String key) {
+        return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.BOOLEAN_V).setBoolV(value).build();
+    }
+
+    static KeyValueProto buildJsonKeyValueProto(String value, String key) {
+        return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.JSON_V).setJsonV(value).build();
+    }
+
+    static KeyValueProto buildNumericKeyValueProto(String valueAsString, String key) {
         KeyValueProto.Builder builder = KeyValueProto.newBuilder().setKey(key);
+        KeyValueProto simple = buildSimpleNumericKeyValueProto(valueAsString, builder);
+        if (simple != null) {
+            return simple;
+        }
         var bd = new BigDecimal(valueAsString);
         if (bd.stripTrailingZeros().scale() <= 0 && !isSimpleDouble(valueAsString)) {
             try {
@@ -291,7 +349,32 @@ public class JsonConverter {
                 throw new JsonSyntaxException("Big integer values are not supported!");
             }
         }
+    }
 
+    /**
+     * Converts the usual integer and decimal numbers without the exponent and of the limited length without BigDecimal,
+     * the result is the same as the one of the BigDecimal based conversion.
+     *
+     * @return null if the number is not simple
+     */
+    private static KeyValueProto buildSimpleNumericKeyValueProto(String valueAsString, KeyValueProto.Builder builder) {
+        int length = valueAsString.length();
+        int start = length > 0 && valueAsString.charAt(0) == '-' ? 1 : 0;
+        int point = -1;
+        for (int i = start; i < length; i++) {
+            char c = valueAsString.charAt(i);
+            if (c == '.' && point < 0) {
+                point = i;
+            } else if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        if (point < 0) {
+            int digits = length - start;
+            return digits > 0 && digits <= 18 ? builder.setType(KeyValueType.LONG_V).setLongV(Long.parseLong(valueAsString)).build() : null;
+        }
+        int scale = length - point - 1;
+        return length - start > 1 && scale <= 16 ? builder.setType(KeyValueType.DOUBLE_V).setDoubleV(Double.parseDouble(valueAsString)).build() : null;
     }
 
     private static boolean isSimpleDouble(String valueAsString) {
@@ -0,0 +1,315 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import org.thingsboard.server.common.msg.gateway.metrics.GatewayMetadata;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.PostAttributeMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.thingsboard.server.common.adaptor.JsonConverter.CAN_T_PARSE_VALUE;
+
+/**
+ * Converts the telemetry and attributes JSON payloads to the protos reading them token by token,
+ * so neither the String nor the JsonElement tree of the whole payload is created.
+ * Only the values that are saved as JSON are read as a tree to be serialized back.
+ * <p>
+ * The result is the same as of the conversion of the parsed tree by {@link JsonConverter}. Since the tree is not available
+ * before the conversion, the errors of the values are remembered and thrown once the whole payload is read,
+ * so the malformed JSON is reported first as it is by the parsing, and the errors of the values
+ * that are ignored, like the keys other than "ts" and "values" of the object with the timestamp, are not thrown at all.
+ */
+class JsonStreamConverter {
+
+    private static final String TS = "ts";
+    private static final String VALUES = "values";
+    private static final String METADATA = "metadata";
+
+    private final JsonReader reader;
+    private RuntimeException error;
+
+    private JsonStreamConverter(Reader in) {
+        this.reader = new JsonReader(in);
+        // same as JsonParser.parseReader does
+        this.reader.setLenient(true);
+    }
+
+    static PostTelemetryMsg convertToTelemetryProto(Reader in, long systemTs) {
+        PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+        new JsonStreamConverter(in).convert(converter -> converter.readTelemetry(builder, systemTs, null));
+        return builder.build();
+    }
+
+    static PostAttributeMsg convertToAttributesProto(Reader in) {
+        PostAttributeMsg.Builder builder = PostAttributeMsg.newBuilder();
+        new JsonStreamConverter(in).convert(converter -> converter.readAttributes(builder));
+        return builder.build();
+    }
+
+    static Map<String, GatewayDeviceTelemetry> convertToGatewayTelemetry(Reader in, long systemTs) {
+        Map<String, GatewayDeviceTelemetry> result = new LinkedHashMap<>();
+        new JsonStreamConverter(in).convert(converter -> converter.readGatewayTelemetry(result, systemTs));
+        return result;
+    }
+
+    private void convert(Conversion conversion) {
+        try {
+            try {
+                reader.peek();
+            } catch (EOFException e) {
+                // empty payload is parsed as JSON null
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + JsonNull.INSTANCE);
+            }
+            conversion.convert(this);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Did not consume the entire document.");
+            }
+        } catch (MalformedJsonException | EOFException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void readTelemetry(PostTelemetryMsg.Builder builder, long systemTs, List<GatewayMetadata> metadata) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            readObject(builder, systemTs, metadata);
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readObject(builder, systemTs, metadata);
+                } else {
+                    fail(new JsonSyntaxException(CAN_T_PARSE_VALUE + JsonParser.parseReader(reader)));
+                }
+            }
+            reader.endArray();
+        } else {
+            fail(new JsonSyntaxException(CAN_T_PARSE_VALUE + JsonParser.parseReader(reader)));
+        }
+    }
+
+    private void readObject(PostTelemetryMsg.Builder builder, long systemTs, List<GatewayMetadata> metadata) throws IOException {
+        // whether the object has the timestamp is known only at its end, so the keys are converted as the values without timestamp too
+        List<KeyValueProto> kvList = new ArrayList<>();
+        RuntimeException kvError = null;
+        JsonElement ts = null;
+        JsonElement values = null;
+        List<KeyValueProto> tsKvList = null;
+        RuntimeException tsKvError = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (metadata != null && METADATA.equals(key)) {
+                JsonElement metadataElem = JsonParser.parseReader(reader);
+                try {
+                    metadata.add(JsonConverter.parseGatewayMetadata(metadataElem));
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+            } else if (TS.equals(key)) {
+                ts = JsonParser.parseReader(reader);
+                kvError = firstError(kvError, addKeyValue(kvList, ts, key));
+            } else if (VALUES.equals(key) && ts != null && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                // the values after the timestamp are converted without the tree, that is the usual order
+                values = null;
+                tsKvList = new ArrayList<>();
+                tsKvError = readValues(tsKvList);
+            } else if (VALUES.equals(key)) {
+                values = JsonParser.parseReader(reader);
+                tsKvList = null;
+                kvError = firstError(kvError, addKeyValue(kvList, values, key));
+            } else {
+                kvError = firstError(kvError, readValue(kvList, key));
+            }
+        }
+        reader.endObject();
+        try {
+            if (ts != null && (values != null || tsKvList != null)) {
+                TsKvListProto.Builder tsKvBuilder = TsKvListProto.newBuilder();
+                tsKvBuilder.setTs(ts.getAsLong());
+                if (tsKvList == null) {
+                    tsKvBuilder.addAllKv(JsonConverter.parseProtoValues(values.getAsJsonObject()));
+                } else if (tsKvError == null) {
+                    tsKvBuilder.addAllKv(withoutDuplicateKeys(tsKvList));
+                } else {
+                    throw tsKvError;
+                }
+                builder.addTsKvList(tsKvBuilder.build());
+            } else if (kvError == null) {
+                builder.addTsKvList(TsKvListProto.newBuilder().setTs(systemTs).addAllKv(withoutDuplicateKeys(kvList)).build());
+            } else {
+                throw kvError;
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void readAttributes(PostAttributeMsg.Builder builder) throws IOException {
+        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            List<KeyValueProto> kvList = new ArrayList<>();
+            fail(readValues(kvList));
+            builder.addAllKv(withoutDuplicateKeys(kvList));
+        } else {
+            fail(new JsonSyntaxException(CAN_T_PARSE_VALUE + JsonParser.parseReader(reader)));
+        }
+    }
+
+    private void readGatewayTelemetry(Map<String, GatewayDeviceTelemetry> result, long systemTs) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            fail(new JsonSyntaxException(CAN_T_PARSE_VALUE + JsonParser.parseReader(reader)));
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String deviceName = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                result.put(deviceName, null);
+                continue;
+            }
+            PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+            List<GatewayMetadata> metadata = new ArrayList<>();
+            readTelemetry(builder, systemTs, metadata);
+            result.put(deviceName, new GatewayDeviceTelemetry(error == null ? builder.build() : null, metadata.isEmpty() ? null : metadata, error));
+            error = null;
+        }
+        reader.endObject();
+    }
+
+    /**
+     * @return the first error of the values conversion, the values are read till the end of the object anyway
+     */
+    private RuntimeException readValues(List<KeyValueProto> kvList) throws IOException {
+        RuntimeException valuesError = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            valuesError = firstError(valuesError, readValue(kvList, key));
+        }
+        reader.endObject();
+        return valuesError;
+    }
+
+    /**
+     * @return the error of the value conversion, the value is read anyway
+     */
+    private RuntimeException readValue(List<KeyValueProto> kvList, String key) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                kvList.add(JsonConverter.buildJsonKeyValueProto(JsonParser.parseReader(reader).toString(), key));
+                return null;
+            case BOOLEAN:
+                kvList.add(JsonConverter.buildBooleanKeyValueProto(reader.nextBoolean(), key));
+                return null;
+            case NULL:
+                reader.nextNull();
+                return null;
+            case NUMBER:
+                String number = reader.nextString();
+                try {
+                    kvList.add(JsonConverter.buildNumericKeyValueProto(number, key));
+                    return null;
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            default:
+                String value = reader.nextString();
+                try {
+                    kvList.add(JsonConverter.buildStringKeyValueProto(value, key));
+                    return null;
+                } catch (RuntimeException e) {
+                    return e;
+                }
+        }
+    }
+
+    private static RuntimeException addKeyValue(List<KeyValueProto> kvList, JsonElement element, String key) {
+        try {
+            KeyValueProto kv = JsonConverter.buildKeyValueProto(element, key);
+            if (kv != null) {
+                kvList.add(kv);
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private void fail(RuntimeException e) {
+        error = firstError(error, e);
+    }
+
+    private static RuntimeException firstError(RuntimeException first, RuntimeException next) {
+        return first != null ? first : next;
+    }
+
+    /**
+     * The tree keeps the last value of the duplicated key at the position of the first one.
+     */
+    private static List<KeyValueProto> withoutDuplicateKeys(List<KeyValueProto> kvList) {
+        int size = kvList.size();
+        if (size < 2) {
+            return kvList;
+        }
+        // the keys with equal hashes are rare, so the duplicates are looked up only for them
+        int[] hashes = new int[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = kvList.get(i).getKey().hashCode();
+        }
+        Arrays.sort(hashes);
+        for (int i = 1; i < size; i++) {
+            if (hashes[i] == hashes[i - 1]) {
+                Map<String, KeyValueProto> result = new LinkedHashMap<>();
+                kvList.forEach(kv -> result.put(kv.getKey(), kv));
+                return result.size() < size ? new ArrayList<>(result.values()) : kvList;
+            }
+        }
+        return kvList;
+    }
+
+    @FunctionalInterface
+    private interface Conversion {
+
+        void convert(JsonStreamConverter converter) throws IOException;
+
+    }
+
+}
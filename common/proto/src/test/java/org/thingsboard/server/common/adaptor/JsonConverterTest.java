@@ -22,8 +22,12 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Isolated;
+import org.thingsboard.server.common.msg.gateway.metrics.GatewayMetadata;
 
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @Isolated("JsonConverter static settings being modified")
 public class JsonConverterTest {
@@ -108,4 +112,87 @@ public class JsonConverterTest {
             JsonConverter.convertToTelemetry(JsonParser.parseString("{\"meterReadingDelta\": 9.9701010061400066E19}"), 0L);
         });
     }
+
+    @Test
+    public void testStreamTelemetryConversionIsSameAsTreeConversion() {
+        List<String> payloads = List.of(
+                "{\"temperature\": 42, \"humidity\": 70.5, \"active\": true, \"name\": \"sensor\", \"empty\": null}",
+                "{\"ts\": 1451649600512, \"values\": {\"temperature\": 42, \"pressure\": \"1.5\", \"big\": 99701010061400066001}}",
+                "{\"values\": {\"temperature\": 42}, \"ts\": \"1451649600512\", \"ignored\": 1}",
+                "{\"ts\": 1451649600512, \"temperature\": 42}",
+                "{\"values\": {\"temperature\": 42}, \"humidity\": 70}",
+                "[{\"ts\": 1451649600512, \"values\": {\"temperature\": 42}}, {\"humidity\": 70}]",
+                "{\"json\": {\"nested\": [1, \"a\", {\"b\": null}], \"html\": \"<a href='x'>\"}, \"array\": [1.0, 2E3]}",
+                "{\"temperature\": 42, \"temperature\": 43, \"humidity\": 70}",
+                "{\"ts\": 1451649600512, \"values\": {\"a\": 1, \"b\": 2, \"a\": 3}}",
+                "{\"notNumber\": \"1E+1a\", \"exp\": 1E+1, \"double\": 101E-1, \"zero\": 42.0}"
+        );
+        for (String payload : payloads) {
+            Assertions.assertEquals(JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload), 0L),
+                    JsonConverter.convertToTelemetryProto(new StringReader(payload), 0L), payload);
+        }
+    }
+
+    @Test
+    public void testStreamAttributesConversionIsSameAsTreeConversion() {
+        String payload = "{\"firmware\": \"1.0.1\", \"count\": \"42\", \"enabled\": false, \"config\": {\"a\": [1, 2]}, \"none\": null}";
+        Assertions.assertEquals(JsonConverter.convertToAttributesProto(JsonParser.parseString(payload)),
+                JsonConverter.convertToAttributesProto(new StringReader(payload)));
+    }
+
+    @Test
+    public void testStreamConversionOfInvalidPayloads() {
+        List<String> payloads = List.of("", "42", "[1]", "{\"a\": 1", "{\"a\": 1} {\"b\": 2}", "{\"ts\": \"now\", \"values\": {\"a\": 1}}");
+        for (String payload : payloads) {
+            Assertions.assertThrows(RuntimeException.class, () -> JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload), 0L), payload);
+            Assertions.assertThrows(RuntimeException.class, () -> JsonConverter.convertToTelemetryProto(new StringReader(payload), 0L), payload);
+        }
+        Assertions.assertThrows(JsonSyntaxException.class, () -> JsonConverter.convertToAttributesProto(new StringReader("[{\"a\": 1}]")));
+    }
+
+    @Test
+    public void testStreamConversionIgnoresErrorsOfKeysOutsideOfValues() {
+        JsonConverter.setTypeCastEnabled(false);
+        String payload = "{\"ts\": 1451649600512, \"big\": 89701010051400054084, \"values\": {\"temperature\": 42}}";
+        Assertions.assertEquals(JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload), 0L),
+                JsonConverter.convertToTelemetryProto(new StringReader(payload), 0L));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> JsonConverter.convertToTelemetryProto(
+                new StringReader("{\"ts\": 1451649600512, \"values\": {\"big\": 89701010051400054084}}"), 0L));
+    }
+
+    @Test
+    public void testStreamGatewayTelemetryConversion() {
+        String payload = "{\"Device A\": [{\"ts\": 1451649600512, \"values\": {\"temperature\": 42}, " +
+                "\"metadata\": {\"connector\": \"MQTT\", \"receivedTs\": 1, \"publishedTs\": 2}}], " +
+                "\"Device B\": [{\"humidity\": 70}, 42], \"Device C\": {\"humidity\": 70}, \"Device D\": [{\"humidity\": 71}]}";
+
+        Map<String, GatewayDeviceTelemetry> result = JsonConverter.convertToGatewayTelemetry(new StringReader(payload), 0L);
+
+        Assertions.assertEquals(List.of("Device A", "Device B", "Device C", "Device D"), new ArrayList<>(result.keySet()));
+        var deviceA = JsonConverter.convertToGatewayTelemetry(JsonParser.parseString(payload).getAsJsonObject().get("Device A"), 0L);
+        Assertions.assertEquals(deviceA.getFirst(), result.get("Device A").msg());
+        Assertions.assertEquals(List.of(new GatewayMetadata("MQTT", 1, 2)), result.get("Device A").metadata());
+        Assertions.assertNull(result.get("Device B").msg());
+        Assertions.assertInstanceOf(JsonSyntaxException.class, result.get("Device B").error());
+        Assertions.assertNull(result.get("Device C"));
+        Assertions.assertEquals(JsonConverter.convertToTelemetryProto(JsonParser.parseString("[{\"humidity\": 71}]"), 0L), result.get("Device D").msg());
+        Assertions.assertNull(result.get("Device D").metadata());
+        Assertions.assertThrows(JsonSyntaxException.class, () -> JsonConverter.convertToGatewayTelemetry(new StringReader("{\"Device A\": [{]}"), 0L));
+    }
+
+    @Test
+    public void testParseSimpleNumbersSameAsBigDecimal() {
+        List<String> numbers = List.of("0", "-0", "123456789012345678", "-123456789012345678", "1234567890123456789",
+                "42.0", "5.", "-0.5", "0.1234567890123456", "0.12345678901234567", "1E1", "\"007\"", "\"-.5\"");
+        for (String number : numbers) {
+            var kv = JsonConverter.convertToTelemetryProto(JsonParser.parseString("{\"key\": " + number + "}"), 0L).getTsKvList(0).getKv(0);
+            var expected = new ArrayList<>(JsonConverter.convertToTelemetry(JsonParser.parseString("{\"key\": " + number + "}"), 0L).get(0L)).get(0);
+            switch (kv.getType()) {
+                case LONG_V -> Assertions.assertEquals(expected.getLongValue().get(), kv.getLongV(), number);
+                case DOUBLE_V -> Assertions.assertEquals(expected.getDoubleValue().get(), kv.getDoubleV(), number);
+                default -> Assertions.assertEquals(expected.getStrValue().get(), kv.getStringV(), number);
+            }
+        }
+    }
+
 }
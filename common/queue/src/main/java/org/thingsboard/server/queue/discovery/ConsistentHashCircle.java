@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.queue.discovery;
 
+import com.google.common.collect.Iterables;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.concurrent.ConcurrentNavigableMap;
@@ -55,6 +56,13 @@ public class ConsistentHashCircle<T> {
         return circle.get(hash);
     }
 
+    /**
+     * @return instances in the clockwise order starting from the given hash, wrapping around the circle
+     */
+    public Iterable<T> clockwise(long hash) {
+        return Iterables.concat(circle.tailMap(hash, true).values(), circle.headMap(hash, false).values());
+    }
+
     public void log() {
         circle.forEach((key, value) -> log.debug("{} -> {}", key, value));
     }
@@ -37,6 +37,7 @@ import org.thingsboard.server.queue.discovery.event.PartitionChangeEvent;
 import org.thingsboard.server.queue.discovery.event.ServiceListChangedEvent;
 import org.thingsboard.server.queue.util.AfterStartUp;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -78,6 +79,12 @@ public class HashPartitionService implements PartitionService {
     private Integer edgePartitions;
     @Value("${queue.partitions.hash_function_name:murmur3_128}")
     private String hashFunctionName;
+    @Value("${queue.partitions.consistent_hashing.enabled:false}")
+    private boolean consistentHashingEnabled;
+    @Value("${queue.partitions.consistent_hashing.virtual_nodes:128}")
+    private int virtualNodes;
+    @Value("${queue.partitions.consistent_hashing.load_factor:1.25}")
+    private double loadFactor;
 
     private final ApplicationEventPublisher applicationEventPublisher;
     private final TbServiceInfoProvider serviceInfoProvider;
@@ -389,7 +396,25 @@ public class HashPartitionService implements PartitionService {
         responsibleServices.values().forEach(list -> list.sort(Comparator.comparing(ServiceInfo::getServiceId)));
 
         final ConcurrentMap<QueueKey, List<Integer>> newPartitions = new ConcurrentHashMap<>();
+        Map<List<ServiceInfo>, ConsistentHashCircle<ServiceInfo>> circles = new HashMap<>();
         partitionSizesMap.forEach((queueKey, size) -> {
+            if (consistentHashingEnabled) {
+                ServiceInfo[] assignment;
+                try {
+                    assignment = assignByConsistentHash(queueServicesMap.get(queueKey), queueKey, size, responsibleServices, circles);
+                } catch (Exception e) {
+                    log.warn("Failed to resolve servers responsible for {}", queueKey, e);
+                    return;
+                }
+                for (int i = 0; i < size; i++) {
+                    ServiceInfo serviceInfo = assignment[i];
+                    log.trace("Server responsible for {}[{}] - {}", queueKey, i, serviceInfo != null ? serviceInfo.getServiceId() : "none");
+                    if (currentService.equals(serviceInfo)) {
+                        newPartitions.computeIfAbsent(queueKey, key -> new ArrayList<>()).add(i);
+                    }
+                }
+                return;
+            }
             for (int i = 0; i < size; i++) {
                 try {
                     ServiceInfo serviceInfo = resolveByPartitionIdx(queueServicesMap.get(queueKey), queueKey, i, responsibleServices);
@@ -627,6 +652,65 @@ public class HashPartitionService implements PartitionService {
 
     protected ServiceInfo resolveByPartitionIdx(List<ServiceInfo> servers, QueueKey queueKey, int partition,
                                                 Map<TenantProfileId, List<ServiceInfo>> responsibleServices) {
+        servers = getResponsibleServers(servers, queueKey, responsibleServices);
+        if (servers == null || servers.isEmpty()) {
+            return null;
+        }
+
+        if (queueKey.getType() == ServiceType.TB_RULE_ENGINE) {
+            int hash = hash(queueKey.getTenantId().getId());
+            return servers.get(Math.abs((hash + partition) % servers.size()));
+        } else {
+            return servers.get(partition % servers.size());
+        }
+    }
+
+    /*
+     * Consistent hashing with bounded loads: each partition is assigned to the first server clockwise from the partition's
+     * hash on the circle of the servers' virtual nodes that has less than ceil(loadFactor * partitions / servers) partitions.
+     * When a server joins or leaves, only the partitions it takes or releases (and the few ones that overflow because of
+     * the load bound) change the owner, instead of almost all partitions of the queue with the modulo assignment.
+     */
+    protected ServiceInfo[] assignByConsistentHash(List<ServiceInfo> servers, QueueKey queueKey, int partitions,
+                                                   Map<TenantProfileId, List<ServiceInfo>> responsibleServices,
+                                                   Map<List<ServiceInfo>, ConsistentHashCircle<ServiceInfo>> circles) {
+        ServiceInfo[] assignment = new ServiceInfo[partitions];
+        servers = getResponsibleServers(servers, queueKey, responsibleServices);
+        if (servers == null || servers.isEmpty()) {
+            return assignment;
+        }
+
+        ConsistentHashCircle<ServiceInfo> circle = circles.computeIfAbsent(servers, this::buildCircle);
+        int maxLoad = (int) Math.ceil(Math.max(loadFactor, 1.0) * partitions / servers.size());
+        Map<String, Integer> loads = new HashMap<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            for (ServiceInfo server : circle.clockwise(hash(queueKey, partition))) {
+                int load = loads.getOrDefault(server.getServiceId(), 0);
+                if (load < maxLoad) {
+                    loads.put(server.getServiceId(), load + 1);
+                    assignment[partition] = server;
+                    break;
+                }
+            }
+        }
+        return assignment;
+    }
+
+    private ConsistentHashCircle<ServiceInfo> buildCircle(List<ServiceInfo> servers) {
+        ConsistentHashCircle<ServiceInfo> circle = new ConsistentHashCircle<>();
+        for (ServiceInfo server : servers) {
+            for (int i = 0; i < virtualNodes; i++) {
+                circle.put(hashFunction.newHasher()
+                        .putString(server.getServiceId(), StandardCharsets.UTF_8)
+                        .putInt(i)
+                        .hash().padToLong(), server);
+            }
+        }
+        return circle;
+    }
+
+    private List<ServiceInfo> getResponsibleServers(List<ServiceInfo> servers, QueueKey queueKey,
+                                                    Map<TenantProfileId, List<ServiceInfo>> responsibleServices) {
         if (servers == null || servers.isEmpty()) {
             return null;
         }
@@ -655,17 +739,20 @@ public class HashPartitionService implements PartitionService {
                     }
                     responsibleServices.put(profileId, responsible);
                 }
-                if (responsible.isEmpty()) {
-                    return null;
-                }
-                servers = responsible;
+                return responsible;
             }
-
-            int hash = hash(tenantId.getId());
-            return servers.get(Math.abs((hash + partition) % servers.size()));
-        } else {
-            return servers.get(partition % servers.size());
         }
+        return servers;
+    }
+
+    // the queue name is not hashed, so the same partitions of different queues of the tenant are assigned to the same server
+    private long hash(QueueKey queueKey, int partition) {
+        TenantId tenantId = queueKey.getTenantId();
+        return hashFunction.newHasher()
+                .putLong(tenantId.getId().getMostSignificantBits())
+                .putLong(tenantId.getId().getLeastSignificantBits())
+                .putInt(partition)
+                .hash().padToLong();
     }
 
     private int hash(UUID key) {
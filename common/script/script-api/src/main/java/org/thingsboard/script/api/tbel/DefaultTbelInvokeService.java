@@ -15,8 +15,10 @@
  */
 package org.thingsboard.script.api.tbel;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -37,6 +39,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.script.api.AbstractScriptInvokeService;
 import org.thingsboard.script.api.ScriptType;
@@ -47,16 +50,25 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.common.stats.TbApiUsageStateClient;
 
+import java.io.File;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -108,8 +120,17 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
     @Value("${tbel.compiled_scripts_cache_size:1000}")
     private int compiledScriptsCacheSize;
 
+    @Value("${tbel.compiled_scripts_warm_up.enabled:false}")
+    private boolean warmUpEnabled;
+
+    @Value("${tbel.compiled_scripts_warm_up.file:${user.home}/.tbel/compiled_scripts.json}")
+    private String warmUpFile;
+
     private ListeningExecutorService executor;
 
+    private CacheStats lastCacheStats = CacheStats.empty();
+    private Set<String> savedScriptHashes = Collections.emptySet();
+
     private final Lock lock = new ReentrantLock();
 
     protected DefaultTbelInvokeService(Optional<TbApiUsageStateClient> apiUsageStateClient, Optional<TbApiUsageReportClient> apiUsageReportClient) {
@@ -120,6 +141,51 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
     @Scheduled(fixedDelayString = "${tbel.stats.print_interval_ms:10000}")
     public void printStats() {
         super.printStats();
+        if (statsEnabled && compiledScriptsCache != null) {
+            CacheStats cacheStats = compiledScriptsCache.stats();
+            CacheStats delta = cacheStats.minus(lastCacheStats);
+            lastCacheStats = cacheStats;
+            if (delta.requestCount() > 0 || delta.evictionCount() > 0) {
+                log.info("TBEL Compiled Scripts Cache Stats: size [{}] hits [{}] misses [{}] evictions [{}] compiled [{}] failed [{}] avgCompileTime [{}ms]",
+                        compiledScriptsCache.estimatedSize(), delta.hitCount(), delta.missCount(), delta.evictionCount(),
+                        delta.loadSuccessCount(), delta.loadFailureCount(), TimeUnit.NANOSECONDS.toMillis((long) delta.averageLoadPenalty()));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tbel.compiled_scripts_warm_up.save_interval_ms:60000}")
+    public void saveWarmUpScripts() {
+        if (!warmUpEnabled || compiledScriptsCache == null) {
+            return;
+        }
+        try {
+            // only the scripts that are in use and were not evicted from the cache are worth compiling on start
+            List<TbelScript> scripts = new ArrayList<>();
+            Set<String> scriptHashes = new HashSet<>();
+            scriptMap.forEach((scriptHash, script) -> {
+                if (compiledScriptsCache.asMap().containsKey(scriptHash) && scripts.size() < compiledScriptsCacheSize) {
+                    scripts.add(script);
+                    scriptHashes.add(scriptHash);
+                }
+            });
+            if (scriptHashes.equals(savedScriptHashes)) {
+                return;
+            }
+            Path file = Path.of(warmUpFile);
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmpFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(tmpFile, JacksonUtil.writeValueAsString(scripts));
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmpFile);
+            }
+            savedScriptHashes = scriptHashes;
+            log.debug("Saved {} TBEL scripts to compile on start to {}", scripts.size(), file);
+        } catch (Exception e) {
+            log.warn("Failed to save TBEL scripts to compile on start to {}", warmUpFile, e);
+        }
     }
 
     @SneakyThrows
@@ -151,12 +217,49 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
         }
         compiledScriptsCache = Caffeine.newBuilder()
                 .maximumSize(compiledScriptsCacheSize)
+                .recordStats()
                 .build();
+        if (warmUpEnabled) {
+            warmUp();
+        }
+    }
+
+    /*
+     * Compiles the scripts that were in use before the restart in the background, so the rule nodes and calculated fields
+     * that are initialized after that find them in the cache. Compiled expressions are not persisted themselves since
+     * they are bound to the parser configuration and the classes of the running JVM.
+     */
+    private void warmUp() {
+        File file = new File(warmUpFile);
+        if (!file.exists()) {
+            return;
+        }
+        List<TbelScript> scripts;
+        try {
+            scripts = JacksonUtil.readValue(file, new TypeReference<>() {});
+        } catch (Exception e) {
+            log.warn("Failed to read TBEL scripts to compile on start from {}", file, e);
+            return;
+        }
+        if (scripts == null) {
+            return;
+        }
+        log.info("Compiling {} TBEL scripts from {}", scripts.size(), file);
+        for (TbelScript script : scripts) {
+            executor.submit(() -> {
+                try {
+                    compiledScriptsCache.get(hash(script.getScriptBody(), script.getArgNames()), k -> compileScript(script.getScriptBody()));
+                } catch (Exception e) {
+                    log.debug("Failed to compile TBEL script on start: {}", script.getScriptBody(), e);
+                }
+            });
+        }
     }
 
     @PreDestroy
     @Override
     public void stop() {
+        saveWarmUpScripts();
         super.stop();
         if (executor != null) {
             executor.shutdownNow();
@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api.tbel;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of the time series values backed by the primitive arrays,
+ * the elements are created on access instead of being kept for the whole list.
+ */
+final class TbelCfTsDoubleValArrayList extends AbstractList<TbelCfTsDoubleVal> implements RandomAccess {
+
+    private final long[] ts;
+    private final double[] values;
+
+    TbelCfTsDoubleValArrayList(long[] ts, double[] values) {
+        if (ts.length != values.length) {
+            throw new IllegalArgumentException("Timestamps and values should have the same length");
+        }
+        this.ts = ts;
+        this.values = values;
+    }
+
+    @Override
+    public TbelCfTsDoubleVal get(int index) {
+        return new TbelCfTsDoubleVal(ts[index], values[index]);
+    }
+
+    @Override
+    public int size() {
+        return ts.length;
+    }
+
+}
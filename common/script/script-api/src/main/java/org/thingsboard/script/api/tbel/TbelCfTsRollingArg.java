@@ -38,6 +38,8 @@ public class TbelCfTsRollingArg implements TbelCfArg, Iterable<TbelCfTsDoubleVal
     private final TbTimeWindow timeWindow;
     @Getter
     private final List<TbelCfTsDoubleVal> values;
+    @JsonIgnore
+    private final TbelCfTsRollingStats stats;
 
     @JsonCreator
     public TbelCfTsRollingArg(
@@ -46,12 +48,25 @@ public class TbelCfTsRollingArg implements TbelCfArg, Iterable<TbelCfTsDoubleVal
     ) {
         this.timeWindow = timeWindow;
         this.values = Collections.unmodifiableList(values);
+        this.stats = null;
     }
 
     public TbelCfTsRollingArg(long timeWindow, List<TbelCfTsDoubleVal> values) {
         long ts = System.currentTimeMillis();
         this.timeWindow = new TbTimeWindow(ts - timeWindow, ts);
         this.values = Collections.unmodifiableList(values);
+        this.stats = null;
+    }
+
+    /**
+     * Creates the argument from the values ordered by timestamp, the precalculated sum of non-NaN values
+     * and the number of NaN values. The arrays are not copied and should not be modified afterward.
+     */
+    public TbelCfTsRollingArg(long timeWindow, long[] ts, double[] values, double sum, int nanCount) {
+        long now = System.currentTimeMillis();
+        this.timeWindow = new TbTimeWindow(now - timeWindow, now);
+        this.values = new TbelCfTsDoubleValArrayList(ts, values);
+        this.stats = new TbelCfTsRollingStats(sum, nanCount, values);
     }
 
     @Override
@@ -72,6 +87,10 @@ public class TbelCfTsRollingArg implements TbelCfArg, Iterable<TbelCfTsDoubleVal
         if (values.isEmpty()) {
             throw new IllegalArgumentException("Rolling argument values are empty.");
         }
+        if (stats != null) {
+            // same result as the iteration below that starts from Double.MIN_VALUE
+            return !ignoreNaN && stats.getNanCount() > 0 ? Double.NaN : Math.max(Double.MIN_VALUE, stats.getMax());
+        }
 
         double max = Double.MIN_VALUE;
         for (TbelCfTsDoubleVal value : values) {
@@ -94,6 +113,9 @@ public class TbelCfTsRollingArg implements TbelCfArg, Iterable<TbelCfTsDoubleVal
         if (values.isEmpty()) {
             throw new IllegalArgumentException("Rolling argument values are empty.");
         }
+        if (stats != null) {
+            return !ignoreNaN && stats.getNanCount() > 0 ? Double.NaN : Math.min(Double.MAX_VALUE, stats.getMin());
+        }
 
         double min = Double.MAX_VALUE;
         for (TbelCfTsDoubleVal value : values) {
@@ -189,6 +211,9 @@ public class TbelCfTsRollingArg implements TbelCfArg, Iterable<TbelCfTsDoubleVal
     }
 
     public int count(boolean ignoreNaN) {
+        if (stats != null) {
+            return ignoreNaN ? values.size() - stats.getNanCount() : values.size();
+        }
         int count = 0;
         if (ignoreNaN) {
             for (TbelCfTsDoubleVal value : values) {
@@ -253,6 +278,9 @@ public class TbelCfTsRollingArg implements TbelCfArg, Iterable<TbelCfTsDoubleVal
         if (values.isEmpty()) {
             throw new IllegalArgumentException("Rolling argument values are empty.");
         }
+        if (stats != null) {
+            return !ignoreNaN && stats.getNanCount() > 0 ? Double.NaN : stats.getSum();
+        }
 
         double sum = 0;
         for (TbelCfTsDoubleVal value : values) {
@@ -0,0 +1,75 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api.tbel;
+
+import lombok.Getter;
+
+/**
+ * Aggregates of the values of the rolling argument, so the script functions do not need to iterate over the values.
+ * The sum and the number of NaN values are maintained while the values are added and removed, min and max are calculated
+ * over the values on the first call. Min, max and sum are calculated over non-NaN values.
+ */
+public class TbelCfTsRollingStats {
+
+    @Getter
+    private final double sum;
+    @Getter
+    private final int nanCount;
+    private final double[] values;
+    private double min;
+    private double max;
+    private boolean minMaxCalculated;
+
+    public TbelCfTsRollingStats(double sum, int nanCount, double[] values) {
+        this.sum = sum;
+        this.nanCount = nanCount;
+        this.values = values;
+    }
+
+    /**
+     * @return min of the non-NaN values, or positive infinity if there are no such values
+     */
+    public double getMin() {
+        calculateMinMaxIfNeeded();
+        return min;
+    }
+
+    /**
+     * @return max of the non-NaN values, or negative infinity if there are no such values
+     */
+    public double getMax() {
+        calculateMinMaxIfNeeded();
+        return max;
+    }
+
+    private void calculateMinMaxIfNeeded() {
+        if (minMaxCalculated) {
+            return;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        this.min = min;
+        this.max = max;
+        minMaxCalculated = true;
+    }
+
+}
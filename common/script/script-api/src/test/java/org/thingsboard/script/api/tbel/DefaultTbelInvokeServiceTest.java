@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api.tbel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.script.api.ScriptType;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class DefaultTbelInvokeServiceTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private final List<DefaultTbelInvokeService> services = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(DefaultTbelInvokeService::stop);
+    }
+
+    @Test
+    void givenScriptEvaluatedAndInvoked_whenGetCacheStats_thenHitsAndMissesAreRecorded() throws Exception {
+        DefaultTbelInvokeService service = createService(false);
+        UUID scriptId = service.eval(TenantId.SYS_TENANT_ID, ScriptType.RULE_NODE_SCRIPT, "return msg.temperature > 20;", "msg").get();
+
+        service.invokeScript(TenantId.SYS_TENANT_ID, null, scriptId, Map.of("temperature", 25)).get();
+
+        assertThat(service.compiledScriptsCache.stats().missCount()).isEqualTo(1);
+        assertThat(service.compiledScriptsCache.stats().hitCount()).isEqualTo(1);
+        assertThat(service.compiledScriptsCache.stats().loadSuccessCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenWarmUpEnabled_whenRestarted_thenScriptsAreCompiledBeforeEval() throws Exception {
+        String script = "return msg.temperature > 20;";
+        DefaultTbelInvokeService service = createService(true);
+        service.eval(TenantId.SYS_TENANT_ID, ScriptType.RULE_NODE_SCRIPT, script, "msg").get();
+        service.stop();
+        services.remove(service);
+
+        DefaultTbelInvokeService restarted = createService(true);
+        String scriptHash = restarted.hash(script, new String[]{"msg"});
+        await().atMost(10, TimeUnit.SECONDS).until(() -> restarted.compiledScriptsCache.asMap().containsKey(scriptHash));
+        UUID scriptId = restarted.eval(TenantId.SYS_TENANT_ID, ScriptType.RULE_NODE_SCRIPT, script, "msg").get();
+
+        assertThat(restarted.invokeScript(TenantId.SYS_TENANT_ID, null, scriptId, Map.of("temperature", 25)).get()).isEqualTo(true);
+        assertThat(restarted.compiledScriptsCache.stats().missCount()).isEqualTo(1);
+        assertThat(restarted.compiledScriptsCache.stats().hitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void givenWarmUpFileIsCorrupted_whenStarted_thenScriptsAreCompiledOnEval() throws Exception {
+        Path file = tempDir.resolve("compiled_scripts.json");
+        Files.writeString(file, "[{\"scriptBody\":");
+        DefaultTbelInvokeService service = createService(true);
+
+        UUID scriptId = service.eval(TenantId.SYS_TENANT_ID, ScriptType.RULE_NODE_SCRIPT, "return 1;", "msg").get();
+
+        assertThat(service.invokeScript(TenantId.SYS_TENANT_ID, null, scriptId, Map.of()).get()).isEqualTo(1);
+    }
+
+    @Test
+    void givenArrayBackedRollingArg_whenScriptIteratesValues_thenValuesAreAccessible() throws Exception {
+        DefaultTbelInvokeService service = createService(false);
+        TbelCfTsRollingArg arg = new TbelCfTsRollingArg(60000, new long[]{1000, 2000}, new double[]{1.5, 2.5}, 4.0, 0);
+        UUID scriptId = service.eval(TenantId.SYS_TENANT_ID, ScriptType.CALCULATED_FIELD_SCRIPT,
+                "var sum = 0; foreach (v : arg.values) { sum += v.value; } return sum + arg.values.size() + arg.values[1].ts + arg.sum();", "arg").get();
+
+        Object result = service.invokeScript(TenantId.SYS_TENANT_ID, null, scriptId, arg).get();
+
+        assertThat(((Number) result).doubleValue()).isEqualTo(4.0 + 2 + 2000 + 4.0);
+    }
+
+    private DefaultTbelInvokeService createService(boolean warmUpEnabled) {
+        DefaultTbelInvokeService service = new DefaultTbelInvokeService(Optional.empty(), Optional.empty());
+        ReflectionTestUtils.setField(service, "maxTotalArgsSize", 100000L);
+        ReflectionTestUtils.setField(service, "maxResultSize", 300000L);
+        ReflectionTestUtils.setField(service, "maxScriptBodySize", 50000L);
+        ReflectionTestUtils.setField(service, "maxErrors", 3);
+        ReflectionTestUtils.setField(service, "threadPoolSize", 2);
+        ReflectionTestUtils.setField(service, "maxMemoryLimitMb", 8L);
+        ReflectionTestUtils.setField(service, "compiledScriptsCacheSize", 100);
+        ReflectionTestUtils.setField(service, "warmUpEnabled", warmUpEnabled);
+        ReflectionTestUtils.setField(service, "warmUpFile", tempDir.resolve("compiled_scripts.json").toString());
+        service.init();
+        services.add(service);
+        return service;
+    }
+
+}
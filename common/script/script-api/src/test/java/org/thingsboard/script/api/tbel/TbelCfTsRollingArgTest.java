@@ -133,6 +133,29 @@ public class TbelCfTsRollingArgTest {
         assertThatThrownBy(rollingArg::last).isInstanceOf(IllegalArgumentException.class).hasMessage("Rolling argument values are empty.");
     }
 
+    @Test
+    void testArrayBackedValuesWithStats() {
+        long[] timestamps = {ts - 70, ts - 60, ts - 50, ts - 40};
+        double[] values = {Double.NaN, -9.0, -3.0, 4.0};
+        TbelCfTsRollingArg arrayArg = new TbelCfTsRollingArg(30000, timestamps, values, -8.0, 1);
+        TbelCfTsRollingArg listArg = new TbelCfTsRollingArg(arrayArg.getTimeWindow(), List.copyOf(arrayArg.getValues()));
+
+        assertThat(arrayArg.getValues()).containsExactly(
+                new TbelCfTsDoubleVal(ts - 70, Double.NaN),
+                new TbelCfTsDoubleVal(ts - 60, -9.0),
+                new TbelCfTsDoubleVal(ts - 50, -3.0),
+                new TbelCfTsDoubleVal(ts - 40, 4.0)
+        );
+        for (boolean ignoreNaN : new boolean[]{true, false}) {
+            assertThat(Double.valueOf(arrayArg.sum(ignoreNaN))).isEqualTo(Double.valueOf(listArg.sum(ignoreNaN)));
+            assertThat(arrayArg.count(ignoreNaN)).isEqualTo(listArg.count(ignoreNaN));
+            assertThat(Double.valueOf(arrayArg.min(ignoreNaN))).isEqualTo(Double.valueOf(listArg.min(ignoreNaN)));
+            assertThat(Double.valueOf(arrayArg.max(ignoreNaN))).isEqualTo(Double.valueOf(listArg.max(ignoreNaN)));
+            assertThat(Double.valueOf(arrayArg.mean(ignoreNaN))).isEqualTo(Double.valueOf(listArg.mean(ignoreNaN)));
+        }
+        assertThat(JacksonUtil.toString(arrayArg)).isEqualTo(JacksonUtil.toString(listArg));
+    }
+
     @Test
     public void merge_two_rolling_args_ts_match_test() {
         TbTimeWindow tw = new TbTimeWindow(0, 60000);
@@ -27,6 +27,7 @@ import org.eclipse.californium.core.coap.MediaTypeRegistry;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.springframework.stereotype.Component;
+import org.thingsboard.common.util.Utf8ByteBufferReader;
 import org.thingsboard.server.common.adaptor.AdaptorException;
 import org.thingsboard.server.common.adaptor.JsonConverter;
 import org.thingsboard.server.common.data.StringUtils;
@@ -34,6 +35,7 @@ import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.transport.coap.CoapTransportResource;
 
+import java.io.Reader;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -43,9 +45,9 @@ public class JsonCoapAdaptor implements CoapTransportAdaptor {
 
     @Override
     public TransportProtos.PostTelemetryMsg convertToPostTelemetry(UUID sessionId, Request inbound, Descriptors.Descriptor telemetryMsgDescriptor) throws AdaptorException {
-        String payload = validatePayload(sessionId, inbound, false);
+        Reader payload = validatePayloadReader(sessionId, inbound);
         try {
-            return JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload));
+            return JsonConverter.convertToTelemetryProto(payload);
         } catch (IllegalStateException | JsonSyntaxException ex) {
             throw new AdaptorException(ex);
         }
@@ -53,9 +55,9 @@ public class JsonCoapAdaptor implements CoapTransportAdaptor {
 
     @Override
     public TransportProtos.PostAttributeMsg convertToPostAttributes(UUID sessionId, Request inbound, Descriptors.Descriptor attributesMsgDescriptor) throws AdaptorException {
-        String payload = validatePayload(sessionId, inbound, false);
+        Reader payload = validatePayloadReader(sessionId, inbound);
         try {
-            return JsonConverter.convertToAttributesProto(JsonParser.parseString(payload));
+            return JsonConverter.convertToAttributesProto(payload);
         } catch (IllegalStateException | JsonSyntaxException ex) {
             throw new AdaptorException(ex);
         }
@@ -161,6 +163,15 @@ public class JsonCoapAdaptor implements CoapTransportAdaptor {
         return payload;
     }
 
+    private Reader validatePayloadReader(UUID sessionId, Request inbound) throws AdaptorException {
+        byte[] payload = inbound.getPayload();
+        if (payload == null) {
+            log.debug("[{}] Payload is empty!", sessionId);
+            throw new AdaptorException(new IllegalArgumentException("Payload is empty!"));
+        }
+        return new Utf8ByteBufferReader(payload);
+    }
+
     @Override
     public int getContentFormat() {
         return MediaTypeRegistry.APPLICATION_JSON;
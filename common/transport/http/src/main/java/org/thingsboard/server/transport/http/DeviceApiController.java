@@ -71,6 +71,7 @@ import org.thingsboard.server.gen.transport.TransportProtos.ToServerRpcRequestMs
 import org.thingsboard.server.gen.transport.TransportProtos.ToServerRpcResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
 
+import java.io.StringReader;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
@@ -187,7 +188,7 @@ public class DeviceApiController implements TbTransportService {
         transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     TransportService transportService = transportContext.getTransportService();
-                    transportService.process(sessionInfo, JsonConverter.convertToAttributesProto(JsonParser.parseString(json)),
+                    transportService.process(sessionInfo, JsonConverter.convertToAttributesProto(new StringReader(json)),
                             new HttpOkCallback(responseWriter));
                 }));
         return responseWriter;
@@ -207,7 +208,7 @@ public class DeviceApiController implements TbTransportService {
         transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     TransportService transportService = transportContext.getTransportService();
-                    transportService.process(sessionInfo, JsonConverter.convertToTelemetryProto(JsonParser.parseString(json)),
+                    transportService.process(sessionInfo, JsonConverter.convertToTelemetryProto(new StringReader(json)),
                             new HttpOkCallback(responseWriter));
                 }));
         return responseWriter;
@@ -83,8 +83,8 @@ import org.thingsboard.server.transport.mqtt.limits.GatewaySessionLimits;
 import org.thingsboard.server.transport.mqtt.limits.SessionLimits;
 import org.thingsboard.server.transport.mqtt.session.DeviceSessionCtx;
 import org.thingsboard.server.transport.mqtt.session.GatewaySessionHandler;
-import org.thingsboard.server.transport.mqtt.session.MqttTopicMatcher;
 import org.thingsboard.server.transport.mqtt.session.SparkplugNodeSessionHandler;
+import org.thingsboard.server.transport.mqtt.util.MqttTopicTrie;
 import org.thingsboard.server.transport.mqtt.util.ReturnCodeResolver;
 import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugMessageType;
 import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugRpcRequestHeader;
@@ -145,7 +145,7 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
     private final TransportService transportService;
     private final SchedulerComponent scheduler;
     private final SslHandler sslHandler;
-    private final ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap;
+    private final MqttTopicTrie<Integer> mqttQoSMap;
 
     final DeviceSessionCtx deviceSessionCtx;
     volatile InetSocketAddress address;
@@ -167,7 +167,7 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
         this.transportService = context.getTransportService();
         this.scheduler = context.getScheduler();
         this.sslHandler = sslHandler;
-        this.mqttQoSMap = new ConcurrentHashMap<>();
+        this.mqttQoSMap = new MqttTopicTrie<>();
         this.deviceSessionCtx = new DeviceSessionCtx(sessionId, mqttQoSMap, context);
         this.otaPackSessions = new ConcurrentHashMap<>();
         this.chunkSizes = new ConcurrentHashMap<>();
@@ -886,7 +886,7 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
 
     public void registerSubQoS(String topic, List<Integer> grantedQoSList, MqttQoS reqQoS) {
         grantedQoSList.add(getMinSupportedQos(reqQoS));
-        mqttQoSMap.put(new MqttTopicMatcher(topic), getMinSupportedQos(reqQoS));
+        mqttQoSMap.put(topic, getMinSupportedQos(reqQoS));
     }
 
     private void processUnsubscribe(ChannelHandlerContext ctx, MqttUnsubscribeMessage mqttMsg) {
@@ -899,13 +899,11 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
         List<Short> unSubResults = new ArrayList<>();
         log.trace("[{}] Processing subscription [{}]!", sessionId, mqttMsg.variableHeader().messageId());
         for (String topicName : mqttMsg.payload().topics()) {
-            MqttTopicMatcher matcher = new MqttTopicMatcher(topicName);
-            if (mqttQoSMap.containsKey(matcher)) {
-                mqttQoSMap.remove(matcher);
+            if (mqttQoSMap.remove(topicName) != null) {
                 try {
                     short resultValue = MqttReasonCodes.UnsubAck.SUCCESS.byteValue();
                     if (deviceSessionCtx.isProvisionOnly()) {
-                        if (!matcher.matches(MqttTopics.DEVICE_PROVISION_RESPONSE_TOPIC)) {
+                        if (!MqttTopicTrie.matches(topicName, MqttTopics.DEVICE_PROVISION_RESPONSE_TOPIC)) {
                             resultValue = MqttReasonCodes.UnsubAck.TOPIC_FILTER_INVALID.byteValue();
                         }
                         unSubResults.add(resultValue);
@@ -16,9 +16,14 @@
 package org.thingsboard.server.transport.mqtt;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.AttributeKey;
@@ -34,6 +39,8 @@ import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.TbTransportService;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author Andrew Shvayka
@@ -66,14 +73,18 @@ public class MqttTransportService implements TbTransportService {
     private Integer workerGroupThreadCount;
     @Value("${transport.mqtt.netty.so_keep_alive}")
     private boolean keepAlive;
+    @Value("${transport.mqtt.netty.native_transport:false}")
+    private boolean nativeTransport;
+    @Value("${transport.mqtt.netty.so_reuseport_acceptors:1}")
+    private int reusePortAcceptors;
 
     @Autowired
     private MqttTransportContext context;
 
-    private Channel serverChannel;
-    private Channel sslServerChannel;
+    private final List<Channel> serverChannels = new ArrayList<>();
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
+    private boolean epoll;
 
     @PostConstruct
     public void init() throws Exception {
@@ -81,33 +92,51 @@ public class MqttTransportService implements TbTransportService {
         ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.valueOf(leakDetectorLevel.toUpperCase()));
 
         log.info("Starting MQTT transport...");
-        bossGroup = new NioEventLoopGroup(bossGroupThreadCount);
-        workerGroup = new NioEventLoopGroup(workerGroupThreadCount);
+        epoll = nativeTransport && Epoll.isAvailable();
+        if (nativeTransport && !epoll) {
+            log.warn("Native epoll transport is not available, falling back to NIO", Epoll.unavailabilityCause());
+        }
+        int acceptors = epoll ? Math.max(reusePortAcceptors, 1) : 1;
+        if (!epoll && reusePortAcceptors > 1) {
+            log.warn("SO_REUSEPORT is supported by the native epoll transport only, using single acceptor");
+        }
+        if (epoll) {
+            // each server channel of the port is registered on its own boss event loop
+            bossGroup = new EpollEventLoopGroup(Math.max(bossGroupThreadCount, acceptors));
+            workerGroup = new EpollEventLoopGroup(workerGroupThreadCount);
+        } else {
+            bossGroup = new NioEventLoopGroup(bossGroupThreadCount);
+            workerGroup = new NioEventLoopGroup(workerGroupThreadCount);
+        }
+        bind(host, port, false, acceptors);
+        if (sslEnabled) {
+            bind(sslHost, sslPort, true, acceptors);
+        }
+        log.info("Mqtt transport started using {} transport with {} acceptor(s) per port!", epoll ? "epoll" : "NIO", acceptors);
+    }
+
+    private void bind(String host, int port, boolean ssl, int acceptors) throws InterruptedException {
         ServerBootstrap b = new ServerBootstrap();
         b.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
-                .childHandler(new MqttTransportServerInitializer(context, false))
-                .childOption(ChannelOption.SO_KEEPALIVE, keepAlive);
-
-        serverChannel = b.bind(host, port).sync().channel();
-        if (sslEnabled) {
-            b = new ServerBootstrap();
-            b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .childHandler(new MqttTransportServerInitializer(context, true))
-                    .childOption(ChannelOption.SO_KEEPALIVE, keepAlive);
-            sslServerChannel = b.bind(sslHost, sslPort).sync().channel();
+                .channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+                .childHandler(new MqttTransportServerInitializer(context, ssl))
+                .childOption(ChannelOption.SO_KEEPALIVE, keepAlive)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        if (acceptors > 1) {
+            // the kernel spreads the incoming connections over the sockets bound to the same port
+            b.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+        for (int i = 0; i < acceptors; i++) {
+            serverChannels.add(b.bind(host, port).sync().channel());
         }
-        log.info("Mqtt transport started!");
     }
 
     @PreDestroy
     public void shutdown() throws InterruptedException {
         log.info("Stopping MQTT transport!");
         try {
-            serverChannel.close().sync();
-            if (sslEnabled) {
-                sslServerChannel.close().sync();
+            for (Channel serverChannel : serverChannels) {
+                serverChannel.close().sync();
             }
         } finally {
             workerGroup.shutdownGracefully();
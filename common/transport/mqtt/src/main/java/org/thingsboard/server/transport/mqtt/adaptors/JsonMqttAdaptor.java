@@ -27,7 +27,9 @@ import io.netty.handler.codec.mqtt.MqttPublishMessage;
 import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.thingsboard.common.util.Utf8ByteBufferReader;
 import org.thingsboard.server.common.adaptor.AdaptorException;
+import org.thingsboard.server.common.adaptor.GatewayDeviceTelemetry;
 import org.thingsboard.server.common.adaptor.JsonConverter;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.device.profile.MqttTopics;
@@ -35,10 +37,12 @@ import org.thingsboard.server.common.data.ota.OtaPackageType;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.transport.mqtt.session.MqttDeviceAwareSessionContext;
 
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -57,9 +61,8 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
 
     @Override
     public TransportProtos.PostTelemetryMsg convertToPostTelemetry(MqttDeviceAwareSessionContext ctx, MqttPublishMessage inbound) throws AdaptorException {
-        String payload = validatePayload(ctx.getSessionId(), inbound.payload(), false);
         try {
-            return JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload));
+            return JsonConverter.convertToTelemetryProto(toReader(inbound.payload()));
         } catch (IllegalStateException | JsonSyntaxException ex) {
             log.debug("Failed to decode post telemetry request", ex);
             throw new AdaptorException(ex);
@@ -68,9 +71,8 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
 
     @Override
     public TransportProtos.PostAttributeMsg convertToPostAttributes(MqttDeviceAwareSessionContext ctx, MqttPublishMessage inbound) throws AdaptorException {
-        String payload = validatePayload(ctx.getSessionId(), inbound.payload(), false);
         try {
-            return JsonConverter.convertToAttributesProto(JsonParser.parseString(payload));
+            return JsonConverter.convertToAttributesProto(toReader(inbound.payload()));
         } catch (IllegalStateException | JsonSyntaxException ex) {
             log.debug("Failed to decode post attributes request", ex);
             throw new AdaptorException(ex);
@@ -174,6 +176,22 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
         }
     }
 
+    public static Map<String, GatewayDeviceTelemetry> validateGatewayTelemetryPayload(ByteBuf payloadData, long systemTs) throws AdaptorException {
+        try {
+            return JsonConverter.convertToGatewayTelemetry(toReader(payloadData), systemTs);
+        } catch (JsonSyntaxException ex) {
+            log.debug("Payload is in incorrect format: {}", payloadData.toString(UTF8));
+            throw new AdaptorException(ex);
+        }
+    }
+
+    /**
+     * Reads the payload without copying it to the String, the reader index of the payload is not changed.
+     */
+    private static Reader toReader(ByteBuf payloadData) {
+        return new Utf8ByteBufferReader(payloadData.nioBuffer());
+    }
+
     private TransportProtos.GetAttributeRequestMsg processGetAttributeRequestMsg(MqttPublishMessage inbound, String topicBase) throws AdaptorException {
         String topicName = inbound.variableHeader().topicName();
         try {
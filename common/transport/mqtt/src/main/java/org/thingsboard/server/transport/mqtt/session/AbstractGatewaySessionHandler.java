@@ -43,6 +43,7 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.util.ConcurrentReferenceHashMap;
 import org.thingsboard.common.util.DonAsynchron;
 import org.thingsboard.server.common.adaptor.AdaptorException;
+import org.thingsboard.server.common.adaptor.GatewayDeviceTelemetry;
 import org.thingsboard.server.common.adaptor.JsonConverter;
 import org.thingsboard.server.common.adaptor.ProtoConverter;
 import org.thingsboard.server.common.data.DataConstants;
@@ -50,7 +51,6 @@ import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.DeviceProfile;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.id.DeviceId;
-import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.msg.gateway.metrics.GatewayMetadata;
 import org.thingsboard.server.common.msg.tools.TbRateLimitsException;
 import org.thingsboard.server.common.transport.TransportService;
@@ -67,6 +67,7 @@ import org.thingsboard.server.transport.mqtt.adaptors.JsonMqttAdaptor;
 import org.thingsboard.server.transport.mqtt.adaptors.MqttTransportAdaptor;
 import org.thingsboard.server.transport.mqtt.adaptors.ProtoMqttAdaptor;
 import org.thingsboard.server.transport.mqtt.gateway.GatewayMetricsService;
+import org.thingsboard.server.transport.mqtt.util.MqttTopicTrie;
 import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugConnectionState;
 
 import java.util.ArrayList;
@@ -116,7 +117,7 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     private final ConcurrentMap<String, Lock> deviceCreationLockMap;
     private final ConcurrentMap<String, T> devices;
     private final ConcurrentMap<String, ListenableFuture<T>> deviceFutures;
-    protected final ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap;
+    protected final MqttTopicTrie<Integer> mqttQoSMap;
     @Getter
     protected final ChannelHandlerContext channel;
     protected final DeviceSessionCtx deviceSessionCtx;
@@ -394,31 +395,33 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     }
 
     protected void onDeviceTelemetryJson(int msgId, ByteBuf payload) throws AdaptorException {
-        JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
-        validateJsonObject(json);
-        for (Map.Entry<String, JsonElement> deviceEntry : json.getAsJsonObject().entrySet()) {
-            if (!deviceEntry.getValue().isJsonArray()) {
-                log.warn("{}[{}]", CAN_T_PARSE_VALUE, json);
+        long systemTs = System.currentTimeMillis();
+        Map<String, GatewayDeviceTelemetry> devicesTelemetry = JsonMqttAdaptor.validateGatewayTelemetryPayload(payload, systemTs);
+        for (Map.Entry<String, GatewayDeviceTelemetry> deviceEntry : devicesTelemetry.entrySet()) {
+            String deviceName = deviceEntry.getKey();
+            GatewayDeviceTelemetry telemetry = deviceEntry.getValue();
+            if (telemetry == null) {
+                log.warn("{}[{}]", CAN_T_PARSE_VALUE, deviceName);
                 continue;
             }
-            String deviceName = deviceEntry.getKey();
-            process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, deviceEntry.getValue(), deviceName, msgId),
+            process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, telemetry, deviceName, msgId, systemTs),
                     t -> failedToProcessLog(deviceName, TELEMETRY, t));
         }
     }
 
-    private void processPostTelemetryMsg(T deviceCtx, JsonElement msg, String deviceName, int msgId) {
+    private void processPostTelemetryMsg(T deviceCtx, GatewayDeviceTelemetry telemetry, String deviceName, int msgId, long systemTs) {
         try {
-            long systemTs = System.currentTimeMillis();
-            TbPair<TransportProtos.PostTelemetryMsg, List<GatewayMetadata>> gatewayPayloadPair = JsonConverter.convertToGatewayTelemetry(msg.getAsJsonArray(), systemTs);
-            TransportProtos.PostTelemetryMsg postTelemetryMsg = gatewayPayloadPair.getFirst();
-            List<GatewayMetadata> metadata = gatewayPayloadPair.getSecond();
+            if (telemetry.error() != null) {
+                throw telemetry.error();
+            }
+            TransportProtos.PostTelemetryMsg postTelemetryMsg = telemetry.msg();
+            List<GatewayMetadata> metadata = telemetry.metadata();
             if (!CollectionUtils.isEmpty(metadata)) {
                 gatewayMetricsService.process(deviceSessionCtx.getSessionInfo(), gateway.getDeviceId(), metadata, systemTs);
             }
             transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg));
         } catch (Throwable e) {
-            log.warn("[{}][{}][{}] Failed to convert telemetry: [{}]", gateway.getTenantId(), gateway.getDeviceId(), deviceName, msg, e);
+            log.warn("[{}][{}][{}] Failed to convert telemetry", gateway.getTenantId(), gateway.getDeviceId(), deviceName, e);
             ackOrClose(msgId);
         }
     }
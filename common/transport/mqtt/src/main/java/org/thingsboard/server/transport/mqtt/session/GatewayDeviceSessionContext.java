@@ -19,8 +19,8 @@ import lombok.ToString;
 import org.thingsboard.server.common.data.DeviceProfile;
 import org.thingsboard.server.common.transport.TransportService;
 import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.transport.mqtt.util.MqttTopicTrie;
 
-import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by nickAS21 on 26.12.22
@@ -31,7 +31,7 @@ public class GatewayDeviceSessionContext extends AbstractGatewayDeviceSessionCon
     public GatewayDeviceSessionContext(GatewaySessionHandler parent,
                                        TransportDeviceInfo deviceInfo,
                                        DeviceProfile deviceProfile,
-                                       ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap,
+                                       MqttTopicTrie<Integer> mqttQoSMap,
                                        TransportService transportService) {
         super(parent, deviceInfo, deviceProfile, mqttQoSMap, transportService);
     }
@@ -18,12 +18,9 @@ package org.thingsboard.server.transport.mqtt.session;
 import io.netty.handler.codec.mqtt.MqttQoS;
 import lombok.ToString;
 import org.thingsboard.server.common.transport.session.DeviceAwareSessionContext;
+import org.thingsboard.server.transport.mqtt.util.MqttTopicTrie;
 
-import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
 
 /**
  * Created by ashvayka on 30.08.18.
@@ -31,25 +28,25 @@ import java.util.stream.Collectors;
 @ToString(callSuper = true)
 public abstract class MqttDeviceAwareSessionContext extends DeviceAwareSessionContext {
 
-    private final ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap;
+    private final MqttTopicTrie<Integer> mqttQoSMap;
 
-    public MqttDeviceAwareSessionContext(UUID sessionId, ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap) {
+    public MqttDeviceAwareSessionContext(UUID sessionId, MqttTopicTrie<Integer> mqttQoSMap) {
         super(sessionId);
         this.mqttQoSMap = mqttQoSMap;
     }
 
-    public ConcurrentMap<MqttTopicMatcher, Integer> getMqttQoSMap() {
+    public MqttTopicTrie<Integer> getMqttQoSMap() {
         return mqttQoSMap;
     }
 
+    /**
+     * @return the maximum QoS of the subscriptions that match the topic, as the MQTT specification suggests
+     * for the overlapping subscriptions
+     */
     public MqttQoS getQoSForTopic(String topic) {
-        List<Integer> qosList = mqttQoSMap.entrySet()
-                .stream()
-                .filter(entry -> entry.getKey().matches(topic))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toList());
-        if (!qosList.isEmpty()) {
-            return MqttQoS.valueOf(qosList.get(0));
+        Integer qos = mqttQoSMap.match(topic, Math::max);
+        if (qos != null) {
+            return MqttQoS.valueOf(qos);
         } else {
             return MqttQoS.AT_LEAST_ONCE;
         }
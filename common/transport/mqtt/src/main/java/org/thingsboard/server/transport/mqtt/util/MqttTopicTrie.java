@@ -0,0 +1,190 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BinaryOperator;
+
+/**
+ * Values of the MQTT topic filters stored by the topic levels, so the values of the filters that match the topic
+ * are found in time proportional to the number of the topic levels instead of checking every filter.
+ * <p>
+ * The '+' wildcard matches exactly one, possibly empty, level and the '#' wildcard matches any number of the remaining levels,
+ * including the parent one, e.g. "sport/#" matches "sport". Wildcards are recognized only as the whole level.
+ * <p>
+ * Lookups are lock free, updates are expected to be rare (subscribe/unsubscribe) and are synchronized.
+ */
+public class MqttTopicTrie<V> {
+
+    private static final char LEVEL_SEPARATOR = '/';
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+
+    private final Node<V> root = new Node<>();
+
+    /**
+     * @return previous value of the topic filter
+     */
+    public synchronized V put(String topicFilter, V value) {
+        Node<V> node = root;
+        int start = 0;
+        while (start <= topicFilter.length()) {
+            int end = levelEnd(topicFilter, start);
+            node = node.children.computeIfAbsent(topicFilter.substring(start, end), level -> new Node<>());
+            start = end + 1;
+        }
+        V previous = node.value;
+        node.value = value;
+        return previous;
+    }
+
+    /**
+     * @return removed value of the topic filter, or null if there was no such filter
+     */
+    public synchronized V remove(String topicFilter) {
+        List<Node<V>> path = new ArrayList<>();
+        List<String> levels = new ArrayList<>();
+        Node<V> node = root;
+        int start = 0;
+        while (start <= topicFilter.length()) {
+            int end = levelEnd(topicFilter, start);
+            String level = topicFilter.substring(start, end);
+            path.add(node);
+            levels.add(level);
+            node = node.children.get(level);
+            if (node == null) {
+                return null;
+            }
+            start = end + 1;
+        }
+        V removed = node.value;
+        node.value = null;
+        // the nodes without values and children are not needed anymore
+        for (int i = path.size() - 1; i >= 0 && node.value == null && node.children.isEmpty(); i--) {
+            path.get(i).children.remove(levels.get(i));
+            node = path.get(i);
+        }
+        return removed;
+    }
+
+    public V get(String topicFilter) {
+        Node<V> node = root;
+        int start = 0;
+        while (node != null && start <= topicFilter.length()) {
+            int end = levelEnd(topicFilter, start);
+            node = node.children.get(topicFilter.substring(start, end));
+            start = end + 1;
+        }
+        return node != null ? node.value : null;
+    }
+
+    public boolean isEmpty() {
+        return root.children.isEmpty();
+    }
+
+    /**
+     * @return values of all filters that match the topic merged by the merger, or null if there are no such filters
+     */
+    public V match(String topic, BinaryOperator<V> merger) {
+        return match(root, topic, 0, merger, null);
+    }
+
+    private V match(Node<V> node, String topic, int start, BinaryOperator<V> merger, V result) {
+        Node<V> multiLevel = node.children.get(MULTI_LEVEL_WILDCARD);
+        if (multiLevel != null) {
+            result = merge(result, multiLevel.value, merger);
+        }
+        if (start > topic.length()) {
+            return merge(result, node.value, merger);
+        }
+        int end = levelEnd(topic, start);
+        Node<V> exact = node.children.get(topic.substring(start, end));
+        if (exact != null) {
+            result = match(exact, topic, end + 1, merger, result);
+        }
+        Node<V> singleLevel = node.children.get(SINGLE_LEVEL_WILDCARD);
+        if (singleLevel != null) {
+            result = match(singleLevel, topic, end + 1, merger, result);
+        }
+        return result;
+    }
+
+    /**
+     * Checks the single topic filter with the same rules as the trie does, without creating the trie.
+     */
+    public static boolean matches(String topicFilter, String topic) {
+        int filterStart = 0;
+        int topicStart = 0;
+        while (true) {
+            int filterEnd = levelEnd(topicFilter, filterStart);
+            int levelLength = filterEnd - filterStart;
+            if (levelLength == 1 && topicFilter.charAt(filterStart) == '#') {
+                return true;
+            }
+            if (topicStart > topic.length()) {
+                return false;
+            }
+            int topicEnd = levelEnd(topic, topicStart);
+            boolean singleLevel = levelLength == 1 && topicFilter.charAt(filterStart) == '+';
+            if (!singleLevel && (levelLength != topicEnd - topicStart || !topicFilter.regionMatches(filterStart, topic, topicStart, levelLength))) {
+                return false;
+            }
+            filterStart = filterEnd + 1;
+            topicStart = topicEnd + 1;
+            if (filterStart > topicFilter.length()) {
+                return topicStart > topic.length();
+            }
+        }
+    }
+
+    private static int levelEnd(String topic, int start) {
+        int end = topic.indexOf(LEVEL_SEPARATOR, start);
+        return end < 0 ? topic.length() : end;
+    }
+
+    private static <V> V merge(V result, V value, BinaryOperator<V> merger) {
+        if (value == null) {
+            return result;
+        }
+        return result == null ? value : merger.apply(result, value);
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner result = new StringJoiner(", ", "{", "}");
+        root.children.forEach((level, child) -> append(result, level, child));
+        return result.toString();
+    }
+
+    private static <V> void append(StringJoiner result, String topicFilter, Node<V> node) {
+        if (node.value != null) {
+            result.add(topicFilter + "=" + node.value);
+        }
+        node.children.forEach((level, child) -> append(result, topicFilter + LEVEL_SEPARATOR + level, child));
+    }
+
+    private static class Node<V> {
+
+        private final ConcurrentMap<String, Node<V>> children = new ConcurrentHashMap<>();
+        private volatile V value;
+
+    }
+
+}
@@ -17,19 +17,13 @@ package org.thingsboard.server.transport.mqtt.util;
 
 import lombok.Data;
 
-import java.util.regex.Pattern;
-
 @Data
-public class RegexTopicFilter implements MqttTopicFilter {
-
-    private final Pattern regex;
+public class WildcardTopicFilter implements MqttTopicFilter {
 
-    public RegexTopicFilter(String regex) {
-        this.regex = Pattern.compile(regex);
-    }
+    private final String filter;
 
     @Override
     public boolean filter(String topic) {
-        return regex.matcher(topic).matches();
+        return MqttTopicTrie.matches(filter, topic);
     }
 }
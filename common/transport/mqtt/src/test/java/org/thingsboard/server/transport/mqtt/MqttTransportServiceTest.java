@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt;
+
+import io.netty.channel.Channel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MqttTransportServiceTest {
+
+    private MqttTransportService service;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void givenNativeTransportAndSeveralAcceptors_whenInit_thenPortIsBoundBySeveralEpollChannels() throws Exception {
+        assumeTrue(Epoll.isAvailable());
+        service = createService(true, 3);
+
+        service.init();
+
+        List<Channel> channels = getServerChannels();
+        assertThat(channels).hasSize(3).allMatch(channel -> channel instanceof EpollServerSocketChannel && channel.isActive());
+        int port = ((InetSocketAddress) channels.get(0).localAddress()).getPort();
+        assertThat(channels).allMatch(channel -> ((InetSocketAddress) channel.localAddress()).getPort() == port);
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            assertThat(socket.isConnected()).isTrue();
+        }
+    }
+
+    @Test
+    public void givenNioTransport_whenInit_thenSingleAcceptorIsUsed() throws Exception {
+        service = createService(false, 3);
+
+        service.init();
+
+        assertThat(getServerChannels()).hasSize(1).allMatch(channel -> channel instanceof NioServerSocketChannel);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Channel> getServerChannels() {
+        return (List<Channel>) ReflectionTestUtils.getField(service, "serverChannels");
+    }
+
+    private static MqttTransportService createService(boolean nativeTransport, int acceptors) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MqttTransportService service = new MqttTransportService();
+        ReflectionTestUtils.setField(service, "host", "127.0.0.1");
+        ReflectionTestUtils.setField(service, "port", port);
+        ReflectionTestUtils.setField(service, "leakDetectorLevel", "disabled");
+        ReflectionTestUtils.setField(service, "bossGroupThreadCount", 1);
+        ReflectionTestUtils.setField(service, "workerGroupThreadCount", 1);
+        ReflectionTestUtils.setField(service, "nativeTransport", nativeTransport);
+        ReflectionTestUtils.setField(service, "reusePortAcceptors", acceptors);
+        return service;
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MqttTopicTrieTest {
+
+    @Test
+    public void givenFiltersWithWildcards_whenMatch_thenValuesOfMatchingFiltersAreMerged() {
+        MqttTopicTrie<Integer> trie = new MqttTopicTrie<>();
+        trie.put("v1/devices/me/attributes", 0);
+        trie.put("v1/devices/me/rpc/request/+", 1);
+        trie.put("v1/devices/me/#", 2);
+        trie.put("v1/gateway/+/attributes", 1);
+
+        assertThat(trie.match("v1/devices/me/attributes", Math::max)).isEqualTo(2);
+        assertThat(trie.match("v1/devices/me/rpc/request/42", Math::min)).isEqualTo(1);
+        assertThat(trie.match("v1/devices/me", Math::max)).isEqualTo(2);
+        assertThat(trie.match("v1/gateway/device/attributes", Math::max)).isEqualTo(1);
+        assertThat(trie.match("v1/gateway/attributes", Math::max)).isNull();
+        assertThat(trie.match("v1/devices/other/attributes", Math::max)).isNull();
+    }
+
+    @Test
+    public void givenFilters_whenRemove_thenNotMatched() {
+        MqttTopicTrie<Integer> trie = new MqttTopicTrie<>();
+        trie.put("a/+/c", 1);
+        trie.put("a/b/c", 2);
+
+        assertThat(trie.remove("a/b/c")).isEqualTo(2);
+        assertThat(trie.remove("a/b/c")).isNull();
+        assertThat(trie.remove("a/b")).isNull();
+        assertThat(trie.match("a/b/c", Math::max)).isEqualTo(1);
+        assertThat(trie.get("a/+/c")).isEqualTo(1);
+
+        assertThat(trie.remove("a/+/c")).isEqualTo(1);
+        assertThat(trie.match("a/b/c", Math::max)).isNull();
+        assertThat(trie.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void givenTopicFilter_whenMatchesSingleFilter_thenSameAsTrie() {
+        String[] filters = {"#", "a/#", "a/+", "+/+", "/+", "a/+/c/#", "a/b", "a/b#", "+"};
+        String[] topics = {"a", "a/", "a/b", "a/b/c", "a/b/c/d", "/a", "/", "", "b/a", "a/b#"};
+        for (String filter : filters) {
+            MqttTopicTrie<Boolean> trie = new MqttTopicTrie<>();
+            trie.put(filter, true);
+            for (String topic : topics) {
+                assertThat(MqttTopicTrie.matches(filter, topic)).as(filter + " " + topic)
+                        .isEqualTo(trie.match(topic, (a, b) -> a) != null);
+            }
+        }
+        assertThat(MqttTopicTrie.matches("a/#", "a")).isTrue();
+        assertThat(MqttTopicTrie.matches("a/+", "a")).isFalse();
+        assertThat(MqttTopicTrie.matches("a/+", "a/")).isTrue();
+        assertThat(MqttTopicTrie.matches("a.b", "aXb")).isFalse();
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader of the UTF-8 chars of the buffer that decodes them directly to the chars array of the caller,
+ * without the String of the whole buffer and without the intermediate buffers of the InputStreamReader.
+ * Malformed input is replaced in the same way as by the String constructor.
+ * The position of the buffer is moved by the reading, so the duplicate should be passed if the buffer is used later.
+ */
+public class Utf8ByteBufferReader extends Reader {
+
+    private final ByteBuffer buffer;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // the second char of the surrogate pair that did not fit to the chars array
+    private int pendingChar = -1;
+
+    public Utf8ByteBufferReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public Utf8ByteBufferReader(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (pendingChar >= 0) {
+            cbuf[off] = (char) pendingChar;
+            pendingChar = -1;
+            return 1;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        decoder.decode(buffer, out, true);
+        int read = out.position() - off;
+        if (read == 0) {
+            // there is no room for the surrogate pair
+            CharBuffer pair = CharBuffer.allocate(2);
+            decoder.decode(buffer, pair, true);
+            cbuf[off] = pair.get(0);
+            pendingChar = pair.position() > 1 ? pair.get(1) : -1;
+            read = 1;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
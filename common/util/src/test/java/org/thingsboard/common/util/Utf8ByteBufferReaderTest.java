@@ -0,0 +1,54 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Utf8ByteBufferReaderTest {
+
+    @Test
+    public void givenMultiByteChars_whenReadByOneChar_thenSameAsString() throws IOException {
+        byte[] bytes = "{\"temperature\": \"25 °C\", \"emoji\": \"😀\", \"text\": \"Привіт\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(read(new Utf8ByteBufferReader(bytes), 1)).isEqualTo(new String(bytes, StandardCharsets.UTF_8));
+        assertThat(read(new Utf8ByteBufferReader(bytes), 1024)).isEqualTo(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void givenMalformedBytes_whenRead_thenReplacedAsByString() throws IOException {
+        byte[] bytes = {'a', (byte) 0xC3, 'b', (byte) 0xFF, (byte) 0xE2, (byte) 0x82};
+
+        assertThat(read(new Utf8ByteBufferReader(bytes), 1024)).isEqualTo(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static String read(Reader reader, int chunkSize) throws IOException {
+        StringWriter result = new StringWriter();
+        char[] chars = new char[chunkSize];
+        int read;
+        while ((read = reader.read(chars, 0, chunkSize)) != -1) {
+            result.write(chars, 0, read);
+        }
+        return result.toString();
+    }
+
+}
@@ -628,6 +628,9 @@ public class ModelConstants {
      */
     public static final String TS_KV_CF = "ts_kv_cf";
     public static final String TS_KV_PARTITIONS_CF = "ts_kv_partitions_cf";
+    public static final String TS_KV_ROLLUP_CF = "ts_kv_rollup_cf";
+    public static final String TS_KV_ROLLUP_DIRTY_CF = "ts_kv_rollup_dirty_cf";
+    public static final String TS_KV_ROLLUP_DIRTY_BY_HOUR_CF = "ts_kv_rollup_dirty_by_hour_cf";
     public static final String TS_KV_LATEST_CF = "ts_kv_latest_cf";
 
     public static final String PARTITION_COLUMN = "partition";
@@ -27,6 +27,7 @@ import org.thingsboard.server.cache.limits.RateLimitService;
 import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.entity.EntityService;
 import org.thingsboard.server.dao.util.AbstractBufferedRateExecutor;
+import org.thingsboard.server.dao.util.AdaptiveConcurrencyLimiter;
 import org.thingsboard.server.dao.util.AsyncTaskContext;
 import org.thingsboard.server.dao.util.NoSqlAnyDao;
 
@@ -49,11 +50,19 @@ public class CassandraBufferedRateWriteExecutor extends AbstractBufferedRateExec
             @Value("${cassandra.query.poll_ms:50}") long pollMs,
             @Value("${cassandra.query.tenant_rate_limits.print_tenant_names}") boolean printTenantNames,
             @Value("${cassandra.query.print_queries_freq:0}") int printQueriesFreq,
+            @Value("${cassandra.query.adaptive_concurrency.enabled:false}") boolean adaptiveConcurrencyEnabled,
+            @Value("${cassandra.query.adaptive_concurrency.min_limit:20}") int minConcurrencyLimit,
+            @Value("${cassandra.query.adaptive_concurrency.max_limit:2000}") int maxConcurrencyLimit,
+            @Value("${cassandra.query.adaptive_concurrency.max_latency_ms:200}") long maxLatencyMs,
+            @Value("${cassandra.query.adaptive_concurrency.backoff_ratio:0.9}") double backoffRatio,
+            @Value("${cassandra.query.adaptive_concurrency.window_size:100}") int windowSize,
+            @Value("${cassandra.query.adaptive_concurrency.tenant_limit_ratio:0}") double tenantLimitRatio,
             @Autowired StatsFactory statsFactory,
             @Autowired EntityService entityService,
             @Autowired RateLimitService rateLimitService) {
-        super(queueLimit, concurrencyLimit, maxWaitTime, dispatcherThreads, callbackThreads, pollMs, printQueriesFreq, statsFactory,
-                entityService, rateLimitService, printTenantNames);
+        super(queueLimit, new AdaptiveConcurrencyLimiter(concurrencyLimit, adaptiveConcurrencyEnabled, minConcurrencyLimit, maxConcurrencyLimit,
+                        maxLatencyMs, backoffRatio, windowSize), tenantLimitRatio, maxWaitTime, dispatcherThreads, callbackThreads, pollMs,
+                printQueriesFreq, statsFactory, entityService, rateLimitService, printTenantNames);
     }
 
     @Scheduled(fixedDelayString = "${cassandra.query.rate_limit_print_interval_ms}")
@@ -0,0 +1,238 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.util.CollectionsUtil;
+import org.thingsboard.server.common.stats.MessagesStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Alternative to {@link TbSqlBlockingQueue}. Elements are spread over several lock-free ring buffers by their hash code,
+ * so the updates of the same entity are saved in the order they were added, whichever thread added them.
+ * The consumer saves the next batch as soon as the previous one is saved instead of sleeping for the rest of max delay.
+ * Elements that arrive while a batch is being saved form the next batch, so the batch size follows the load.
+ * The batch size limit grows while the consumer falls behind and shrinks when the save latency exceeds max delay
+ * while the consumer keeps up, always staying within the configured batch size.
+ */
+@Slf4j
+public class TbSqlAdaptiveQueue<E, R> implements TbSqlQueue<E, R> {
+
+    static final int STRIPES = 4;
+    private static final long FULL_BUFFER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final TbSqlBlockingQueueParams params;
+    private final MessagesStats stats;
+    private final Function<E, Integer> hashCodeFunction;
+    private final TbSqlRingBuffer<TbSqlQueueElement<E, R>>[] buffers;
+    private final int maxBatchSize;
+    private final int minBatchSize;
+    private final long maxDelayNanos;
+
+    private ExecutorService executor;
+    private volatile Thread consumer;
+    private volatile boolean consumerWaiting;
+    private volatile boolean stopped;
+    private volatile int batchSize;
+    private volatile long lastSaveTimeNanos;
+
+    @SuppressWarnings("unchecked")
+    public TbSqlAdaptiveQueue(TbSqlBlockingQueueParams params, MessagesStats stats, Function<E, Integer> hashCodeFunction) {
+        this.params = params;
+        this.stats = stats;
+        this.hashCodeFunction = hashCodeFunction;
+        this.maxBatchSize = Math.max(1, params.getBatchSize());
+        this.minBatchSize = Math.max(1, maxBatchSize / 32);
+        this.batchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(params.getMaxDelay());
+        this.buffers = new TbSqlRingBuffer[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            buffers[i] = new TbSqlRingBuffer<>(Math.max(maxBatchSize, 1024));
+        }
+    }
+
+    @Override
+    public void init(ScheduledLogExecutorComponent logExecutor, Function<List<E>, List<R>> saveFunction, Comparator<E> batchUpdateComparator, Function<List<TbSqlQueueElement<E, R>>, List<TbSqlQueueElement<E, R>>> filter, int index) {
+        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("sql-queue-" + index + "-" + params.getLogName().toLowerCase()));
+        executor.submit(() -> {
+            consumer = Thread.currentThread();
+            String logName = params.getLogName();
+            final List<TbSqlQueueElement<E, R>> entities = new ArrayList<>(maxBatchSize);
+            int nextBuffer = 0;
+            while (!Thread.interrupted()) {
+                try {
+                    int limit = batchSize;
+                    for (int i = 0; i < STRIPES && entities.size() < limit; i++) {
+                        buffers[(nextBuffer + i) % STRIPES].drainTo(entities, limit - entities.size());
+                    }
+                    nextBuffer = (nextBuffer + 1) % STRIPES;
+                    if (entities.isEmpty()) {
+                        awaitElements();
+                        continue;
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}] Going to save {} entities", logName, entities.size());
+                        log.trace("[{}] Going to save entities: {}", logName, entities);
+                    }
+                    long startNanos = System.nanoTime();
+
+                    List<TbSqlQueueElement<E, R>> entitiesToSave = filter.apply(entities);
+
+                    if (params.isBatchSortEnabled()) {
+                        entitiesToSave = entitiesToSave.stream().sorted((o1, o2) -> batchUpdateComparator.compare(o1.getEntity(), o2.getEntity())).toList();
+                    }
+
+                    List<R> result = saveFunction.apply(entitiesToSave.stream().map(TbSqlQueueElement::getEntity).collect(Collectors.toList()));
+
+                    if (params.isWithResponse()) {
+                        for (int i = 0; i < entitiesToSave.size(); i++) {
+                            entitiesToSave.get(i).getFuture().set(result.get(i));
+                        }
+
+                        if (entities.size() > entitiesToSave.size()) {
+                            CollectionsUtil.diffLists(entitiesToSave, entities).forEach(v -> v.getFuture().set(null));
+                        }
+                    } else {
+                        entities.forEach(v -> v.getFuture().set(null));
+                    }
+
+                    stats.incrementSuccessful(entities.size());
+                    long saveTimeNanos = System.nanoTime() - startNanos;
+                    lastSaveTimeNanos = saveTimeNanos;
+                    adjustBatchSize(entities.size(), saveTimeNanos);
+                } catch (Throwable t) {
+                    if (t instanceof InterruptedException) {
+                        log.info("[{}] Queue polling was interrupted", logName);
+                        break;
+                    } else {
+                        log.error("[{}] Failed to save {} entities", logName, entities.size(), t);
+                        try {
+                            stats.incrementFailed(entities.size());
+                            entities.forEach(entityFutureWrapper -> entityFutureWrapper.getFuture().setException(t));
+                        } catch (Throwable th) {
+                            log.error("[{}] Failed to set future exception", logName, th);
+                        }
+                    }
+                } finally {
+                    entities.clear();
+                }
+            }
+            log.info("[{}] Queue polling completed", logName);
+        });
+
+        logExecutor.scheduleAtFixedRate(() -> {
+            int queueSize = size();
+            if (queueSize > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
+                log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}] batchSize [{}] lastSaveTimeMs [{}]", index,
+                        params.getLogName(), queueSize, stats.getTotal(), stats.getSuccessful(), stats.getFailed(),
+                        batchSize, TimeUnit.NANOSECONDS.toMillis(lastSaveTimeNanos));
+                stats.reset();
+            }
+        }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        stopped = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public ListenableFuture<R> add(E element) {
+        SettableFuture<R> future = SettableFuture.create();
+        TbSqlQueueElement<E, R> queueElement = new TbSqlQueueElement<>(future, element);
+        // the updates of the same entity always go to the same buffer, so they are saved in the order they were added
+        TbSqlRingBuffer<TbSqlQueueElement<E, R>> buffer = buffers[stripe(element)];
+        while (!buffer.offer(queueElement)) {
+            if (stopped) {
+                future.setException(new IllegalStateException("Queue [" + params.getLogName() + "] is stopped"));
+                return future;
+            }
+            wakeUpConsumer();
+            LockSupport.parkNanos(this, FULL_BUFFER_PARK_NANOS);
+        }
+        stats.incrementTotal();
+        if (consumerWaiting) {
+            wakeUpConsumer();
+        }
+        return future;
+    }
+
+    private int stripe(E element) {
+        if (element == null) {
+            return 0;
+        }
+        // the wrapper selects the queue by the low bits of the same hash code, so the stripe is selected by the mixed bits
+        return ((hashCodeFunction.apply(element) * 0x9E3779B9) >>> 16) % STRIPES;
+    }
+
+    int size() {
+        int size = 0;
+        for (TbSqlRingBuffer<TbSqlQueueElement<E, R>> buffer : buffers) {
+            size += buffer.size();
+        }
+        return size;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    void adjustBatchSize(int savedCount, long saveTimeNanos) {
+        int currentBatchSize = batchSize;
+        int backlog = size();
+        if (savedCount >= currentBatchSize && backlog >= currentBatchSize) {
+            // falling behind: bigger batches to save more entities per round-trip
+            batchSize = Math.min(maxBatchSize, currentBatchSize * 2);
+        } else if (saveTimeNanos > maxDelayNanos && backlog < currentBatchSize / 2) {
+            // keeping up, but a single save takes longer than max delay: smaller batches to reduce latency
+            batchSize = Math.max(minBatchSize, currentBatchSize * 3 / 4);
+        }
+    }
+
+    private void awaitElements() {
+        consumerWaiting = true;
+        try {
+            if (size() == 0) {
+                LockSupport.parkNanos(this, Math.max(maxDelayNanos, FULL_BUFFER_PARK_NANOS));
+            }
+        } finally {
+            consumerWaiting = false;
+        }
+    }
+
+    private void wakeUpConsumer() {
+        Thread consumer = this.consumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+}
@@ -31,4 +31,5 @@ public class TbSqlBlockingQueueParams {
     private final String statsNamePrefix;
     private final boolean batchSortEnabled;
     private final boolean withResponse;
+    private final boolean adaptiveBatching;
 }
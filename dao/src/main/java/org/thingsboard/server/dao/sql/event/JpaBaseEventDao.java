@@ -90,6 +90,9 @@ public class JpaBaseEventDao implements EventDao {
     @Value("${sql.batch_sort:true}")
     private boolean batchSortEnabled;
 
+    @Value("${sql.adaptive_batching:false}")
+    private boolean adaptiveBatching;
+
     private TbSqlBlockingQueueWrapper<Event, Void> queue;
 
     private final Map<EventType, EventRepository<?, ?>> repositories = new ConcurrentHashMap<>();
@@ -103,6 +106,7 @@ public class JpaBaseEventDao implements EventDao {
                 .statsPrintIntervalMs(statsPrintIntervalMs)
                 .statsNamePrefix("events")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptiveBatching(adaptiveBatching)
                 .build();
         Function<Event, Integer> hashcodeFunction = entity -> Objects.hash(super.hashCode(), entity.getTenantId(), entity.getEntityId());
         queue = new TbSqlBlockingQueueWrapper<>(params, hashcodeFunction, batchThreads, statsFactory);
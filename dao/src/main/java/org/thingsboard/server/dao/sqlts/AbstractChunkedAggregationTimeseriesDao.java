@@ -39,6 +39,8 @@ import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.rollup.TsKvRollup;
+import org.thingsboard.server.dao.sqlts.rollup.TsKvRollupService;
 import org.thingsboard.server.dao.sqlts.ts.TsKvRepository;
 import org.thingsboard.server.dao.timeseries.TimeseriesDao;
 import org.thingsboard.server.dao.util.TimeUtils;
@@ -67,6 +69,9 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Autowired
     private KeyDictionaryDao keyDictionaryDao;
 
+    @Autowired
+    protected TsKvRollupService rollupService;
+
     @PostConstruct
     protected void init() {
         TbSqlBlockingQueueParams tsParams = TbSqlBlockingQueueParams.builder()
@@ -76,6 +81,7 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
                 .statsPrintIntervalMs(tsStatsPrintIntervalMs)
                 .statsNamePrefix("ts")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptiveBatching(adaptiveBatching)
                 .build();
 
         Function<TsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
@@ -97,11 +103,14 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Override
     public ListenableFuture<Void> remove(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
         return service.submit(() -> {
+            Integer keyId = keyDictionaryDao.getOrSaveKeyId(query.getKey());
+            rollupService.onRemoved(entityId.getId(), keyId, query.getStartTs(), query.getEndTs());
             tsKvRepository.delete(
                     entityId.getId(),
-                    keyDictionaryDao.getOrSaveKeyId(query.getKey()),
+                    keyId,
                     query.getStartTs(),
                     query.getEndTs());
+            rollupService.onRemoved(entityId.getId(), keyId, query.getStartTs(), query.getEndTs());
             return null;
         });
     }
@@ -174,6 +183,12 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
 
     protected TsKvEntity switchAggregation(EntityId entityId, String key, long startTs, long endTs, Aggregation aggregation) {
         var keyId = keyDictionaryDao.getOrSaveKeyId(key);
+        if (rollupService.isEnabled()) {
+            TsKvRollup rollup = rollupService.aggregate(entityId.getId(), keyId, startTs, endTs);
+            if (rollup != null) {
+                return rollup.toTsKvEntity(aggregation);
+            }
+        }
         switch (aggregation) {
             case AVG:
                 return tsKvRepository.findAvg(entityId.getId(), keyId, startTs, endTs);
@@ -66,6 +66,9 @@ public abstract class AbstractSqlTimeseriesDao extends BaseAbstractSqlTimeseries
     @Value("${sql.batch_sort:true}")
     protected boolean batchSortEnabled;
 
+    @Value("${sql.adaptive_batching:false}")
+    protected boolean adaptiveBatching;
+
     @Value("${sql.ttl.ts.ts_key_value_ttl:0}")
     private long systemTtl;
 
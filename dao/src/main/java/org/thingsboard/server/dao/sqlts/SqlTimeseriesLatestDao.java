@@ -99,6 +99,9 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
     @Value("${sql.batch_sort:true}")
     protected boolean batchSortEnabled;
 
+    @Value("${sql.adaptive_batching:false}")
+    protected boolean adaptiveBatching;
+
     @Autowired
     protected ScheduledLogExecutorComponent logExecutor;
 
@@ -117,6 +120,7 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
                 .statsPrintIntervalMs(tsLatestStatsPrintIntervalMs)
                 .statsNamePrefix("ts.latest")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptiveBatching(adaptiveBatching)
                 .withResponse(true)
                 .build();
 
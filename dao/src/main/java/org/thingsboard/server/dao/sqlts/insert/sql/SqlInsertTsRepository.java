@@ -15,12 +15,14 @@
  */
 package org.thingsboard.server.dao.sqlts.insert.sql;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
 import org.thingsboard.server.dao.sqlts.insert.AbstractInsertRepository;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.rollup.TsKvRollupService;
 import org.thingsboard.server.dao.util.SqlTsDao;
 
 import java.sql.PreparedStatement;
@@ -36,6 +38,9 @@ public class SqlInsertTsRepository extends AbstractInsertRepository implements I
     private static final String INSERT_ON_CONFLICT_DO_UPDATE = "INSERT INTO ts_kv (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) VALUES (?, ?, ?, ?, ?, ?, ?, cast(? AS json)) " +
             "ON CONFLICT (entity_id, key, ts) DO UPDATE SET bool_v = ?, str_v = ?, long_v = ?, dbl_v = ?, json_v = cast(? AS json);";
 
+    @Autowired
+    private TsKvRollupService rollupService;
+
     @Override
     public void saveOrUpdate(List<TsKvEntity> entities) {
         jdbcTemplate.batchUpdate(INSERT_ON_CONFLICT_DO_UPDATE, new BatchPreparedStatementSetter() {
@@ -83,6 +88,7 @@ public class SqlInsertTsRepository extends AbstractInsertRepository implements I
                 return entities.size();
             }
         });
+        rollupService.onSaved(entities);
     }
 
 }
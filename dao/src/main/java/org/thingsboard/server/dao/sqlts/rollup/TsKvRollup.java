@@ -0,0 +1,127 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import lombok.Data;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Aggregated values of a time range of one key of one entity.
+ * Same columns are selected from the raw ts_kv rows and from the ts_kv_rollup rows,
+ * so the values of the adjacent ranges can be merged and converted to the aggregation result.
+ */
+@Data
+public class TsKvRollup {
+
+    private long boolCount;
+    private long strCount;
+    private String strMin;
+    private String strMax;
+    private long longCount;
+    private long longSum;
+    private Long longMin;
+    private Long longMax;
+    private long doubleCount;
+    private double doubleSum;
+    private Double doubleMin;
+    private Double doubleMax;
+    private long jsonCount;
+    private Long lastTs;
+
+    public boolean isEmpty() {
+        return boolCount == 0 && strCount == 0 && longCount == 0 && doubleCount == 0 && jsonCount == 0;
+    }
+
+    public TsKvRollup merge(TsKvRollup other) {
+        boolCount += other.boolCount;
+        strCount += other.strCount;
+        strMin = min(strMin, other.strMin);
+        strMax = max(strMax, other.strMax);
+        longCount += other.longCount;
+        longSum += other.longSum;
+        longMin = min(longMin, other.longMin);
+        longMax = max(longMax, other.longMax);
+        doubleCount += other.doubleCount;
+        doubleSum += other.doubleSum;
+        doubleMin = min(doubleMin, other.doubleMin);
+        doubleMax = max(doubleMax, other.doubleMax);
+        jsonCount += other.jsonCount;
+        lastTs = max(lastTs, other.lastTs);
+        return this;
+    }
+
+    /**
+     * Converts the values to the entity in the same way as the aggregation queries of the raw ts_kv rows do.
+     *
+     * @return null if there are no values for the aggregation
+     */
+    public TsKvEntity toTsKvEntity(Aggregation aggregation) {
+        if (isEmpty()) {
+            return null;
+        }
+        switch (aggregation) {
+            case AVG:
+            case SUM:
+                return nonEmpty(new TsKvEntity(longSum, doubleSum, longCount, doubleCount, aggregation.name(), lastTs));
+            case MIN:
+                TsKvEntity min = new TsKvEntity(longMin, doubleMin, longCount, doubleCount, aggregation.name(), lastTs);
+                return min.isNotEmpty() ? min : nonEmpty(new TsKvEntity(strMin, lastTs));
+            case MAX:
+                TsKvEntity max = new TsKvEntity(longMax, doubleMax, longCount, doubleCount, aggregation.name(), lastTs);
+                return max.isNotEmpty() ? max : nonEmpty(new TsKvEntity(strMax, lastTs));
+            case COUNT:
+                return new TsKvEntity(boolCount, strCount, longCount, doubleCount, jsonCount, lastTs);
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+
+    static TsKvRollup fromResultSet(ResultSet rs) throws SQLException {
+        TsKvRollup rollup = new TsKvRollup();
+        rollup.boolCount = rs.getLong("bool_cnt");
+        rollup.strCount = rs.getLong("str_cnt");
+        rollup.strMin = rs.getString("str_min");
+        rollup.strMax = rs.getString("str_max");
+        rollup.longCount = rs.getLong("long_cnt");
+        rollup.longSum = rs.getLong("long_sum");
+        rollup.longMin = rs.getObject("long_min", Long.class);
+        rollup.longMax = rs.getObject("long_max", Long.class);
+        rollup.doubleCount = rs.getLong("dbl_cnt");
+        rollup.doubleSum = rs.getDouble("dbl_sum");
+        rollup.doubleMin = rs.getObject("dbl_min", Double.class);
+        rollup.doubleMax = rs.getObject("dbl_max", Double.class);
+        rollup.jsonCount = rs.getLong("json_cnt");
+        rollup.lastTs = rs.getObject("last_ts", Long.class);
+        return rollup;
+    }
+
+    private static TsKvEntity nonEmpty(TsKvEntity entity) {
+        return entity.isNotEmpty() ? entity : null;
+    }
+
+    private static <T extends Comparable<T>> T min(T a, T b) {
+        return a == null ? b : b == null ? a : a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static <T extends Comparable<T>> T max(T a, T b) {
+        return a == null ? b : b == null ? a : a.compareTo(b) >= 0 ? a : b;
+    }
+
+}
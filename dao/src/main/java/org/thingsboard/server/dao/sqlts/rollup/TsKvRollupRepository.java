@@ -0,0 +1,249 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.thingsboard.server.dao.model.ModelConstants;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@SqlTsDao
+@Repository
+public class TsKvRollupRepository {
+
+    static final long HOUR_MS = 60 * 60 * 1000L;
+    static final long DAY_MS = 24 * HOUR_MS;
+
+    // the row of the NULL_UUID entity keeps the time from which the rollups are maintained
+    private static final int START_TS_KEY = 0;
+    private static final long START_TS_INTERVAL = 0;
+
+    private static final String CREATE_ROLLUP_TABLE = "CREATE TABLE IF NOT EXISTS ts_kv_rollup (" +
+            "entity_id uuid NOT NULL, key int NOT NULL, interval_ms bigint NOT NULL, ts bigint NOT NULL, " +
+            "bool_cnt bigint NOT NULL, str_cnt bigint NOT NULL, str_min varchar(10000000), str_max varchar(10000000), " +
+            "long_cnt bigint NOT NULL, long_sum bigint NOT NULL, long_min bigint, long_max bigint, " +
+            "dbl_cnt bigint NOT NULL, dbl_sum double precision NOT NULL, dbl_min double precision, dbl_max double precision, " +
+            "json_cnt bigint NOT NULL, last_ts bigint, " +
+            "CONSTRAINT ts_kv_rollup_pkey PRIMARY KEY (entity_id, key, interval_ms, ts));";
+
+    private static final String CREATE_DIRTY_TABLE = "CREATE TABLE IF NOT EXISTS ts_kv_rollup_dirty (" +
+            "entity_id uuid NOT NULL, key int NOT NULL, ts bigint NOT NULL, " +
+            "CONSTRAINT ts_kv_rollup_dirty_pkey PRIMARY KEY (entity_id, key, ts));";
+
+    private static final String CREATE_DIRTY_TS_INDEX = "CREATE INDEX IF NOT EXISTS idx_ts_kv_rollup_dirty_ts ON ts_kv_rollup_dirty (ts);";
+
+    // the update locks the marker until the transaction that saves the data is committed,
+    // so the refresh either waits for the data or skips the marker until the next refresh
+    private static final String MARK_DIRTY = "INSERT INTO ts_kv_rollup_dirty (entity_id, key, ts) VALUES (?, ?, ?) " +
+            "ON CONFLICT (entity_id, key, ts) DO UPDATE SET ts = excluded.ts;";
+
+    private static final String FIND_DIRTY_HOURS = "SELECT ts FROM ts_kv_rollup_dirty WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ?;";
+
+    private static final String TAKE_DIRTY = "DELETE FROM ts_kv_rollup_dirty WHERE (entity_id, key, ts) IN " +
+            "(SELECT entity_id, key, ts FROM ts_kv_rollup_dirty WHERE ts <= ? ORDER BY ts LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING entity_id, key, ts;";
+
+    private static final String DELETE_DIRTY_BY_TTL = "DELETE FROM ts_kv_rollup_dirty WHERE ts + " + HOUR_MS + " <= ?;";
+
+    private static final String AGGREGATE_TS_KV = "SELECT COUNT(bool_v) AS bool_cnt, COUNT(str_v) AS str_cnt, MIN(str_v) AS str_min, MAX(str_v) AS str_max, " +
+            "COUNT(long_v) AS long_cnt, SUM(long_v) AS long_sum, MIN(long_v) AS long_min, MAX(long_v) AS long_max, " +
+            "COUNT(dbl_v) AS dbl_cnt, SUM(dbl_v) AS dbl_sum, MIN(dbl_v) AS dbl_min, MAX(dbl_v) AS dbl_max, " +
+            "COUNT(json_v) AS json_cnt, MAX(ts) AS last_ts FROM ts_kv ";
+
+    private static final String AGGREGATE_ROLLUP = "SELECT SUM(bool_cnt) AS bool_cnt, SUM(str_cnt) AS str_cnt, MIN(str_min) AS str_min, MAX(str_max) AS str_max, " +
+            "SUM(long_cnt) AS long_cnt, SUM(long_sum) AS long_sum, MIN(long_min) AS long_min, MAX(long_max) AS long_max, " +
+            "SUM(dbl_cnt) AS dbl_cnt, SUM(dbl_sum) AS dbl_sum, MIN(dbl_min) AS dbl_min, MAX(dbl_max) AS dbl_max, " +
+            "SUM(json_cnt) AS json_cnt, MAX(last_ts) AS last_ts FROM ts_kv_rollup ";
+
+    private static final String INSERT_ROLLUP = "INSERT INTO ts_kv_rollup (entity_id, key, interval_ms, ts, bool_cnt, str_cnt, str_min, str_max, " +
+            "long_cnt, long_sum, long_min, long_max, dbl_cnt, dbl_sum, dbl_min, dbl_max, json_cnt, last_ts) ";
+
+    private static final String ON_CONFLICT_UPDATE_ROLLUP = " ON CONFLICT (entity_id, key, interval_ms, ts) DO UPDATE SET " +
+            "bool_cnt = excluded.bool_cnt, str_cnt = excluded.str_cnt, str_min = excluded.str_min, str_max = excluded.str_max, " +
+            "long_cnt = excluded.long_cnt, long_sum = excluded.long_sum, long_min = excluded.long_min, long_max = excluded.long_max, " +
+            "dbl_cnt = excluded.dbl_cnt, dbl_sum = excluded.dbl_sum, dbl_min = excluded.dbl_min, dbl_max = excluded.dbl_max, " +
+            "json_cnt = excluded.json_cnt, last_ts = excluded.last_ts;";
+
+    private static final String DELETE_ROLLUP = "DELETE FROM ts_kv_rollup WHERE entity_id = ? AND key = ? AND interval_ms = ? AND ts = ?;";
+
+    private static final String REFRESH_HOUR_ROLLUP = INSERT_ROLLUP +
+            "SELECT entity_id, key, " + HOUR_MS + ", CAST(? AS bigint), COUNT(bool_v), COUNT(str_v), MIN(str_v), MAX(str_v), " +
+            "COUNT(long_v), COALESCE(SUM(long_v), 0), MIN(long_v), MAX(long_v), COUNT(dbl_v), COALESCE(SUM(dbl_v), 0), MIN(dbl_v), MAX(dbl_v), COUNT(json_v), MAX(ts) " +
+            "FROM ts_kv WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ? GROUP BY entity_id, key" + ON_CONFLICT_UPDATE_ROLLUP;
+
+    private static final String REFRESH_DAY_ROLLUP = INSERT_ROLLUP +
+            "SELECT entity_id, key, " + DAY_MS + ", CAST(? AS bigint), SUM(bool_cnt), SUM(str_cnt), MIN(str_min), MAX(str_max), " +
+            "SUM(long_cnt), SUM(long_sum), MIN(long_min), MAX(long_max), SUM(dbl_cnt), SUM(dbl_sum), MIN(dbl_min), MAX(dbl_max), SUM(json_cnt), MAX(last_ts) " +
+            "FROM ts_kv_rollup WHERE entity_id = ? AND key = ? AND interval_ms = " + HOUR_MS + " AND ts >= ? AND ts < ? GROUP BY entity_id, key" + ON_CONFLICT_UPDATE_ROLLUP;
+
+    private static final String DELETE_ROLLUPS_IN_RANGE = "DELETE FROM ts_kv_rollup WHERE entity_id = ? AND key = ? AND interval_ms = ? AND ts >= ? AND ts + interval_ms <= ?;";
+
+    private static final String DELETE_ROLLUPS_BY_TTL = "DELETE FROM ts_kv_rollup WHERE interval_ms > 0 AND ts + interval_ms <= ?;";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The tables are created on startup only when the rollups are enabled, so they do not exist otherwise.
+     */
+    public void createTablesIfNotExist() {
+        jdbcTemplate.execute(CREATE_ROLLUP_TABLE);
+        jdbcTemplate.execute(CREATE_DIRTY_TABLE);
+        jdbcTemplate.execute(CREATE_DIRTY_TS_INDEX);
+    }
+
+    /**
+     * Saves the markers of the hourly buckets that received data within the transaction that saves the data,
+     * so the buckets are refreshed even if the service is restarted before the refresh.
+     * The buckets are expected to be sorted to avoid deadlocks between the concurrent transactions.
+     */
+    public void markDirty(List<TsKvRollupBucket> hourBuckets) {
+        jdbcTemplate.batchUpdate(MARK_DIRTY, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TsKvRollupBucket bucket = hourBuckets.get(i);
+                ps.setObject(1, bucket.entityId());
+                ps.setInt(2, bucket.key());
+                ps.setLong(3, bucket.ts());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return hourBuckets.size();
+            }
+        });
+    }
+
+    /**
+     * @return start times of the hourly buckets that are not refreshed since they received data
+     */
+    public List<Long> findDirtyHours(UUID entityId, int key, long startTs, long endTs) {
+        return jdbcTemplate.queryForList(FIND_DIRTY_HOURS, Long.class, entityId, key, startTs, endTs);
+    }
+
+    public TsKvRollup findRaw(UUID entityId, int key, long startTs, long endTs) {
+        return jdbcTemplate.queryForObject(AGGREGATE_TS_KV + "WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ?",
+                (rs, rowNum) -> TsKvRollup.fromResultSet(rs), entityId, key, startTs, endTs);
+    }
+
+    public TsKvRollup findRollup(UUID entityId, int key, long intervalMs, long startTs, long endTs) {
+        return jdbcTemplate.queryForObject(AGGREGATE_ROLLUP + "WHERE entity_id = ? AND key = ? AND interval_ms = ? AND ts >= ? AND ts < ?",
+                (rs, rowNum) -> TsKvRollup.fromResultSet(rs), entityId, key, intervalMs, startTs, endTs);
+    }
+
+    /**
+     * Takes up to the limit of the dirty hourly buckets that start not later than the given time, recalculates their
+     * rollups from the ts_kv rows, and then the daily rollups of the days of these buckets from the hourly rollups.
+     * The markers are removed in the same transaction, and the ones locked by the transactions that save data
+     * or by the refresh on another node are skipped.
+     *
+     * @return number of the refreshed hourly buckets
+     */
+    @Transactional
+    public int refreshDirty(long maxTs, int limit) {
+        List<TsKvRollupBucket> hourBuckets = jdbcTemplate.query(TAKE_DIRTY,
+                (rs, rowNum) -> new TsKvRollupBucket(rs.getObject("entity_id", UUID.class), rs.getInt("key"), rs.getLong("ts")), maxTs, limit);
+        if (hourBuckets.isEmpty()) {
+            return 0;
+        }
+        Set<TsKvRollupBucket> dayBuckets = new LinkedHashSet<>();
+        for (TsKvRollupBucket bucket : hourBuckets) {
+            dayBuckets.add(new TsKvRollupBucket(bucket.entityId(), bucket.key(), TsKvRollupService.floor(bucket.ts(), DAY_MS)));
+        }
+        refresh(hourBuckets, new ArrayList<>(dayBuckets));
+        return hourBuckets.size();
+    }
+
+    private void refresh(List<TsKvRollupBucket> hourBuckets, List<TsKvRollupBucket> dayBuckets) {
+        // the rollup of the bucket without ts_kv rows is removed, the other ones are replaced by the upsert
+        batchUpdate(DELETE_ROLLUP, hourBuckets, HOUR_MS);
+        batchUpdate(REFRESH_HOUR_ROLLUP, hourBuckets, HOUR_MS);
+        batchUpdate(DELETE_ROLLUP, dayBuckets, DAY_MS);
+        batchUpdate(REFRESH_DAY_ROLLUP, dayBuckets, DAY_MS);
+    }
+
+    /**
+     * Removes the rollups of the buckets that are fully inside the deleted range.
+     * The buckets that are only partially covered by the range are expected to be refreshed.
+     */
+    @Transactional
+    public void deleteInRange(UUID entityId, int key, long startTs, long endTs) {
+        jdbcTemplate.update(DELETE_ROLLUPS_IN_RANGE, entityId, key, HOUR_MS, startTs, endTs);
+        jdbcTemplate.update(DELETE_ROLLUPS_IN_RANGE, entityId, key, DAY_MS, startTs, endTs);
+    }
+
+    public void deleteByTtl(long expirationTs) {
+        jdbcTemplate.update(DELETE_ROLLUPS_BY_TTL, expirationTs);
+        jdbcTemplate.update(DELETE_DIRTY_BY_TTL, expirationTs);
+    }
+
+    /**
+     * @return the time from which the rollups are maintained; the given one if it was not saved yet
+     */
+    @Transactional
+    public long getOrSaveStartTs(long startTs) {
+        // concurrently started nodes may save several rows, the earliest one is used
+        jdbcTemplate.update(INSERT_ROLLUP + "SELECT ?, ?, ?, ?, 0, 0, NULL, NULL, 0, 0, NULL, NULL, 0, 0, NULL, NULL, 0, NULL " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM ts_kv_rollup WHERE entity_id = ? AND key = ? AND interval_ms = ?) " +
+                        "ON CONFLICT (entity_id, key, interval_ms, ts) DO NOTHING;",
+                ModelConstants.NULL_UUID, START_TS_KEY, START_TS_INTERVAL, startTs,
+                ModelConstants.NULL_UUID, START_TS_KEY, START_TS_INTERVAL);
+        return jdbcTemplate.queryForObject("SELECT MIN(ts) FROM ts_kv_rollup WHERE entity_id = ? AND key = ? AND interval_ms = ?",
+                Long.class, ModelConstants.NULL_UUID, START_TS_KEY, START_TS_INTERVAL);
+    }
+
+    private void batchUpdate(String sql, List<TsKvRollupBucket> buckets, long intervalMs) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        boolean refresh = !DELETE_ROLLUP.equals(sql);
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TsKvRollupBucket bucket = buckets.get(i);
+                if (refresh) {
+                    ps.setLong(1, bucket.ts());
+                    ps.setObject(2, bucket.entityId());
+                    ps.setInt(3, bucket.key());
+                    ps.setLong(4, bucket.ts());
+                    ps.setLong(5, bucket.ts() + intervalMs);
+                } else {
+                    ps.setObject(1, bucket.entityId());
+                    ps.setInt(2, bucket.key());
+                    ps.setLong(3, intervalMs);
+                    ps.setLong(4, bucket.ts());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return buckets.size();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRepository.DAY_MS;
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRepository.HOUR_MS;
+
+/**
+ * Maintains hourly and daily aggregates of the ts_kv rows in the ts_kv_rollup table.
+ * <p>
+ * The hours that received data are marked as dirty in the ts_kv_rollup_dirty table within the transaction
+ * that saves the data. The rollups of the dirty hours are recalculated from the ts_kv rows once the hour is over,
+ * the daily rollups are recalculated from the hourly ones. Recalculation instead of incremental updates keeps
+ * the rollups correct when a value with the same timestamp is overwritten or deleted, and the persisted markers
+ * keep them correct when the service is restarted before the refresh.
+ * <p>
+ * Aggregation queries use the daily and hourly rollups for the part of the interval that is covered by whole buckets,
+ * are maintained since the rollups were enabled, are over and are not marked as dirty; the rest is aggregated
+ * from the ts_kv rows.
+ */
+@Slf4j
+@SqlTsDao
+@Component
+public class TsKvRollupService {
+
+    private static final Comparator<TsKvRollupBucket> BUCKET_ORDER = Comparator.comparing(TsKvRollupBucket::entityId)
+            .thenComparingInt(TsKvRollupBucket::key)
+            .thenComparingLong(TsKvRollupBucket::ts);
+
+    @Autowired
+    private TsKvRollupRepository rollupRepository;
+
+    @Getter
+    @Value("${sql.ts.rollup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.ts.rollup.refresh_interval_ms:60000}")
+    private long refreshIntervalMs;
+
+    @Value("${sql.ts.rollup.refresh_batch_size:1000}")
+    private int refreshBatchSize;
+
+    // the buckets of the current hours with the committed markers, which are not refreshed until the hour is over
+    private final Set<TsKvRollupBucket> markedBuckets = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+    private volatile long startTs;
+
+    @PostConstruct
+    private void init() {
+        if (!enabled) {
+            return;
+        }
+        rollupRepository.createTablesIfNotExist();
+        startTs = rollupRepository.getOrSaveStartTs(ceil(System.currentTimeMillis(), HOUR_MS));
+        log.info("Timeseries rollups are maintained since {}", startTs);
+        scheduler = ThingsBoardExecutors.newSingleThreadScheduledExecutor("ts-rollup");
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Marks the hours of the saved entities as dirty. Expected to be called within the transaction that saves them.
+     */
+    public void onSaved(List<TsKvEntity> entities) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<TsKvRollupBucket> buckets = new HashSet<>();
+        for (TsKvEntity entity : entities) {
+            TsKvRollupBucket bucket = new TsKvRollupBucket(entity.getEntityId(), entity.getKey(), floor(entity.getTs(), HOUR_MS));
+            // the refresh does not take the buckets of the current hour, so their existing markers do not need to be locked
+            if (!isCurrentHour(bucket, now) || !markedBuckets.contains(bucket)) {
+                buckets.add(bucket);
+            }
+        }
+        if (!buckets.isEmpty()) {
+            List<TsKvRollupBucket> sortedBuckets = new ArrayList<>(buckets);
+            sortedBuckets.sort(BUCKET_ORDER);
+            rollupRepository.markDirty(sortedBuckets);
+            afterCommit(() -> sortedBuckets.stream().filter(bucket -> isCurrentHour(bucket, now)).forEach(markedBuckets::add));
+        }
+    }
+
+    /**
+     * Expected to be called both before and after the removal of the data: the rollups of the range that are refreshed
+     * in between are removed again, and the markers are kept if the service is restarted in between.
+     */
+    public void onRemoved(UUID entityId, int key, long startTs, long endTs) {
+        if (!enabled || startTs >= endTs) {
+            return;
+        }
+        rollupRepository.deleteInRange(entityId, key, startTs, endTs);
+        // the buckets that contain the bounds of the range may have data outside of it
+        Set<TsKvRollupBucket> buckets = new HashSet<>();
+        buckets.add(new TsKvRollupBucket(entityId, key, floor(startTs, HOUR_MS)));
+        buckets.add(new TsKvRollupBucket(entityId, key, floor(endTs - 1, HOUR_MS)));
+        List<TsKvRollupBucket> sortedBuckets = new ArrayList<>(buckets);
+        sortedBuckets.sort(BUCKET_ORDER);
+        rollupRepository.markDirty(sortedBuckets);
+    }
+
+    public void cleanup(long expirationTs) {
+        if (enabled) {
+            rollupRepository.deleteByTtl(expirationTs);
+        }
+    }
+
+    /**
+     * @return aggregated values of the interval, or null if the interval does not contain whole buckets
+     * that can be served from the rollups
+     */
+    public TsKvRollup aggregate(UUID entityId, int key, long startTs, long endTs) {
+        long now = System.currentTimeMillis();
+        if (plan(startTs, endTs, now, Set.of()) == null) {
+            return null;
+        }
+        Set<Long> dirtyHours = new HashSet<>(rollupRepository.findDirtyHours(entityId, key, floor(startTs, HOUR_MS), endTs));
+        List<long[]> plan = plan(startTs, endTs, now, dirtyHours);
+        if (plan == null) {
+            return null;
+        }
+        TsKvRollup result = new TsKvRollup();
+        for (long[] part : plan) {
+            long intervalMs = part[0];
+            TsKvRollup rollup = intervalMs == 0 ?
+                    rollupRepository.findRaw(entityId, key, part[1], part[2]) :
+                    rollupRepository.findRollup(entityId, key, intervalMs, part[1], part[2]);
+            if (rollup != null) {
+                result.merge(rollup);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Splits the interval into the ranges of the daily and hourly buckets and the remaining raw data ranges.
+     * The dirty hours and the days that contain them are read from the raw data.
+     *
+     * @return list of [bucket interval or 0 for the raw data, start ts, end ts], or null if there are no whole buckets
+     * that can be served from the rollups
+     */
+    List<long[]> plan(long startTs, long endTs, long now, Set<Long> dirtyHours) {
+        if (!enabled) {
+            return null;
+        }
+        long hoursStart = ceil(Math.max(startTs, this.startTs), HOUR_MS);
+        long hoursEnd = floor(Math.min(endTs, now), HOUR_MS);
+        if (hoursEnd <= hoursStart) {
+            return null;
+        }
+        List<long[]> plan = new ArrayList<>(5);
+        addPart(plan, 0, startTs, hoursStart);
+        boolean rollupUsed = false;
+        long ts = hoursStart;
+        while (ts < hoursEnd) {
+            long dayEnd = floor(ts, DAY_MS) + DAY_MS;
+            if (ts % DAY_MS == 0 && dayEnd <= hoursEnd && !containsHour(dirtyHours, ts, dayEnd)) {
+                addPart(plan, DAY_MS, ts, dayEnd);
+                rollupUsed = true;
+                ts = dayEnd;
+            } else {
+                boolean dirty = dirtyHours.contains(ts);
+                addPart(plan, dirty ? 0 : HOUR_MS, ts, ts + HOUR_MS);
+                rollupUsed |= !dirty;
+                ts += HOUR_MS;
+            }
+        }
+        addPart(plan, 0, hoursEnd, endTs);
+        return rollupUsed ? plan : null;
+    }
+
+    void refresh() {
+        long now = System.currentTimeMillis();
+        markedBuckets.removeIf(bucket -> !isCurrentHour(bucket, now));
+        try {
+            // the hours that are over for less than the refresh interval are left for the transactions
+            // that started before the end of the hour and did not lock the markers
+            long maxTs = now - refreshIntervalMs - HOUR_MS;
+            int refreshed;
+            do {
+                refreshed = rollupRepository.refreshDirty(maxTs, refreshBatchSize);
+                log.debug("Refreshed {} hourly timeseries rollups", refreshed);
+            } while (refreshed >= refreshBatchSize);
+        } catch (Throwable t) {
+            log.warn("Failed to refresh timeseries rollups, going to retry", t);
+        }
+    }
+
+    private static boolean isCurrentHour(TsKvRollupBucket bucket, long now) {
+        return bucket.ts() + HOUR_MS > now;
+    }
+
+    private static boolean containsHour(Set<Long> hours, long startTs, long endTs) {
+        for (long hour : hours) {
+            if (hour >= startTs && hour < endTs) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void addPart(List<long[]> plan, long intervalMs, long startTs, long endTs) {
+        if (endTs <= startTs) {
+            return;
+        }
+        long[] last = plan.isEmpty() ? null : plan.get(plan.size() - 1);
+        if (last != null && last[0] == intervalMs && last[2] == startTs) {
+            last[2] = endTs;
+        } else {
+            plan.add(new long[]{intervalMs, startTs, endTs});
+        }
+    }
+
+    static long floor(long ts, long intervalMs) {
+        return Math.floorDiv(ts, intervalMs) * intervalMs;
+    }
+
+    static long ceil(long ts, long intervalMs) {
+        return -Math.floorDiv(-ts, intervalMs) * intervalMs;
+    }
+
+}
@@ -104,6 +104,7 @@ public class JpaSqlTimeseriesDao extends AbstractChunkedAggregationTimeseriesDao
     public void cleanup(long systemTtl) {
         if (systemTtl > 0) {
             cleanupPartitions(systemTtl);
+            rollupService.cleanup(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(systemTtl));
         }
         super.cleanup(systemTtl);
     }
@@ -20,6 +20,7 @@ import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
 import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
 import com.datastax.oss.driver.api.querybuilder.select.Select;
 import com.google.common.base.Function;
@@ -122,6 +123,28 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     @Value("${cassandra.query.set_null_values_enabled}")
     private boolean setNullValuesEnabled;
 
+    @Value("${cassandra.query.ts_batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${cassandra.query.ts_batch.max_delay_ms:20}")
+    private long batchMaxDelayMs;
+
+    @Value("${cassandra.query.ts_batch.max_size:20}")
+    private int batchMaxSize;
+
+    private CassandraTsKvBatchWriter batchWriter;
+
+    @Value("${cassandra.query.ts_rollup.enabled:false}")
+    private boolean rollupEnabled;
+
+    @Value("${cassandra.query.ts_rollup.refresh_interval_ms:60000}")
+    private long rollupRefreshIntervalMs;
+
+    @Value("${cassandra.query.ts_rollup.refresh_batch_size:1000}")
+    private int rollupRefreshBatchSize;
+
+    private CassandraTsKvRollupService rollupService;
+
     private NoSqlTsPartitionDate tsFormat;
 
     private PreparedStatement partitionInsertStmt;
@@ -155,10 +178,27 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
             log.warn("Incorrect configuration of partitioning {}", partitioning);
             throw new RuntimeException("Failed to parse partitioning property: " + partitioning + "!");
         }
+        if (batchEnabled) {
+            batchWriter = new CassandraTsKvBatchWriter(this::executeAsyncWrite, batchMaxDelayMs, batchMaxSize);
+        }
+        if (rollupEnabled && !isInstall()) {
+            rollupService = new CassandraTsKvRollupService(this, readResultsProcessingExecutor, rollupRefreshIntervalMs, rollupRefreshBatchSize);
+            try {
+                rollupService.init();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to initialize timeseries rollups!", e);
+            }
+        }
     }
 
     @PreDestroy
     public void stop() {
+        if (rollupService != null) {
+            rollupService.stop();
+        }
+        if (batchWriter != null) {
+            batchWriter.stop();
+        }
         super.stopExecutor();
     }
 
@@ -171,7 +211,6 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
 
     @Override
     public ListenableFuture<Integer> save(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry, long ttl) {
-        List<ListenableFuture<Void>> futures = new ArrayList<>();
         ttl = computeTtl(ttl);
         int dataPointDays = tsKvEntry.getDataPoints() * Math.max(1, (int) (ttl / SECONDS_IN_DAY));
         long partition = toPartitionTs(tsKvEntry.getTs());
@@ -207,8 +246,17 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
             }
         }
         BoundStatement stmt = stmtBuilder.build();
-        futures.add(getFuture(executeAsyncWrite(tenantId, stmt), rs -> null));
-        return Futures.transform(Futures.allAsList(futures), result -> dataPointDays, MoreExecutors.directExecutor());
+        if (rollupService != null) {
+            return rollupService.onSave(tenantId, entityId, entryKey, ts, ttl, () -> doSave(tenantId, entityId, entryKey, partition, stmt, dataPointDays));
+        }
+        return doSave(tenantId, entityId, entryKey, partition, stmt, dataPointDays);
+    }
+
+    private ListenableFuture<Integer> doSave(TenantId tenantId, EntityId entityId, String key, long partition, BoundStatement stmt, int dataPointDays) {
+        if (batchWriter != null) {
+            return Futures.transform(batchWriter.add(tenantId, entityId, key, partition, stmt), result -> dataPointDays, MoreExecutors.directExecutor());
+        }
+        return getFuture(executeAsyncWrite(tenantId, stmt), rs -> dataPointDays);
     }
 
     @Override
@@ -237,9 +285,18 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
 
     @Override
     public ListenableFuture<Void> remove(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
+        if (rollupService == null) {
+            return doRemove(tenantId, entityId, query);
+        }
+        return Futures.transformAsync(rollupService.onRemoved(tenantId, entityId, query.getKey(), query.getStartTs(), query.getEndTs()),
+                removed -> Futures.transformAsync(doRemove(tenantId, entityId, query),
+                        result -> rollupService.onRemoved(tenantId, entityId, query.getKey(), query.getStartTs(), query.getEndTs()), MoreExecutors.directExecutor()),
+                MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<Void> doRemove(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
         long minPartition = toPartitionTs(query.getStartTs());
         long maxPartition = toPartitionTs(query.getEndTs());
-
         final SimpleListenableFuture<Void> resultFuture = new SimpleListenableFuture<>();
         final ListenableFuture<List<Long>> partitionsListFuture = getPartitionsFuture(tenantId, query, entityId, minPartition, maxPartition);
 
@@ -400,11 +457,54 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
         final long startTs = query.getStartTs();
         final long endTs = query.getEndTs();
         final long ts = startTs + (endTs - startTs) / 2;
+        ListenableFuture<List<long[]>> planFuture = rollupService != null ?
+                rollupService.plan(tenantId, entityId, key, startTs, endTs, System.currentTimeMillis()) : Futures.immediateFuture(null);
+        ListenableFuture<List<TbResultSet>> aggregationChunks = Futures.transformAsync(planFuture,
+                plan -> fetchChunksAsync(tenantId, entityId, query, plan, minPartition, maxPartition), MoreExecutors.directExecutor());
+        return Futures.transformAsync(aggregationChunks, new AggregatePartitionsFunction(aggregation, key, ts, readResultsProcessingExecutor), readResultsProcessingExecutor);
+    }
+
+    private ListenableFuture<List<TbResultSet>> fetchChunksAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query, List<long[]> plan,
+                                                                 long minPartition, long maxPartition) {
+        final Aggregation aggregation = query.getAggregation();
+        final String key = query.getKey();
+        if (plan == null) {
+            return fetchChunksAsync(tenantId, entityId, query, aggregation, minPartition, maxPartition);
+        } else {
+            // the rollups are selected with the same columns as the partitions, so all chunks are aggregated together
+            List<ListenableFuture<List<TbResultSet>>> partFutures = new ArrayList<>(plan.size());
+            for (long[] part : plan) {
+                long intervalMs = part[0];
+                if (intervalMs == 0) {
+                    ReadTsKvQuery partQuery = new BaseReadTsKvQuery(key, part[1], part[2], part[2] - part[1], 1, aggregation, query.getOrder());
+                    partFutures.add(fetchChunksAsync(tenantId, entityId, partQuery, aggregation, toPartitionTs(part[1]), toPartitionTs(part[2])));
+                } else {
+                    partFutures.add(Futures.transform(rollupService.fetch(tenantId, entityId, key, aggregation, intervalMs, part[1], part[2]),
+                            Collections::singletonList, MoreExecutors.directExecutor()));
+                }
+            }
+            return Futures.transform(Futures.allAsList(partFutures),
+                    parts -> parts.stream().flatMap(List::stream).collect(Collectors.toList()), MoreExecutors.directExecutor());
+        }
+    }
+
+    private ListenableFuture<List<TbResultSet>> fetchChunksAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query, Aggregation aggregation,
+                                                                 long minPartition, long maxPartition) {
         ListenableFuture<List<Long>> partitionsListFuture = getPartitionsFuture(tenantId, query, entityId, minPartition, maxPartition);
-        ListenableFuture<List<TbResultSet>> aggregationChunks = Futures.transformAsync(partitionsListFuture,
-                getFetchChunksAsyncFunction(tenantId, entityId, key, aggregation, startTs, endTs), readResultsProcessingExecutor);
+        return Futures.transformAsync(partitionsListFuture,
+                getFetchChunksAsyncFunction(tenantId, entityId, query.getKey(), aggregation, query.getStartTs(), query.getEndTs()), readResultsProcessingExecutor);
+    }
 
-        return Futures.transformAsync(aggregationChunks, new AggregatePartitionsFunction(aggregation, key, ts, readResultsProcessingExecutor), readResultsProcessingExecutor);
+    PreparedStatement prepareRollupStmt(String query) {
+        return prepare(query);
+    }
+
+    TbResultSetFuture readRollupAsync(TenantId tenantId, Statement<?> statement) {
+        return executeAsyncRead(tenantId, statement);
+    }
+
+    TbResultSetFuture writeRollupAsync(TenantId tenantId, Statement<?> statement) {
+        return executeAsyncWrite(tenantId, statement);
     }
 
     private AsyncFunction<TbResultSet, List<Long>> getPartitionsArrayFunction() {
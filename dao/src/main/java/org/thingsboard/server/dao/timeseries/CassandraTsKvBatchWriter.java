@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Groups the inserts into the same ts_kv_cf partition (entity, key and partition ts) that arrive within the max delay
+ * into unlogged batches, so the buffered write executor spends one permit and one request per batch instead of one per row.
+ * All statements of the batch belong to one partition, so the replica applies the batch as a single mutation.
+ */
+@Slf4j
+class CassandraTsKvBatchWriter {
+
+    private final BiFunction<TenantId, Statement<?>, ListenableFuture<?>> executor;
+    private final int maxSize;
+    private final ConcurrentMap<PartitionKey, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    CassandraTsKvBatchWriter(BiFunction<TenantId, Statement<?>, ListenableFuture<?>> executor, long maxDelayMs, int maxSize) {
+        this.executor = executor;
+        this.maxSize = Math.max(maxSize, 1);
+        this.scheduler = ThingsBoardExecutors.newSingleThreadScheduledExecutor("cassandra-ts-batch");
+        this.scheduler.scheduleWithFixedDelay(this::flush, maxDelayMs, maxDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    ListenableFuture<Void> add(TenantId tenantId, EntityId entityId, String key, long partition, BatchableStatement<?> stmt) {
+        SettableFuture<Void> future = SettableFuture.create();
+        Batch[] full = new Batch[1];
+        batches.compute(new PartitionKey(tenantId, entityId.getEntityType().name(), entityId.getId(), key, partition), (k, batch) -> {
+            if (batch == null) {
+                batch = new Batch(tenantId);
+            }
+            batch.statements.add(stmt);
+            batch.futures.add(future);
+            if (batch.statements.size() >= maxSize) {
+                full[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (full[0] != null) {
+            execute(full[0]);
+        }
+        return future;
+    }
+
+    void flush() {
+        for (PartitionKey key : batches.keySet()) {
+            Batch batch = batches.remove(key);
+            if (batch != null) {
+                execute(batch);
+            }
+        }
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    private void execute(Batch batch) {
+        Statement<?> stmt = batch.statements.size() == 1 ? batch.statements.get(0) :
+                BatchStatement.newInstance(DefaultBatchType.UNLOGGED, batch.statements);
+        ListenableFuture<?> result;
+        try {
+            result = executor.apply(batch.tenantId, stmt);
+        } catch (Throwable t) {
+            result = Futures.immediateFailedFuture(t);
+        }
+        Futures.addCallback(result, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object rs) {
+                batch.futures.forEach(future -> future.set(null));
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.debug("[{}] Failed to save batch of {} timeseries", batch.tenantId, batch.statements.size(), t);
+                batch.futures.forEach(future -> future.setException(t));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private record PartitionKey(TenantId tenantId, String entityType, UUID entityId, String key, long partition) {}
+
+    private static class Batch {
+
+        private final TenantId tenantId;
+        private final List<BatchableStatement<?>> statements = new ArrayList<>();
+        private final List<SettableFuture<Void>> futures = new ArrayList<>();
+
+        private Batch(TenantId tenantId) {
+            this.tenantId = tenantId;
+        }
+
+    }
+
+}
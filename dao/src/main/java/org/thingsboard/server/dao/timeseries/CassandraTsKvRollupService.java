@@ -0,0 +1,650 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.ModelConstants;
+import org.thingsboard.server.dao.nosql.TbResultSet;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Maintains hourly and daily aggregates of the ts_kv_cf rows in the ts_kv_rollup_cf table,
+ * the Cassandra counterpart of the SQL TsKvRollupService.
+ * <p>
+ * The hours that receive data are marked as dirty in the ts_kv_rollup_dirty_cf and ts_kv_rollup_dirty_by_hour_cf tables
+ * before the data is written, so the markers survive restarts of the node. The hours with markers are listed by the rows
+ * of the NULL_UUID entity in the ts_kv_rollup_cf table. Once the hour is over, its rollup is recalculated by the aggregation
+ * query of the ts_kv_cf partitions, the daily rollup is recalculated from the hourly ones and the markers are deleted
+ * with the write time they were read with, so the markers saved again during the recalculation are kept.
+ * The rollups are written with the latest expiration time of the data of the bucket, rounded up to the hour, so the markers
+ * of the current hour are saved at most once per node and hour of the expiration time, and the rollups outlive their data
+ * by less than an hour.
+ * <p>
+ * The nodes refresh the shards of the dirty hours concurrently: each shard of the hour is claimed by a lightweight
+ * transaction on the lease row that expires after the refresh interval, so it is refreshed by one node at a time.
+ * The hour stays listed until a single node has refreshed all of its shards.
+ * <p>
+ * Aggregation queries read the whole days and hours of the interval that are not marked as dirty from the rollups
+ * and aggregate the rest from the ts_kv_cf partitions. The rollups are selected with the same columns as the ts_kv_cf
+ * aggregation queries, so both result sets are merged by the {@link AggregatePartitionsFunction}.
+ */
+@Slf4j
+class CassandraTsKvRollupService {
+
+    static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+    static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    static final int DIRTY_SHARDS = 16;
+
+    // the rows of the NULL_UUID entity keep the time from which the rollups are maintained and the hours that have dirty markers
+    private static final String START_TS_ENTITY_TYPE = "";
+    private static final String START_TS_KEY = "";
+    private static final long START_TS_INTERVAL = 0;
+    private static final long DIRTY_HOURS_INTERVAL = -1;
+    // the rows of the NULL_UUID entity with the shard as the key are the leases of the shards of the dirty hours
+    private static final long REFRESH_LEASE_INTERVAL = -2;
+
+    // the expiration time of the data that never expires and of the markers of the removed data
+    private static final long NEVER_EXPIRES = Long.MAX_VALUE;
+    private static final long EXPIRED = 0;
+
+    private static final String PARTITION_KEY_CONDITION = " WHERE " + ModelConstants.ENTITY_TYPE_COLUMN + " = ? AND " + ModelConstants.ENTITY_ID_COLUMN + " = ? AND " +
+            ModelConstants.KEY_COLUMN + " = ? AND interval_ms = ?";
+
+    private static final String DIRTY_KEY_CONDITION = " WHERE " + ModelConstants.ENTITY_TYPE_COLUMN + " = ? AND " + ModelConstants.ENTITY_ID_COLUMN + " = ? AND " +
+            ModelConstants.KEY_COLUMN + " = ?";
+
+    private static final String ROLLUP_COLUMNS = "long_cnt, dbl_cnt, bool_cnt, str_cnt, json_cnt, last_ts, long_sum, dbl_sum, " +
+            "long_min, long_max, dbl_min, dbl_max, bool_min, bool_max, str_min, str_max, json_min, json_max";
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + ModelConstants.TS_KV_ROLLUP_CF + " (" +
+            "entity_type text, entity_id timeuuid, key text, interval_ms bigint, ts bigint, " +
+            "long_cnt bigint, dbl_cnt bigint, bool_cnt bigint, str_cnt bigint, json_cnt bigint, last_ts bigint, long_sum bigint, dbl_sum double, " +
+            "long_min bigint, long_max bigint, dbl_min double, dbl_max double, bool_min boolean, bool_max boolean, " +
+            "str_min text, str_max text, json_min text, json_max text, " +
+            "PRIMARY KEY ((entity_type, entity_id, key, interval_ms), ts))";
+
+    private static final String CREATE_DIRTY_TABLE = "CREATE TABLE IF NOT EXISTS " + ModelConstants.TS_KV_ROLLUP_DIRTY_CF + " (" +
+            "entity_type text, entity_id timeuuid, key text, ts bigint, expiration_ts bigint, " +
+            "PRIMARY KEY ((entity_type, entity_id, key), ts, expiration_ts))";
+
+    private static final String CREATE_DIRTY_BY_HOUR_TABLE = "CREATE TABLE IF NOT EXISTS " + ModelConstants.TS_KV_ROLLUP_DIRTY_BY_HOUR_CF + " (" +
+            "ts bigint, shard int, entity_type text, entity_id timeuuid, key text, expiration_ts bigint, tenant_id timeuuid, " +
+            "PRIMARY KEY ((ts, shard), entity_type, entity_id, key, expiration_ts))";
+
+    private static final String AGGREGATE_TS_KV = "SELECT count(long_v), count(dbl_v), count(bool_v), count(str_v), count(json_v), max(ts), sum(long_v), sum(dbl_v), " +
+            "min(long_v), max(long_v), min(dbl_v), max(dbl_v), min(bool_v), max(bool_v), min(str_v), max(str_v), min(json_v), max(json_v) " +
+            "FROM " + ModelConstants.TS_KV_CF + " WHERE " + ModelConstants.ENTITY_TYPE_COLUMN + " = ? AND " + ModelConstants.ENTITY_ID_COLUMN + " = ? AND " +
+            ModelConstants.KEY_COLUMN + " = ? AND " + ModelConstants.PARTITION_COLUMN + " = ? AND " + ModelConstants.TS_COLUMN + " >= ? AND " + ModelConstants.TS_COLUMN + " < ?";
+
+    private static final String SELECT_HOUR_ROLLUPS = "SELECT " + ROLLUP_COLUMNS + ", TTL(long_cnt) FROM " + ModelConstants.TS_KV_ROLLUP_CF +
+            PARTITION_KEY_CONDITION + " AND ts >= ? AND ts < ?";
+
+    private static final String SELECT_ROLLUP_TTL = "SELECT long_cnt, TTL(long_cnt) FROM " + ModelConstants.TS_KV_ROLLUP_CF + PARTITION_KEY_CONDITION + " AND ts = ?";
+
+    private static final String INSERT_ROLLUP = "INSERT INTO " + ModelConstants.TS_KV_ROLLUP_CF + " (entity_type, entity_id, key, interval_ms, ts, " + ROLLUP_COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) USING TTL ?";
+
+    private static final String DELETE_ROLLUP = "DELETE FROM " + ModelConstants.TS_KV_ROLLUP_CF + PARTITION_KEY_CONDITION + " AND ts = ?";
+
+    private static final String DELETE_ROLLUPS_IN_RANGE = "DELETE FROM " + ModelConstants.TS_KV_ROLLUP_CF + PARTITION_KEY_CONDITION + " AND ts >= ? AND ts <= ?";
+
+    private static final String SELECT_START_TS = "SELECT min(ts) FROM " + ModelConstants.TS_KV_ROLLUP_CF + PARTITION_KEY_CONDITION;
+
+    private static final String INSERT_START_TS = "INSERT INTO " + ModelConstants.TS_KV_ROLLUP_CF + " (entity_type, entity_id, key, interval_ms, ts) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_DIRTY_HOURS = "SELECT ts, WRITETIME(long_cnt) FROM " + ModelConstants.TS_KV_ROLLUP_CF + PARTITION_KEY_CONDITION + " AND ts <= ?";
+
+    private static final String INSERT_DIRTY_HOUR = "INSERT INTO " + ModelConstants.TS_KV_ROLLUP_CF + " (entity_type, entity_id, key, interval_ms, ts, long_cnt) VALUES (?, ?, ?, ?, ?, 0)";
+
+    private static final String DELETE_DIRTY_HOUR = "DELETE FROM " + ModelConstants.TS_KV_ROLLUP_CF + " USING TIMESTAMP ?" + PARTITION_KEY_CONDITION + " AND ts = ?";
+
+    private static final String INSERT_REFRESH_LEASE = "INSERT INTO " + ModelConstants.TS_KV_ROLLUP_CF + " (entity_type, entity_id, key, interval_ms, ts) " +
+            "VALUES (?, ?, ?, ?, ?) IF NOT EXISTS USING TTL ?";
+
+    private static final String SELECT_DIRTY = "SELECT ts FROM " + ModelConstants.TS_KV_ROLLUP_DIRTY_CF + DIRTY_KEY_CONDITION + " AND ts >= ? AND ts < ?";
+
+    private static final String INSERT_DIRTY = "INSERT INTO " + ModelConstants.TS_KV_ROLLUP_DIRTY_CF + " (entity_type, entity_id, key, ts, expiration_ts) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String DELETE_DIRTY = "DELETE FROM " + ModelConstants.TS_KV_ROLLUP_DIRTY_CF + " USING TIMESTAMP ?" + DIRTY_KEY_CONDITION + " AND ts = ? AND expiration_ts = ?";
+
+    private static final String SELECT_DIRTY_BY_HOUR = "SELECT entity_type, entity_id, key, expiration_ts, tenant_id, WRITETIME(tenant_id) FROM " +
+            ModelConstants.TS_KV_ROLLUP_DIRTY_BY_HOUR_CF + " WHERE ts = ? AND shard = ?";
+
+    private static final String INSERT_DIRTY_BY_HOUR = "INSERT INTO " + ModelConstants.TS_KV_ROLLUP_DIRTY_BY_HOUR_CF +
+            " (ts, shard, entity_type, entity_id, key, expiration_ts, tenant_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_DIRTY_BY_HOUR = "DELETE FROM " + ModelConstants.TS_KV_ROLLUP_DIRTY_BY_HOUR_CF + " USING TIMESTAMP ? WHERE ts = ? AND shard = ? AND " +
+            ModelConstants.ENTITY_TYPE_COLUMN + " = ? AND " + ModelConstants.ENTITY_ID_COLUMN + " = ? AND " + ModelConstants.KEY_COLUMN + " = ? AND expiration_ts = ?";
+
+    private final CassandraBaseTimeseriesDao dao;
+    private final Executor executor;
+    private final long refreshIntervalMs;
+    private final int refreshBatchSize;
+    private final Map<Aggregation, PreparedStatement> fetchStmts = new EnumMap<>(Aggregation.class);
+    // the latest expiration time of the saved markers of the hours that are not over yet
+    private final ConcurrentMap<Bucket, Long> markedBuckets = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private volatile long startTs;
+
+    CassandraTsKvRollupService(CassandraBaseTimeseriesDao dao, Executor executor, long refreshIntervalMs, int refreshBatchSize) {
+        this.dao = dao;
+        this.executor = executor;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.refreshBatchSize = refreshBatchSize;
+    }
+
+    void init() throws Exception {
+        for (String createTable : new String[]{CREATE_TABLE, CREATE_DIRTY_TABLE, CREATE_DIRTY_BY_HOUR_TABLE}) {
+            dao.writeRollupAsync(TenantId.SYS_TENANT_ID, SimpleStatement.newInstance(createTable)).get();
+        }
+        startTs = getOrSaveStartTs(ceil(System.currentTimeMillis(), HOUR_MS));
+        log.info("Timeseries rollups are maintained since {}", startTs);
+        scheduler = ThingsBoardExecutors.newSingleThreadScheduledExecutor("cassandra-ts-rollup");
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Marks the hour of the entry as dirty and saves the entry.
+     * The markers of the current hour are saved once per node, the hours that are over may be refreshed concurrently
+     * with the save, so their markers are saved again after the entry.
+     */
+    <T> ListenableFuture<T> onSave(TenantId tenantId, EntityId entityId, String key, long ts, long ttl, Supplier<ListenableFuture<T>> save) {
+        long now = System.currentTimeMillis();
+        Bucket bucket = new Bucket(tenantId, entityId.getEntityType().name(), entityId.getId(), key, floor(ts, HOUR_MS));
+        long expirationTs = ttl == 0 ? NEVER_EXPIRES : ceil(now + TimeUnit.SECONDS.toMillis(ttl), HOUR_MS);
+        if (!isOver(bucket, now)) {
+            Long markedExpirationTs = markedBuckets.get(bucket);
+            if (markedExpirationTs != null && markedExpirationTs >= expirationTs) {
+                return save.get();
+            }
+            return Futures.transformAsync(mark(bucket, expirationTs), marked -> {
+                markedBuckets.merge(bucket, expirationTs, Math::max);
+                return save.get();
+            }, MoreExecutors.directExecutor());
+        }
+        ListenableFuture<T> result = Futures.transformAsync(mark(bucket, expirationTs), marked -> save.get(), MoreExecutors.directExecutor());
+        return Futures.transformAsync(result, value -> Futures.transform(mark(bucket, expirationTs), marked -> value, MoreExecutors.directExecutor()),
+                MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Deletes the rollups of the whole buckets of the range and marks the buckets that contain the bounds of the range as dirty.
+     * Expected to be called before and after the data is removed, since the rollups may be recalculated concurrently
+     * from the data being removed.
+     */
+    ListenableFuture<Void> onRemoved(TenantId tenantId, EntityId entityId, String key, long startTs, long endTs) {
+        if (startTs >= endTs) {
+            return Futures.immediateFuture(null);
+        }
+        String entityType = entityId.getEntityType().name();
+        List<ListenableFuture<?>> futures = new ArrayList<>(4);
+        for (long intervalMs : new long[]{HOUR_MS, DAY_MS}) {
+            long first = ceil(startTs, intervalMs);
+            long last = floor(endTs, intervalMs) - intervalMs;
+            if (last >= first) {
+                futures.add(dao.writeRollupAsync(tenantId, dao.prepareRollupStmt(DELETE_ROLLUPS_IN_RANGE)
+                        .bind(entityType, entityId.getId(), key, intervalMs, first, last)));
+            }
+        }
+        // the buckets that contain the bounds of the range may have data outside of it
+        for (long ts : new HashSet<>(List.of(floor(startTs, HOUR_MS), floor(endTs - 1, HOUR_MS)))) {
+            futures.add(mark(new Bucket(tenantId, entityType, entityId.getId(), key, ts), EXPIRED));
+        }
+        return Futures.transform(Futures.allAsList(futures), results -> null, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Reads the dirty hours of the interval and splits it into the ranges of the rollups and the raw data.
+     *
+     * @return the future of the {@link #plan(long, long, long, Set)} result
+     */
+    ListenableFuture<List<long[]>> plan(TenantId tenantId, EntityId entityId, String key, long startTs, long endTs, long now) {
+        if (plan(startTs, endTs, now, Set.of()) == null) {
+            return Futures.immediateFuture(null);
+        }
+        ListenableFuture<List<Row>> rowsFuture = Futures.transformAsync(dao.readRollupAsync(tenantId, dao.prepareRollupStmt(SELECT_DIRTY)
+                        .bind(entityId.getEntityType().name(), entityId.getId(), key, floor(startTs, HOUR_MS), endTs)),
+                rs -> rs.allRows(executor), executor);
+        return Futures.transform(rowsFuture, rows -> {
+            Set<Long> dirtyHours = new HashSet<>();
+            rows.forEach(row -> dirtyHours.add(row.getLong(0)));
+            return plan(startTs, endTs, now, dirtyHours);
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Splits the interval into the ranges of the daily and hourly buckets and the remaining raw data ranges.
+     * The dirty hours and the days that contain them are read from the raw data.
+     *
+     * @return list of [bucket interval or 0 for the raw data, start ts, end ts], or null if there are no whole buckets
+     * that can be served from the rollups
+     */
+    List<long[]> plan(long startTs, long endTs, long now, Set<Long> dirtyHours) {
+        long hoursStart = ceil(Math.max(startTs, this.startTs), HOUR_MS);
+        long hoursEnd = floor(Math.min(endTs, now), HOUR_MS);
+        if (hoursEnd <= hoursStart) {
+            return null;
+        }
+        List<long[]> plan = new ArrayList<>(5);
+        addPart(plan, 0, startTs, hoursStart);
+        boolean rollupUsed = false;
+        long ts = hoursStart;
+        while (ts < hoursEnd) {
+            long dayEnd = floor(ts, DAY_MS) + DAY_MS;
+            if (ts % DAY_MS == 0 && dayEnd <= hoursEnd && !containsHour(dirtyHours, ts, dayEnd)) {
+                addPart(plan, DAY_MS, ts, dayEnd);
+                rollupUsed = true;
+                ts = dayEnd;
+            } else {
+                boolean dirty = dirtyHours.contains(ts);
+                addPart(plan, dirty ? 0 : HOUR_MS, ts, ts + HOUR_MS);
+                rollupUsed |= !dirty;
+                ts += HOUR_MS;
+            }
+        }
+        addPart(plan, 0, hoursEnd, endTs);
+        return rollupUsed ? plan : null;
+    }
+
+    /**
+     * Aggregates the rollups of the range with the same columns as the aggregation query of the ts_kv_cf partition.
+     */
+    ListenableFuture<TbResultSet> fetch(TenantId tenantId, EntityId entityId, String key, Aggregation aggregation, long intervalMs, long startTs, long endTs) {
+        PreparedStatement stmt = getFetchStmt(aggregation);
+        return dao.readRollupAsync(tenantId, stmt.bind(entityId.getEntityType().name(), entityId.getId(), key, intervalMs, startTs, endTs));
+    }
+
+    void refresh() {
+        long now = System.currentTimeMillis();
+        markedBuckets.keySet().removeIf(bucket -> isOver(bucket, now));
+        try {
+            // the hours that are over for less than the refresh interval are left for the saves that started before the end of the hour
+            // and skipped the markers that were already saved
+            List<Row> hours = dao.readRollupAsync(TenantId.SYS_TENANT_ID, dao.prepareRollupStmt(SELECT_DIRTY_HOURS)
+                    .bind(START_TS_ENTITY_TYPE, ModelConstants.NULL_UUID, START_TS_KEY, DIRTY_HOURS_INTERVAL, now - refreshIntervalMs - HOUR_MS)).get().allRows(executor).get();
+            for (Row hour : hours) {
+                refreshHour(hour.getLong(0), hour.getLong(1), now);
+            }
+        } catch (Throwable t) {
+            log.warn("Failed to refresh timeseries rollups, going to retry", t);
+        }
+    }
+
+    private void refreshHour(long hourTs, long writeTime, long now) throws Exception {
+        boolean refreshedAll = true;
+        for (int shard = 0; shard < DIRTY_SHARDS; shard++) {
+            if (!claimShard(hourTs, shard)) {
+                refreshedAll = false;
+                continue;
+            }
+            List<Row> rows = dao.readRollupAsync(TenantId.SYS_TENANT_ID, dao.prepareRollupStmt(SELECT_DIRTY_BY_HOUR).bind(hourTs, shard)).get().allRows(executor).get();
+            Map<Bucket, List<Marker>> buckets = new LinkedHashMap<>();
+            for (Row row : rows) {
+                Bucket bucket = new Bucket(TenantId.fromUUID(row.getUuid(4)), row.getString(0), row.getUuid(1), row.getString(2), hourTs);
+                if (!buckets.containsKey(bucket) && buckets.size() >= refreshBatchSize) {
+                    refresh(buckets, now);
+                    buckets = new LinkedHashMap<>();
+                }
+                buckets.computeIfAbsent(bucket, b -> new ArrayList<>()).add(new Marker(row.getLong(3), row.getLong(5)));
+            }
+            refresh(buckets, now);
+        }
+        if (!refreshedAll) {
+            // the shards refreshed by the other nodes may fail, so the hour is kept until all of them are refreshed by one node
+            return;
+        }
+        // the hour is listed again by the markers saved after it was read
+        dao.writeRollupAsync(TenantId.SYS_TENANT_ID, dao.prepareRollupStmt(DELETE_DIRTY_HOUR)
+                .bind(writeTime, START_TS_ENTITY_TYPE, ModelConstants.NULL_UUID, START_TS_KEY, DIRTY_HOURS_INTERVAL, hourTs)).get();
+    }
+
+    /**
+     * Claims the shard of the hour until the next refresh of this node, so the other nodes skip it in the meantime.
+     */
+    private boolean claimShard(long hourTs, int shard) throws Exception {
+        int leaseTtl = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(refreshIntervalMs));
+        return dao.writeRollupAsync(TenantId.SYS_TENANT_ID, dao.prepareRollupStmt(INSERT_REFRESH_LEASE)
+                .bind(START_TS_ENTITY_TYPE, ModelConstants.NULL_UUID, String.valueOf(shard), REFRESH_LEASE_INTERVAL, hourTs, leaseTtl)).get().wasApplied();
+    }
+
+    private void refresh(Map<Bucket, List<Marker>> hourBuckets, long now) throws Exception {
+        if (hourBuckets.isEmpty()) {
+            return;
+        }
+        List<ListenableFuture<?>> futures = new ArrayList<>(hourBuckets.size());
+        Set<Bucket> dayBuckets = new HashSet<>();
+        hourBuckets.forEach((bucket, markers) -> {
+            long expirationTs = EXPIRED;
+            for (Marker marker : markers) {
+                expirationTs = Math.max(expirationTs, marker.expirationTs());
+            }
+            futures.add(refreshHour(bucket, expirationTs, now));
+            dayBuckets.add(bucket.withTs(floor(bucket.ts(), DAY_MS)));
+        });
+        Futures.allAsList(futures).get();
+        futures.clear();
+        dayBuckets.forEach(bucket -> futures.add(refreshDay(bucket)));
+        Futures.allAsList(futures).get();
+        futures.clear();
+        // the markers saved after they were read have a later write time and are not deleted
+        hourBuckets.forEach((bucket, markers) -> {
+            for (Marker marker : markers) {
+                futures.add(dao.writeRollupAsync(bucket.tenantId(), BatchStatement.newInstance(DefaultBatchType.LOGGED,
+                        dao.prepareRollupStmt(DELETE_DIRTY).bind(marker.writeTime(), bucket.entityType(), bucket.entityId(), bucket.key(),
+                                bucket.ts(), marker.expirationTs()),
+                        dao.prepareRollupStmt(DELETE_DIRTY_BY_HOUR).bind(marker.writeTime(), bucket.ts(), shard(bucket), bucket.entityType(),
+                                bucket.entityId(), bucket.key(), marker.expirationTs()))));
+            }
+        });
+        Futures.allAsList(futures).get();
+        log.debug("Refreshed {} hourly and {} daily timeseries rollups", hourBuckets.size(), dayBuckets.size());
+    }
+
+    /**
+     * Saves the markers of the bucket in one logged batch, so they are saved with the same write time.
+     */
+    private ListenableFuture<TbResultSet> mark(Bucket bucket, long expirationTs) {
+        return dao.writeRollupAsync(bucket.tenantId(), BatchStatement.newInstance(DefaultBatchType.LOGGED,
+                dao.prepareRollupStmt(INSERT_DIRTY_HOUR).bind(START_TS_ENTITY_TYPE, ModelConstants.NULL_UUID, START_TS_KEY, DIRTY_HOURS_INTERVAL, bucket.ts()),
+                dao.prepareRollupStmt(INSERT_DIRTY).bind(bucket.entityType(), bucket.entityId(), bucket.key(), bucket.ts(), expirationTs),
+                dao.prepareRollupStmt(INSERT_DIRTY_BY_HOUR).bind(bucket.ts(), shard(bucket), bucket.entityType(), bucket.entityId(), bucket.key(),
+                        expirationTs, bucket.tenantId().getId())));
+    }
+
+    private ListenableFuture<Void> refreshHour(Bucket bucket, long expirationTs, long now) {
+        List<Long> partitions = dao.calculatePartitions(dao.toPartitionTs(bucket.ts()), dao.toPartitionTs(bucket.ts() + HOUR_MS - 1));
+        PreparedStatement stmt = dao.prepareRollupStmt(AGGREGATE_TS_KV);
+        List<ListenableFuture<List<Row>>> rowsFutures = new ArrayList<>(partitions.size() + 1);
+        // the current rollup covers the data saved before the markers, so its expiration time is kept
+        rowsFutures.add(Futures.transformAsync(dao.readRollupAsync(bucket.tenantId(), dao.prepareRollupStmt(SELECT_ROLLUP_TTL)
+                .bind(bucket.entityType(), bucket.entityId(), bucket.key(), HOUR_MS, bucket.ts())), rs -> rs.allRows(executor), executor));
+        for (Long partition : partitions) {
+            rowsFutures.add(Futures.transformAsync(dao.readRollupAsync(bucket.tenantId(), stmt.bind(bucket.entityType(), bucket.entityId(), bucket.key(),
+                    partition, bucket.ts(), bucket.ts() + HOUR_MS)), rs -> rs.allRows(executor), executor));
+        }
+        return Futures.transformAsync(Futures.allAsList(rowsFutures), rowsList -> {
+            long rollupExpirationTs = expirationTs;
+            for (Row row : rowsList.get(0)) {
+                Integer rowTtl = row.get(1, Integer.class);
+                rollupExpirationTs = Math.max(rollupExpirationTs, rowTtl == null ? NEVER_EXPIRES : now + TimeUnit.SECONDS.toMillis(rowTtl));
+            }
+            Rollup rollup = new Rollup();
+            rowsList.subList(1, rowsList.size()).forEach(rows -> rows.forEach(row -> rollup.merge(Rollup.fromRow(row))));
+            return save(bucket, HOUR_MS, rollup, toTtl(rollupExpirationTs, now));
+        }, executor);
+    }
+
+    private ListenableFuture<Void> refreshDay(Bucket bucket) {
+        PreparedStatement stmt = dao.prepareRollupStmt(SELECT_HOUR_ROLLUPS);
+        ListenableFuture<List<Row>> rowsFuture = Futures.transformAsync(dao.readRollupAsync(bucket.tenantId(), stmt.bind(bucket.entityType(), bucket.entityId(), bucket.key(),
+                HOUR_MS, bucket.ts(), bucket.ts() + DAY_MS)), rs -> rs.allRows(executor), executor);
+        return Futures.transformAsync(rowsFuture, rows -> {
+            Rollup rollup = new Rollup();
+            long ttl = -1;
+            for (Row row : rows) {
+                rollup.merge(Rollup.fromRow(row));
+                // the TTL is selected after the rollup columns
+                Integer rowTtl = row.get(Rollup.COLUMNS, Integer.class);
+                ttl = ttl < 0 ? (rowTtl == null ? 0 : rowTtl) : maxTtl(ttl, rowTtl == null ? 0 : rowTtl);
+            }
+            return save(bucket, DAY_MS, rollup, Math.max(ttl, 0));
+        }, executor);
+    }
+
+    private ListenableFuture<Void> save(Bucket bucket, long intervalMs, Rollup rollup, long ttl) {
+        ListenableFuture<TbResultSet> result;
+        if (rollup.isEmpty()) {
+            result = dao.writeRollupAsync(bucket.tenantId(), dao.prepareRollupStmt(DELETE_ROLLUP)
+                    .bind(bucket.entityType(), bucket.entityId(), bucket.key(), intervalMs, bucket.ts()));
+        } else {
+            result = dao.writeRollupAsync(bucket.tenantId(), dao.prepareRollupStmt(INSERT_ROLLUP)
+                    .bind(bucket.entityType(), bucket.entityId(), bucket.key(), intervalMs, bucket.ts(),
+                            rollup.longCount, rollup.doubleCount, rollup.boolCount, rollup.strCount, rollup.jsonCount, rollup.lastTs,
+                            rollup.longSum, rollup.doubleSum, rollup.longMin, rollup.longMax, rollup.doubleMin, rollup.doubleMax,
+                            rollup.boolMin, rollup.boolMax, rollup.strMin, rollup.strMax, rollup.jsonMin, rollup.jsonMax, (int) ttl));
+        }
+        return Futures.transform(result, rs -> null, MoreExecutors.directExecutor());
+    }
+
+    private long getOrSaveStartTs(long startTs) throws Exception {
+        Long savedTs = dao.readRollupAsync(TenantId.SYS_TENANT_ID, dao.prepareRollupStmt(SELECT_START_TS)
+                .bind(START_TS_ENTITY_TYPE, ModelConstants.NULL_UUID, START_TS_KEY, START_TS_INTERVAL)).get().one().get(0, Long.class);
+        if (savedTs != null) {
+            return savedTs;
+        }
+        // concurrently started nodes may save several rows, the earliest one is used
+        dao.writeRollupAsync(TenantId.SYS_TENANT_ID, dao.prepareRollupStmt(INSERT_START_TS)
+                .bind(START_TS_ENTITY_TYPE, ModelConstants.NULL_UUID, START_TS_KEY, START_TS_INTERVAL, startTs)).get();
+        return dao.readRollupAsync(TenantId.SYS_TENANT_ID, dao.prepareRollupStmt(SELECT_START_TS)
+                .bind(START_TS_ENTITY_TYPE, ModelConstants.NULL_UUID, START_TS_KEY, START_TS_INTERVAL)).get().one().get(0, Long.class);
+    }
+
+    private PreparedStatement getFetchStmt(Aggregation aggregation) {
+        synchronized (fetchStmts) {
+            return fetchStmts.computeIfAbsent(aggregation, type -> dao.prepareRollupStmt("SELECT " +
+                    String.join(", ", getFetchColumnNames(type)) + " FROM " + ModelConstants.TS_KV_ROLLUP_CF + PARTITION_KEY_CONDITION + " AND ts >= ? AND ts < ?"));
+        }
+    }
+
+    /**
+     * @return the columns in the order of the {@link ModelConstants#getFetchColumnNames(Aggregation)}
+     */
+    static String[] getFetchColumnNames(Aggregation aggregation) {
+        String[] count = {"sum(long_cnt)", "sum(dbl_cnt)", "sum(bool_cnt)", "sum(str_cnt)", "sum(json_cnt)", "max(last_ts)"};
+        switch (aggregation) {
+            case COUNT:
+                return count;
+            case MIN:
+                return ArrayUtils.addAll(count, "min(long_min)", "min(dbl_min)", "min(bool_min)", "min(str_min)", "min(json_min)");
+            case MAX:
+                return ArrayUtils.addAll(count, "max(long_max)", "max(dbl_max)", "max(bool_max)", "max(str_max)", "max(json_max)");
+            case SUM:
+            case AVG:
+                return ArrayUtils.addAll(count, "sum(long_sum)", "sum(dbl_sum)");
+            default:
+                throw new IllegalArgumentException("Aggregation type: " + aggregation + " is not supported by rollups!");
+        }
+    }
+
+    private static void addPart(List<long[]> plan, long intervalMs, long startTs, long endTs) {
+        if (endTs <= startTs) {
+            return;
+        }
+        long[] last = plan.isEmpty() ? null : plan.get(plan.size() - 1);
+        if (last != null && last[0] == intervalMs && last[2] == startTs) {
+            last[2] = endTs;
+        } else {
+            plan.add(new long[]{intervalMs, startTs, endTs});
+        }
+    }
+
+    /**
+     * @return the longest of the TTLs, where 0 means that the data never expires
+     */
+    static long maxTtl(long a, long b) {
+        return a == 0 || b == 0 ? 0 : Math.max(a, b);
+    }
+
+    /**
+     * @return the TTL in seconds of the rollup of the data that expires at the given time, at least 1 second
+     * for the rollup of the data with the unknown or passed expiration time
+     */
+    static long toTtl(long expirationTs, long now) {
+        if (expirationTs == NEVER_EXPIRES) {
+            return 0;
+        }
+        return Math.max(1, -Math.floorDiv(now - expirationTs, 1000L));
+    }
+
+    private static int shard(Bucket bucket) {
+        return Math.floorMod(Objects.hash(bucket.entityId(), bucket.key()), DIRTY_SHARDS);
+    }
+
+    private static boolean isOver(Bucket bucket, long now) {
+        return bucket.ts() + HOUR_MS <= now;
+    }
+
+    private static boolean containsHour(Set<Long> hours, long startTs, long endTs) {
+        for (long hour : hours) {
+            if (hour >= startTs && hour < endTs) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long floor(long ts, long intervalMs) {
+        return Math.floorDiv(ts, intervalMs) * intervalMs;
+    }
+
+    static long ceil(long ts, long intervalMs) {
+        return -Math.floorDiv(-ts, intervalMs) * intervalMs;
+    }
+
+    private record Bucket(TenantId tenantId, String entityType, UUID entityId, String key, long ts) {
+
+        Bucket withTs(long ts) {
+            return new Bucket(tenantId, entityType, entityId, key, ts);
+        }
+
+    }
+
+    private record Marker(long expirationTs, long writeTime) {
+    }
+
+    /**
+     * Aggregated values of the ts_kv_cf rows, read and written in the order of the ROLLUP_COLUMNS.
+     */
+    static class Rollup {
+
+        static final int COLUMNS = 18;
+
+        long longCount;
+        long doubleCount;
+        long boolCount;
+        long strCount;
+        long jsonCount;
+        Long lastTs;
+        long longSum;
+        double doubleSum;
+        Long longMin;
+        Long longMax;
+        Double doubleMin;
+        Double doubleMax;
+        Boolean boolMin;
+        Boolean boolMax;
+        String strMin;
+        String strMax;
+        String jsonMin;
+        String jsonMax;
+
+        boolean isEmpty() {
+            return longCount == 0 && doubleCount == 0 && boolCount == 0 && strCount == 0 && jsonCount == 0;
+        }
+
+        void merge(Rollup other) {
+            longCount += other.longCount;
+            doubleCount += other.doubleCount;
+            boolCount += other.boolCount;
+            strCount += other.strCount;
+            jsonCount += other.jsonCount;
+            lastTs = max(lastTs, other.lastTs);
+            longSum += other.longSum;
+            doubleSum += other.doubleSum;
+            longMin = min(longMin, other.longMin);
+            longMax = max(longMax, other.longMax);
+            doubleMin = min(doubleMin, other.doubleMin);
+            doubleMax = max(doubleMax, other.doubleMax);
+            boolMin = min(boolMin, other.boolMin);
+            boolMax = max(boolMax, other.boolMax);
+            strMin = min(strMin, other.strMin);
+            strMax = max(strMax, other.strMax);
+            jsonMin = min(jsonMin, other.jsonMin);
+            jsonMax = max(jsonMax, other.jsonMax);
+        }
+
+        static Rollup fromRow(Row row) {
+            Rollup rollup = new Rollup();
+            rollup.longCount = row.getLong(0);
+            rollup.doubleCount = row.getLong(1);
+            rollup.boolCount = row.getLong(2);
+            rollup.strCount = row.getLong(3);
+            rollup.jsonCount = row.getLong(4);
+            if (rollup.isEmpty()) {
+                return rollup;
+            }
+            rollup.lastTs = row.get(5, Long.class);
+            rollup.longSum = row.getLong(6);
+            rollup.doubleSum = row.getDouble(7);
+            rollup.longMin = row.get(8, Long.class);
+            rollup.longMax = row.get(9, Long.class);
+            rollup.doubleMin = row.get(10, Double.class);
+            rollup.doubleMax = row.get(11, Double.class);
+            rollup.boolMin = row.get(12, Boolean.class);
+            rollup.boolMax = row.get(13, Boolean.class);
+            rollup.strMin = row.getString(14);
+            rollup.strMax = row.getString(15);
+            rollup.jsonMin = row.getString(16);
+            rollup.jsonMax = row.getString(17);
+            return rollup;
+        }
+
+        private static <T extends Comparable<T>> T min(T a, T b) {
+            return a == null ? b : b == null ? a : a.compareTo(b) <= 0 ? a : b;
+        }
+
+        private static <T extends Comparable<T>> T max(T a, T b) {
+            return a == null ? b : b == null ? a : a.compareTo(b) >= 0 ? a : b;
+        }
+
+    }
+
+}
@@ -15,11 +15,15 @@
  */
 package org.thingsboard.server.dao.util;
 
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
 import com.datastax.oss.driver.api.core.ProtocolVersion;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.servererrors.OverloadedException;
+import com.datastax.oss.driver.api.core.servererrors.ReadTimeoutException;
+import com.datastax.oss.driver.api.core.servererrors.WriteTimeoutException;
 import com.datastax.oss.driver.api.core.type.DataType;
 import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
 import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
@@ -41,17 +45,23 @@ import org.thingsboard.server.common.stats.StatsType;
 import org.thingsboard.server.dao.entity.EntityService;
 import org.thingsboard.server.dao.nosql.CassandraStatementTask;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 
 /**
@@ -64,11 +74,17 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
 
     private final long maxWaitTime;
     private final long pollMs;
-    private final BlockingQueue<AsyncTaskContext<T, V>> queue;
+    private final int queueLimit;
+    private final BlockingDeque<AsyncTaskContext<T, V>> queue;
     private final ExecutorService dispatcherExecutor;
     private final ExecutorService callbackExecutor;
     private final ScheduledExecutorService timeoutExecutor;
-    private final int concurrencyLimit;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final double tenantLimitRatio;
+    private final ConcurrentMap<TenantId, AtomicInteger> tenantConcurrencyLevels = new ConcurrentHashMap<>();
+    // the tasks of the tenants that reached their limit, in the order they were queued; the deques are only accessed within compute
+    private final ConcurrentMap<TenantId, Queue<AsyncTaskContext<T, V>>> deferredTasks = new ConcurrentHashMap<>();
+    private final AtomicInteger deferredCount = new AtomicInteger();
     private final int printQueriesFreq;
 
     private final AtomicInteger printQueriesIdx = new AtomicInteger(0);
@@ -82,18 +98,24 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     private final boolean printTenantNames;
     private final Map<TenantId, String> tenantNamesCache = new HashMap<>();
 
-    public AbstractBufferedRateExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads,
-                                        int callbackThreads, long pollMs, int printQueriesFreq, StatsFactory statsFactory,
+    /**
+     * @param tenantLimitRatio share of the concurrency limit that the tasks of one tenant may use, 0 - not limited
+     */
+    public AbstractBufferedRateExecutor(int queueLimit, AdaptiveConcurrencyLimiter concurrencyLimiter, double tenantLimitRatio, long maxWaitTime,
+                                        int dispatcherThreads, int callbackThreads, long pollMs, int printQueriesFreq, StatsFactory statsFactory,
                                         EntityService entityService, RateLimitService rateLimitService, boolean printTenantNames) {
         this.maxWaitTime = maxWaitTime;
         this.pollMs = pollMs;
-        this.concurrencyLimit = concurrencyLimit;
+        this.queueLimit = queueLimit;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.tenantLimitRatio = tenantLimitRatio;
         this.printQueriesFreq = printQueriesFreq;
         this.queue = new LinkedBlockingDeque<>(queueLimit);
         this.dispatcherExecutor = Executors.newFixedThreadPool(dispatcherThreads, ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-dispatcher"));
         this.callbackExecutor = ThingsBoardExecutors.newWorkStealingPool(callbackThreads, "nosql-" + getBufferName() + "-callback");
         this.timeoutExecutor = ThingsBoardExecutors.newSingleThreadScheduledExecutor("nosql-" + getBufferName() + "-timeout");
-        this.stats = new BufferedRateExecutorStats(statsFactory);
+        this.stats = new BufferedRateExecutorStats(statsFactory, getBufferName());
+        this.stats.getConcurrencyLimit().set(concurrencyLimiter.getLimit());
         String concurrencyLevelKey = StatsType.RATE_EXECUTOR.getName() + "." + CONCURRENCY_LEVEL + getBufferName(); //metric name may change with buffer name suffix
         this.concurrencyLevel = statsFactory.createGauge(concurrencyLevelKey, new AtomicInteger(0));
 
@@ -127,6 +149,9 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         if (!perTenantLimitReached) {
             try {
                 stats.getTotalAdded().increment();
+                if (deferredCount.get() > 0 && queue.size() + deferredCount.get() >= queueLimit) {
+                    throw new IllegalStateException("Queue full");
+                }
                 queue.add(new AsyncTaskContext<>(UUID.randomUUID(), task, settableFuture, System.currentTimeMillis()));
             } catch (IllegalStateException e) {
                 stats.getTotalRejected().increment();
@@ -162,8 +187,16 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
             int curLvl = concurrencyLevel.get();
             AsyncTaskContext<T, V> taskCtx = null;
             try {
-                if (curLvl <= concurrencyLimit) {
-                    taskCtx = queue.take();
+                if (curLvl <= concurrencyLimiter.getLimit()) {
+                    taskCtx = pollDeferred();
+                    if (taskCtx == null) {
+                        taskCtx = queue.poll(pollMs, TimeUnit.MILLISECONDS);
+                        if (taskCtx == null || defer(taskCtx)) {
+                            // the other tenants' tasks go first
+                            taskCtx = null;
+                            continue;
+                        }
+                    }
                     final AsyncTaskContext<T, V> finalTaskCtx = taskCtx;
                     if (printQueriesFreq > 0) {
                         if (printQueriesIdx.incrementAndGet() >= printQueriesFreq) {
@@ -173,10 +206,11 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                         }
                     }
                     logTask("Processing", finalTaskCtx);
-                    concurrencyLevel.incrementAndGet();
+                    acquire(finalTaskCtx);
                     long timeout = finalTaskCtx.getCreateTime() + maxWaitTime - System.currentTimeMillis();
                     if (timeout > 0) {
                         stats.getTotalLaunched().increment();
+                        long launchTime = System.currentTimeMillis();
                         ListenableFuture<V> result = execute(finalTaskCtx);
                         result = Futures.withTimeout(result, timeout, TimeUnit.MILLISECONDS, timeoutExecutor);
                         Futures.addCallback(result, new FutureCallback<V>() {
@@ -184,7 +218,8 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                             public void onSuccess(@Nullable V result) {
                                 logTask("Releasing", finalTaskCtx);
                                 stats.getTotalReleased().increment();
-                                concurrencyLevel.decrementAndGet();
+                                onCompleted(launchTime, false);
+                                release(finalTaskCtx);
                                 finalTaskCtx.getFuture().set(result);
                             }
 
@@ -196,7 +231,8 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                                     logTask("Failed", finalTaskCtx);
                                 }
                                 stats.getTotalFailed().increment();
-                                concurrencyLevel.decrementAndGet();
+                                onCompleted(launchTime, isOverloaded(t));
+                                release(finalTaskCtx);
                                 finalTaskCtx.getFuture().setException(t);
                                 log.debug("[{}] Failed to execute task: {}", finalTaskCtx.getId(), finalTaskCtx.getTask(), t);
                             }
@@ -204,7 +240,7 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                     } else {
                         logTask("Expired Before Execution", finalTaskCtx);
                         stats.getTotalExpired().increment();
-                        concurrencyLevel.decrementAndGet();
+                        release(finalTaskCtx);
                         taskCtx.getFuture().setException(new TimeoutException());
                     }
                 } else {
@@ -216,7 +252,7 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                 if (taskCtx != null) {
                     log.debug("[{}] Failed to execute task: {}", taskCtx.getId(), taskCtx, e);
                     stats.getTotalFailed().increment();
-                    concurrencyLevel.decrementAndGet();
+                    release(taskCtx);
                 } else {
                     log.debug("Failed to queue task:", e);
                 }
@@ -225,6 +261,98 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         log.info("[{}] Buffered rate executor thread stopped", getBufferName());
     }
 
+    /**
+     * Defers the task if its tenant reached the limit or already has deferred tasks, so the tasks of the tenant are launched in the queue order.
+     *
+     * @return whether the task is deferred
+     */
+    private boolean defer(AsyncTaskContext<T, V> taskCtx) {
+        if (tenantLimitRatio <= 0) {
+            return false;
+        }
+        TenantId tenantId = taskCtx.getTask().getTenantId();
+        if (tenantId == null || tenantId.isSysTenantId()) {
+            return false;
+        }
+        AtomicBoolean deferred = new AtomicBoolean();
+        deferredTasks.compute(tenantId, (id, tasks) -> {
+            if (tasks == null) {
+                if (!isTenantLimitReached(id)) {
+                    return null;
+                }
+                tasks = new ArrayDeque<>();
+            }
+            tasks.add(taskCtx);
+            deferred.set(true);
+            return tasks;
+        });
+        if (deferred.get()) {
+            deferredCount.incrementAndGet();
+        }
+        return deferred.get();
+    }
+
+    /**
+     * @return the first deferred task of a tenant that is below the limit again, or null
+     */
+    private AsyncTaskContext<T, V> pollDeferred() {
+        if (deferredTasks.isEmpty()) {
+            return null;
+        }
+        for (TenantId tenantId : deferredTasks.keySet()) {
+            AtomicReference<AsyncTaskContext<T, V>> polled = new AtomicReference<>();
+            deferredTasks.computeIfPresent(tenantId, (id, tasks) -> {
+                if (isTenantLimitReached(id)) {
+                    return tasks;
+                }
+                polled.set(tasks.poll());
+                return tasks.isEmpty() ? null : tasks;
+            });
+            if (polled.get() != null) {
+                deferredCount.decrementAndGet();
+                return polled.get();
+            }
+        }
+        return null;
+    }
+
+    private boolean isTenantLimitReached(TenantId tenantId) {
+        AtomicInteger tenantLevel = tenantConcurrencyLevels.get(tenantId);
+        return tenantLevel != null && tenantLevel.get() >= Math.max(1, (int) (concurrencyLimiter.getLimit() * tenantLimitRatio));
+    }
+
+    private void acquire(AsyncTaskContext<T, V> taskCtx) {
+        concurrencyLevel.incrementAndGet();
+        TenantId tenantId = taskCtx.getTask().getTenantId();
+        if (tenantLimitRatio > 0 && tenantId != null) {
+            tenantConcurrencyLevels.computeIfAbsent(tenantId, id -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    private void release(AsyncTaskContext<T, V> taskCtx) {
+        concurrencyLevel.decrementAndGet();
+        TenantId tenantId = taskCtx.getTask().getTenantId();
+        if (tenantLimitRatio > 0 && tenantId != null) {
+            tenantConcurrencyLevels.computeIfPresent(tenantId, (id, level) -> level.decrementAndGet() > 0 ? level : null);
+        }
+    }
+
+    private void onCompleted(long launchTime, boolean dropped) {
+        if (concurrencyLimiter.onSample(System.currentTimeMillis() - launchTime, dropped, concurrencyLevel.get())) {
+            stats.getConcurrencyLimit().set(concurrencyLimiter.getLimit());
+            stats.getLatencyP50().set(concurrencyLimiter.getLatencyP50());
+            stats.getLatencyP99().set(concurrencyLimiter.getLatencyP99());
+        }
+    }
+
+    /**
+     * @return whether the failure means that the database does not keep up with the current concurrency
+     */
+    protected boolean isOverloaded(Throwable t) {
+        return t instanceof TimeoutException || t instanceof DriverTimeoutException || t instanceof ReadTimeoutException
+                || t instanceof WriteTimeoutException || t instanceof OverloadedException;
+    }
+
     private void logTask(String action, AsyncTaskContext<T, V> taskCtx) {
         if (log.isTraceEnabled()) {
             if (taskCtx.getTask() instanceof CassandraStatementTask) {
@@ -274,11 +402,12 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     }
 
     protected int getQueueSize() {
-        return queue.size();
+        return queue.size() + deferredCount.get();
     }
 
     public void printStats() {
         int queueSize = getQueueSize();
+        stats.getQueueSize().set(queueSize);
         int rateLimitedTenantsCount = (int) stats.getRateLimitedTenants().values().stream()
                 .filter(defaultCounter -> defaultCounter.get() > 0)
                 .count();
@@ -296,6 +425,9 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
             });
             statsBuilder.append("totalRateLimitedTenants").append(" = [").append(rateLimitedTenantsCount).append("] ");
             statsBuilder.append(CONCURRENCY_LEVEL).append(" = [").append(concurrencyLevel.get()).append("] ");
+            statsBuilder.append(BufferedRateExecutorStats.CONCURRENCY_LIMIT).append(" = [").append(concurrencyLimiter.getLimit()).append("] ");
+            statsBuilder.append(BufferedRateExecutorStats.LATENCY_P50).append(" = [").append(concurrencyLimiter.getLatencyP50()).append("] ");
+            statsBuilder.append(BufferedRateExecutorStats.LATENCY_P99).append(" = [").append(concurrencyLimiter.getLatencyP99()).append("] ");
 
             stats.getStatsCounters().forEach(StatsCounter::clear);
             log.info("[{}] Permits {}", getBufferName(), statsBuilder);
@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * AIMD limit of the concurrently executed tasks driven by the observed latency.
+ * <p>
+ * Latencies of the executed tasks are collected in windows of the configured size. At the end of the window
+ * the limit is multiplied by the backoff ratio if the p99 latency exceeds the target or some task was dropped
+ * because of the timeout or overload, otherwise it is increased by one if the executor was able to use it.
+ * If the adaptive mode is disabled, the windows are still collected for the latency statistics and the limit is fixed.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxLatencyMs;
+    private final double backoffRatio;
+    private final long[] samples;
+
+    private int samplesCount;
+    private boolean dropped;
+    private int maxInFlight;
+
+    @Getter
+    private volatile int limit;
+    @Getter
+    private volatile long latencyP50;
+    @Getter
+    private volatile long latencyP99;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, boolean adaptive, int minLimit, int maxLimit, long maxLatencyMs, double backoffRatio, int windowSize) {
+        if (adaptive && (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1 || windowSize < 1)) {
+            throw new IllegalArgumentException("Invalid adaptive concurrency configuration: min limit " + minLimit + ", max limit " + maxLimit +
+                    ", backoff ratio " + backoffRatio + ", window size " + windowSize);
+        }
+        this.adaptive = adaptive;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxLatencyMs = maxLatencyMs;
+        this.backoffRatio = backoffRatio;
+        this.samples = new long[windowSize];
+        this.limit = adaptive ? Math.max(minLimit, Math.min(maxLimit, initialLimit)) : initialLimit;
+    }
+
+    /**
+     * @param latencyMs execution time of the task
+     * @param dropped   whether the task failed because of the timeout or overload
+     * @param inFlight  number of the tasks in flight when the task was completed
+     * @return true if the window is over and the limit and latency percentiles are updated
+     */
+    public synchronized boolean onSample(long latencyMs, boolean dropped, int inFlight) {
+        samples[samplesCount++] = latencyMs;
+        this.dropped |= dropped;
+        maxInFlight = Math.max(maxInFlight, inFlight);
+        if (samplesCount < samples.length) {
+            return false;
+        }
+        long[] sorted = Arrays.copyOf(samples, samplesCount);
+        Arrays.sort(sorted);
+        latencyP50 = sorted[(sorted.length - 1) / 2];
+        latencyP99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+        if (adaptive) {
+            int currentLimit = limit;
+            if (this.dropped || latencyP99 > maxLatencyMs) {
+                limit = Math.max(minLimit, (int) (currentLimit * backoffRatio));
+            } else if (maxInFlight >= currentLimit / 2) {
+                // the limit is not raised while the load does not need it
+                limit = Math.min(maxLimit, currentLimit + 1);
+            }
+        }
+        samplesCount = 0;
+        this.dropped = false;
+        maxInFlight = 0;
+        return true;
+    }
+
+}
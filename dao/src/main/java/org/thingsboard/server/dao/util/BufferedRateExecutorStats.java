@@ -27,6 +27,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Getter
@@ -42,6 +44,11 @@ public class BufferedRateExecutorStats {
     private static final String TOTAL_REJECTED = "totalRejected";
     private static final String TOTAL_RATE_LIMITED = "totalRateLimited";
 
+    public static final String CONCURRENCY_LIMIT = "currLimit";
+    public static final String QUEUE_SIZE = "queueSize";
+    public static final String LATENCY_P50 = "latencyP50";
+    public static final String LATENCY_P99 = "latencyP99";
+
     private final StatsFactory statsFactory;
 
     private final ConcurrentMap<TenantId, DefaultCounter> rateLimitedTenants = new ConcurrentHashMap<>();
@@ -56,7 +63,12 @@ public class BufferedRateExecutorStats {
     private final StatsCounter totalRejected;
     private final StatsCounter totalRateLimited;
 
-    public BufferedRateExecutorStats(StatsFactory statsFactory) {
+    private final AtomicInteger concurrencyLimit;
+    private final AtomicInteger queueSize;
+    private final AtomicLong latencyP50;
+    private final AtomicLong latencyP99;
+
+    public BufferedRateExecutorStats(StatsFactory statsFactory, String bufferName) {
         this.statsFactory = statsFactory;
 
         String key = StatsType.RATE_EXECUTOR.getName();
@@ -76,6 +88,12 @@ public class BufferedRateExecutorStats {
         this.statsCounters.add(totalExpired);
         this.statsCounters.add(totalRejected);
         this.statsCounters.add(totalRateLimited);
+
+        //metric names may change with buffer name suffix, same as the concurrency level gauge
+        this.concurrencyLimit = statsFactory.createGauge(key + "." + CONCURRENCY_LIMIT + bufferName, new AtomicInteger(0));
+        this.queueSize = statsFactory.createGauge(key + "." + QUEUE_SIZE + bufferName, new AtomicInteger(0));
+        this.latencyP50 = statsFactory.createGauge(key + "." + LATENCY_P50 + bufferName, new AtomicLong(0));
+        this.latencyP99 = statsFactory.createGauge(key + "." + LATENCY_P99 + bufferName, new AtomicLong(0));
     }
 
     public void incrementRateLimitedTenant(TenantId tenantId){
@@ -0,0 +1,186 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.stats.MessagesStats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TbSqlAdaptiveQueueTest {
+
+    private final ScheduledLogExecutorComponent logExecutor = mock(ScheduledLogExecutorComponent.class);
+    private TbSqlAdaptiveQueue<Integer, Integer> queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
+    @Test
+    void givenSingleElement_whenAdded_thenSavedWithoutWaitingForMaxDelay() throws Exception {
+        queue = newQueue(100, 10_000);
+        queue.init(logExecutor, list -> list.stream().map(i -> i * 2).collect(Collectors.toList()), Comparator.naturalOrder(), l -> l, 0);
+
+        long startTs = System.currentTimeMillis();
+        Integer result = queue.add(21).get(5, TimeUnit.SECONDS);
+
+        assertThat(result).isEqualTo(42);
+        assertThat(System.currentTimeMillis() - startTs).isLessThan(5_000);
+    }
+
+    @Test
+    void givenManyWriters_whenAdded_thenAllSavedInBatchesWithinLimitAndInWriterOrder() throws Exception {
+        int perWriter = 1_000;
+        // each writer updates its own entity
+        queue = newQueue(50, 10, i -> i / perWriter);
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        queue.init(logExecutor, list -> {
+            batches.add(new ArrayList<>(list));
+            return list;
+        }, Comparator.naturalOrder(), l -> l, 0);
+
+        int writers = 8;
+        CountDownLatch done = new CountDownLatch(writers);
+        List<ListenableFuture<Integer>> futures = Collections.synchronizedList(new ArrayList<>());
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    futures.add(queue.add(writer * perWriter + i));
+                }
+                done.countDown();
+            }).start();
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Integer> results = Futures.allAsList(futures).get(10, TimeUnit.SECONDS);
+
+        assertThat(results).hasSize(writers * perWriter);
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(50));
+        List<Integer> saved = batches.stream().flatMap(List::stream).toList();
+        assertThat(saved).hasSize(writers * perWriter).doesNotHaveDuplicates();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            assertThat(saved.stream().filter(i -> i / perWriter == writer).toList()).isSorted();
+        }
+    }
+
+    @Test
+    void givenSameEntityUpdatedFromDifferentThreads_whenSaved_thenSavedInUpdateOrder() throws Exception {
+        int entities = 16;
+        int updates = 200;
+        // the element is entity * updates + update number
+        queue = newQueue(50, 10, i -> i / updates);
+        List<Integer> saved = new CopyOnWriteArrayList<>();
+        queue.init(logExecutor, list -> {
+            saved.addAll(list);
+            return list;
+        }, Comparator.naturalOrder(), l -> l, 0);
+
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        List<ListenableFuture<Integer>> futures = new ArrayList<>();
+        try {
+            for (int update = 0; update < updates; update++) {
+                for (int entity = 0; entity < entities; entity++) {
+                    int element = entity * updates + update;
+                    // the next update of the entity is added by another thread once the previous one is added
+                    futures.add(writers.submit(() -> queue.add(element)).get(5, TimeUnit.SECONDS));
+                }
+            }
+            Futures.allAsList(futures).get(10, TimeUnit.SECONDS);
+        } finally {
+            writers.shutdownNow();
+        }
+
+        assertThat(saved).hasSize(entities * updates);
+        for (int entity = 0; entity < entities; entity++) {
+            int entityId = entity;
+            List<Integer> entityUpdates = saved.stream().filter(i -> i / updates == entityId).toList();
+            assertThat(entityUpdates).isSorted();
+            assertThat(entityUpdates.get(entityUpdates.size() - 1)).isEqualTo(entity * updates + updates - 1);
+        }
+    }
+
+    @Test
+    void givenSaveFailure_whenAdded_thenFutureFailed() {
+        queue = newQueue(10, 10);
+        queue.init(logExecutor, list -> {
+            throw new RuntimeException("DB is down");
+        }, Comparator.naturalOrder(), l -> l, 0);
+
+        ListenableFuture<Integer> future = queue.add(1);
+
+        assertThat(future).failsWithin(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void givenSlowSaves_whenConsumerKeepsUp_thenBatchSizeShrinks() {
+        queue = newQueue(1000, 10);
+
+        queue.adjustBatchSize(10, TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(queue.getBatchSize()).isEqualTo(750);
+    }
+
+    @Test
+    void givenBacklog_whenFullBatchSaved_thenBatchSizeGrowsUpToLimit() {
+        queue = newQueue(1000, 10);
+        queue.adjustBatchSize(10, TimeUnit.MILLISECONDS.toNanos(100));
+        for (int i = 0; i < 1000; i++) {
+            queue.add(i);
+        }
+
+        queue.adjustBatchSize(750, TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(queue.getBatchSize()).isEqualTo(1000);
+    }
+
+    private TbSqlAdaptiveQueue<Integer, Integer> newQueue(int batchSize, long maxDelay) {
+        return newQueue(batchSize, maxDelay, Function.identity());
+    }
+
+    private TbSqlAdaptiveQueue<Integer, Integer> newQueue(int batchSize, long maxDelay, Function<Integer, Integer> hashCodeFunction) {
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(10_000)
+                .statsNamePrefix("test")
+                .batchSortEnabled(false)
+                .withResponse(true)
+                .adaptiveBatching(true)
+                .build();
+        return new TbSqlAdaptiveQueue<>(params, mock(MessagesStats.class), hashCodeFunction);
+    }
+
+}
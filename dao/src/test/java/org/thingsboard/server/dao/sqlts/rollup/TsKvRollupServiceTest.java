@@ -0,0 +1,210 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRepository.DAY_MS;
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRepository.HOUR_MS;
+
+@ExtendWith(MockitoExtension.class)
+public class TsKvRollupServiceTest {
+
+    private static final long DAY = 20_000 * DAY_MS;
+    private static final long NOW = DAY + 10 * DAY_MS + 2 * HOUR_MS + 60 * 1000;
+
+    @Mock
+    private TsKvRollupRepository rollupRepository;
+
+    @InjectMocks
+    private TsKvRollupService rollupService;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(rollupService, "enabled", true);
+        ReflectionTestUtils.setField(rollupService, "refreshIntervalMs", 60000L);
+        ReflectionTestUtils.setField(rollupService, "refreshBatchSize", 1000);
+        ReflectionTestUtils.setField(rollupService, "startTs", DAY);
+    }
+
+    @Test
+    public void givenIntervalOfSeveralDays_whenPlan_thenUsesDaysHoursAndRawData() {
+        long startTs = DAY + 5 * HOUR_MS + 100;
+        long endTs = DAY + 3 * DAY_MS + 2 * HOUR_MS + 200;
+
+        List<long[]> plan = rollupService.plan(startTs, endTs, NOW, Set.of());
+
+        assertThat(plan).containsExactly(
+                new long[]{0, startTs, DAY + 6 * HOUR_MS},
+                new long[]{HOUR_MS, DAY + 6 * HOUR_MS, DAY + DAY_MS},
+                new long[]{DAY_MS, DAY + DAY_MS, DAY + 3 * DAY_MS},
+                new long[]{HOUR_MS, DAY + 3 * DAY_MS, DAY + 3 * DAY_MS + 2 * HOUR_MS},
+                new long[]{0, DAY + 3 * DAY_MS + 2 * HOUR_MS, endTs}
+        );
+    }
+
+    @Test
+    public void givenIntervalWithinOneHour_whenPlan_thenRollupsNotUsed() {
+        assertThat(rollupService.plan(DAY + HOUR_MS + 1, DAY + 2 * HOUR_MS + 1, NOW, Set.of())).isNull();
+        assertThat(rollupService.plan(DAY + HOUR_MS, DAY + HOUR_MS + 60000, NOW, Set.of())).isNull();
+    }
+
+    @Test
+    public void givenIntervalBeforeRollupsStartOrCurrentHour_whenPlan_thenOnlyCoveredBucketsAreUsed() {
+        List<long[]> plan = rollupService.plan(DAY - DAY_MS, NOW, NOW, Set.of());
+
+        long refreshedTs = DAY + 10 * DAY_MS + 2 * HOUR_MS;
+        assertThat(plan).containsExactly(
+                new long[]{0, DAY - DAY_MS, DAY},
+                new long[]{DAY_MS, DAY, DAY + 10 * DAY_MS},
+                new long[]{HOUR_MS, DAY + 10 * DAY_MS, refreshedTs},
+                new long[]{0, refreshedTs, NOW}
+        );
+    }
+
+    @Test
+    public void givenDirtyHours_whenPlan_thenDirtyHoursAndTheirDaysAreReadFromRawData() {
+        long startTs = DAY;
+        long endTs = DAY + 3 * DAY_MS;
+
+        List<long[]> plan = rollupService.plan(startTs, endTs, NOW, Set.of(DAY + DAY_MS + 5 * HOUR_MS, DAY + DAY_MS + 6 * HOUR_MS));
+
+        assertThat(plan).containsExactly(
+                new long[]{DAY_MS, DAY, DAY + DAY_MS},
+                new long[]{HOUR_MS, DAY + DAY_MS, DAY + DAY_MS + 5 * HOUR_MS},
+                new long[]{0, DAY + DAY_MS + 5 * HOUR_MS, DAY + DAY_MS + 7 * HOUR_MS},
+                new long[]{HOUR_MS, DAY + DAY_MS + 7 * HOUR_MS, DAY + 2 * DAY_MS},
+                new long[]{DAY_MS, DAY + 2 * DAY_MS, endTs}
+        );
+    }
+
+    @Test
+    public void givenOnlyDirtyHours_whenPlan_thenRollupsNotUsed() {
+        assertThat(rollupService.plan(DAY + 30 * 60 * 1000, DAY + 2 * HOUR_MS, NOW, Set.of(DAY + HOUR_MS))).isNull();
+    }
+
+    @Test
+    public void givenRollupsAndRawData_whenAggregate_thenMergedAsRawData() {
+        UUID entityId = UUID.randomUUID();
+        long startTs = DAY + 30 * 60 * 1000;
+        long endTs = DAY + 3 * HOUR_MS;
+        given(rollupRepository.findRaw(entityId, 1, startTs, DAY + HOUR_MS)).willReturn(rollup(2, 10, 3, 2.5));
+        given(rollupRepository.findRollup(entityId, 1, HOUR_MS, DAY + HOUR_MS, endTs)).willReturn(rollup(4, 20, 0, 0));
+
+        TsKvRollup result = rollupService.aggregate(entityId, 1, startTs, endTs);
+
+        assertThat(result.getLongCount()).isEqualTo(6);
+        assertThat(result.getDoubleCount()).isEqualTo(3);
+        TsKvEntity avg = result.toTsKvEntity(Aggregation.AVG);
+        assertThat(avg.getDoubleValue()).isEqualTo((10 + 20 + 2.5) / 9);
+        TsKvEntity sum = result.toTsKvEntity(Aggregation.SUM);
+        assertThat(sum.getDoubleValue()).isEqualTo(32.5);
+        TsKvEntity count = result.toTsKvEntity(Aggregation.COUNT);
+        assertThat(count.getLongValue()).isEqualTo(9);
+        TsKvEntity max = result.toTsKvEntity(Aggregation.MAX);
+        assertThat(max.getDoubleValue()).isEqualTo(20.0);
+        TsKvEntity min = result.toTsKvEntity(Aggregation.MIN);
+        assertThat(min.getDoubleValue()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void givenStringValuesOnly_whenConvertMinMax_thenStringsAreUsed() {
+        TsKvRollup rollup = new TsKvRollup();
+        rollup.setStrCount(2);
+        rollup.setStrMin("a");
+        rollup.setStrMax("b");
+        rollup.setLastTs(10L);
+
+        assertThat(rollup.toTsKvEntity(Aggregation.MIN).getStrValue()).isEqualTo("a");
+        assertThat(rollup.toTsKvEntity(Aggregation.MAX).getStrValue()).isEqualTo("b");
+        assertThat(rollup.toTsKvEntity(Aggregation.COUNT).getLongValue()).isEqualTo(2);
+        assertThat(new TsKvRollup().toTsKvEntity(Aggregation.COUNT)).isNull();
+    }
+
+    @Test
+    public void givenSavedData_whenSavedAgain_thenMarkersOfCurrentHoursAreNotSavedAgain() {
+        UUID entityId = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        List<TsKvEntity> entities = List.of(entity(entityId, 2, now), entity(entityId, 1, now - 2 * HOUR_MS), entity(entityId, 1, now));
+
+        rollupService.onSaved(entities);
+        rollupService.onSaved(entities);
+
+        long hour = TsKvRollupService.floor(now, HOUR_MS);
+        long pastHour = TsKvRollupService.floor(now - 2 * HOUR_MS, HOUR_MS);
+        then(rollupRepository).should().markDirty(List.of(
+                new TsKvRollupBucket(entityId, 1, pastHour),
+                new TsKvRollupBucket(entityId, 1, hour),
+                new TsKvRollupBucket(entityId, 2, hour)));
+        // the markers of the finished hours are locked by every transaction that saves their data
+        then(rollupRepository).should().markDirty(List.of(new TsKvRollupBucket(entityId, 1, pastHour)));
+    }
+
+    @Test
+    public void givenDirtyHours_whenRefresh_thenFinishedHoursAreRefreshedInBatches() {
+        ReflectionTestUtils.setField(rollupService, "refreshBatchSize", 2);
+        given(rollupRepository.refreshDirty(anyLong(), eq(2))).willReturn(2, 1);
+
+        long now = System.currentTimeMillis();
+        rollupService.refresh();
+
+        ArgumentCaptor<Long> maxTs = ArgumentCaptor.forClass(Long.class);
+        then(rollupRepository).should(times(2)).refreshDirty(maxTs.capture(), eq(2));
+        assertThat(maxTs.getValue()).isBetween(now - 60000 - HOUR_MS, System.currentTimeMillis() - 60000 - HOUR_MS);
+    }
+
+    private static TsKvEntity entity(UUID entityId, int key, long ts) {
+        TsKvEntity entity = new TsKvEntity();
+        entity.setEntityId(entityId);
+        entity.setKey(key);
+        entity.setTs(ts);
+        return entity;
+    }
+
+    private static TsKvRollup rollup(long longCount, long longValue, long doubleCount, double doubleValue) {
+        TsKvRollup rollup = new TsKvRollup();
+        rollup.setLongCount(longCount);
+        rollup.setLongSum(longValue);
+        rollup.setLongMin(longCount > 0 ? longValue / longCount : null);
+        rollup.setLongMax(longCount > 0 ? longValue : null);
+        rollup.setDoubleCount(doubleCount);
+        rollup.setDoubleSum(doubleValue);
+        rollup.setDoubleMin(doubleCount > 0 ? 0.5 : null);
+        rollup.setDoubleMax(doubleCount > 0 ? doubleValue : null);
+        rollup.setLastTs(DAY);
+        return rollup;
+    }
+
+}
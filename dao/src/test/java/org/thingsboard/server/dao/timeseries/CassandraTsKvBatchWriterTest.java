@@ -0,0 +1,109 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class CassandraTsKvBatchWriterTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.randomUUID());
+    private static final DeviceId DEVICE_ID = new DeviceId(UUID.randomUUID());
+
+    private final List<Statement<?>> executed = new ArrayList<>();
+    private ListenableFuture<?> result = Futures.immediateFuture(null);
+    private CassandraTsKvBatchWriter writer;
+
+    @BeforeEach
+    public void setUp() {
+        writer = new CassandraTsKvBatchWriter((tenantId, stmt) -> {
+            executed.add(stmt);
+            return result;
+        }, 60 * 60 * 1000L, 3);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    public void givenInsertsIntoSeveralPartitions_whenFlush_thenBatchPerPartition() throws Exception {
+        BoundStatement first = mock(BoundStatement.class);
+        BoundStatement second = mock(BoundStatement.class);
+        BoundStatement other = mock(BoundStatement.class);
+        ListenableFuture<Void> firstFuture = writer.add(TENANT_ID, DEVICE_ID, "temperature", 0L, first);
+        ListenableFuture<Void> secondFuture = writer.add(TENANT_ID, DEVICE_ID, "temperature", 0L, second);
+        ListenableFuture<Void> otherFuture = writer.add(TENANT_ID, DEVICE_ID, "humidity", 0L, other);
+        assertThat(executed).isEmpty();
+
+        writer.flush();
+
+        assertThat(executed).hasSize(2);
+        BatchStatement batch = (BatchStatement) executed.stream().filter(stmt -> stmt instanceof BatchStatement).findFirst().orElseThrow();
+        assertThat(batch.getBatchType()).isEqualTo(DefaultBatchType.UNLOGGED);
+        assertThat(batch).containsExactly(first, second);
+        assertThat(executed).contains(other);
+        assertThat(Futures.allAsList(firstFuture, secondFuture, otherFuture).get()).hasSize(3);
+
+        writer.flush();
+        assertThat(executed).hasSize(2);
+    }
+
+    @Test
+    public void givenBatchIsFull_whenAdd_thenExecutedWithoutWaitingForFlush() {
+        for (int i = 0; i < 4; i++) {
+            writer.add(TENANT_ID, DEVICE_ID, "temperature", 0L, mock(BoundStatement.class));
+        }
+
+        assertThat(executed).hasSize(1);
+        assertThat((BatchStatement) executed.get(0)).hasSize(3);
+
+        writer.flush();
+        assertThat(executed).hasSize(2);
+    }
+
+    @Test
+    public void givenBatchFailed_whenFlush_thenAllInsertsFailed() {
+        result = Futures.immediateFailedFuture(new RuntimeException("write timeout"));
+        ListenableFuture<Void> first = writer.add(TENANT_ID, DEVICE_ID, "temperature", 0L, mock(BoundStatement.class));
+        ListenableFuture<Void> second = writer.add(TENANT_ID, DEVICE_ID, "temperature", 0L, mock(BoundStatement.class));
+
+        writer.flush();
+
+        assertThatThrownBy(first::get).isInstanceOf(ExecutionException.class).hasMessageContaining("write timeout");
+        assertThatThrownBy(second::get).isInstanceOf(ExecutionException.class).hasMessageContaining("write timeout");
+    }
+
+}
@@ -0,0 +1,329 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.ModelConstants;
+import org.thingsboard.server.dao.nosql.TbResultSet;
+import org.thingsboard.server.dao.nosql.TbResultSetFuture;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.thingsboard.server.dao.timeseries.CassandraTsKvRollupService.DAY_MS;
+import static org.thingsboard.server.dao.timeseries.CassandraTsKvRollupService.HOUR_MS;
+
+@ExtendWith(MockitoExtension.class)
+public class CassandraTsKvRollupServiceTest {
+
+    private static final long DAY = 20_000 * DAY_MS;
+    private static final long NOW = DAY + 10 * DAY_MS + 2 * HOUR_MS + 60 * 1000;
+
+    @Mock
+    private CassandraBaseTimeseriesDao dao;
+
+    private CassandraTsKvRollupService rollupService;
+
+    private final List<Bound> bound = new ArrayList<>();
+    private final Map<String, List<Row>> results = new HashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        rollupService = new CassandraTsKvRollupService(dao, MoreExecutors.directExecutor(), 60000L, 1000);
+        ReflectionTestUtils.setField(rollupService, "startTs", DAY);
+    }
+
+    @Test
+    public void givenIntervalOfSeveralDays_whenPlan_thenUsesDaysHoursAndRawData() {
+        long startTs = DAY + 5 * HOUR_MS + 100;
+        long endTs = DAY + 3 * DAY_MS + 2 * HOUR_MS + 200;
+
+        List<long[]> plan = rollupService.plan(startTs, endTs, NOW, Set.of());
+
+        assertThat(plan).containsExactly(
+                new long[]{0, startTs, DAY + 6 * HOUR_MS},
+                new long[]{HOUR_MS, DAY + 6 * HOUR_MS, DAY + DAY_MS},
+                new long[]{DAY_MS, DAY + DAY_MS, DAY + 3 * DAY_MS},
+                new long[]{HOUR_MS, DAY + 3 * DAY_MS, DAY + 3 * DAY_MS + 2 * HOUR_MS},
+                new long[]{0, DAY + 3 * DAY_MS + 2 * HOUR_MS, endTs}
+        );
+    }
+
+    @Test
+    public void givenIntervalWithinOneHourOrBeforeRollupsStart_whenPlan_thenRollupsNotUsed() {
+        assertThat(rollupService.plan(DAY + HOUR_MS + 1, DAY + 2 * HOUR_MS + 1, NOW, Set.of())).isNull();
+        assertThat(rollupService.plan(DAY - DAY_MS, DAY, NOW, Set.of())).isNull();
+        assertThat(rollupService.plan(NOW - HOUR_MS, NOW, NOW, Set.of())).isNull();
+    }
+
+    @Test
+    public void givenDirtyHours_whenPlan_thenDirtyHoursAndTheirDaysAreReadFromRawData() {
+        long startTs = DAY;
+        long endTs = DAY + 2 * DAY_MS;
+
+        List<long[]> plan = rollupService.plan(startTs, endTs, NOW, Set.of(DAY + 3 * HOUR_MS, DAY + 4 * HOUR_MS));
+
+        assertThat(plan).containsExactly(
+                new long[]{HOUR_MS, DAY, DAY + 3 * HOUR_MS},
+                new long[]{0, DAY + 3 * HOUR_MS, DAY + 5 * HOUR_MS},
+                new long[]{HOUR_MS, DAY + 5 * HOUR_MS, DAY + DAY_MS},
+                new long[]{DAY_MS, DAY + DAY_MS, endTs}
+        );
+        assertThat(rollupService.plan(DAY, DAY + HOUR_MS, NOW, Set.of(DAY))).isNull();
+    }
+
+    @Test
+    public void givenCurrentHour_whenSavedTwice_thenMarkedOnceBeforeSave() {
+        mockStatements();
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        long ts = System.currentTimeMillis() + DAY_MS;
+        AtomicInteger saves = new AtomicInteger();
+
+        rollupService.onSave(TenantId.SYS_TENANT_ID, deviceId, "temperature", ts, 0, () -> Futures.immediateFuture(saves.incrementAndGet()));
+        rollupService.onSave(TenantId.SYS_TENANT_ID, deviceId, "temperature", ts + 1, 0, () -> Futures.immediateFuture(saves.incrementAndGet()));
+
+        assertThat(saves.get()).isEqualTo(2);
+        then(dao).should(times(1)).writeRollupAsync(any(), any(BatchStatement.class));
+        assertThat(bound).filteredOn(b -> b.query().startsWith("INSERT INTO " + ModelConstants.TS_KV_ROLLUP_DIRTY_CF))
+                .singleElement().satisfies(b -> assertThat(b.values()).containsExactly("DEVICE", deviceId.getId(), "temperature",
+                        CassandraTsKvRollupService.floor(ts, HOUR_MS), Long.MAX_VALUE));
+    }
+
+    @Test
+    public void givenCurrentHourAndTtl_whenSavedTwice_thenMarkedOnceWithExpirationRoundedUpToHour() {
+        mockStatements();
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        long ts = System.currentTimeMillis() + DAY_MS;
+        long ttl = TimeUnit.DAYS.toSeconds(7);
+        long minExpirationTs = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl);
+
+        rollupService.onSave(TenantId.SYS_TENANT_ID, deviceId, "temperature", ts, ttl, () -> Futures.immediateFuture(1));
+        rollupService.onSave(TenantId.SYS_TENANT_ID, deviceId, "temperature", ts + 1, ttl, () -> Futures.immediateFuture(2));
+
+        then(dao).should(times(1)).writeRollupAsync(any(), any(BatchStatement.class));
+        long expirationTs = (long) findBound("INSERT INTO " + ModelConstants.TS_KV_ROLLUP_DIRTY_CF).values()[4];
+        assertThat(expirationTs % HOUR_MS).isZero();
+        assertThat(expirationTs).isBetween(minExpirationTs, minExpirationTs + 2 * HOUR_MS);
+    }
+
+    @Test
+    public void givenShardsClaimedByOtherNode_whenRefresh_thenShardsAreSkippedAndHourIsKept() {
+        mockStatements();
+        results.put("SELECT ts, WRITETIME(long_cnt)", List.of(row(DAY, 5L)));
+        results.put("SELECT entity_type", List.of(row("DEVICE", UUID.randomUUID(), "temperature", Long.MAX_VALUE, TenantId.SYS_TENANT_ID.getId(), 7L)));
+        given(dao.writeRollupAsync(any(), any(BoundStatement.class))).willAnswer(invocation -> completed(List.of(), false));
+
+        rollupService.refresh();
+
+        assertThat(bound).filteredOn(b -> b.query().contains("IF NOT EXISTS")).hasSize(CassandraTsKvRollupService.DIRTY_SHARDS);
+        assertThat(bound).noneMatch(b -> b.query().startsWith("SELECT entity_type") || b.query().startsWith("DELETE"));
+    }
+
+    @Test
+    public void givenHourThatIsOver_whenSaved_thenMarkedBeforeAndAfterSave() {
+        mockStatements();
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        List<String> events = new ArrayList<>();
+        given(dao.writeRollupAsync(any(), any(BatchStatement.class))).willAnswer(invocation -> {
+            events.add("mark");
+            return completed(List.of());
+        });
+
+        rollupService.onSave(TenantId.SYS_TENANT_ID, deviceId, "temperature", DAY, 0, () -> {
+            events.add("save");
+            return Futures.immediateFuture(1);
+        });
+
+        assertThat(events).containsExactly("mark", "save", "mark");
+    }
+
+    @Test
+    public void givenDirtyHour_whenRefresh_thenRollupIsSavedWithExpirationOfDataAndMarkersAreDeletedWithTheirWriteTime() throws Exception {
+        mockStatements();
+        UUID entityId = UUID.randomUUID();
+        long expirationTs = System.currentTimeMillis() + 100_000;
+        results.put("SELECT ts, WRITETIME(long_cnt)", List.of(row(DAY, 5L)));
+        results.put("SELECT entity_type", List.of(row("DEVICE", entityId, "temperature", expirationTs, TenantId.SYS_TENANT_ID.getId(), 7L)));
+        results.put("SELECT count(long_v)", List.of(row(1L, 0L, 0L, 0L, 0L)));
+        given(dao.calculatePartitions(anyLong(), anyLong())).willReturn(List.of(0L));
+
+        rollupService.refresh();
+
+        Object[] rollup = findBound("INSERT INTO " + ModelConstants.TS_KV_ROLLUP_CF + " (entity_type, entity_id, key, interval_ms, ts, long_cnt, dbl_cnt").values();
+        assertThat(rollup[3]).isEqualTo(HOUR_MS);
+        assertThat((int) rollup[rollup.length - 1]).isBetween(90, 100);
+        assertThat(findBound("DELETE FROM " + ModelConstants.TS_KV_ROLLUP_DIRTY_CF + " ").values())
+                .containsExactly(7L, "DEVICE", entityId, "temperature", DAY, expirationTs);
+        assertThat(findBound("DELETE FROM " + ModelConstants.TS_KV_ROLLUP_DIRTY_BY_HOUR_CF).values()[0]).isEqualTo(7L);
+        assertThat(findBound("DELETE FROM " + ModelConstants.TS_KV_ROLLUP_CF + " USING TIMESTAMP").values()).startsWith(5L).endsWith(DAY);
+        assertThat(bound.indexOf(findBound("DELETE FROM " + ModelConstants.TS_KV_ROLLUP_DIRTY_CF + " ")))
+                .isGreaterThan(bound.indexOf(findBound("INSERT INTO " + ModelConstants.TS_KV_ROLLUP_CF + " (entity_type, entity_id, key, interval_ms, ts, long_cnt, dbl_cnt")));
+    }
+
+    @Test
+    public void givenAnyAggregation_whenGetFetchColumnNames_thenSameLayoutAsPartitionQuery() {
+        for (Aggregation aggregation : List.of(Aggregation.MIN, Aggregation.MAX, Aggregation.SUM, Aggregation.AVG, Aggregation.COUNT)) {
+            assertThat(CassandraTsKvRollupService.getFetchColumnNames(aggregation)).hasSameSizeAs(ModelConstants.getFetchColumnNames(aggregation));
+        }
+        assertThat(CassandraTsKvRollupService.getFetchColumnNames(Aggregation.MIN)).endsWith("min(long_min)", "min(dbl_min)", "min(bool_min)", "min(str_min)", "min(json_min)");
+        assertThat(CassandraTsKvRollupService.getFetchColumnNames(Aggregation.AVG)).endsWith("sum(long_sum)", "sum(dbl_sum)");
+    }
+
+    @Test
+    public void givenRollups_whenMerge_thenCountsAreSummedAndBoundsAreKept() {
+        CassandraTsKvRollupService.Rollup first = new CassandraTsKvRollupService.Rollup();
+        first.longCount = 2;
+        first.longSum = 10;
+        first.longMin = 3L;
+        first.longMax = 7L;
+        first.lastTs = DAY;
+        CassandraTsKvRollupService.Rollup second = new CassandraTsKvRollupService.Rollup();
+        second.longCount = 1;
+        second.longSum = 1;
+        second.longMin = 1L;
+        second.longMax = 1L;
+        second.strCount = 1;
+        second.strMin = "a";
+        second.strMax = "a";
+        second.lastTs = DAY + HOUR_MS;
+
+        CassandraTsKvRollupService.Rollup result = new CassandraTsKvRollupService.Rollup();
+        assertThat(result.isEmpty()).isTrue();
+        result.merge(first);
+        result.merge(second);
+
+        assertThat(result.longCount).isEqualTo(3);
+        assertThat(result.longSum).isEqualTo(11);
+        assertThat(result.longMin).isEqualTo(1L);
+        assertThat(result.longMax).isEqualTo(7L);
+        assertThat(result.strCount).isEqualTo(1);
+        assertThat(result.strMax).isEqualTo("a");
+        assertThat(result.doubleMin).isNull();
+        assertThat(result.lastTs).isEqualTo(DAY + HOUR_MS);
+    }
+
+    @Test
+    public void givenTtls_whenMaxTtl_thenInfiniteTtlWins() {
+        assertThat(CassandraTsKvRollupService.maxTtl(10, 20)).isEqualTo(20);
+        assertThat(CassandraTsKvRollupService.maxTtl(0, 20)).isEqualTo(0);
+        assertThat(CassandraTsKvRollupService.maxTtl(10, 0)).isEqualTo(0);
+    }
+
+    @Test
+    public void givenRemovedRange_whenOnRemoved_thenWholeBucketsAreDeletedAndBoundsAreMarked() {
+        mockStatements();
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+        rollupService.onRemoved(TenantId.SYS_TENANT_ID, deviceId, "temperature", DAY + 30 * 60 * 1000, DAY + 3 * HOUR_MS);
+
+        assertThat(findBound("DELETE FROM " + ModelConstants.TS_KV_ROLLUP_CF).values())
+                .containsExactly("DEVICE", deviceId.getId(), "temperature", HOUR_MS, DAY + HOUR_MS, DAY + 2 * HOUR_MS);
+        assertThat(bound).filteredOn(b -> b.query().startsWith("INSERT INTO " + ModelConstants.TS_KV_ROLLUP_DIRTY_CF))
+                .extracting(b -> b.values()[3]).containsExactlyInAnyOrder(DAY, DAY + 2 * HOUR_MS);
+        then(dao).should(times(2)).writeRollupAsync(any(), any(BatchStatement.class));
+    }
+
+    private void mockStatements() {
+        Map<Statement<?>, Bound> statements = new HashMap<>();
+        given(dao.prepareRollupStmt(anyString())).willAnswer(invocation -> {
+            String query = invocation.getArgument(0);
+            PreparedStatement stmt = mock(PreparedStatement.class);
+            given(stmt.bind(any(Object[].class))).willAnswer(bindInvocation -> {
+                BoundStatement boundStmt = mock(BoundStatement.class);
+                Bound b = new Bound(query, bindInvocation.getArguments());
+                bound.add(b);
+                statements.put(boundStmt, b);
+                return boundStmt;
+            });
+            return stmt;
+        });
+        lenient().when(dao.readRollupAsync(any(), any())).thenAnswer(invocation -> {
+            String query = statements.get(invocation.<Statement<?>>getArgument(1)).query();
+            return completed(results.entrySet().stream().filter(e -> query.startsWith(e.getKey()))
+                    .findFirst().map(Map.Entry::getValue).orElse(List.of()));
+        });
+        lenient().when(dao.writeRollupAsync(any(), any())).thenAnswer(invocation -> completed(List.of()));
+    }
+
+    private Bound findBound(String queryPrefix) {
+        return bound.stream().filter(b -> b.query().startsWith(queryPrefix)).findFirst().orElseThrow();
+    }
+
+    private static TbResultSetFuture completed(List<Row> rows) {
+        return completed(rows, true);
+    }
+
+    private static TbResultSetFuture completed(List<Row> rows, boolean applied) {
+        TbResultSet rs = mock(TbResultSet.class);
+        ListenableFuture<List<Row>> rowsFuture = Futures.immediateFuture(rows);
+        lenient().when(rs.allRows(any())).thenReturn(rowsFuture);
+        lenient().when(rs.wasApplied()).thenReturn(applied);
+        SettableFuture<TbResultSet> future = SettableFuture.create();
+        future.set(rs);
+        return new TbResultSetFuture(future);
+    }
+
+    private static Row row(Object... values) {
+        Row row = mock(Row.class);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof Long longValue) {
+                lenient().when(row.getLong(i)).thenReturn(longValue);
+            } else if (value instanceof String stringValue) {
+                lenient().when(row.getString(i)).thenReturn(stringValue);
+            } else if (value instanceof UUID uuidValue) {
+                lenient().when(row.getUuid(i)).thenReturn(uuidValue);
+            }
+        }
+        return row;
+    }
+
+    private record Bound(String query, Object[] values) {
+    }
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.cache.limits.RateLimitService;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.entity.EntityService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class AbstractBufferedRateExecutorTest {
+
+    private final List<String> launched = new CopyOnWriteArrayList<>();
+    private final Map<String, SettableFuture<String>> running = new ConcurrentHashMap<>();
+
+    private TestExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        given(statsFactory.createStatsCounter(anyString(), anyString())).willAnswer(invocation -> mock(StatsCounter.class));
+        given(statsFactory.createGauge(anyString(), any())).willAnswer(invocation -> invocation.getArgument(1));
+        RateLimitService rateLimitService = mock(RateLimitService.class);
+        given(rateLimitService.checkRateLimit(any(), any(), any(), anyBoolean())).willReturn(true);
+        // the limit of 4 with the ratio of 0.25 allows one running task per tenant
+        executor = new TestExecutor(new AdaptiveConcurrencyLimiter(4, false, 1, 4, 100, 0.9, 10), statsFactory, rateLimitService);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    public void givenTenantOverLimit_whenItsTasksAreDeferred_thenTheyAreLaunchedInSubmitOrder() {
+        TenantId tenantA = TenantId.fromUUID(UUID.randomUUID());
+        TenantId tenantB = TenantId.fromUUID(UUID.randomUUID());
+
+        executor.submit(new TestTask(tenantA, "A1"));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> launched.contains("A1"));
+        executor.submit(new TestTask(tenantA, "A2"));
+        executor.submit(new TestTask(tenantA, "A3"));
+        executor.submit(new TestTask(tenantB, "B1"));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> launched.contains("B1"));
+
+        running.get("A1").set("A1");
+        await().atMost(5, TimeUnit.SECONDS).until(() -> launched.contains("A2"));
+        assertThat(launched).doesNotContain("A3");
+        running.get("A2").set("A2");
+        await().atMost(5, TimeUnit.SECONDS).until(() -> launched.contains("A3"));
+
+        assertThat(launched).containsExactly("A1", "B1", "A2", "A3");
+    }
+
+    private record TestTask(TenantId tenantId, String name) implements AsyncTask {
+
+        @Override
+        public TenantId getTenantId() {
+            return tenantId;
+        }
+
+    }
+
+    private class TestExecutor extends AbstractBufferedRateExecutor<TestTask, ListenableFuture<String>, String> {
+
+        TestExecutor(AdaptiveConcurrencyLimiter concurrencyLimiter, StatsFactory statsFactory, RateLimitService rateLimitService) {
+            super(100, concurrencyLimiter, 0.25, 60000, 1, 1, 10, 0, statsFactory, mock(EntityService.class), rateLimitService, false);
+        }
+
+        @Override
+        protected SettableFuture<String> create() {
+            return SettableFuture.create();
+        }
+
+        @Override
+        protected ListenableFuture<String> wrap(TestTask task, SettableFuture<String> future) {
+            return future;
+        }
+
+        @Override
+        protected ListenableFuture<String> execute(AsyncTaskContext<TestTask, String> taskCtx) {
+            SettableFuture<String> future = SettableFuture.create();
+            running.put(taskCtx.getTask().name(), future);
+            launched.add(taskCtx.getTask().name());
+            return future;
+        }
+
+        @Override
+        public String getBufferName() {
+            return "Test";
+        }
+
+    }
+
+}
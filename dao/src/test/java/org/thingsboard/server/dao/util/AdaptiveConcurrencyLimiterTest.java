@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void givenLatencyBelowTarget_whenWindowIsOver_thenLimitIsIncreased() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, true, 10, 101, 50, 0.5, 10);
+
+        for (int i = 1; i < 10; i++) {
+            assertThat(limiter.onSample(i, false, 100)).isFalse();
+        }
+        assertThat(limiter.onSample(10, false, 100)).isTrue();
+
+        assertThat(limiter.getLimit()).isEqualTo(101);
+        assertThat(limiter.getLatencyP50()).isEqualTo(5);
+        assertThat(limiter.getLatencyP99()).isEqualTo(10);
+
+        completeWindow(limiter, 1, false, 100);
+        assertThat(limiter.getLimit()).isEqualTo(101);
+    }
+
+    @Test
+    public void givenLowLoad_whenWindowIsOver_thenLimitIsNotIncreased() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, true, 10, 1000, 50, 0.5, 10);
+
+        completeWindow(limiter, 1, false, 10);
+
+        assertThat(limiter.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    public void givenHighLatencyOrDroppedTask_whenWindowIsOver_thenLimitIsDecreased() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, true, 30, 1000, 50, 0.5, 10);
+
+        completeWindow(limiter, 60, false, 100);
+        assertThat(limiter.getLimit()).isEqualTo(50);
+
+        for (int i = 0; i < 9; i++) {
+            limiter.onSample(1, false, 50);
+        }
+        limiter.onSample(1, true, 50);
+        assertThat(limiter.getLimit()).isEqualTo(30);
+    }
+
+    @Test
+    public void givenAdaptiveModeDisabled_whenWindowIsOver_thenOnlyLatencyIsUpdated() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1000, false, 0, 0, 0, 0, 10);
+
+        completeWindow(limiter, 60, true, 1000);
+
+        assertThat(limiter.getLimit()).isEqualTo(1000);
+        assertThat(limiter.getLatencyP99()).isEqualTo(60);
+    }
+
+    @Test
+    public void givenInvalidConfiguration_whenCreate_thenFails() {
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(100, true, 10, 1000, 50, 1.5, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void completeWindow(AdaptiveConcurrencyLimiter limiter, long latencyMs, boolean dropped, int inFlight) {
+        for (int i = 0; i < 10; i++) {
+            limiter.onSample(latencyMs, dropped, inFlight);
+        }
+    }
+
+}
@@ -37,6 +37,8 @@ DROP TABLE IF EXISTS relation;
 DROP SEQUENCE IF EXISTS relation_version_seq;
 DROP TABLE IF EXISTS tenant;
 DROP TABLE IF EXISTS ts_kv;
+DROP TABLE IF EXISTS ts_kv_rollup;
+DROP TABLE IF EXISTS ts_kv_rollup_dirty;
 DROP TABLE IF EXISTS ts_kv_latest;
 DROP SEQUENCE IF EXISTS ts_kv_latest_version_seq;
 DROP TABLE IF EXISTS ts_kv_dictionary;
@@ -18,6 +18,7 @@ package org.thingsboard.mqtt;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.handler.codec.mqtt.MqttQoS;
 import io.netty.util.concurrent.Future;
@@ -65,8 +66,9 @@ public interface MqttClient {
     EventLoopGroup getEventLoop();
 
     /**
-     * By default we use the netty {@link NioEventLoopGroup}.
-     * If you change the EventLoopGroup to another type, make sure to change the {@link Channel} class using {@link MqttClientConfig#setChannelClass(Class)}
+     * By default we use the netty {@link NioEventLoopGroup}, or the {@link EpollEventLoopGroup} if {@link MqttClientConfig#setNativeTransport(boolean)} is enabled.
+     * The {@link Channel} class is chosen by the type of the EventLoopGroup, for the other types of the EventLoopGroup
+     * make sure to set the {@link Channel} class using {@link MqttClientConfig#setChannelClass(Class)}
      * If you want to force the MqttClient to use another {@link EventLoopGroup}, call this function before calling {@link #connect(String, int)}
      *
      * @param eventLoop The new eventloop to use
@@ -16,7 +16,6 @@
 package org.thingsboard.mqtt;
 
 import io.netty.channel.Channel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.mqtt.MqttVersion;
 import io.netty.handler.ssl.SslContext;
 import jakarta.annotation.Nonnull;
@@ -41,7 +40,8 @@ public final class MqttClientConfig {
     @Nullable private String password = null;
     private boolean cleanSession = true;
     @Nullable private MqttLastWill lastWill;
-    private Class<? extends Channel> channelClass = NioSocketChannel.class;
+    @Nullable private Class<? extends Channel> channelClass;
+    private boolean nativeTransport = false;
 
     private boolean reconnect = true;
     private long reconnectDelay = 1L;
@@ -133,14 +133,29 @@ public final class MqttClientConfig {
         this.lastWill = lastWill;
     }
 
+    /**
+     * @return the channel class set explicitly, or null if it is chosen by the type of the client event loop group
+     */
+    @Nullable
     public Class<? extends Channel> getChannelClass() {
         return channelClass;
     }
 
-    public void setChannelClass(Class<? extends Channel> channelClass) {
+    public void setChannelClass(@Nullable Class<? extends Channel> channelClass) {
         this.channelClass = channelClass;
     }
 
+    public boolean isNativeTransport() {
+        return nativeTransport;
+    }
+
+    /**
+     * Use the native epoll transport when it is available if the client creates its own event loop group
+     */
+    public void setNativeTransport(boolean nativeTransport) {
+        this.nativeTransport = nativeTransport;
+    }
+
     public SslContext getSslContext() {
         return sslContext;
     }
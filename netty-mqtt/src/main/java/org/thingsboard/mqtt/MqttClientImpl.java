@@ -19,13 +19,19 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.mqtt.MqttDecoder;
 import io.netty.handler.codec.mqtt.MqttEncoder;
 import io.netty.handler.codec.mqtt.MqttFixedHeader;
@@ -139,14 +145,15 @@ final class MqttClientImpl implements MqttClient {
     private Promise<MqttConnectResult> connect(String host, int port, boolean reconnect) {
         log.trace("[{}] Connecting to server, isReconnect - {}", channel != null ? channel.id() : "UNKNOWN", reconnect);
         if (this.eventLoop == null) {
-            this.eventLoop = new NioEventLoopGroup();
+            this.eventLoop = clientConfig.isNativeTransport() && Epoll.isAvailable() ? new EpollEventLoopGroup() : new NioEventLoopGroup();
         }
         this.host = host;
         this.port = port;
         Promise<MqttConnectResult> connectFuture = new DefaultPromise<>(this.eventLoop.next());
         Bootstrap bootstrap = new Bootstrap();
         bootstrap.group(this.eventLoop);
-        bootstrap.channel(clientConfig.getChannelClass());
+        bootstrap.channel(getChannelClass());
+        bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
         bootstrap.remoteAddress(host, port);
         bootstrap.handler(new MqttChannelInitializer(connectFuture, host, port, clientConfig.getSslContext()));
         ChannelFuture future = bootstrap.connect();
@@ -220,8 +227,9 @@ final class MqttClientImpl implements MqttClient {
     }
 
     /**
-     * By default we use the netty {@link NioEventLoopGroup}.
-     * If you change the EventLoopGroup to another type, make sure to change the {@link Channel} class using {@link MqttClientConfig#setChannelClass(Class)}
+     * By default we use the netty {@link NioEventLoopGroup}, or the {@link EpollEventLoopGroup} if {@link MqttClientConfig#setNativeTransport(boolean)} is enabled.
+     * The {@link Channel} class is chosen by the type of the EventLoopGroup, for the other types of the EventLoopGroup
+     * make sure to set the {@link Channel} class using {@link MqttClientConfig#setChannelClass(Class)}
      * If you want to force the MqttClient to use another {@link EventLoopGroup}, call this function before calling {@link #connect(String, int)}
      *
      * @param eventLoop The new eventloop to use
@@ -231,6 +239,13 @@ final class MqttClientImpl implements MqttClient {
         this.eventLoop = eventLoop;
     }
 
+    private Class<? extends Channel> getChannelClass() {
+        if (clientConfig.getChannelClass() != null) {
+            return clientConfig.getChannelClass();
+        }
+        return this.eventLoop instanceof EpollEventLoopGroup ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
     @Override
     public ListeningExecutor getHandlerExecutor() {
         return this.handlerExecutor;
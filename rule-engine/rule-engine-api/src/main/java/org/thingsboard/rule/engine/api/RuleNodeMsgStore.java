@@ -0,0 +1,46 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.api;
+
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.TbMsg;
+
+import java.util.function.BiPredicate;
+
+/**
+ * Local disk store of the messages buffered by the rule nodes, e.g. delayed or deduplicated ones.
+ * The messages of each rule node are kept under their keys in the lexicographical order of the keys,
+ * so the nodes may encode the timestamps of the messages into the keys to process them in time order.
+ * The messages survive the restart of the rule node and of the service; the callbacks of the messages are not stored.
+ */
+public interface RuleNodeMsgStore {
+
+    void put(RuleNodeId ruleNodeId, String key, TbMsg msg);
+
+    void remove(RuleNodeId ruleNodeId, String key);
+
+    /**
+     * Iterates over the messages of the rule node whose keys start with the prefix, in the order of the keys.
+     *
+     * The processor may remove the iterated messages.
+     *
+     * @param processor returns false to stop the iteration
+     */
+    void forEach(RuleNodeId ruleNodeId, String prefix, BiPredicate<String, TbMsg> processor);
+
+    void removeAll(RuleNodeId ruleNodeId);
+
+}
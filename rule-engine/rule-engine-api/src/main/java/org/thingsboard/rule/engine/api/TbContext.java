@@ -420,4 +420,9 @@ public interface TbContext {
     EventService getEventService();
 
     AuditLogService getAuditLogService();
+
+    /**
+     * @return store of the buffered messages of the rule nodes, or null if it is disabled
+     */
+    RuleNodeMsgStore getRuleNodeMsgStore();
 }
@@ -19,13 +19,16 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.mutable.MutableLong;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
+import org.thingsboard.rule.engine.api.RuleNodeMsgStore;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.rule.engine.util.TbDeadlineTickScheduler;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
@@ -37,10 +40,14 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -66,14 +73,22 @@ public class TbMsgDeduplicationNode implements TbNode {
 
     public static final int TB_MSG_DEDUPLICATION_RETRY_DELAY = 10;
 
+    // keys of the stored messages and of the deadlines of the deduplication ids with the stored messages
+    private static final String MSG_KEY_PREFIX = "m_";
+    private static final String DEADLINE_KEY_PREFIX = "t_";
+
     private TbMsgDeduplicationNodeConfiguration config;
 
     private final Map<EntityId, DeduplicationData> deduplicationMap;
+    private final Map<EntityId, Integer> storedMsgCounts;
     private long deduplicationInterval;
     private String queueName;
+    private RuleNodeMsgStore msgStore;
+    private TbDeadlineTickScheduler tickScheduler;
 
     public TbMsgDeduplicationNode() {
         this.deduplicationMap = new HashMap<>();
+        this.storedMsgCounts = new HashMap<>();
     }
 
     @Override
@@ -81,12 +96,22 @@ public class TbMsgDeduplicationNode implements TbNode {
         this.config = TbNodeUtils.convert(configuration, TbMsgDeduplicationNodeConfiguration.class);
         this.deduplicationInterval = TimeUnit.SECONDS.toMillis(config.getInterval());
         this.queueName = ctx.getQueueName();
+        this.msgStore = ctx.getRuleNodeMsgStore();
+        if (msgStore != null) {
+            initStoredMsgs(ctx);
+        }
     }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
         if (msg.isTypeOf(TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG)) {
-            processDeduplication(ctx, msg.getOriginator());
+            if (msgStore != null) {
+                processStoredDeduplications(ctx, msg);
+            } else {
+                processDeduplication(ctx, msg.getOriginator());
+            }
+        } else if (msgStore != null) {
+            storeMsg(ctx, msg);
         } else {
             processOnRegularMsg(ctx, msg);
         }
@@ -94,7 +119,9 @@ public class TbMsgDeduplicationNode implements TbNode {
 
     @Override
     public void destroy() {
+        // the stored messages are kept to be deduplicated after the restart of the rule node
         deduplicationMap.clear();
+        storedMsgCounts.clear();
     }
 
     @Override
@@ -138,63 +165,179 @@ public class TbMsgDeduplicationNode implements TbNode {
         }
         long deduplicationTimeoutMs = System.currentTimeMillis();
         try {
-            List<TbMsg> deduplicationResults = new ArrayList<>();
-            List<TbMsg> msgList = data.getMsgList();
-            Optional<TbPair<Long, Long>> packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
-            while (packBoundsOpt.isPresent()) {
-                TbPair<Long, Long> packBounds = packBoundsOpt.get();
-                if (DeduplicationStrategy.ALL.equals(config.getStrategy())) {
-                    List<TbMsg> pack = new ArrayList<>();
-                    for (Iterator<TbMsg> iterator = msgList.iterator(); iterator.hasNext(); ) {
-                        TbMsg msg = iterator.next();
-                        long msgTs = msg.getMetaDataTs();
-                        if (msgTs >= packBounds.getFirst() && msgTs < packBounds.getSecond()) {
-                            pack.add(msg);
-                            iterator.remove();
+            List<TbMsg> deduplicationResults = deduplicate(deduplicationId, data.getMsgList(), deduplicationTimeoutMs);
+            deduplicationResults.forEach(outMsg -> enqueueForTellNextWithRetry(ctx, outMsg, 0));
+        } finally {
+            if (!data.isEmpty()) {
+                scheduleTickMsg(ctx, deduplicationId, data);
+            }
+        }
+    }
+
+    private void initStoredMsgs(TbContext ctx) {
+        tickScheduler = new TbDeadlineTickScheduler(TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG);
+        storedMsgCounts.clear();
+        msgStore.forEach(ctx.getSelfId(), MSG_KEY_PREFIX, (key, msg) -> {
+            storedMsgCounts.merge(msg.getOriginator(), 1, Integer::sum);
+            return true;
+        });
+        Set<EntityId> scheduledIds = new HashSet<>();
+        MutableLong firstDeadline = new MutableLong(0);
+        msgStore.forEach(ctx.getSelfId(), DEADLINE_KEY_PREFIX, (key, tickMsg) -> {
+            if (scheduledIds.isEmpty()) {
+                firstDeadline.setValue(getDeadline(key));
+            }
+            scheduledIds.add(tickMsg.getOriginator());
+            return true;
+        });
+        if (firstDeadline.longValue() > 0) {
+            tickScheduler.schedule(ctx, firstDeadline.longValue());
+        }
+        // the deadline may be lost if the service stopped abruptly between the writes
+        long now = System.currentTimeMillis();
+        storedMsgCounts.keySet().stream()
+                .filter(id -> !scheduledIds.contains(id))
+                .forEach(id -> storeDeadline(ctx, id, now));
+        if (!storedMsgCounts.isEmpty()) {
+            log.debug("[{}] Restored pending msgs of {} deduplication ids", ctx.getSelfId(), storedMsgCounts.size());
+        }
+    }
+
+    private void storeMsg(TbContext ctx, TbMsg msg) {
+        EntityId id = msg.getOriginator();
+        int storedMsgCount = storedMsgCounts.getOrDefault(id, 0);
+        if (storedMsgCount < config.getMaxPendingMsgs()) {
+            log.trace("[{}][{}] Adding msg: [{}][{}] to the msg store ...", ctx.getSelfId(), id, msg.getId(), msg.getMetaDataTs());
+            msgStore.put(ctx.getSelfId(), getMsgKey(id, msg.getId()), msg);
+            storedMsgCounts.put(id, storedMsgCount + 1);
+            ctx.ack(msg);
+            if (storedMsgCount == 0) {
+                storeDeadline(ctx, id, System.currentTimeMillis() + deduplicationInterval + 1);
+            }
+        } else {
+            log.trace("[{}] Max limit of pending messages reached for deduplication id: [{}]", ctx.getSelfId(), id);
+            ctx.tellFailure(msg, new RuntimeException("[" + ctx.getSelfId() + "] Max limit of pending messages reached for deduplication id: [" + id + "]"));
+        }
+    }
+
+    private void processStoredDeduplications(TbContext ctx, TbMsg tickMsg) {
+        tickScheduler.onTick(tickMsg);
+        long deduplicationTimeoutMs = System.currentTimeMillis();
+        List<EntityId> dueIds = new ArrayList<>();
+        MutableLong nextDeadline = new MutableLong(0);
+        // the keys start with the deadline, so the iteration stops at the first deadline that is not due yet
+        msgStore.forEach(ctx.getSelfId(), DEADLINE_KEY_PREFIX, (key, deadlineMsg) -> {
+            long deadline = getDeadline(key);
+            if (deadline > deduplicationTimeoutMs) {
+                nextDeadline.setValue(deadline);
+                return false;
+            }
+            msgStore.remove(ctx.getSelfId(), key);
+            dueIds.add(deadlineMsg.getOriginator());
+            return true;
+        });
+        dueIds.forEach(id -> processStoredDeduplication(ctx, id, deduplicationTimeoutMs));
+        if (nextDeadline.longValue() > 0) {
+            tickScheduler.schedule(ctx, nextDeadline.longValue());
+        }
+    }
+
+    private void processStoredDeduplication(TbContext ctx, EntityId deduplicationId, long deduplicationTimeoutMs) {
+        Map<UUID, String> msgKeys = new HashMap<>();
+        List<TbMsg> msgList = new LinkedList<>();
+        msgStore.forEach(ctx.getSelfId(), getMsgKeyPrefix(deduplicationId), (key, msg) -> {
+            msgKeys.put(msg.getId(), key);
+            msgList.add(msg);
+            return true;
+        });
+        List<TbMsg> deduplicationResults = deduplicate(deduplicationId, msgList, deduplicationTimeoutMs);
+        msgList.forEach(msg -> msgKeys.remove(msg.getId()));
+        msgKeys.values().forEach(key -> msgStore.remove(ctx.getSelfId(), key));
+        if (msgList.isEmpty()) {
+            storedMsgCounts.remove(deduplicationId);
+        } else {
+            storedMsgCounts.put(deduplicationId, msgList.size());
+            storeDeadline(ctx, deduplicationId, deduplicationTimeoutMs + deduplicationInterval + 1);
+        }
+        deduplicationResults.forEach(outMsg -> enqueueForTellNextWithRetry(ctx, outMsg, 0));
+    }
+
+    private void storeDeadline(TbContext ctx, EntityId deduplicationId, long deadline) {
+        TbMsg deadlineMsg = ctx.newMsg(null, TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG, deduplicationId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING);
+        msgStore.put(ctx.getSelfId(), String.format("%s%016x_%s_%s", DEADLINE_KEY_PREFIX, deadline, deduplicationId.getEntityType(), deduplicationId.getId()), deadlineMsg);
+        tickScheduler.schedule(ctx, deadline);
+    }
+
+    private static String getMsgKeyPrefix(EntityId deduplicationId) {
+        return MSG_KEY_PREFIX + deduplicationId.getEntityType() + "_" + deduplicationId.getId() + "_";
+    }
+
+    private static String getMsgKey(EntityId deduplicationId, UUID msgId) {
+        return getMsgKeyPrefix(deduplicationId) + msgId;
+    }
+
+    private static long getDeadline(String deadlineKey) {
+        int start = DEADLINE_KEY_PREFIX.length();
+        return Long.parseLong(deadlineKey, start, start + 16, 16);
+    }
+
+    /**
+     * Removes the messages of the valid packs from the list.
+     *
+     * @return deduplication results of the valid packs
+     */
+    private List<TbMsg> deduplicate(EntityId deduplicationId, List<TbMsg> msgList, long deduplicationTimeoutMs) {
+        List<TbMsg> deduplicationResults = new ArrayList<>();
+        Optional<TbPair<Long, Long>> packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
+        while (packBoundsOpt.isPresent()) {
+            TbPair<Long, Long> packBounds = packBoundsOpt.get();
+            if (DeduplicationStrategy.ALL.equals(config.getStrategy())) {
+                List<TbMsg> pack = new ArrayList<>();
+                for (Iterator<TbMsg> iterator = msgList.iterator(); iterator.hasNext(); ) {
+                    TbMsg msg = iterator.next();
+                    long msgTs = msg.getMetaDataTs();
+                    if (msgTs >= packBounds.getFirst() && msgTs < packBounds.getSecond()) {
+                        pack.add(msg);
+                        iterator.remove();
+                    }
+                }
+                deduplicationResults.add(TbMsg.newMsg()
+                        .queueName(queueName)
+                        .type(config.getOutMsgType())
+                        .originator(deduplicationId)
+                        .copyMetaData(getMetadata())
+                        .data(getMergedData(pack))
+                        .build());
+            } else {
+                TbMsg resultMsg = null;
+                boolean searchMin = DeduplicationStrategy.FIRST.equals(config.getStrategy());
+                for (Iterator<TbMsg> iterator = msgList.iterator(); iterator.hasNext(); ) {
+                    TbMsg msg = iterator.next();
+                    long msgTs = msg.getMetaDataTs();
+                    if (msgTs >= packBounds.getFirst() && msgTs < packBounds.getSecond()) {
+                        iterator.remove();
+                        if (resultMsg == null
+                                || (searchMin && msg.getMetaDataTs() < resultMsg.getMetaDataTs())
+                                || (!searchMin && msg.getMetaDataTs() > resultMsg.getMetaDataTs())) {
+                            resultMsg = msg;
                         }
                     }
+                }
+                if (resultMsg != null) {
+                    String queueName1 = queueName != null ? queueName : resultMsg.getQueueName();
                     deduplicationResults.add(TbMsg.newMsg()
-                            .queueName(queueName)
-                            .type(config.getOutMsgType())
-                            .originator(deduplicationId)
-                            .copyMetaData(getMetadata())
-                            .data(getMergedData(pack))
+                            .queueName(queueName1)
+                            .type(resultMsg.getType())
+                            .originator(resultMsg.getOriginator())
+                            .customerId(resultMsg.getCustomerId())
+                            .copyMetaData(resultMsg.getMetaData())
+                            .data(resultMsg.getData())
                             .build());
-                } else {
-                    TbMsg resultMsg = null;
-                    boolean searchMin = DeduplicationStrategy.FIRST.equals(config.getStrategy());
-                    for (Iterator<TbMsg> iterator = msgList.iterator(); iterator.hasNext(); ) {
-                        TbMsg msg = iterator.next();
-                        long msgTs = msg.getMetaDataTs();
-                        if (msgTs >= packBounds.getFirst() && msgTs < packBounds.getSecond()) {
-                            iterator.remove();
-                            if (resultMsg == null
-                                    || (searchMin && msg.getMetaDataTs() < resultMsg.getMetaDataTs())
-                                    || (!searchMin && msg.getMetaDataTs() > resultMsg.getMetaDataTs())) {
-                                resultMsg = msg;
-                            }
-                        }
-                    }
-                    if (resultMsg != null) {
-                        String queueName1 = queueName != null ? queueName : resultMsg.getQueueName();
-                        deduplicationResults.add(TbMsg.newMsg()
-                                .queueName(queueName1)
-                                .type(resultMsg.getType())
-                                .originator(resultMsg.getOriginator())
-                                .customerId(resultMsg.getCustomerId())
-                                .copyMetaData(resultMsg.getMetaData())
-                                .data(resultMsg.getData())
-                                .build());
-                    }
                 }
-                packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
-            }
-            deduplicationResults.forEach(outMsg -> enqueueForTellNextWithRetry(ctx, outMsg, 0));
-        } finally {
-            if (!data.isEmpty()) {
-                scheduleTickMsg(ctx, deduplicationId, data);
             }
+            packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
         }
+        return deduplicationResults;
     }
 
     private void scheduleTickMsg(TbContext ctx, EntityId deduplicationId, DeduplicationData data) {
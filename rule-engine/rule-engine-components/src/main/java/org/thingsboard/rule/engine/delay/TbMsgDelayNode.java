@@ -17,12 +17,15 @@ package org.thingsboard.rule.engine.delay;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.commons.lang3.mutable.MutableLong;
 import org.thingsboard.rule.engine.api.RuleNode;
+import org.thingsboard.rule.engine.api.RuleNodeMsgStore;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.rule.engine.util.TbDeadlineTickScheduler;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
 import org.thingsboard.server.common.data.plugin.ComponentType;
@@ -51,30 +54,33 @@ public class TbMsgDelayNode implements TbNode {
 
     private TbMsgDelayNodeConfiguration config;
     private Map<UUID, TbMsg> pendingMsgs;
+    private RuleNodeMsgStore msgStore;
+    private TbDeadlineTickScheduler tickScheduler;
+    private int storedMsgsCount;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbMsgDelayNodeConfiguration.class);
         this.pendingMsgs = new HashMap<>();
+        this.msgStore = ctx.getRuleNodeMsgStore();
+        if (msgStore != null) {
+            initStoredMsgs(ctx);
+        }
     }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
         if (msg.isTypeOf(TbMsgType.DELAY_TIMEOUT_SELF_MSG)) {
+            if (msgStore != null) {
+                processStoredMsgs(ctx, msg);
+                return;
+            }
             TbMsg pendingMsg = pendingMsgs.remove(UUID.fromString(msg.getData()));
             if (pendingMsg != null) {
-                ctx.enqueueForTellNext(
-                        TbMsg.newMsg()
-                                .queueName(pendingMsg.getQueueName())
-                                .type(pendingMsg.getType())
-                                .originator(pendingMsg.getOriginator())
-                                .customerId(pendingMsg.getCustomerId())
-                                .copyMetaData(pendingMsg.getMetaData())
-                                .data(pendingMsg.getData())
-                                .build(),
-                        TbNodeConnectionType.SUCCESS
-                );
+                enqueueForTellNext(ctx, pendingMsg);
             }
+        } else if (msgStore != null) {
+            storeMsg(ctx, msg);
         } else {
             if (pendingMsgs.size() < config.getMaxPendingMsgs()) {
                 pendingMsgs.put(msg.getId(), msg);
@@ -87,6 +93,77 @@ public class TbMsgDelayNode implements TbNode {
         }
     }
 
+    private void initStoredMsgs(TbContext ctx) {
+        tickScheduler = new TbDeadlineTickScheduler(TbMsgType.DELAY_TIMEOUT_SELF_MSG);
+        storedMsgsCount = 0;
+        MutableLong firstDeadline = new MutableLong(0);
+        msgStore.forEach(ctx.getSelfId(), "", (key, msg) -> {
+            if (storedMsgsCount++ == 0) {
+                firstDeadline.setValue(getDeadline(key));
+            }
+            return true;
+        });
+        if (storedMsgsCount > 0) {
+            log.debug("[{}] Restored {} delayed messages", ctx.getSelfId(), storedMsgsCount);
+            tickScheduler.schedule(ctx, firstDeadline.longValue());
+        }
+    }
+
+    private void storeMsg(TbContext ctx, TbMsg msg) {
+        if (storedMsgsCount < config.getMaxPendingMsgs()) {
+            long deadline = System.currentTimeMillis() + getDelay(msg);
+            msgStore.put(ctx.getSelfId(), toKey(deadline, msg.getId()), msg);
+            storedMsgsCount++;
+            tickScheduler.schedule(ctx, deadline);
+            ctx.ack(msg);
+        } else {
+            ctx.tellFailure(msg, new RuntimeException("Max limit of pending messages reached!"));
+        }
+    }
+
+    private void processStoredMsgs(TbContext ctx, TbMsg tickMsg) {
+        tickScheduler.onTick(tickMsg);
+        long now = System.currentTimeMillis();
+        MutableLong nextDeadline = new MutableLong(0);
+        // the keys start with the deadline, so the iteration stops at the first message that is not due yet
+        msgStore.forEach(ctx.getSelfId(), "", (key, pendingMsg) -> {
+            long deadline = getDeadline(key);
+            if (deadline > now) {
+                nextDeadline.setValue(deadline);
+                return false;
+            }
+            msgStore.remove(ctx.getSelfId(), key);
+            storedMsgsCount--;
+            enqueueForTellNext(ctx, pendingMsg);
+            return true;
+        });
+        if (nextDeadline.longValue() > 0) {
+            tickScheduler.schedule(ctx, nextDeadline.longValue());
+        }
+    }
+
+    private void enqueueForTellNext(TbContext ctx, TbMsg pendingMsg) {
+        ctx.enqueueForTellNext(
+                TbMsg.newMsg()
+                        .queueName(pendingMsg.getQueueName())
+                        .type(pendingMsg.getType())
+                        .originator(pendingMsg.getOriginator())
+                        .customerId(pendingMsg.getCustomerId())
+                        .copyMetaData(pendingMsg.getMetaData())
+                        .data(pendingMsg.getData())
+                        .build(),
+                TbNodeConnectionType.SUCCESS
+        );
+    }
+
+    private static String toKey(long deadline, UUID msgId) {
+        return String.format("%016x_%s", deadline, msgId);
+    }
+
+    private static long getDeadline(String key) {
+        return Long.parseLong(key, 0, 16, 16);
+    }
+
     private long getDelay(TbMsg msg) {
         int periodInSeconds;
         if (config.isUseMetadataPeriodInSecondsPatterns()) {
@@ -107,6 +184,7 @@ public class TbMsgDelayNode implements TbNode {
 
     @Override
     public void destroy() {
+        // the stored messages are kept to be delayed after the restart of the rule node
         pendingMsgs.clear();
     }
 }
@@ -15,6 +15,8 @@
  */
 package org.thingsboard.rule.engine.geo;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
@@ -22,6 +24,8 @@ import lombok.NonNull;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.geom.util.GeometryFixer;
 import org.locationtech.spatial4j.context.SpatialContext;
 import org.locationtech.spatial4j.context.jts.JtsSpatialContext;
@@ -38,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class GeoUtil {
@@ -45,33 +50,48 @@ public class GeoUtil {
     private static final SpatialContext distCtx = SpatialContext.GEO;
     private static final JtsSpatialContext jtsCtx;
 
+    // perimeters are usually taken from the node configuration or the attributes of a limited number of zones,
+    // so the parsed geometries are reused by the messages instead of being built for every point
+    private static final Cache<String, PreparedGeometry> preparedGeometries = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
     static {
         JtsSpatialContextFactory factory = new JtsSpatialContextFactory();
         factory.normWrapLongitude = true;
         jtsCtx = factory.newSpatialContext();
     }
 
-    public static synchronized double distance(Coordinates x, Coordinates y, RangeUnit unit) {
+    public static double distance(Coordinates x, Coordinates y, RangeUnit unit) {
         Point xLL = distCtx.getShapeFactory().pointXY(x.getLongitude(), x.getLatitude());
         Point yLL = distCtx.getShapeFactory().pointXY(y.getLongitude(), y.getLatitude());
         return unit.fromKm(distCtx.getDistCalc().distance(xLL, yLL) * DistanceUtils.DEG_TO_KM);
     }
 
-    public static synchronized boolean contains(@NonNull String polygonInString, @NonNull Coordinates coordinates) {
+    public static boolean contains(@NonNull String polygonInString, @NonNull Coordinates coordinates) {
         if (polygonInString.isEmpty() || polygonInString.isBlank()) {
             throw new RuntimeException("Polygon string can't be empty or null!");
         }
 
+        PreparedGeometry globalGeometry = preparedGeometries.get(polygonInString, GeoUtil::buildGlobalGeometry);
+        var point = jtsCtx.getShapeFactory().getGeometryFactory()
+                .createPoint(new Coordinate(coordinates.getLatitude(), coordinates.getLongitude()));
+
+        return globalGeometry.contains(point);
+    }
+
+    /**
+     * Builds the union of the polygons without the holes. The prepared geometry indexes the edges of the result,
+     * so the point is located without scanning all edges, and is safe to be used by several threads.
+     */
+    private static PreparedGeometry buildGlobalGeometry(String polygonInString) {
         JsonArray polygonsJson = normalizePolygonsJson(JsonParser.parseString(polygonInString).getAsJsonArray());
         List<Geometry> polygons = buildPolygonsFromJson(polygonsJson);
         Set<Geometry> holes = extractHolesFrom(polygons);
         polygons.removeIf(holes::contains);
 
-        Geometry globalGeometry = unionToGlobalGeometry(polygons, holes);
-        var point = jtsCtx.getShapeFactory().getGeometryFactory()
-                .createPoint(new Coordinate(coordinates.getLatitude(), coordinates.getLongitude()));
-
-        return globalGeometry.contains(point);
+        return PreparedGeometryFactory.prepare(unionToGlobalGeometry(polygons, holes));
     }
 
     private static Geometry unionToGlobalGeometry(List<Geometry> polygons, Set<Geometry> holes) {
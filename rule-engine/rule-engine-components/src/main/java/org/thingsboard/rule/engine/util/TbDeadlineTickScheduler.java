@@ -0,0 +1,59 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.util;
+
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+/**
+ * Schedules a single tick message of the rule node for the earliest of the deadlines of the buffered messages
+ * instead of a tick message per each buffered message or originator.
+ * Not thread safe, expected to be used from the rule node actor only.
+ */
+public class TbDeadlineTickScheduler {
+
+    private final TbMsgType tickMsgType;
+    private long nextTickTs = Long.MAX_VALUE;
+
+    public TbDeadlineTickScheduler(TbMsgType tickMsgType) {
+        this.tickMsgType = tickMsgType;
+    }
+
+    /**
+     * Schedules the tick message for the deadline, unless the tick is already scheduled for an earlier time.
+     */
+    public void schedule(TbContext ctx, long deadline) {
+        if (deadline < nextTickTs) {
+            nextTickTs = deadline;
+            TbMsg tickMsg = ctx.newMsg(null, tickMsgType, ctx.getSelfId(), TbMsgMetaData.EMPTY, Long.toString(deadline));
+            ctx.tellSelf(tickMsg, Math.max(0, deadline - System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Should be called on the tick message before the due messages are processed and the next deadline is scheduled.
+     * The ticks that were scheduled for the later deadlines before the earlier ones arrive as well, but do not cause
+     * additional ticks to be scheduled.
+     */
+    public void onTick(TbMsg tickMsg) {
+        if (Long.toString(nextTickTs).equals(tickMsg.getData())) {
+            nextTickTs = Long.MAX_VALUE;
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine;
+
+import org.thingsboard.rule.engine.api.RuleNodeMsgStore;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.TbMsg;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiPredicate;
+
+public class TestRuleNodeMsgStore implements RuleNodeMsgStore {
+
+    private final ConcurrentNavigableMap<String, TbMsg> msgs = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void put(RuleNodeId ruleNodeId, String key, TbMsg msg) {
+        msgs.put(toKey(ruleNodeId, key), msg);
+    }
+
+    @Override
+    public void remove(RuleNodeId ruleNodeId, String key) {
+        msgs.remove(toKey(ruleNodeId, key));
+    }
+
+    @Override
+    public void forEach(RuleNodeId ruleNodeId, String prefix, BiPredicate<String, TbMsg> processor) {
+        String nodePrefix = toKey(ruleNodeId, "");
+        for (Map.Entry<String, TbMsg> entry : msgs.tailMap(nodePrefix + prefix).entrySet()) {
+            if (!entry.getKey().startsWith(nodePrefix + prefix)
+                    || !processor.test(entry.getKey().substring(nodePrefix.length()), entry.getValue())) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void removeAll(RuleNodeId ruleNodeId) {
+        msgs.keySet().removeIf(key -> key.startsWith(toKey(ruleNodeId, "")));
+    }
+
+    public int size() {
+        return msgs.size();
+    }
+
+    private static String toKey(RuleNodeId ruleNodeId, String key) {
+        return ruleNodeId.getId() + "/" + key;
+    }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.delay;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.rule.engine.TestRuleNodeMsgStore;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.rule.engine.api.TbNodeException;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+public class TbMsgDelayNodeTest {
+
+    private final RuleNodeId RULE_NODE_ID = new RuleNodeId(UUID.fromString("5b0f1bb6-6b07-4b5e-9f0b-3e3e0b7ad1f4"));
+    private final DeviceId DEVICE_ID = new DeviceId(UUID.fromString("0c4a1bd2-3a0c-4a3c-9d6e-2f0e1b4c6e7a"));
+
+    private final TestRuleNodeMsgStore msgStore = new TestRuleNodeMsgStore();
+
+    private TbMsgDelayNodeConfiguration config;
+
+    @Mock
+    private TbContext ctxMock;
+
+    @BeforeEach
+    public void setUp() {
+        config = new TbMsgDelayNodeConfiguration().defaultConfiguration();
+        given(ctxMock.getSelfId()).willReturn(RULE_NODE_ID);
+        given(ctxMock.getRuleNodeMsgStore()).willReturn(msgStore);
+        willAnswer(invocation -> TbMsg.newMsg()
+                .type(invocation.getArgument(1, TbMsgType.class))
+                .originator(invocation.getArgument(2, EntityId.class))
+                .copyMetaData(invocation.getArgument(3, TbMsgMetaData.class))
+                .data(invocation.getArgument(4, String.class))
+                .build()
+        ).given(ctxMock).newMsg(isNull(), eq(TbMsgType.DELAY_TIMEOUT_SELF_MSG), any(EntityId.class), any(TbMsgMetaData.class), any(String.class));
+    }
+
+    @Test
+    public void givenMsgStore_whenMsgsDelayed_thenSingleTickScheduledAndDueMsgsEnqueued() throws TbNodeException {
+        config.setPeriodInSeconds(0);
+        TbMsgDelayNode node = initNode();
+        List<TbMsg> msgs = List.of(createMsg("{\"value\":1}"), createMsg("{\"value\":2}"), createMsg("{\"value\":3}"));
+
+        msgs.forEach(msg -> node.onMsg(ctxMock, msg));
+
+        ArgumentCaptor<TbMsg> tickMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        then(ctxMock).should().tellSelf(tickMsgCaptor.capture(), anyLong());
+        then(ctxMock).should(times(3)).ack(any());
+        assertThat(msgStore.size()).isEqualTo(3);
+
+        node.onMsg(ctxMock, tickMsgCaptor.getValue());
+
+        ArgumentCaptor<TbMsg> outMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        then(ctxMock).should(times(3)).enqueueForTellNext(outMsgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS));
+        assertThat(outMsgCaptor.getAllValues()).extracting(TbMsg::getData).containsExactlyInAnyOrderElementsOf(msgs.stream().map(TbMsg::getData).toList());
+        assertThat(outMsgCaptor.getAllValues()).extracting(TbMsg::getQueueName).containsOnly(DataConstants.HP_QUEUE_NAME);
+        assertThat(msgStore.size()).isZero();
+    }
+
+    @Test
+    public void givenMsgStoreWithDelayedMsgs_whenRestarted_thenTickScheduledForStoredMsgs() throws TbNodeException {
+        config.setPeriodInSeconds(60);
+        TbMsgDelayNode node = initNode();
+        node.onMsg(ctxMock, createMsg("{\"value\":1}"));
+        node.destroy();
+
+        TbMsgDelayNode restartedNode = initNode();
+
+        ArgumentCaptor<Long> delayCaptor = ArgumentCaptor.forClass(Long.class);
+        then(ctxMock).should(times(2)).tellSelf(any(TbMsg.class), delayCaptor.capture());
+        assertThat(delayCaptor.getValue()).isGreaterThan(59000L).isLessThanOrEqualTo(60000L);
+        assertThat(msgStore.size()).isEqualTo(1);
+        restartedNode.destroy();
+    }
+
+    @Test
+    public void givenMsgStore_whenMaxPendingMsgsReached_thenTellFailure() throws TbNodeException {
+        config.setMaxPendingMsgs(1);
+        TbMsgDelayNode node = initNode();
+        TbMsg msg = createMsg("{\"value\":1}");
+        TbMsg msgToReject = createMsg("{\"value\":2}");
+
+        node.onMsg(ctxMock, msg);
+        node.onMsg(ctxMock, msgToReject);
+
+        then(ctxMock).should().ack(msg);
+        then(ctxMock).should().tellFailure(eq(msgToReject), any(RuntimeException.class));
+        assertThat(msgStore.size()).isEqualTo(1);
+    }
+
+    private TbMsgDelayNode initNode() throws TbNodeException {
+        TbMsgDelayNode node = new TbMsgDelayNode();
+        node.init(ctxMock, new TbNodeConfiguration(JacksonUtil.valueToTree(config)));
+        return node;
+    }
+
+    private TbMsg createMsg(String data) {
+        return TbMsg.newMsg()
+                .queueName(DataConstants.HP_QUEUE_NAME)
+                .type(TbMsgType.POST_TELEMETRY_REQUEST)
+                .originator(DEVICE_ID)
+                .copyMetaData(TbMsgMetaData.EMPTY)
+                .data(data)
+                .build();
+    }
+
+}
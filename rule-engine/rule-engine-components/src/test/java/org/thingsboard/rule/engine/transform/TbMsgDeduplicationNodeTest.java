@@ -31,6 +31,7 @@ import org.mockito.stubbing.Answer;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.rule.engine.AbstractRuleNodeUpgradeTest;
+import org.thingsboard.rule.engine.TestRuleNodeMsgStore;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
@@ -51,6 +52,7 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -59,15 +61,18 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -412,6 +417,50 @@ public class TbMsgDeduplicationNodeTest extends AbstractRuleNodeUpgradeTest {
     }
 
     // Rule nodes upgrade
+    @Test
+    public void givenMsgStore_whenMsgsOfSeveralOriginatorsAndRestart_thenSingleTickScheduledAndStoredMsgsDeduplicated() throws TbNodeException, ExecutionException, InterruptedException {
+        TestRuleNodeMsgStore msgStore = new TestRuleNodeMsgStore();
+        when(ctx.getRuleNodeMsgStore()).thenReturn(msgStore);
+        config.setInterval(deduplicationInterval);
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(config));
+        node.init(ctx, nodeConfiguration);
+
+        long packStartTs = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(deduplicationInterval);
+        List<TbMsg> firstDeviceMsgs = getTbMsgs(new DeviceId(UUID.randomUUID()), 3, packStartTs, 0);
+        List<TbMsg> secondDeviceMsgs = getTbMsgs(new DeviceId(UUID.randomUUID()), 3, packStartTs, 0);
+        for (int i = 0; i < 3; i++) {
+            node.onMsg(ctx, firstDeviceMsgs.get(i));
+            node.onMsg(ctx, secondDeviceMsgs.get(i));
+        }
+
+        verify(ctx, times(6)).ack(any());
+        verify(ctx, times(1)).tellSelf(any(TbMsg.class), anyLong());
+        Assertions.assertEquals(8, msgStore.size());
+
+        node.destroy();
+        TbMsgDeduplicationNode restartedNode = new TbMsgDeduplicationNode();
+        doAnswer((Answer<Void>) invocationOnMock -> {
+            TbMsg msg = (TbMsg) (invocationOnMock.getArguments())[0];
+            long delay = (long) (invocationOnMock.getArguments())[1];
+            executorService.schedule(() -> {
+                try {
+                    restartedNode.onMsg(ctx, msg);
+                } catch (ExecutionException | InterruptedException | TbNodeException e) {
+                    log.error("Failed to execute tellSelf method call due to: ", e);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            return null;
+        }).when(ctx).tellSelf(any(TbMsg.class), anyLong());
+        restartedNode.init(ctx, nodeConfiguration);
+
+        ArgumentCaptor<TbMsg> newMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, timeout(5000).times(2)).enqueueForTellNext(newMsgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS), any(), any());
+        Assertions.assertEquals(Set.of(firstDeviceMsgs.get(0).getOriginator(), secondDeviceMsgs.get(0).getOriginator()),
+                newMsgCaptor.getAllValues().stream().map(TbMsg::getOriginator).collect(Collectors.toSet()));
+        Assertions.assertEquals(firstDeviceMsgs.get(0).getMetaData(), newMsgCaptor.getAllValues().get(0).getMetaData());
+        Assertions.assertEquals(0, msgStore.size());
+    }
+
     private static Stream<Arguments> givenFromVersionAndConfig_whenUpgrade_thenVerifyHasChangesAndConfig() {
         return Stream.of(
                 // default config for version 0